@@ -0,0 +1,10 @@
+-- Table da_authentication_attempt stores counts of failed authentication attempts, so that the counts survive restarts.
+CREATE TABLE da_authentication_attempt (
+    user_id                VARCHAR(256) NOT NULL,
+    organization_id        VARCHAR(256) NOT NULL,
+    failed_attempt_count   INT NOT NULL,
+    timestamp_last_failure DATETIME(6) NOT NULL,
+    PRIMARY KEY (user_id, organization_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE INDEX da_auth_attempt_last_failure_idx ON da_authentication_attempt (timestamp_last_failure);
@@ -0,0 +1,10 @@
+-- Table da_authentication_attempt stores counts of failed authentication attempts, so that the counts survive restarts.
+CREATE TABLE da_authentication_attempt (
+    user_id                VARCHAR2(256 CHAR) NOT NULL,
+    organization_id        VARCHAR2(256 CHAR) NOT NULL,
+    failed_attempt_count   NUMBER(10, 0) NOT NULL,
+    timestamp_last_failure TIMESTAMP(6) NOT NULL,
+    CONSTRAINT da_authentication_attempt_pk PRIMARY KEY (user_id, organization_id)
+);
+
+CREATE INDEX da_auth_attempt_last_failure_idx ON da_authentication_attempt (timestamp_last_failure);
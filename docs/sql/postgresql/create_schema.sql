@@ -0,0 +1,10 @@
+-- Table da_authentication_attempt stores counts of failed authentication attempts, so that the counts survive restarts.
+CREATE TABLE da_authentication_attempt (
+    user_id                VARCHAR(256) NOT NULL,
+    organization_id        VARCHAR(256) NOT NULL,
+    failed_attempt_count   INTEGER NOT NULL,
+    timestamp_last_failure TIMESTAMP NOT NULL,
+    CONSTRAINT da_authentication_attempt_pkey PRIMARY KEY (user_id, organization_id)
+);
+
+CREATE INDEX da_auth_attempt_last_failure_idx ON da_authentication_attempt (timestamp_last_failure);
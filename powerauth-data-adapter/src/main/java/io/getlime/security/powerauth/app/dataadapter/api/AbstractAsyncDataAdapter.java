@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.api;
+
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
+import io.getlime.security.powerauth.app.dataadapter.exception.UserNotFoundException;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.AuthenticationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.enumeration.AccountStatus;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.*;
+import io.getlime.security.powerauth.lib.nextstep.model.enumeration.AuthMethod;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Base class of Data Adapter implementations with asynchronous backend clients. The synchronous methods which have
+ * an asynchronous variant wait for the asynchronous method, so that callers which require the synchronous interface,
+ * e.g. batch execution, keep working. The remaining {@link DataAdapter} methods are implemented by the subclass.
+ */
+public abstract class AbstractAsyncDataAdapter implements DataAdapter, AsyncDataAdapter {
+
+    @Override
+    public UserDetailResponse lookupUser(String username, String organizationId, String clientCertificate, OperationContext operationContext) throws DataAdapterRemoteException, UserNotFoundException {
+        return await(lookupUserAsync(username, organizationId, clientCertificate, operationContext), UserNotFoundException.class);
+    }
+
+    @Override
+    public UserAuthenticationResponse authenticateUser(String userId, String password, AuthenticationContext authenticationContext, String organizationId, OperationContext operationContext) throws DataAdapterRemoteException {
+        return await(authenticateUserAsync(userId, password, authenticationContext, organizationId, operationContext), DataAdapterRemoteException.class);
+    }
+
+    @Override
+    public UserDetailResponse fetchUserDetail(String userId, String organizationId, OperationContext operationContext) throws DataAdapterRemoteException, UserNotFoundException {
+        return await(fetchUserDetailAsync(userId, organizationId, operationContext), UserNotFoundException.class);
+    }
+
+    @Override
+    public CreateSmsAuthorizationResponse createAndSendAuthorizationSms(String userId, String organizationId, AccountStatus accountStatus, AuthMethod authMethod, OperationContext operationContext, String lang) throws InvalidOperationContextException, DataAdapterRemoteException {
+        return await(createAndSendAuthorizationSmsAsync(userId, organizationId, accountStatus, authMethod, operationContext, lang), InvalidOperationContextException.class);
+    }
+
+    @Override
+    public SendAuthorizationSmsResponse sendAuthorizationSms(String userId, String organizationId, AccountStatus accountStatus, AuthMethod authMethod, OperationContext operationContext, String messageId, String authorizationCode, String lang) throws InvalidOperationContextException, DataAdapterRemoteException {
+        return await(sendAuthorizationSmsAsync(userId, organizationId, accountStatus, authMethod, operationContext, messageId, authorizationCode, lang), InvalidOperationContextException.class);
+    }
+
+    @Override
+    public VerifySmsAuthorizationResponse verifyAuthorizationSms(String userId, String organizationId, AccountStatus accountStatus, String messageId, String authorizationCode, OperationContext operationContext) throws DataAdapterRemoteException, InvalidOperationContextException {
+        return await(verifyAuthorizationSmsAsync(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext), InvalidOperationContextException.class);
+    }
+
+    @Override
+    public VerifySmsAndPasswordResponse verifyAuthorizationSmsAndPassword(String userId, String organizationId, AccountStatus accountStatus, String messageId, String authorizationCode, OperationContext operationContext, AuthenticationContext authenticationContext, String password) throws DataAdapterRemoteException, InvalidOperationContextException {
+        return await(verifyAuthorizationSmsAndPasswordAsync(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext, authenticationContext, password), InvalidOperationContextException.class);
+    }
+
+    @Override
+    public VerifyCertificateResponse verifyClientCertificate(String userId, String organizationId, String clientCertificate, AuthMethod authMethod, AccountStatus accountStatus, OperationContext operationContext) throws DataAdapterRemoteException, InvalidOperationContextException {
+        return await(verifyClientCertificateAsync(userId, organizationId, clientCertificate, authMethod, accountStatus, operationContext), InvalidOperationContextException.class);
+    }
+
+    /**
+     * Wait for completion of an asynchronous method and rethrow the exception of the method.
+     * @param stage Stage returned by the asynchronous method.
+     * @param exceptionType Checked exception declared by the synchronous method in addition to {@link DataAdapterRemoteException}.
+     * @param <T> Response type.
+     * @param <E> Declared exception type.
+     * @return Response.
+     * @throws DataAdapterRemoteException Thrown when the method fails with a remote error, an undeclared checked exception or when waiting is interrupted.
+     * @throws E Thrown when the method fails with the declared exception.
+     */
+    protected static <T, E extends Exception> T await(CompletionStage<T> stage, Class<E> exceptionType) throws DataAdapterRemoteException, E {
+        try {
+            return stage.toCompletableFuture().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAdapterRemoteException("Data adapter call was interrupted", ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof DataAdapterRemoteException) {
+                throw (DataAdapterRemoteException) cause;
+            }
+            if (exceptionType.isInstance(cause)) {
+                throw exceptionType.cast(cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DataAdapterRemoteException("Data adapter call failed", cause);
+        }
+    }
+
+}
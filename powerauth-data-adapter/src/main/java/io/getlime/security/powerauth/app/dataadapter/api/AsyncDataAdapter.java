@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.api;
+
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.AuthenticationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.enumeration.AccountStatus;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.*;
+import io.getlime.security.powerauth.lib.nextstep.model.enumeration.AuthMethod;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Asynchronous variant of the {@link DataAdapter} methods which communicate with remote backends. Integrators whose
+ * backends offer asynchronous clients implement this interface together with {@link DataAdapter}, the controllers
+ * then release the servlet thread while the backend call is in progress.
+ *
+ * The returned stage completes exceptionally with the exception which the synchronous method declares, e.g.
+ * {@link io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException}. Synchronous methods
+ * can be derived from the asynchronous ones using {@link AbstractAsyncDataAdapter}, asynchronous methods can be
+ * derived from synchronous ones using {@link BlockingAsyncDataAdapter}.
+ */
+public interface AsyncDataAdapter {
+
+    /**
+     * Lookup user account - map username to user ID.
+     * @param username Username which user uses for authentication.
+     * @param organizationId Organization ID for this request.
+     * @param clientCertificate Client TLS certificate.
+     * @param operationContext Operation context.
+     * @return Stage completed with detail about the user.
+     * @see DataAdapter#lookupUser(String, String, String, OperationContext)
+     */
+    CompletionStage<UserDetailResponse> lookupUserAsync(String username, String organizationId, String clientCertificate, OperationContext operationContext);
+
+    /**
+     * Authenticate user using provided credentials.
+     * @param userId User ID for user authentication.
+     * @param password Password for user authentication.
+     * @param authenticationContext Authentication context.
+     * @param organizationId Organization ID.
+     * @param operationContext Operation context.
+     * @return Stage completed with user authentication result.
+     * @see DataAdapter#authenticateUser(String, String, AuthenticationContext, String, OperationContext)
+     */
+    CompletionStage<UserAuthenticationResponse> authenticateUserAsync(String userId, String password, AuthenticationContext authenticationContext, String organizationId, OperationContext operationContext);
+
+    /**
+     * Fetch user detail for given user.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param operationContext Operation context which can be null in case request is initiated outside of operation scope.
+     * @return Stage completed with user details.
+     * @see DataAdapter#fetchUserDetail(String, String, OperationContext)
+     */
+    CompletionStage<UserDetailResponse> fetchUserDetailAsync(String userId, String organizationId, OperationContext operationContext);
+
+    /**
+     * Create authorization SMS message and send it.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param accountStatus User account status.
+     * @param authMethod Authentication method.
+     * @param operationContext Operation context.
+     * @param lang Language for localization.
+     * @return Stage completed with message ID.
+     * @see DataAdapter#createAndSendAuthorizationSms(String, String, AccountStatus, AuthMethod, OperationContext, String)
+     */
+    CompletionStage<CreateSmsAuthorizationResponse> createAndSendAuthorizationSmsAsync(String userId, String organizationId, AccountStatus accountStatus, AuthMethod authMethod, OperationContext operationContext, String lang);
+
+    /**
+     * Send an authorization SMS message with generated authorization code, which is received as a parameter.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param accountStatus User account status.
+     * @param authMethod Authentication method.
+     * @param operationContext Operation context.
+     * @param messageId Message ID.
+     * @param authorizationCode Authorization code.
+     * @param lang Language for localization.
+     * @return Stage completed with message ID.
+     * @see DataAdapter#sendAuthorizationSms(String, String, AccountStatus, AuthMethod, OperationContext, String, String, String)
+     */
+    CompletionStage<SendAuthorizationSmsResponse> sendAuthorizationSmsAsync(String userId, String organizationId, AccountStatus accountStatus, AuthMethod authMethod, OperationContext operationContext, String messageId, String authorizationCode, String lang);
+
+    /**
+     * Verify authorization code from SMS message.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param accountStatus Current user account status.
+     * @param messageId Message ID.
+     * @param authorizationCode Authorization code.
+     * @param operationContext Operation context.
+     * @return Stage completed with SMS authorization code verification response.
+     * @see DataAdapter#verifyAuthorizationSms(String, String, AccountStatus, String, String, OperationContext)
+     */
+    CompletionStage<VerifySmsAuthorizationResponse> verifyAuthorizationSmsAsync(String userId, String organizationId, AccountStatus accountStatus, String messageId, String authorizationCode, OperationContext operationContext);
+
+    /**
+     * Verify authorization code from SMS message together with user password.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param accountStatus Current user account status.
+     * @param messageId Message ID.
+     * @param authorizationCode Authorization code.
+     * @param operationContext Operation context.
+     * @param authenticationContext Authentication context.
+     * @param password User password.
+     * @return Stage completed with SMS authorization code and password verification response.
+     * @see DataAdapter#verifyAuthorizationSmsAndPassword(String, String, AccountStatus, String, String, OperationContext, AuthenticationContext, String)
+     */
+    CompletionStage<VerifySmsAndPasswordResponse> verifyAuthorizationSmsAndPasswordAsync(String userId, String organizationId, AccountStatus accountStatus, String messageId, String authorizationCode, OperationContext operationContext, AuthenticationContext authenticationContext, String password);
+
+    /**
+     * Verify client TLS certificate.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param clientCertificate Client TLS certificate.
+     * @param authMethod Authentication method requesting certificate verification.
+     * @param accountStatus Current user account status.
+     * @param operationContext Operation context.
+     * @return Stage completed with response for client TLS certificate verification.
+     * @see DataAdapter#verifyClientCertificate(String, String, String, AuthMethod, AccountStatus, OperationContext)
+     */
+    CompletionStage<VerifyCertificateResponse> verifyClientCertificateAsync(String userId, String organizationId, String clientCertificate, AuthMethod authMethod, AccountStatus accountStatus, OperationContext operationContext);
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.api;
+
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.AuthenticationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.enumeration.AccountStatus;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.*;
+import io.getlime.security.powerauth.lib.nextstep.model.enumeration.AuthMethod;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Adapter of a synchronous {@link DataAdapter} to {@link AsyncDataAdapter}. Synchronous methods are executed in
+ * the provided executor, e.g. for callers which compose several Data Adapter calls. The adapter does not make
+ * backend calls non-blocking, it only moves the blocking to the executor threads.
+ */
+public class BlockingAsyncDataAdapter implements AsyncDataAdapter {
+
+    private final DataAdapter dataAdapter;
+    private final Executor executor;
+
+    /**
+     * Synchronous method of the Data Adapter.
+     * @param <T> Response type.
+     */
+    @FunctionalInterface
+    private interface BlockingCall<T> {
+
+        /**
+         * Call the synchronous method.
+         * @return Response.
+         * @throws Exception Thrown when the call fails.
+         */
+        T call() throws Exception;
+    }
+
+    /**
+     * Adapter constructor.
+     * @param dataAdapter Synchronous data adapter.
+     * @param executor Executor of synchronous calls.
+     */
+    public BlockingAsyncDataAdapter(DataAdapter dataAdapter, Executor executor) {
+        this.dataAdapter = dataAdapter;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletionStage<UserDetailResponse> lookupUserAsync(String username, String organizationId, String clientCertificate, OperationContext operationContext) {
+        return execute(() -> dataAdapter.lookupUser(username, organizationId, clientCertificate, operationContext));
+    }
+
+    @Override
+    public CompletionStage<UserAuthenticationResponse> authenticateUserAsync(String userId, String password, AuthenticationContext authenticationContext, String organizationId, OperationContext operationContext) {
+        return execute(() -> dataAdapter.authenticateUser(userId, password, authenticationContext, organizationId, operationContext));
+    }
+
+    @Override
+    public CompletionStage<UserDetailResponse> fetchUserDetailAsync(String userId, String organizationId, OperationContext operationContext) {
+        return execute(() -> dataAdapter.fetchUserDetail(userId, organizationId, operationContext));
+    }
+
+    @Override
+    public CompletionStage<CreateSmsAuthorizationResponse> createAndSendAuthorizationSmsAsync(String userId, String organizationId, AccountStatus accountStatus, AuthMethod authMethod, OperationContext operationContext, String lang) {
+        return execute(() -> dataAdapter.createAndSendAuthorizationSms(userId, organizationId, accountStatus, authMethod, operationContext, lang));
+    }
+
+    @Override
+    public CompletionStage<SendAuthorizationSmsResponse> sendAuthorizationSmsAsync(String userId, String organizationId, AccountStatus accountStatus, AuthMethod authMethod, OperationContext operationContext, String messageId, String authorizationCode, String lang) {
+        return execute(() -> dataAdapter.sendAuthorizationSms(userId, organizationId, accountStatus, authMethod, operationContext, messageId, authorizationCode, lang));
+    }
+
+    @Override
+    public CompletionStage<VerifySmsAuthorizationResponse> verifyAuthorizationSmsAsync(String userId, String organizationId, AccountStatus accountStatus, String messageId, String authorizationCode, OperationContext operationContext) {
+        return execute(() -> dataAdapter.verifyAuthorizationSms(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext));
+    }
+
+    @Override
+    public CompletionStage<VerifySmsAndPasswordResponse> verifyAuthorizationSmsAndPasswordAsync(String userId, String organizationId, AccountStatus accountStatus, String messageId, String authorizationCode, OperationContext operationContext, AuthenticationContext authenticationContext, String password) {
+        return execute(() -> dataAdapter.verifyAuthorizationSmsAndPassword(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext, authenticationContext, password));
+    }
+
+    @Override
+    public CompletionStage<VerifyCertificateResponse> verifyClientCertificateAsync(String userId, String organizationId, String clientCertificate, AuthMethod authMethod, AccountStatus accountStatus, OperationContext operationContext) {
+        return execute(() -> dataAdapter.verifyClientCertificate(userId, organizationId, clientCertificate, authMethod, accountStatus, operationContext));
+    }
+
+    /**
+     * Execute a synchronous call in the executor.
+     * @param call Synchronous call.
+     * @param <T> Response type.
+     * @return Stage completed with the response or with the exception thrown by the call.
+     */
+    private <T> CompletionStage<T> execute(BlockingCall<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // Backend calls in the executor honor the deadline of the request
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        try {
+            executor.execute(() -> {
+                DeadlineContextHolder.setDeadline(deadline);
+                try {
+                    future.complete(call.call());
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                } finally {
+                    DeadlineContextHolder.resetDeadline();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+}
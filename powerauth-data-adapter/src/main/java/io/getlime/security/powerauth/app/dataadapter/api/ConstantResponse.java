@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Annotation of {@link DataAdapter} methods which return the same response for every request of an endpoint key.
+ *
+ * The endpoint key is the authentication method for {@code initAuthMethod}, other endpoints have a single key.
+ * The response of an annotated method is serialized only once and the serialized bytes are written directly to
+ * subsequent responses. Remove the annotation when the response starts to depend on other request data.
+ *
+ * @see io.getlime.security.powerauth.app.dataadapter.service.response.ConstantResponseService
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConstantResponse {
+
+    /**
+     * Whether the method has side effects. Methods with side effects are invoked for each request and only
+     * serialization of the response is skipped. Methods without side effects are invoked only for the first request
+     * of each endpoint key.
+     *
+     * @return Whether the method has side effects.
+     */
+    boolean sideEffects() default false;
+
+}
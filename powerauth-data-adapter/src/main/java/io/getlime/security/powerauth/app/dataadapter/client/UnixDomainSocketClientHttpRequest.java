@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.client;
+
+import com.google.common.io.ByteStreams;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * HTTP request sent over a Unix domain socket. The request body is buffered and the request is sent as HTTP/1.0
+ * with explicit content length. The server closes the connection after the response, so the response body is never
+ * chunked, it is delimited by its content length or by the end of the connection.
+ */
+final class UnixDomainSocketClientHttpRequest extends AbstractClientHttpRequest {
+
+    private static final String HOST = "localhost";
+
+    private final UnixDomainSocketClientHttpRequestFactory factory;
+    private final URI uri;
+    private final HttpMethod method;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+    /**
+     * Request constructor.
+     * @param factory Request factory.
+     * @param uri Request URI.
+     * @param method HTTP method.
+     */
+    UnixDomainSocketClientHttpRequest(UnixDomainSocketClientHttpRequestFactory factory, URI uri, HttpMethod method) {
+        this.factory = factory;
+        this.uri = uri;
+        this.method = method;
+    }
+
+    @Override
+    public String getMethodValue() {
+        return method.name();
+    }
+
+    @Override
+    public URI getURI() {
+        return uri;
+    }
+
+    @Override
+    protected OutputStream getBodyInternal(HttpHeaders headers) {
+        return body;
+    }
+
+    @Override
+    protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+        final SocketChannel channel = factory.openChannel();
+        final ScheduledFuture<?> timeout = factory.scheduleTimeout(channel);
+        try {
+            final OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            writeRequest(out, headers);
+            final InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            final String statusLine = readLine(in);
+            if (statusLine == null || !statusLine.startsWith("HTTP/")) {
+                throw new IOException("Invalid HTTP response status line: " + statusLine);
+            }
+            final String[] statusParts = statusLine.split(" ", 3);
+            if (statusParts.length < 2) {
+                throw new IOException("Invalid HTTP response status line: " + statusLine);
+            }
+            final int statusCode = Integer.parseInt(statusParts[1]);
+            final String statusText = statusParts.length > 2 ? statusParts[2] : "";
+            final HttpHeaders responseHeaders = new HttpHeaders();
+            for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+                final int separator = line.indexOf(':');
+                if (separator > 0) {
+                    responseHeaders.add(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+                }
+            }
+            // Body with known length ends after the last byte, there is no need to wait for the server to close the connection
+            final long contentLength = responseHeaders.getContentLength();
+            final InputStream body = contentLength >= 0 ? ByteStreams.limit(in, contentLength) : in;
+            return new UnixDomainSocketClientHttpResponse(statusCode, statusText, responseHeaders, body, channel, timeout);
+        } catch (IOException | RuntimeException ex) {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private void writeRequest(OutputStream out, HttpHeaders headers) throws IOException {
+        final byte[] content = body.toByteArray();
+        final StringBuilder head = new StringBuilder(256);
+        final String query = uri.getRawQuery();
+        final String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        head.append(method.name()).append(' ').append(path);
+        if (query != null) {
+            head.append('?').append(query);
+        }
+        head.append(" HTTP/1.0\r\n");
+        head.append(HttpHeaders.HOST).append(": ").append(HOST).append("\r\n");
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            final String name = header.getKey();
+            if (HttpHeaders.HOST.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                    || HttpHeaders.CONNECTION.equalsIgnoreCase(name) || HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                head.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (content.length > 0 || method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH) {
+            head.append(HttpHeaders.CONTENT_LENGTH).append(": ").append(content.length).append("\r\n");
+        }
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.write(content);
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+}
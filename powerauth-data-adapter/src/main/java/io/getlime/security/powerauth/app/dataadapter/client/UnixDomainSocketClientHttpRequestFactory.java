@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.client;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client request factory which sends HTTP requests to the Data Adapter over a Unix domain socket, for use with
+ * {@link org.springframework.web.client.RestTemplate} in an application co-located with the Data Adapter.
+ *
+ * The host and port of request URIs are ignored, all requests are sent to the configured socket. The project is
+ * compiled for Java 11, so the Unix domain socket API of Java 16 is accessed using reflection.
+ */
+public class UnixDomainSocketClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private static final int MIN_JAVA_VERSION = 16;
+
+    private final SocketAddress socketAddress;
+    private final ProtocolFamily protocolFamily;
+    private final Method openMethod;
+    private final int readTimeoutInMilliseconds;
+    private final ScheduledExecutorService timeoutExecutor;
+
+    /**
+     * Factory constructor.
+     * @param socketPath Path of the Unix domain socket.
+     * @param readTimeoutInMilliseconds Timeout for reading of the response, 0 for no timeout.
+     * @throws IllegalStateException In case the Java runtime does not support Unix domain sockets.
+     */
+    public UnixDomainSocketClientHttpRequestFactory(String socketPath, int readTimeoutInMilliseconds) {
+        if (Runtime.version().feature() < MIN_JAVA_VERSION) {
+            throw new IllegalStateException("Unix domain sockets require Java " + MIN_JAVA_VERSION + " or newer");
+        }
+        try {
+            final Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+            this.socketAddress = (SocketAddress) addressClass.getMethod("of", String.class).invoke(null, socketPath);
+            this.protocolFamily = StandardProtocolFamily.valueOf("UNIX");
+            this.openMethod = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+        } catch (ReflectiveOperationException | IllegalArgumentException ex) {
+            throw new IllegalStateException("Unix domain sockets are not supported by the Java runtime", ex);
+        }
+        this.readTimeoutInMilliseconds = readTimeoutInMilliseconds;
+        this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "uds-client-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new UnixDomainSocketClientHttpRequest(this, uri, httpMethod);
+    }
+
+    /**
+     * Open a channel connected to the Unix domain socket.
+     * @return Connected socket channel.
+     * @throws IOException In case the connection fails.
+     */
+    SocketChannel openChannel() throws IOException {
+        final SocketChannel channel;
+        try {
+            channel = (SocketChannel) openMethod.invoke(null, protocolFamily);
+        } catch (ReflectiveOperationException ex) {
+            throw new IOException("Unix domain socket channel could not be opened", ex);
+        }
+        try {
+            channel.connect(socketAddress);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        return channel;
+    }
+
+    /**
+     * Schedule closing of the channel after the read timeout. Socket timeouts are not supported by channels, closing
+     * the channel interrupts a blocked read.
+     * @param channel Socket channel.
+     * @return Scheduled timeout which should be cancelled once the exchange is complete, null in case no timeout is set.
+     */
+    ScheduledFuture<?> scheduleTimeout(SocketChannel channel) {
+        if (readTimeoutInMilliseconds <= 0) {
+            return null;
+        }
+        return timeoutExecutor.schedule(() -> {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // Channel is being closed due to timeout, the error is reported by the blocked read
+            }
+        }, readTimeoutInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the timeout scheduler.
+     */
+    public void shutdown() {
+        timeoutExecutor.shutdownNow();
+    }
+
+}
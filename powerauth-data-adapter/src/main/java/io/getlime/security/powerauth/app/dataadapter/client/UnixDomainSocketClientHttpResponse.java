@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.AbstractClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * HTTP response received over a Unix domain socket, the response body is read until the server closes
+ * the connection.
+ */
+final class UnixDomainSocketClientHttpResponse extends AbstractClientHttpResponse {
+
+    private final int statusCode;
+    private final String statusText;
+    private final HttpHeaders headers;
+    private final InputStream body;
+    private final SocketChannel channel;
+    private final ScheduledFuture<?> timeout;
+
+    /**
+     * Response constructor.
+     * @param statusCode HTTP status code.
+     * @param statusText HTTP status text.
+     * @param headers Response headers.
+     * @param body Response body stream.
+     * @param channel Socket channel.
+     * @param timeout Scheduled read timeout, null in case no timeout is set.
+     */
+    UnixDomainSocketClientHttpResponse(int statusCode, String statusText, HttpHeaders headers, InputStream body,
+                                       SocketChannel channel, ScheduledFuture<?> timeout) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.headers = headers;
+        this.body = body;
+        this.channel = channel;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public int getRawStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getStatusText() {
+        return statusText;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public InputStream getBody() {
+        return body;
+    }
+
+    @Override
+    public void close() {
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            // Response is complete, the connection is not used anymore
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of anti-fraud system integration, including local velocity rules evaluated before the remote
+ * anti-fraud system is called and asynchronous execution of anti-fraud system actions.
+ */
+@Configuration
+public class AfsConfiguration {
+
+    /**
+     * Whether local anti-fraud velocity rules are enabled.
+     */
+    @Value("${powerauth.dataAdapter.afs.local.enabled:false}")
+    private boolean localRulesEnabled;
+
+    /**
+     * Comma separated list of local anti-fraud velocity rules in priority order.
+     */
+    @Value("${powerauth.dataAdapter.afs.local.rules:}")
+    private String localRules;
+
+    /**
+     * Duration of the sliding window for velocity counters in seconds.
+     */
+    @Value("${powerauth.dataAdapter.afs.local.velocityWindowInSeconds:3600}")
+    private long velocityWindowInSeconds;
+
+    /**
+     * Maximum number of velocity counters tracked in memory per feature.
+     */
+    @Value("${powerauth.dataAdapter.afs.local.maxTrackedKeys:100000}")
+    private int maxTrackedKeys;
+
+    /**
+     * Key in AFS request extras which contains device identifier.
+     */
+    @Value("${powerauth.dataAdapter.afs.local.deviceIdExtrasKey:deviceId}")
+    private String deviceIdExtrasKey;
+
+    /**
+     * Whether anti-fraud system actions are executed asynchronously.
+     */
+    @Value("${powerauth.dataAdapter.afs.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    /**
+     * Deadline for anti-fraud system actions whose response is applied in Web Flow.
+     */
+    @Value("${powerauth.dataAdapter.afs.async.deadlineInMilliseconds:500}")
+    private long asyncDeadlineInMilliseconds;
+
+    /**
+     * AFS label returned when an anti-fraud system action does not complete before the deadline.
+     */
+    @Value("${powerauth.dataAdapter.afs.async.fallbackLabel:2FA}")
+    private String asyncFallbackLabel;
+
+    /**
+     * Number of threads used for asynchronous execution of anti-fraud system actions.
+     */
+    @Value("${powerauth.dataAdapter.afs.async.threadCount:8}")
+    private int asyncThreadCount;
+
+    /**
+     * Capacity of the queues of anti-fraud system actions waiting for a free thread.
+     */
+    @Value("${powerauth.dataAdapter.afs.async.queueCapacity:1000}")
+    private int asyncQueueCapacity;
+
+    /**
+     * Get whether local anti-fraud velocity rules are enabled.
+     * @return Whether local rules are enabled.
+     */
+    public boolean isLocalRulesEnabled() {
+        return localRulesEnabled;
+    }
+
+    /**
+     * Get comma separated list of local anti-fraud velocity rules.
+     * @return Local anti-fraud velocity rules.
+     */
+    public String getLocalRules() {
+        return localRules;
+    }
+
+    /**
+     * Get duration of the sliding window for velocity counters.
+     * @return Window duration in seconds.
+     */
+    public long getVelocityWindowInSeconds() {
+        return velocityWindowInSeconds;
+    }
+
+    /**
+     * Get maximum number of velocity counters tracked in memory per feature.
+     * @return Maximum number of tracked keys.
+     */
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    /**
+     * Get key in AFS request extras which contains device identifier.
+     * @return Extras key with device identifier.
+     */
+    public String getDeviceIdExtrasKey() {
+        return deviceIdExtrasKey;
+    }
+
+    /**
+     * Get whether anti-fraud system actions are executed asynchronously.
+     * @return Whether asynchronous execution is enabled.
+     */
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    /**
+     * Get deadline for anti-fraud system actions whose response is applied in Web Flow.
+     * @return Deadline in milliseconds.
+     */
+    public long getAsyncDeadlineInMilliseconds() {
+        return asyncDeadlineInMilliseconds;
+    }
+
+    /**
+     * Get AFS label returned when an anti-fraud system action does not complete before the deadline.
+     * @return Fallback AFS label.
+     */
+    public String getAsyncFallbackLabel() {
+        return asyncFallbackLabel;
+    }
+
+    /**
+     * Get number of threads used for asynchronous execution of anti-fraud system actions.
+     * @return Number of threads.
+     */
+    public int getAsyncThreadCount() {
+        return asyncThreadCount;
+    }
+
+    /**
+     * Get capacity of the queues of anti-fraud system actions waiting for a free thread.
+     * @return Queue capacity.
+     */
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of audit trail stored in the audit event journal.
+ */
+@Configuration
+public class AuditConfiguration {
+
+    /**
+     * Whether audit trail is enabled.
+     */
+    @Value("${powerauth.dataAdapter.audit.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Directory with audit journal segments.
+     */
+    @Value("${powerauth.dataAdapter.audit.journalDirectory:./audit-journal}")
+    private String journalDirectory;
+
+    /**
+     * Size of audit journal segments in megabytes.
+     */
+    @Value("${powerauth.dataAdapter.audit.segmentSizeInMegabytes:64}")
+    private int segmentSizeInMegabytes;
+
+    /**
+     * Maximum number of retained audit journal segments, zero for unlimited retention.
+     */
+    @Value("${powerauth.dataAdapter.audit.retentionSegmentCount:16}")
+    private int retentionSegmentCount;
+
+    /**
+     * Time for which audit events are collected before they are flushed to disk together.
+     */
+    @Value("${powerauth.dataAdapter.audit.commitWindowInMicroseconds:1000}")
+    private long commitWindowInMicroseconds;
+
+    /**
+     * Get whether audit trail is enabled.
+     * @return Whether audit trail is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get directory with audit journal segments.
+     * @return Journal directory.
+     */
+    public String getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    /**
+     * Get size of audit journal segments.
+     * @return Segment size in megabytes.
+     */
+    public int getSegmentSizeInMegabytes() {
+        return segmentSizeInMegabytes;
+    }
+
+    /**
+     * Get maximum number of retained audit journal segments.
+     * @return Retention segment count.
+     */
+    public int getRetentionSegmentCount() {
+        return retentionSegmentCount;
+    }
+
+    /**
+     * Get time for which audit events are collected before they are flushed to disk together.
+     * @return Commit window in microseconds.
+     */
+    public long getCommitWindowInMicroseconds() {
+        return commitWindowInMicroseconds;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of tracking of failed authentication attempts.
+ */
+@Configuration
+public class AuthenticationAttemptConfiguration {
+
+    /**
+     * Maximum number of failed authentication attempts within the tracking window before the user is blocked.
+     */
+    @Value("${powerauth.dataAdapter.authentication.maxFailedAttempts:5}")
+    private int maxFailedAttempts;
+
+    /**
+     * Duration of the sliding window for counting of failed authentication attempts in seconds.
+     */
+    @Value("${powerauth.dataAdapter.authentication.failedAttemptWindowInSeconds:1800}")
+    private long failedAttemptWindowInSeconds;
+
+    /**
+     * Maximum number of users with failed authentication attempts tracked in memory.
+     */
+    @Value("${powerauth.dataAdapter.authentication.maxTrackedUsers:100000}")
+    private int maxTrackedUsers;
+
+    /**
+     * Interval for flushing of failed authentication attempt counts into the database in milliseconds.
+     */
+    @Value("${powerauth.dataAdapter.authentication.flushIntervalInMilliseconds:5000}")
+    private long flushIntervalInMilliseconds;
+
+    /**
+     * Get maximum number of failed authentication attempts within the tracking window.
+     * @return Maximum number of failed authentication attempts.
+     */
+    public int getMaxFailedAttempts() {
+        return maxFailedAttempts;
+    }
+
+    /**
+     * Get duration of the sliding window for counting of failed authentication attempts.
+     * @return Window duration in seconds.
+     */
+    public long getFailedAttemptWindowInSeconds() {
+        return failedAttemptWindowInSeconds;
+    }
+
+    /**
+     * Get maximum number of users with failed authentication attempts tracked in memory.
+     * @return Maximum number of tracked users.
+     */
+    public int getMaxTrackedUsers() {
+        return maxTrackedUsers;
+    }
+
+    /**
+     * Get interval for flushing of failed authentication attempt counts into the database.
+     * @return Flush interval in milliseconds.
+     */
+    public long getFlushIntervalInMilliseconds() {
+        return flushIntervalInMilliseconds;
+    }
+}
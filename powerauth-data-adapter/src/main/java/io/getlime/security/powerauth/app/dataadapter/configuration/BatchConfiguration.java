@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of batch endpoint.
+ */
+@Configuration
+public class BatchConfiguration {
+
+    /**
+     * Maximum number of items in a batch request.
+     */
+    @Value("${powerauth.dataAdapter.batch.maxItems:20}")
+    private int maxItems;
+
+    /**
+     * Number of threads used for execution of batch items.
+     */
+    @Value("${powerauth.dataAdapter.batch.threadCount:16}")
+    private int threadCount;
+
+    /**
+     * Maximum number of batch items waiting for a free thread, further items are rejected.
+     */
+    @Value("${powerauth.dataAdapter.batch.queueCapacity:200}")
+    private int queueCapacity;
+
+    /**
+     * Timeout for execution of all items in a batch request.
+     */
+    @Value("${powerauth.dataAdapter.batch.timeoutInMilliseconds:10000}")
+    private long timeoutInMilliseconds;
+
+    /**
+     * Get maximum number of items in a batch request.
+     * @return Maximum number of items.
+     */
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Get number of threads used for execution of batch items.
+     * @return Number of threads.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Get maximum number of batch items waiting for a free thread.
+     * @return Queue capacity.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Get timeout for execution of all items in a batch request.
+     * @return Timeout in milliseconds.
+     */
+    public long getTimeoutInMilliseconds() {
+        return timeoutInMilliseconds;
+    }
+}
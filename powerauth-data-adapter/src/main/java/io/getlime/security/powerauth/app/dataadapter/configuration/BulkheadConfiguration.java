@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Configuration of per-organization bulkheads around backend calls. The capacity and wait time can be overridden for
+ * an organization using properties {@code powerauth.dataAdapter.bulkhead.organization.<organizationId>.maxConcurrentCalls}
+ * and {@code .maxWaitInMilliseconds}. Bulkheads are created only for the configured organizations, the organization IDs
+ * are received in requests and an unknown organization must not be able to occupy a dedicated bulkhead.
+ */
+@Configuration
+public class BulkheadConfiguration {
+
+    private static final String ORGANIZATION_PROPERTY_PREFIX = "powerauth.dataAdapter.bulkhead.organization.";
+
+    /**
+     * Whether bulkheads are enabled.
+     */
+    @Value("${powerauth.dataAdapter.bulkhead.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of concurrent backend calls of an organization.
+     */
+    @Value("${powerauth.dataAdapter.bulkhead.maxConcurrentCalls:50}")
+    private int maxConcurrentCalls;
+
+    /**
+     * Maximum time a backend call waits for a free slot of the bulkhead.
+     */
+    @Value("${powerauth.dataAdapter.bulkhead.maxWaitInMilliseconds:20}")
+    private long maxWaitInMilliseconds;
+
+    /**
+     * Comma separated list of organizations with a dedicated bulkhead, other organizations share a single bulkhead.
+     */
+    @Value("${powerauth.dataAdapter.bulkhead.organizations:}")
+    private String organizations;
+
+    private final Environment environment;
+
+    /**
+     * Configuration constructor.
+     * @param environment Spring environment.
+     */
+    @Autowired
+    public BulkheadConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Get whether bulkheads are enabled.
+     * @return Whether bulkheads are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get maximum number of concurrent backend calls of an organization.
+     * @param organizationId Organization ID.
+     * @return Maximum number of concurrent calls.
+     */
+    public int getMaxConcurrentCalls(String organizationId) {
+        return environment.getProperty(ORGANIZATION_PROPERTY_PREFIX + organizationId + ".maxConcurrentCalls", Integer.class, maxConcurrentCalls);
+    }
+
+    /**
+     * Get maximum time a backend call of an organization waits for a free slot.
+     * @param organizationId Organization ID.
+     * @return Maximum wait time in milliseconds.
+     */
+    public long getMaxWaitInMilliseconds(String organizationId) {
+        return environment.getProperty(ORGANIZATION_PROPERTY_PREFIX + organizationId + ".maxWaitInMilliseconds", Long.class, maxWaitInMilliseconds);
+    }
+
+    /**
+     * Get organizations with a dedicated bulkhead.
+     * @return Organization IDs.
+     */
+    public Set<String> getOrganizations() {
+        final Set<String> result = new LinkedHashSet<>();
+        for (String organizationId : organizations.split(",")) {
+            if (!organizationId.trim().isEmpty()) {
+                result.add(organizationId.trim());
+            }
+        }
+        return result;
+    }
+}
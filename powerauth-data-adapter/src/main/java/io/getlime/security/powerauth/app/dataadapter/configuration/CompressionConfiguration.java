@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of compression of request and response bodies of Data Adapter endpoints.
+ */
+@Configuration
+public class CompressionConfiguration {
+
+    /**
+     * Whether compressed request bodies are accepted and responses are compressed for clients which accept it.
+     */
+    @Value("${powerauth.dataAdapter.compression.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Whether zstd encoding is used, gzip is used otherwise.
+     */
+    @Value("${powerauth.dataAdapter.compression.zstd.enabled:true}")
+    private boolean zstdEnabled;
+
+    /**
+     * Compression level for gzip encoding.
+     */
+    @Value("${powerauth.dataAdapter.compression.gzip.level:6}")
+    private int gzipLevel;
+
+    /**
+     * Compression level for zstd encoding.
+     */
+    @Value("${powerauth.dataAdapter.compression.zstd.level:3}")
+    private int zstdLevel;
+
+    /**
+     * Minimum response size for compression, smaller responses are sent uncompressed.
+     */
+    @Value("${powerauth.dataAdapter.compression.minResponseSizeInBytes:2048}")
+    private int minResponseSizeInBytes;
+
+    /**
+     * Maximum size of decompressed request body.
+     */
+    @Value("${powerauth.dataAdapter.compression.maxRequestSizeInBytes:10485760}")
+    private long maxRequestSizeInBytes;
+
+    /**
+     * Maximum number of idle compressors kept for reuse.
+     */
+    @Value("${powerauth.dataAdapter.compression.poolSize:32}")
+    private int poolSize;
+
+    /**
+     * Get whether compression is enabled.
+     * @return Whether compression is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get whether zstd encoding is used.
+     * @return Whether zstd encoding is enabled.
+     */
+    public boolean isZstdEnabled() {
+        return zstdEnabled;
+    }
+
+    /**
+     * Get compression level for gzip encoding.
+     * @return Compression level.
+     */
+    public int getGzipLevel() {
+        return gzipLevel;
+    }
+
+    /**
+     * Get compression level for zstd encoding.
+     * @return Compression level.
+     */
+    public int getZstdLevel() {
+        return zstdLevel;
+    }
+
+    /**
+     * Get minimum response size for compression.
+     * @return Minimum response size in bytes.
+     */
+    public int getMinResponseSizeInBytes() {
+        return minResponseSizeInBytes;
+    }
+
+    /**
+     * Get maximum size of decompressed request body.
+     * @return Maximum request size in bytes.
+     */
+    public long getMaxRequestSizeInBytes() {
+        return maxRequestSizeInBytes;
+    }
+
+    /**
+     * Get maximum number of idle compressors kept for reuse.
+     * @return Compressor pool size.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import io.getlime.security.powerauth.app.dataadapter.service.limit.RequestPriority;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configuration of adaptive concurrency limits of Data Adapter endpoints. Each endpoint group has its own limit,
+ * the initial, minimum and maximum limit can be overridden for a group using properties
+ * {@code powerauth.dataAdapter.concurrencyLimit.group.<group>.initialLimit}, {@code .minLimit} and {@code .maxLimit}.
+ * Admission of request priority classes can be configured using properties
+ * {@code powerauth.dataAdapter.concurrencyLimit.priority.<priority>.limitShare}, {@code .queueCapacity} and
+ * {@code .maxWaitInMilliseconds}.
+ */
+@Configuration
+public class ConcurrencyLimitConfiguration {
+
+    private static final String GROUP_PROPERTY_PREFIX = "powerauth.dataAdapter.concurrencyLimit.group.";
+    private static final String PRIORITY_PROPERTY_PREFIX = "powerauth.dataAdapter.concurrencyLimit.priority.";
+
+    /**
+     * Whether concurrency limits are enabled.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Initial concurrency limit of an endpoint group.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.initialLimit:20}")
+    private int initialLimit;
+
+    /**
+     * Minimum concurrency limit of an endpoint group.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.minLimit:4}")
+    private int minLimit;
+
+    /**
+     * Maximum concurrency limit of an endpoint group.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.maxLimit:200}")
+    private int maxLimit;
+
+    /**
+     * Tolerated ratio of recent latency and latency without load before the limit is decreased.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.rttTolerance:1.5}")
+    private double rttTolerance;
+
+    /**
+     * Weight of a new limit estimate, lower values make the limit change more slowly.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.smoothing:0.2}")
+    private double smoothing;
+
+    /**
+     * Number of requests after which the oldest estimate of latency without load is discarded.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.noLoadRttWindow:600}")
+    private int noLoadRttWindow;
+
+    /**
+     * Number of completed requests in a sample window, the limit is updated once per window.
+     */
+    @Value("${powerauth.dataAdapter.concurrencyLimit.sampleWindowSize:10}")
+    private int sampleWindowSize;
+
+    private final Environment environment;
+
+    /**
+     * Configuration constructor.
+     * @param environment Spring environment.
+     */
+    @Autowired
+    public ConcurrencyLimitConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Get whether concurrency limits are enabled.
+     * @return Whether concurrency limits are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get initial concurrency limit of an endpoint group.
+     * @param group Endpoint group name.
+     * @return Initial limit.
+     */
+    public int getInitialLimit(String group) {
+        return environment.getProperty(GROUP_PROPERTY_PREFIX + group + ".initialLimit", Integer.class, initialLimit);
+    }
+
+    /**
+     * Get minimum concurrency limit of an endpoint group.
+     * @param group Endpoint group name.
+     * @return Minimum limit.
+     */
+    public int getMinLimit(String group) {
+        return environment.getProperty(GROUP_PROPERTY_PREFIX + group + ".minLimit", Integer.class, minLimit);
+    }
+
+    /**
+     * Get maximum concurrency limit of an endpoint group.
+     * @param group Endpoint group name.
+     * @return Maximum limit.
+     */
+    public int getMaxLimit(String group) {
+        return environment.getProperty(GROUP_PROPERTY_PREFIX + group + ".maxLimit", Integer.class, maxLimit);
+    }
+
+    /**
+     * Get tolerated ratio of recent latency and latency without load.
+     * @return Latency tolerance.
+     */
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    /**
+     * Get weight of a new limit estimate.
+     * @return Smoothing factor.
+     */
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * Get number of requests after which the oldest estimate of latency without load is discarded.
+     * @return Window size of latency without load.
+     */
+    public int getNoLoadRttWindow() {
+        return noLoadRttWindow;
+    }
+
+    /**
+     * Get number of completed requests in a sample window.
+     * @return Sample window size.
+     */
+    public int getSampleWindowSize() {
+        return sampleWindowSize;
+    }
+
+    /**
+     * Get share of the concurrency limit available to a request priority class.
+     * @param priority Request priority class.
+     * @return Limit share.
+     */
+    public double getLimitShare(RequestPriority priority) {
+        return environment.getProperty(PRIORITY_PROPERTY_PREFIX + priority.getName() + ".limitShare", Double.class, priority.getDefaultLimitShare());
+    }
+
+    /**
+     * Get number of requests of a priority class which may wait for a free slot.
+     * @param priority Request priority class.
+     * @return Queue capacity.
+     */
+    public int getQueueCapacity(RequestPriority priority) {
+        return environment.getProperty(PRIORITY_PROPERTY_PREFIX + priority.getName() + ".queueCapacity", Integer.class, priority.getDefaultQueueCapacity());
+    }
+
+    /**
+     * Get maximum time a request of a priority class waits for a free slot.
+     * @param priority Request priority class.
+     * @return Maximum wait time in milliseconds.
+     */
+    public long getMaxWaitInMilliseconds(RequestPriority priority) {
+        return environment.getProperty(PRIORITY_PROPERTY_PREFIX + priority.getName() + ".maxWaitInMilliseconds", Long.class, priority.getDefaultMaxWaitInMilliseconds());
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published after the Data Adapter configuration is reloaded. Components which cache values derived from
+ * the configuration should discard them.
+ */
+public class ConfigurationReloadedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Event constructor.
+     * @param source Component which reloaded the configuration.
+     */
+    public ConfigurationReloadedEvent(Object source) {
+        super(source);
+    }
+
+}
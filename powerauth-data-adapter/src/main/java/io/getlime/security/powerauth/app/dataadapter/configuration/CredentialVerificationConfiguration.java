@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the executor used for verification of user credentials.
+ */
+@Configuration
+public class CredentialVerificationConfiguration {
+
+    /**
+     * Number of threads used for credential verification, zero value means number of available processors.
+     */
+    @Value("${powerauth.dataAdapter.credentialVerification.threadCount:0}")
+    private int threadCount;
+
+    /**
+     * Maximum number of credential verifications waiting for a free thread.
+     */
+    @Value("${powerauth.dataAdapter.credentialVerification.queueCapacity:64}")
+    private int queueCapacity;
+
+    /**
+     * Maximum time in milliseconds for which the caller waits for credential verification result.
+     */
+    @Value("${powerauth.dataAdapter.credentialVerification.timeoutInMilliseconds:5000}")
+    private long timeoutInMilliseconds;
+
+    /**
+     * Get number of threads used for credential verification.
+     * @return Number of threads, zero value means number of available processors.
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Get maximum number of credential verifications waiting for a free thread.
+     * @return Queue capacity.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Get maximum time for which the caller waits for credential verification result.
+     * @return Timeout in milliseconds.
+     */
+    public long getTimeoutInMilliseconds() {
+        return timeoutInMilliseconds;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of request deadline propagation. The caller sends the time it is willing to wait for the response
+ * in a request header, backend calls honor the remaining time and they are aborted early when it is insufficient.
+ */
+@Configuration
+public class DeadlineConfiguration {
+
+    /**
+     * Whether request deadlines are propagated.
+     */
+    @Value("${powerauth.dataAdapter.deadline.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Name of the request header with the request timeout in milliseconds.
+     */
+    @Value("${powerauth.dataAdapter.deadline.headerName:X-Request-Timeout}")
+    private String headerName;
+
+    /**
+     * Time reserved for delivery of the response to the caller, it is subtracted from the request timeout.
+     */
+    @Value("${powerauth.dataAdapter.deadline.marginInMilliseconds:50}")
+    private long marginInMilliseconds;
+
+    /**
+     * Minimum remaining time required to start a backend call.
+     */
+    @Value("${powerauth.dataAdapter.deadline.minimumRemainingInMilliseconds:20}")
+    private long minimumRemainingInMilliseconds;
+
+    /**
+     * Get whether request deadlines are propagated.
+     * @return Whether request deadlines are propagated.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get name of the request header with the request timeout.
+     * @return Header name.
+     */
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    /**
+     * Get time reserved for delivery of the response to the caller.
+     * @return Margin in milliseconds.
+     */
+    public long getMarginInMilliseconds() {
+        return marginInMilliseconds;
+    }
+
+    /**
+     * Get minimum remaining time required to start a backend call.
+     * @return Minimum remaining time in milliseconds.
+     */
+    public long getMinimumRemainingInMilliseconds() {
+        return minimumRemainingInMilliseconds;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import io.getlime.security.powerauth.app.dataadapter.impl.service.OperationValueExtractionService;
+import io.getlime.security.powerauth.app.dataadapter.impl.service.SmsDeliveryService;
+import io.getlime.security.powerauth.app.dataadapter.service.SmsPersistenceService;
+import io.getlime.security.powerauth.app.dataadapter.service.metrics.MethodMetricsService;
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.util.function.Supplier;
+
+/**
+ * Configuration of method metrics. Calls of the Data Adapter and of the internal services used for SMS authorization
+ * are measured by timers with percentile histograms, so that latency of an endpoint can be broken down into digest
+ * generation, message formatting, database access and message delivery. The metrics are registered in the meter
+ * registry, the actuator metrics endpoint is not exposed by default.
+ */
+@Configuration
+public class MethodMetricsConfiguration {
+
+    /**
+     * Whether method metrics are enabled.
+     */
+    @Value("${powerauth.dataAdapter.methodMetrics.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Whether percentile histograms are published, histograms can be aggregated across instances by the monitoring
+     * system.
+     */
+    @Value("${powerauth.dataAdapter.methodMetrics.percentileHistogram:true}")
+    private boolean percentileHistogram;
+
+    /**
+     * Percentiles computed in the application, e.g. 0.5,0.95,0.99. Computed percentiles cannot be aggregated
+     * across instances.
+     */
+    @Value("${powerauth.dataAdapter.methodMetrics.percentiles:}")
+    private double[] percentiles;
+
+    /**
+     * Minimum expected duration of a call, lower bound of histogram buckets.
+     */
+    @Value("${powerauth.dataAdapter.methodMetrics.minimumExpectedValueInMilliseconds:1}")
+    private long minimumExpectedValueInMilliseconds;
+
+    /**
+     * Maximum expected duration of a call, upper bound of histogram buckets.
+     */
+    @Value("${powerauth.dataAdapter.methodMetrics.maximumExpectedValueInMilliseconds:30000}")
+    private long maximumExpectedValueInMilliseconds;
+
+    /**
+     * Get whether method metrics are enabled.
+     * @return Whether method metrics are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get whether percentile histograms are published.
+     * @return Whether percentile histograms are published.
+     */
+    public boolean isPercentileHistogram() {
+        return percentileHistogram;
+    }
+
+    /**
+     * Get percentiles computed in the application.
+     * @return Percentiles computed in the application.
+     */
+    public double[] getPercentiles() {
+        return percentiles;
+    }
+
+    /**
+     * Get minimum expected duration of a call.
+     * @return Minimum expected duration in milliseconds.
+     */
+    public long getMinimumExpectedValueInMilliseconds() {
+        return minimumExpectedValueInMilliseconds;
+    }
+
+    /**
+     * Get maximum expected duration of a call.
+     * @return Maximum expected duration in milliseconds.
+     */
+    public long getMaximumExpectedValueInMilliseconds() {
+        return maximumExpectedValueInMilliseconds;
+    }
+
+    /**
+     * Measure calls of the Data Adapter and of the internal services used for SMS authorization.
+     *
+     * @param environment Environment.
+     * @param methodMetricsServiceProvider Method metrics service provider.
+     * @return Bean post processor which adds method metrics to measured beans.
+     */
+    @Bean
+    public static BeanPostProcessor methodMetricsPostProcessor(Environment environment, ObjectProvider<MethodMetricsService> methodMetricsServiceProvider) {
+        final boolean active = environment.getProperty("powerauth.dataAdapter.methodMetrics.enabled", Boolean.class, true);
+        final Supplier<MethodMetricsService> methodMetricsService = SingletonSupplier.of(methodMetricsServiceProvider::getObject);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!active || !isMeasured(bean)) {
+                    return bean;
+                }
+                final MethodInterceptor interceptor = invocation -> methodMetricsService.get().invoke(beanName, invocation);
+                if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+                    // Measure the whole call including advice of the existing proxy, e.g. transactions
+                    ((Advised) bean).addAdvice(0, interceptor);
+                    return bean;
+                }
+                final ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    private static boolean isMeasured(Object bean) {
+        return bean instanceof DataAdapter
+                || bean instanceof SmsDeliveryService
+                || bean instanceof SmsPersistenceService
+                || bean instanceof OperationValueExtractionService;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of pipeline for operation change and form data change notifications.
+ */
+@Configuration
+public class NotificationConfiguration {
+
+    /**
+     * Whether notifications are journaled and delivered asynchronously.
+     */
+    @Value("${powerauth.dataAdapter.notification.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    /**
+     * Directory with notification journal.
+     */
+    @Value("${powerauth.dataAdapter.notification.journalDirectory:./notification-journal}")
+    private String journalDirectory;
+
+    /**
+     * Size of notification journal segments in megabytes.
+     */
+    @Value("${powerauth.dataAdapter.notification.segmentSizeInMegabytes:16}")
+    private int segmentSizeInMegabytes;
+
+    /**
+     * Time for which notifications are collected before they are flushed to disk together.
+     */
+    @Value("${powerauth.dataAdapter.notification.commitWindowInMicroseconds:1000}")
+    private long commitWindowInMicroseconds;
+
+    /**
+     * Number of delivery lanes, notifications for the same operation are always delivered in the same lane.
+     */
+    @Value("${powerauth.dataAdapter.notification.laneCount:4}")
+    private int laneCount;
+
+    /**
+     * Maximum number of notifications delivered in a single batch.
+     */
+    @Value("${powerauth.dataAdapter.notification.batchSize:100}")
+    private int batchSize;
+
+    /**
+     * Maximum number of delivery attempts of a single notification.
+     */
+    @Value("${powerauth.dataAdapter.notification.maxDeliveryAttempts:5}")
+    private int maxDeliveryAttempts;
+
+    /**
+     * Initial backoff between delivery attempts, the backoff doubles with each attempt.
+     */
+    @Value("${powerauth.dataAdapter.notification.retryBackoffInMilliseconds:500}")
+    private long retryBackoffInMilliseconds;
+
+    /**
+     * Quiet period for coalescing of form data changes, zero disables coalescing.
+     */
+    @Value("${powerauth.dataAdapter.notification.coalescing.quietPeriodInMilliseconds:0}")
+    private long coalescingQuietPeriodInMilliseconds;
+
+    /**
+     * Maximum time for which a form data change can be held during coalescing.
+     */
+    @Value("${powerauth.dataAdapter.notification.coalescing.maxDelayInMilliseconds:5000}")
+    private long coalescingMaxDelayInMilliseconds;
+
+    /**
+     * Interval for writing journal checkpoint and deleting delivered journal segments.
+     */
+    @Value("${powerauth.dataAdapter.notification.checkpointIntervalInMilliseconds:1000}")
+    private long checkpointIntervalInMilliseconds;
+
+    /**
+     * Get whether notifications are journaled and delivered asynchronously.
+     * @return Whether asynchronous notification delivery is enabled.
+     */
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    /**
+     * Get directory with notification journal.
+     * @return Journal directory.
+     */
+    public String getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    /**
+     * Get size of notification journal segments.
+     * @return Segment size in megabytes.
+     */
+    public int getSegmentSizeInMegabytes() {
+        return segmentSizeInMegabytes;
+    }
+
+    /**
+     * Get time for which notifications are collected before they are flushed to disk together.
+     * @return Commit window in microseconds.
+     */
+    public long getCommitWindowInMicroseconds() {
+        return commitWindowInMicroseconds;
+    }
+
+    /**
+     * Get number of delivery lanes.
+     * @return Number of delivery lanes.
+     */
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    /**
+     * Get maximum number of notifications delivered in a single batch.
+     * @return Batch size.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Get maximum number of delivery attempts of a single notification.
+     * @return Maximum number of delivery attempts.
+     */
+    public int getMaxDeliveryAttempts() {
+        return maxDeliveryAttempts;
+    }
+
+    /**
+     * Get initial backoff between delivery attempts.
+     * @return Backoff in milliseconds.
+     */
+    public long getRetryBackoffInMilliseconds() {
+        return retryBackoffInMilliseconds;
+    }
+
+    /**
+     * Get interval for writing journal checkpoint and deleting delivered journal segments.
+     * @return Checkpoint interval in milliseconds.
+     */
+    public long getCheckpointIntervalInMilliseconds() {
+        return checkpointIntervalInMilliseconds;
+    }
+
+    /**
+     * Get quiet period for coalescing of form data changes.
+     * @return Quiet period in milliseconds, zero when coalescing is disabled.
+     */
+    public long getCoalescingQuietPeriodInMilliseconds() {
+        return coalescingQuietPeriodInMilliseconds;
+    }
+
+    /**
+     * Get maximum time for which a form data change can be held during coalescing.
+     * @return Maximum delay in milliseconds.
+     */
+    public long getCoalescingMaxDelayInMilliseconds() {
+        return coalescingMaxDelayInMilliseconds;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of server-side cache of operation contexts used by the operation context delta protocol.
+ */
+@Configuration
+public class OperationContextCacheConfiguration {
+
+    /**
+     * Whether operation contexts are cached and clients may refer to them using operation ID and context hash.
+     */
+    @Value("${powerauth.dataAdapter.operationContext.cache.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of cached operation contexts.
+     */
+    @Value("${powerauth.dataAdapter.operationContext.cache.maxSize:10000}")
+    private long maxSize;
+
+    /**
+     * Time after last access after which a cached operation context is evicted.
+     */
+    @Value("${powerauth.dataAdapter.operationContext.cache.ttlInSeconds:600}")
+    private long ttlInSeconds;
+
+    /**
+     * Get whether operation contexts are cached.
+     * @return Whether operation context cache is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get maximum number of cached operation contexts.
+     * @return Maximum cache size.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get time after last access after which a cached operation context is evicted.
+     * @return Time to live in seconds.
+     */
+    public long getTtlInSeconds() {
+        return ttlInSeconds;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of per-organization settings. Settings of organizations are loaded from an external properties file
+ * with keys in format {@code <organizationId>.<setting>}, e.g. {@code SME.smsOtpMaxVerifyTriesPerMessage=3}. Settings
+ * which are not specified for an organization use the global configuration. The file is reloaded in the background
+ * when it changes.
+ */
+@Configuration
+public class OrganizationSettingsConfiguration {
+
+    /**
+     * Path to the properties file with per-organization settings, empty value disables per-organization settings.
+     */
+    @Value("${powerauth.dataAdapter.organizationSettings.location:}")
+    private String location;
+
+    /**
+     * Interval of checks whether the settings file changed.
+     */
+    @Value("${powerauth.dataAdapter.organizationSettings.reloadIntervalInMilliseconds:10000}")
+    private long reloadIntervalInMilliseconds;
+
+    /**
+     * Get path to the properties file with per-organization settings.
+     * @return Path to the settings file.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Get interval of checks whether the settings file changed.
+     * @return Reload interval in milliseconds.
+     */
+    public long getReloadIntervalInMilliseconds() {
+        return reloadIntervalInMilliseconds;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of decryption of passwords protected using PASSWORD_ENCRYPTION_AES password protection type.
+ */
+@Configuration
+public class PasswordEncryptionConfiguration {
+
+    /**
+     * Base64 encoded AES key shared with Web Flow for password encryption.
+     */
+    @Value("${powerauth.dataAdapter.password.encryption.key:}")
+    private String encryptionKey;
+
+    /**
+     * Cipher transformation used for password encryption.
+     */
+    @Value("${powerauth.dataAdapter.password.encryption.transformation:AES/CBC/PKCS7Padding}")
+    private String cipherTransformation;
+
+    /**
+     * Get Base64 encoded AES key used for password encryption.
+     * @return Base64 encoded AES key.
+     */
+    public String getEncryptionKey() {
+        return encryptionKey;
+    }
+
+    /**
+     * Get cipher transformation used for password encryption.
+     * @return Cipher transformation.
+     */
+    public String getCipherTransformation() {
+        return cipherTransformation;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configuration of circuit breakers, timeouts and hedged requests of backend calls. The values can be overridden for
+ * a Data Adapter method using properties {@code powerauth.dataAdapter.resilience.method.<method>.<property>}, e.g.
+ * {@code powerauth.dataAdapter.resilience.method.fetchUserDetail.hedge.enabled=true}.
+ */
+@Configuration
+public class ResilienceConfiguration {
+
+    private static final String METHOD_PROPERTY_PREFIX = "powerauth.dataAdapter.resilience.method.";
+
+    /**
+     * Whether the resilience layer is enabled.
+     */
+    @Value("${powerauth.dataAdapter.resilience.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Timeout of a backend call, zero disables the timeout.
+     */
+    @Value("${powerauth.dataAdapter.resilience.timeoutInMilliseconds:0}")
+    private long timeoutInMilliseconds;
+
+    /**
+     * Failure rate in percent at which the circuit breaker opens.
+     */
+    @Value("${powerauth.dataAdapter.resilience.circuitBreaker.failureRateThreshold:50}")
+    private int failureRateThreshold;
+
+    /**
+     * Number of recent calls used to compute the failure rate.
+     */
+    @Value("${powerauth.dataAdapter.resilience.circuitBreaker.slidingWindowSize:20}")
+    private int slidingWindowSize;
+
+    /**
+     * Minimum number of calls in the sliding window before the failure rate is evaluated.
+     */
+    @Value("${powerauth.dataAdapter.resilience.circuitBreaker.minimumNumberOfCalls:10}")
+    private int minimumNumberOfCalls;
+
+    /**
+     * Time the circuit breaker stays open before trial calls are permitted.
+     */
+    @Value("${powerauth.dataAdapter.resilience.circuitBreaker.waitDurationInOpenStateInMilliseconds:10000}")
+    private long waitDurationInOpenStateInMilliseconds;
+
+    /**
+     * Number of trial calls which need to succeed to close the circuit breaker.
+     */
+    @Value("${powerauth.dataAdapter.resilience.circuitBreaker.permittedCallsInHalfOpenState:3}")
+    private int permittedCallsInHalfOpenState;
+
+    /**
+     * Whether a hedged request is sent for idempotent reads which did not complete in time.
+     */
+    @Value("${powerauth.dataAdapter.resilience.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    /**
+     * Latency percentile of recent calls after which the hedged request is sent.
+     */
+    @Value("${powerauth.dataAdapter.resilience.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    /**
+     * Minimum delay after which the hedged request is sent.
+     */
+    @Value("${powerauth.dataAdapter.resilience.hedge.minDelayInMilliseconds:20}")
+    private long hedgeMinDelayInMilliseconds;
+
+    /**
+     * Number of recent call latencies used to compute the hedge delay.
+     */
+    @Value("${powerauth.dataAdapter.resilience.hedge.latencyWindowSize:200}")
+    private int hedgeLatencyWindowSize;
+
+    /**
+     * Maximum number of threads executing backend calls with a timeout or hedged requests.
+     */
+    @Value("${powerauth.dataAdapter.resilience.executor.threadCount:64}")
+    private int executorThreadCount;
+
+    /**
+     * Maximum number of backend calls waiting for a free executor thread.
+     */
+    @Value("${powerauth.dataAdapter.resilience.executor.queueCapacity:0}")
+    private int executorQueueCapacity;
+
+    private final Environment environment;
+
+    /**
+     * Configuration constructor.
+     * @param environment Spring environment.
+     */
+    @Autowired
+    public ResilienceConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Get maximum number of threads executing backend calls with a timeout or hedged requests.
+     * @return Maximum number of threads.
+     */
+    public int getExecutorThreadCount() {
+        return executorThreadCount;
+    }
+
+    /**
+     * Get maximum number of backend calls waiting for a free executor thread.
+     * @return Queue capacity, zero when calls do not wait for a free thread.
+     */
+    public int getExecutorQueueCapacity() {
+        return executorQueueCapacity;
+    }
+
+    /**
+     * Get whether the resilience layer is enabled for a method.
+     * @param method Data Adapter method name.
+     * @return Whether the resilience layer is enabled.
+     */
+    public boolean isEnabled(String method) {
+        return enabled && getMethodProperty(method, "enabled", Boolean.class, true);
+    }
+
+    /**
+     * Get timeout of a backend call.
+     * @param method Data Adapter method name.
+     * @return Timeout in milliseconds, zero when the timeout is disabled.
+     */
+    public long getTimeoutInMilliseconds(String method) {
+        return getMethodProperty(method, "timeoutInMilliseconds", Long.class, timeoutInMilliseconds);
+    }
+
+    /**
+     * Get failure rate in percent at which the circuit breaker opens.
+     * @param method Data Adapter method name.
+     * @return Failure rate threshold.
+     */
+    public int getFailureRateThreshold(String method) {
+        return getMethodProperty(method, "circuitBreaker.failureRateThreshold", Integer.class, failureRateThreshold);
+    }
+
+    /**
+     * Get number of recent calls used to compute the failure rate.
+     * @param method Data Adapter method name.
+     * @return Sliding window size.
+     */
+    public int getSlidingWindowSize(String method) {
+        return getMethodProperty(method, "circuitBreaker.slidingWindowSize", Integer.class, slidingWindowSize);
+    }
+
+    /**
+     * Get minimum number of calls before the failure rate is evaluated.
+     * @param method Data Adapter method name.
+     * @return Minimum number of calls.
+     */
+    public int getMinimumNumberOfCalls(String method) {
+        return getMethodProperty(method, "circuitBreaker.minimumNumberOfCalls", Integer.class, minimumNumberOfCalls);
+    }
+
+    /**
+     * Get time the circuit breaker stays open before trial calls are permitted.
+     * @param method Data Adapter method name.
+     * @return Wait duration in open state in milliseconds.
+     */
+    public long getWaitDurationInOpenStateInMilliseconds(String method) {
+        return getMethodProperty(method, "circuitBreaker.waitDurationInOpenStateInMilliseconds", Long.class, waitDurationInOpenStateInMilliseconds);
+    }
+
+    /**
+     * Get number of trial calls which need to succeed to close the circuit breaker.
+     * @param method Data Adapter method name.
+     * @return Number of permitted calls in half-open state.
+     */
+    public int getPermittedCallsInHalfOpenState(String method) {
+        return getMethodProperty(method, "circuitBreaker.permittedCallsInHalfOpenState", Integer.class, permittedCallsInHalfOpenState);
+    }
+
+    /**
+     * Get whether hedged requests are enabled for a method. Hedged requests are sent only for idempotent reads.
+     * @param method Data Adapter method name.
+     * @return Whether hedged requests are enabled.
+     */
+    public boolean isHedgeEnabled(String method) {
+        return getMethodProperty(method, "hedge.enabled", Boolean.class, hedgeEnabled);
+    }
+
+    /**
+     * Get latency percentile of recent calls after which the hedged request is sent.
+     * @param method Data Adapter method name.
+     * @return Hedge percentile between 0 and 1.
+     */
+    public double getHedgePercentile(String method) {
+        return getMethodProperty(method, "hedge.percentile", Double.class, hedgePercentile);
+    }
+
+    /**
+     * Get minimum delay after which the hedged request is sent.
+     * @param method Data Adapter method name.
+     * @return Minimum hedge delay in milliseconds.
+     */
+    public long getHedgeMinDelayInMilliseconds(String method) {
+        return getMethodProperty(method, "hedge.minDelayInMilliseconds", Long.class, hedgeMinDelayInMilliseconds);
+    }
+
+    /**
+     * Get number of recent call latencies used to compute the hedge delay.
+     * @param method Data Adapter method name.
+     * @return Latency window size.
+     */
+    public int getHedgeLatencyWindowSize(String method) {
+        return getMethodProperty(method, "hedge.latencyWindowSize", Integer.class, hedgeLatencyWindowSize);
+    }
+
+    private <T> T getMethodProperty(String method, String property, Class<T> type, T defaultValue) {
+        return environment.getProperty(METHOD_PROPERTY_PREFIX + method + "." + property, type, defaultValue);
+    }
+}
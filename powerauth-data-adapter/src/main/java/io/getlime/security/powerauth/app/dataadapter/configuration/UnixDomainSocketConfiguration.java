@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Configuration of an additional Tomcat connector listening on a Unix domain socket. Co-located Web Flow can call
+ * the Data Adapter endpoints through the socket instead of loopback TCP. Unix domain sockets require Java 16 runtime
+ * and they are not available when the application is deployed as a WAR into an external servlet container.
+ */
+@Configuration
+public class UnixDomainSocketConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnixDomainSocketConfiguration.class);
+
+    private static final int MIN_JAVA_VERSION = 16;
+
+    /**
+     * Whether the Unix domain socket connector is enabled.
+     */
+    @Value("${powerauth.dataAdapter.unixDomainSocket.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Path of the Unix domain socket.
+     */
+    @Value("${powerauth.dataAdapter.unixDomainSocket.path:/var/run/powerauth/data-adapter.sock}")
+    private String path;
+
+    /**
+     * POSIX permissions of the socket file, e.g. rw-rw----.
+     */
+    @Value("${powerauth.dataAdapter.unixDomainSocket.permissions:rw-rw----}")
+    private String permissions;
+
+    /**
+     * Get whether the Unix domain socket connector is enabled.
+     * @return Whether the connector is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get path of the Unix domain socket.
+     * @return Socket path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Get POSIX permissions of the socket file.
+     * @return Socket file permissions.
+     */
+    public String getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * Add the Unix domain socket connector to the embedded Tomcat. The connector serves the same endpoints as the TCP
+     * connector.
+     *
+     * @return Web server factory customizer.
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> unixDomainSocketConnectorCustomizer() {
+        return factory -> {
+            if (!enabled) {
+                return;
+            }
+            if (Runtime.version().feature() < MIN_JAVA_VERSION) {
+                logger.warn("Unix domain socket connector requires Java {} or newer, the connector is disabled", MIN_JAVA_VERSION);
+                return;
+            }
+            try {
+                // Socket file left behind by a terminated instance would prevent binding of the socket
+                if (Files.deleteIfExists(Paths.get(path))) {
+                    logger.info("Stale Unix domain socket file was deleted, path: {}", path);
+                }
+            } catch (IOException ex) {
+                logger.warn("Unix domain socket file could not be deleted, path: {}, error: {}", path, ex.getMessage());
+            }
+            final Connector connector = new Connector(Http11NioProtocol.class.getName());
+            connector.setProperty("unixDomainSocketPath", path);
+            connector.setProperty("unixDomainSocketPathPermissions", permissions);
+            factory.addAdditionalTomcatConnectors(connector);
+            logger.info("Unix domain socket connector configured, path: {}", path);
+        };
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.configuration;
+
+import io.getlime.security.powerauth.app.dataadapter.service.threads.PinningDiagnostics;
+import io.getlime.security.powerauth.app.dataadapter.service.threads.VirtualThreads;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Configuration of virtual thread execution mode. When enabled, requests of the embedded Tomcat and batch items are
+ * executed on virtual threads, so that concurrency of blocking JPA and backend calls is not limited by the size of
+ * the platform thread pool. Virtual threads require Java 21 runtime, the platform thread pools are used otherwise.
+ *
+ * CPU bound executors, e.g. credential verification, and bounded executors which provide backpressure, e.g. AFS
+ * action execution, keep using platform threads.
+ */
+@Configuration
+public class VirtualThreadConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    /**
+     * Whether virtual threads are enabled.
+     */
+    @Value("${powerauth.dataAdapter.virtualThreads.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Whether diagnostics of sections which pin virtual threads are enabled.
+     */
+    @Value("${powerauth.dataAdapter.virtualThreads.pinningDiagnostics.enabled:true}")
+    private boolean pinningDiagnosticsEnabled;
+
+    /**
+     * Duration of a pinning section after which a warning is logged.
+     */
+    @Value("${powerauth.dataAdapter.virtualThreads.pinningDiagnostics.thresholdInMilliseconds:20}")
+    private long pinningThresholdInMilliseconds;
+
+    private ExecutorService requestExecutor;
+
+    /**
+     * Get whether virtual threads are enabled in configuration.
+     * @return Whether virtual threads are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get whether virtual threads are enabled and supported by the Java runtime.
+     * @return Whether virtual threads are used.
+     */
+    public boolean isVirtualThreadsActive() {
+        return enabled && VirtualThreads.isSupported();
+    }
+
+    /**
+     * Get whether diagnostics of sections which pin virtual threads are enabled.
+     * @return Whether pinning diagnostics are enabled.
+     */
+    public boolean isPinningDiagnosticsEnabled() {
+        return pinningDiagnosticsEnabled;
+    }
+
+    /**
+     * Get duration of a pinning section after which a warning is logged.
+     * @return Pinning threshold in milliseconds.
+     */
+    public long getPinningThresholdInMilliseconds() {
+        return pinningThresholdInMilliseconds;
+    }
+
+    /**
+     * Execute requests of the embedded Tomcat on virtual threads. Tomcat settings of the thread pool do not apply in
+     * virtual thread mode, concurrency is limited by the maximum number of connections.
+     *
+     * @return Tomcat protocol handler customizer.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (!enabled) {
+                return;
+            }
+            if (!VirtualThreads.isSupported()) {
+                logger.warn("Virtual threads are not supported by the Java runtime, requests are executed on platform threads");
+                return;
+            }
+            if (requestExecutor == null) {
+                requestExecutor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+            }
+            protocolHandler.setExecutor(requestExecutor);
+            logger.info("Requests are executed on virtual threads");
+        };
+    }
+
+    /**
+     * Measure JPA repository calls executed on virtual threads, JDBC drivers commonly block on socket I/O inside
+     * synchronized blocks.
+     *
+     * @param environment Environment.
+     * @param pinningDiagnosticsProvider Pinning diagnostics provider.
+     * @return Bean post processor which adds pinning diagnostics to repositories.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryPinningDiagnosticsPostProcessor(Environment environment, ObjectProvider<PinningDiagnostics> pinningDiagnosticsProvider) {
+        final boolean active = environment.getProperty("powerauth.dataAdapter.virtualThreads.enabled", Boolean.class, false)
+                && environment.getProperty("powerauth.dataAdapter.virtualThreads.pinningDiagnostics.enabled", Boolean.class, true)
+                && VirtualThreads.isSupported();
+        final Supplier<PinningDiagnostics> pinningDiagnostics = SingletonSupplier.of(pinningDiagnosticsProvider::getObject);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!active || !(bean instanceof Repository)) {
+                    return bean;
+                }
+                final String section = "repository." + beanName;
+                final ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                    final long start = pinningDiagnostics.get().begin();
+                    try {
+                        return invocation.proceed();
+                    } finally {
+                        pinningDiagnostics.get().end(section, start);
+                    }
+                });
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    /**
+     * Shutdown the virtual thread executor of the embedded Tomcat.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+    }
+}
@@ -17,13 +17,29 @@ package io.getlime.security.powerauth.app.dataadapter.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.getlime.security.powerauth.app.dataadapter.controller.CompletedDeferredResultReturnValueHandler;
+import io.getlime.security.powerauth.app.dataadapter.json.CachedObjectResponseHttpMessageConverter;
+import io.getlime.security.powerauth.app.dataadapter.json.ObjectMapperWarmup;
+import io.getlime.security.powerauth.app.dataadapter.json.OperationContextModule;
+import io.getlime.security.powerauth.app.dataadapter.json.PooledJsonHttpMessageConverter;
+import io.getlime.security.powerauth.app.dataadapter.service.context.OperationContextCache;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.converter.HttpMessageConverter;
-import org.springframework.http.converter.json.Jackson2ObjectMapperFactoryBean;
-import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.DeferredResultMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestResponseBodyMethodProcessor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -35,39 +51,104 @@ import java.util.List;
 public class WebApplicationConfig implements WebMvcConfigurer {
 
     /**
-     * Custom object mapper to make sure that dates and other values serialize
-     * correctly.
+     * Profile in which JSON responses are pretty-printed.
+     */
+    private static final String DEBUG_PROFILE = "debug";
+
+    /**
+     * Whether form data of operation context is deserialized lazily on first access.
+     */
+    @Value("${powerauth.dataAdapter.json.lazyFormData.enabled:true}")
+    private boolean lazyFormDataEnabled;
+
+    private final OperationContextCache operationContextCache;
+    private final Environment environment;
+
+    /**
+     * Configuration constructor.
+     * @param operationContextCache Operation context cache.
+     * @param environment Spring environment.
+     */
+    @Autowired
+    public WebApplicationConfig(OperationContextCache operationContextCache, Environment environment) {
+        this.operationContextCache = operationContextCache;
+        this.environment = environment;
+    }
+
+    /**
+     * Module for lazy deserialization of operation context form data and for the operation context delta protocol,
+     * registered in the default object mapper.
      *
-     * @return A new object mapper.
+     * @return Operation context module.
      */
-    private ObjectMapper objectMapper() {
-        Jackson2ObjectMapperFactoryBean bean = new Jackson2ObjectMapperFactoryBean();
-        bean.setIndentOutput(true);
-        bean.afterPropertiesSet();
-        ObjectMapper objectMapper = bean.getObject();
-        objectMapper.registerModule(new JavaTimeModule());
+    @Bean
+    public OperationContextModule operationContextModule() {
+        return new OperationContextModule(lazyFormDataEnabled, operationContextCache);
+    }
+
+    /**
+     * Shared object mapper used for HTTP messages as well as by services, so that dates and other values serialize
+     * correctly. Output is compact, property accessors are generated by the Blackbird module instead of reflection
+     * and serializers of all API types are created during startup.
+     *
+     * @param builder Object mapper builder with Spring Boot customizations and registered modules.
+     * @return Shared object mapper.
+     */
+    @Bean
+    @Primary
+    public ObjectMapper objectMapper(Jackson2ObjectMapperBuilder builder) {
+        final ObjectMapper objectMapper = builder.build();
         // replacement for ISO8601DateFormat which is deprecated
         objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        objectMapper.registerModule(new BlackbirdModule());
+        ObjectMapperWarmup.warmUp(objectMapper);
         return objectMapper;
     }
 
     /**
-     * Set custom JSON converter.
+     * JSON converter using the shared object mapper, it replaces the default Jackson converter. Responses are
+     * pretty-printed only in the debug profile.
      *
-     * @return New custom converter with a correct object mapper.
+     * @param objectMapper Shared object mapper.
+     * @return JSON converter.
      */
-    private MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter() {
-        MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
-        converter.setObjectMapper(objectMapper());
-        return converter;
+    @Bean
+    public PooledJsonHttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        final boolean prettyPrint = environment.acceptsProfiles(Profiles.of(DEBUG_PROFILE));
+        return new PooledJsonHttpMessageConverter(objectMapper, prettyPrint);
     }
 
     /**
-     * Register the JSON converters.
+     * Converter of pre-serialized constant responses, Spring Boot registers it ahead of the JSON converter.
+     *
+     * @return Cached response converter.
+     */
+    @Bean
+    public CachedObjectResponseHttpMessageConverter cachedObjectResponseHttpMessageConverter() {
+        return new CachedObjectResponseHttpMessageConverter();
+    }
+
+    /**
+     * Register the handler of completed deferred results ahead of the default return value handlers. Controllers
+     * return deferred results also when the Data Adapter has no asynchronous variant, such results are written
+     * without an asynchronous dispatch.
+     *
+     * @param handlerAdapter Request mapping handler adapter.
+     * @return Registration of the return value handler.
      */
-    @Override
-    public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
-        converters.add(mappingJackson2HttpMessageConverter());
+    @Bean
+    public SmartInitializingSingleton completedDeferredResultReturnValueHandlerRegistration(RequestMappingHandlerAdapter handlerAdapter) {
+        return () -> {
+            final List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(handlerAdapter.getReturnValueHandlers());
+            final HandlerMethodReturnValueHandler deferredResultHandler = handlers.stream()
+                    .filter(DeferredResultMethodReturnValueHandler.class::isInstance)
+                    .findFirst().orElseThrow(() -> new IllegalStateException("Deferred result handler is not registered"));
+            final HandlerMethodReturnValueHandler responseBodyHandler = handlers.stream()
+                    .filter(RequestResponseBodyMethodProcessor.class::isInstance)
+                    .findFirst().orElseThrow(() -> new IllegalStateException("Response body handler is not registered"));
+            handlers.add(0, new CompletedDeferredResultReturnValueHandler(deferredResultHandler, responseBodyHandler));
+            handlerAdapter.setReturnValueHandlers(handlers);
+        };
     }
 
 }
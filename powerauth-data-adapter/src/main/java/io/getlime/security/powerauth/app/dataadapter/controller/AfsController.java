@@ -17,9 +17,9 @@ package io.getlime.security.powerauth.app.dataadapter.controller;
 
 import io.getlime.core.rest.model.base.request.ObjectRequest;
 import io.getlime.core.rest.model.base.response.ObjectResponse;
-import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
+import io.getlime.security.powerauth.app.dataadapter.service.afs.AfsExecutionService;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
 import io.getlime.security.powerauth.lib.dataadapter.model.request.*;
 import io.getlime.security.powerauth.lib.dataadapter.model.response.*;
@@ -41,15 +41,15 @@ public class AfsController {
 
     private static final Logger logger = LoggerFactory.getLogger(AfsController.class);
 
-    private final DataAdapter dataAdapter;
+    private final AfsExecutionService afsExecutionService;
 
     /**
      * Consent controller constructor.
-     * @param dataAdapter Data adapter.
+     * @param afsExecutionService AFS execution service.
      */
     @Autowired
-    public AfsController(DataAdapter dataAdapter) {
-        this.dataAdapter = dataAdapter;
+    public AfsController(AfsExecutionService afsExecutionService) {
+        this.afsExecutionService = afsExecutionService;
     }
 
     /**
@@ -69,7 +69,7 @@ public class AfsController {
         OperationContext operationContext = afsRequest.getOperationContext();
         AfsRequestParameters requestParameters = afsRequest.getAfsRequestParameters();
         Map<String, Object> extras = afsRequest.getExtras();
-        AfsResponse response = dataAdapter.executeAfsAction(userId, organizationId, operationContext, requestParameters, extras);
+        AfsResponse response = afsExecutionService.executeAfsAction(userId, organizationId, operationContext, requestParameters, extras);
         logger.debug("The executeAfsAction request succeeded");
         return new ObjectResponse<>(response);
     }
@@ -21,6 +21,8 @@ import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
 import io.getlime.security.powerauth.app.dataadapter.impl.validation.AuthMethodRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.model.response.CachedObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.service.response.ConstantResponseService;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
 import io.getlime.security.powerauth.lib.dataadapter.model.request.InitAuthMethodRequest;
 import io.getlime.security.powerauth.lib.dataadapter.model.response.InitAuthMethodResponse;
@@ -46,16 +48,19 @@ public class AuthMethodController {
 
     private final AuthMethodRequestValidator requestValidator;
     private final DataAdapter dataAdapter;
+    private final ConstantResponseService constantResponseService;
 
     /**
      * Controller constructor.
      * @param requestValidator Validator for authentication requests.
      * @param dataAdapter Data adapter.
+     * @param constantResponseService Constant response service.
      */
     @Autowired
-    public AuthMethodController(AuthMethodRequestValidator requestValidator, DataAdapter dataAdapter) {
+    public AuthMethodController(AuthMethodRequestValidator requestValidator, DataAdapter dataAdapter, ConstantResponseService constantResponseService) {
         this.requestValidator = requestValidator;
         this.dataAdapter = dataAdapter;
+        this.constantResponseService = constantResponseService;
     }
 
     /**
@@ -82,9 +87,15 @@ public class AuthMethodController {
         String organizationId = initRequest.getOrganizationId();
         AuthMethod authMethod = initRequest.getAuthMethod();
         OperationContext operationContext = initRequest.getOperationContext();
+        final String endpointKey = authMethod == null ? null : authMethod.toString();
+        final CachedObjectResponse<InitAuthMethodResponse> cachedResponse = constantResponseService.getCachedResponse(ConstantResponseService.INIT_AUTH_METHOD, endpointKey);
+        if (cachedResponse != null) {
+            logger.info("The initAuthMethod request succeeded");
+            return cachedResponse;
+        }
         InitAuthMethodResponse response = dataAdapter.initAuthMethod(userId, organizationId, authMethod, operationContext);
         logger.info("The initAuthMethod request succeeded");
-        return new ObjectResponse<>(response);
+        return constantResponseService.respond(ConstantResponseService.INIT_AUTH_METHOD, endpointKey, response);
     }
 
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ package io.getlime.security.powerauth.app.dataadapter.controller;
 
 import io.getlime.core.rest.model.base.request.ObjectRequest;
 import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.api.AsyncDataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.UserNotFoundException;
@@ -33,8 +34,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.validation.Valid;
+import java.util.function.Consumer;
 
 /**
  * Controller class which handles user authentication.
@@ -49,9 +52,11 @@ public class AuthenticationController {
 
     private final AuthenticationRequestValidator requestValidator;
     private final DataAdapter dataAdapter;
+    private final AsyncDataAdapter asyncDataAdapter;
 
     /**
-     * Controller constructor.
+     * Controller constructor. Backend calls are asynchronous in case the data adapter implements
+     * {@link AsyncDataAdapter}.
      * @param requestValidator Validator for authentication requests.
      * @param dataAdapter Data adapter.
      */
@@ -59,6 +64,7 @@ public class AuthenticationController {
     public AuthenticationController(AuthenticationRequestValidator requestValidator, DataAdapter dataAdapter) {
         this.requestValidator = requestValidator;
         this.dataAdapter = dataAdapter;
+        this.asyncDataAdapter = dataAdapter instanceof AsyncDataAdapter ? (AsyncDataAdapter) dataAdapter : null;
     }
 
     /**
@@ -79,7 +85,7 @@ public class AuthenticationController {
      * @throws UserNotFoundException Thrown in case that user does not exist.
      */
     @PostMapping(value = "/lookup")
-    public ObjectResponse<UserDetailResponse> lookupUser(@Valid @RequestBody ObjectRequest<UserLookupRequest> request) throws DataAdapterRemoteException, UserNotFoundException {
+    public DeferredResult<ObjectResponse<UserDetailResponse>> lookupUser(@Valid @RequestBody ObjectRequest<UserLookupRequest> request) throws DataAdapterRemoteException, UserNotFoundException {
         logger.info("Received user lookup request, username: {}, organization ID: {}, operation ID: {}",
                 request.getRequestObject().getUsername(), request.getRequestObject().getOrganizationId(),
                 request.getRequestObject().getOperationContext().getId());
@@ -88,10 +94,13 @@ public class AuthenticationController {
         String organizationId = lookupRequest.getOrganizationId();
         String clientCertificate = lookupRequest.getClientCertificate();
         OperationContext operationContext = lookupRequest.getOperationContext();
+        Consumer<UserDetailResponse> onSuccess = response -> logger.info("The user lookup request succeeded, user ID: {}, organization ID: {}, operation ID: {}",
+                response.getId(), response.getOrganizationId(), operationContext.getId());
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.lookupUserAsync(username, organizationId, clientCertificate, operationContext), onSuccess);
+        }
         UserDetailResponse response = dataAdapter.lookupUser(username, organizationId, clientCertificate, operationContext);
-        logger.info("The user lookup request succeeded, user ID: {}, organization ID: {}, operation ID: {}",
-                response.getId(), response.getOrganizationId(), request.getRequestObject().getOperationContext().getId());
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
     /**
@@ -102,7 +111,7 @@ public class AuthenticationController {
      * @throws DataAdapterRemoteException Thrown in case of remote communication errors.
      */
     @PostMapping(value = "/authenticate")
-    public ObjectResponse<UserAuthenticationResponse> authenticate(@Valid @RequestBody ObjectRequest<UserAuthenticationRequest> request) throws DataAdapterRemoteException {
+    public DeferredResult<ObjectResponse<UserAuthenticationResponse>> authenticate(@Valid @RequestBody ObjectRequest<UserAuthenticationRequest> request) throws DataAdapterRemoteException {
         logger.info("Received authenticate request, user ID: {}, organization ID: {}, operation ID: {}",
                 request.getRequestObject().getUserId(), request.getRequestObject().getOrganizationId(),
                 request.getRequestObject().getOperationContext().getId());
@@ -112,10 +121,13 @@ public class AuthenticationController {
         AuthenticationContext authenticationContext = authenticationRequest.getAuthenticationContext();
         String organizationId = authenticationRequest.getOrganizationId();
         OperationContext operationContext = authenticationRequest.getOperationContext();
+        Consumer<UserAuthenticationResponse> onSuccess = response -> logger.info("The authenticate request succeeded, user ID: {}, organization ID: {}, operation ID: {}", userId,
+                organizationId, operationContext.getId());
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.authenticateUserAsync(userId, password, authenticationContext, organizationId, operationContext), onSuccess);
+        }
         UserAuthenticationResponse response = dataAdapter.authenticateUser(userId, password, authenticationContext, organizationId, operationContext);
-        logger.info("The authenticate request succeeded, user ID: {}, organization ID: {}, operation ID: {}", userId,
-                organizationId, request.getRequestObject().getOperationContext().getId());
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
     /**
@@ -127,14 +139,17 @@ public class AuthenticationController {
      * @throws UserNotFoundException Thrown in case user is not found.
      */
     @PostMapping(value = "/info")
-    public ObjectResponse<UserDetailResponse> fetchUserDetail(@RequestBody ObjectRequest<UserDetailRequest> request) throws DataAdapterRemoteException, UserNotFoundException {
+    public DeferredResult<ObjectResponse<UserDetailResponse>> fetchUserDetail(@RequestBody ObjectRequest<UserDetailRequest> request) throws DataAdapterRemoteException, UserNotFoundException {
         logger.info("Received fetchUserDetail request, user ID: {}", request.getRequestObject().getUserId());
         UserDetailRequest userDetailRequest = request.getRequestObject();
         String userId = userDetailRequest.getUserId();
         String organizationId = userDetailRequest.getOrganizationId();
+        Consumer<UserDetailResponse> onSuccess = response -> logger.info("The fetchUserDetail request succeeded");
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.fetchUserDetailAsync(userId, organizationId, null), onSuccess);
+        }
         UserDetailResponse response = dataAdapter.fetchUserDetail(userId, organizationId, null);
-        logger.info("The fetchUserDetail request succeeded");
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
 
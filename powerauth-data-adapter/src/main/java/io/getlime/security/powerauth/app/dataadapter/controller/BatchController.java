@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.controller;
+
+import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.BatchRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.model.request.BatchRequest;
+import io.getlime.security.powerauth.app.dataadapter.model.response.BatchResponse;
+import io.getlime.security.powerauth.app.dataadapter.service.BatchExecutionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.WebDataBinder;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+/**
+ * Controller class which handles execution of multiple Data Adapter calls in a single HTTP request.
+ */
+@RestController
+@RequestMapping("/api/batch")
+public class BatchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchController.class);
+
+    private final BatchRequestValidator requestValidator;
+    private final BatchExecutionService batchExecutionService;
+
+    /**
+     * Controller constructor.
+     * @param requestValidator Validator for batch requests.
+     * @param batchExecutionService Batch execution service.
+     */
+    @Autowired
+    public BatchController(BatchRequestValidator requestValidator, BatchExecutionService batchExecutionService) {
+        this.requestValidator = requestValidator;
+        this.batchExecutionService = batchExecutionService;
+    }
+
+    /**
+     * Initializes the request validator.
+     * @param binder Data binder.
+     */
+    @InitBinder
+    private void initBinder(WebDataBinder binder) {
+        binder.setValidator(requestValidator);
+    }
+
+    /**
+     * Execute a batch of Data Adapter calls. Each item contains the request object of the equivalent endpoint,
+     * the response contains the response or error response of each item.
+     * @param request Batch request.
+     * @return Batch response.
+     */
+    @PostMapping
+    public ObjectResponse<BatchResponse> executeBatch(@Valid @RequestBody ObjectRequest<BatchRequest> request) {
+        logger.info("Received batch request, item count: {}", request.getRequestObject().getItems().size());
+        BatchResponse response = batchExecutionService.execute(request.getRequestObject());
+        logger.debug("The batch request succeeded");
+        return new ObjectResponse<>(response);
+    }
+
+}
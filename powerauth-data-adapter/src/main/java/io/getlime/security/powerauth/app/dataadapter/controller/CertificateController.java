@@ -17,6 +17,7 @@ package io.getlime.security.powerauth.app.dataadapter.controller;
 
 import io.getlime.core.rest.model.base.request.ObjectRequest;
 import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.api.AsyncDataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
@@ -31,8 +32,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.validation.Valid;
+import java.util.function.Consumer;
 
 /**
  * Controller class which handles SMS OTP authorization.
@@ -47,9 +50,11 @@ public class CertificateController {
 
     private final CertificateRequestValidator requestValidator;
     private final DataAdapter dataAdapter;
+    private final AsyncDataAdapter asyncDataAdapter;
 
     /**
-     * Controller constructor.
+     * Controller constructor. Backend calls are asynchronous in case the data adapter implements
+     * {@link AsyncDataAdapter}.
      * @param requestValidator Validator for SMS requests.
      * @param dataAdapter Data adapter.
      */
@@ -57,6 +62,7 @@ public class CertificateController {
     public CertificateController(CertificateRequestValidator requestValidator, DataAdapter dataAdapter) {
         this.requestValidator = requestValidator;
         this.dataAdapter = dataAdapter;
+        this.asyncDataAdapter = dataAdapter instanceof AsyncDataAdapter ? (AsyncDataAdapter) dataAdapter : null;
     }
 
     /**
@@ -77,7 +83,7 @@ public class CertificateController {
      * @throws InvalidOperationContextException Thrown in case operation context is invalid.
      */
     @PostMapping(value = "verify")
-    public ObjectResponse<VerifyCertificateResponse> verifyCertificate(@Valid @RequestBody ObjectRequest<VerifyCertificateRequest> request) throws InvalidOperationContextException, DataAdapterRemoteException {
+    public DeferredResult<ObjectResponse<VerifyCertificateResponse>> verifyCertificate(@Valid @RequestBody ObjectRequest<VerifyCertificateRequest> request) throws InvalidOperationContextException, DataAdapterRemoteException {
         logger.info("Received verifyCertificate request, operation ID: {}", request.getRequestObject().getOperationContext().getId());
         VerifyCertificateRequest verifyRequest = request.getRequestObject();
         String clientCertificate = verifyRequest.getClientCertificate();
@@ -87,9 +93,12 @@ public class CertificateController {
         AccountStatus accountStatus = verifyRequest.getAccountStatus();
         OperationContext operationContext = verifyRequest.getOperationContext();
         // Verify authorization code
+        Consumer<VerifyCertificateResponse> onSuccess = response -> logger.info("The verifyCertificate request succeeded, operation ID: {}", operationContext.getId());
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.verifyClientCertificateAsync(userId, organizationId, clientCertificate, authMethod, accountStatus, operationContext), onSuccess);
+        }
         VerifyCertificateResponse response = dataAdapter.verifyClientCertificate(userId, organizationId, clientCertificate, authMethod, accountStatus, operationContext);
-        logger.info("The verifyCertificate request succeeded, operation ID: {}", request.getRequestObject().getOperationContext().getId());
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
 }
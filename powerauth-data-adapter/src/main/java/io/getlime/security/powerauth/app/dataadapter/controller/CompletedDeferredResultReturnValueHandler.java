@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Return value handler which writes deferred results completed before the controller method returned directly as
+ * the response body. Other deferred results are handled by the default handler, which starts asynchronous
+ * processing and writes the result in an asynchronous dispatch.
+ */
+public class CompletedDeferredResultReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private final HandlerMethodReturnValueHandler deferredResultHandler;
+    private final HandlerMethodReturnValueHandler responseBodyHandler;
+
+    /**
+     * Handler constructor.
+     * @param deferredResultHandler Default handler of deferred results.
+     * @param responseBodyHandler Handler of response bodies.
+     */
+    public CompletedDeferredResultReturnValueHandler(HandlerMethodReturnValueHandler deferredResultHandler, HandlerMethodReturnValueHandler responseBodyHandler) {
+        this.deferredResultHandler = deferredResultHandler;
+        this.responseBodyHandler = responseBodyHandler;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return DeferredResult.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        if (returnValue instanceof DeferredResult && returnType.getMethod() != null) {
+            final DeferredResult<?> deferredResult = (DeferredResult<?>) returnValue;
+            final Object result = deferredResult.getResult();
+            if (deferredResult.hasResult() && result != null && !(result instanceof Throwable)) {
+                // Body type is resolved from the type argument of the declared DeferredResult return type
+                final MethodParameter bodyType = new MethodParameter(returnType.getMethod(), -1).nested();
+                responseBodyHandler.handleReturnValue(result, bodyType, mavContainer, webRequest);
+                return;
+            }
+        }
+        deferredResultHandler.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+    }
+
+}
@@ -23,6 +23,8 @@ import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemote
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidConsentDataException;
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
 import io.getlime.security.powerauth.app.dataadapter.impl.validation.ConsentFormRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.model.response.CachedObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.service.response.ConstantResponseService;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.ConsentOption;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
 import io.getlime.security.powerauth.lib.dataadapter.model.request.CreateConsentFormRequest;
@@ -55,16 +57,19 @@ public class ConsentController {
 
     private final DataAdapter dataAdapter;
     private final ConsentFormRequestValidator requestValidator;
+    private final ConstantResponseService constantResponseService;
 
     /**
      * Consent controller constructor.
      * @param dataAdapter Data adapter.
      * @param requestValidator Request validator.
+     * @param constantResponseService Constant response service.
      */
     @Autowired
-    public ConsentController(DataAdapter dataAdapter, ConsentFormRequestValidator requestValidator) {
+    public ConsentController(DataAdapter dataAdapter, ConsentFormRequestValidator requestValidator, ConstantResponseService constantResponseService) {
         this.dataAdapter = dataAdapter;
         this.requestValidator = requestValidator;
+        this.constantResponseService = constantResponseService;
     }
 
     /**
@@ -92,9 +97,14 @@ public class ConsentController {
         String userId = createRequest.getUserId();
         String organizationId = createRequest.getOrganizationId();
         OperationContext operationContext = createRequest.getOperationContext();
+        final CachedObjectResponse<InitConsentFormResponse> cachedResponse = constantResponseService.getCachedResponse(ConstantResponseService.INIT_CONSENT_FORM, null);
+        if (cachedResponse != null) {
+            logger.debug("The initConsentForm request succeeded");
+            return cachedResponse;
+        }
         InitConsentFormResponse response = dataAdapter.initConsentForm(userId, organizationId, operationContext);
         logger.debug("The initConsentForm request succeeded");
-        return new ObjectResponse<>(response);
+        return constantResponseService.respond(ConstantResponseService.INIT_CONSENT_FORM, null, response);
     }
 
     /**
@@ -161,7 +171,7 @@ public class ConsentController {
         List<ConsentOption> options = saveRequest.getOptions();
         SaveConsentFormResponse response = dataAdapter.saveConsentForm(userId, organizationId, operationContext, options);
         logger.debug("The saveConsentForm request succeeded");
-        return new ObjectResponse<>(response);
+        return constantResponseService.respond(ConstantResponseService.SAVE_CONSENT_FORM, null, response);
     }
 
 }
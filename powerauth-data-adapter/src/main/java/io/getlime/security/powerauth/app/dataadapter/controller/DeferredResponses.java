@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.controller;
+
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Factory of deferred responses of controllers which use the asynchronous Data Adapter variant when it is
+ * implemented. Responses of synchronous calls are completed before they are returned, so that they are written
+ * without an asynchronous dispatch.
+ */
+final class DeferredResponses {
+
+    private DeferredResponses() {
+    }
+
+    /**
+     * Create a completed deferred response.
+     * @param response Response object.
+     * @param onSuccess Callback invoked with the response object, e.g. for logging.
+     * @param <T> Response object type.
+     * @return Completed deferred response.
+     */
+    static <T> DeferredResult<ObjectResponse<T>> completed(T response, Consumer<T> onSuccess) {
+        onSuccess.accept(response);
+        final DeferredResult<ObjectResponse<T>> result = new DeferredResult<>();
+        result.setResult(new ObjectResponse<>(response));
+        return result;
+    }
+
+    /**
+     * Create a deferred response completed by an asynchronous Data Adapter call. Exceptions of the call are
+     * resolved by the exception handlers in the same way as exceptions of synchronous calls.
+     * @param stage Stage returned by the asynchronous call.
+     * @param onSuccess Callback invoked with the response object, e.g. for logging.
+     * @param <T> Response object type.
+     * @return Deferred response.
+     */
+    static <T> DeferredResult<ObjectResponse<T>> of(CompletionStage<T> stage, Consumer<T> onSuccess) {
+        final DeferredResult<ObjectResponse<T>> result = new DeferredResult<>();
+        stage.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                result.setErrorResult(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+                return;
+            }
+            try {
+                onSuccess.accept(response);
+                result.setResult(new ObjectResponse<>(response));
+            } catch (RuntimeException ex) {
+                result.setErrorResult(ex);
+            }
+        });
+        return result;
+    }
+
+}
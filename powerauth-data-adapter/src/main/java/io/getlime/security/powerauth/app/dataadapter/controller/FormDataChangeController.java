@@ -21,7 +21,7 @@ import io.getlime.core.rest.model.base.response.Response;
 import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.UserNotFoundException;
-import io.getlime.security.powerauth.lib.dataadapter.model.entity.FormDataChange;
+import io.getlime.security.powerauth.app.dataadapter.service.notification.FormDataChangeCoalescer;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
 import io.getlime.security.powerauth.lib.dataadapter.model.request.DecorateOperationFormDataRequest;
 import io.getlime.security.powerauth.lib.dataadapter.model.request.FormDataChangeNotificationRequest;
@@ -44,14 +44,17 @@ public class FormDataChangeController {
     private static final Logger logger = LoggerFactory.getLogger(FormDataChangeController.class);
 
     private final DataAdapter dataAdapter;
+    private final FormDataChangeCoalescer formDataChangeCoalescer;
 
     /**
      * Controller constructor.
      * @param dataAdapter Data adapter.
+     * @param formDataChangeCoalescer Form data change coalescer.
      */
     @Autowired
-    public FormDataChangeController(DataAdapter dataAdapter) {
+    public FormDataChangeController(DataAdapter dataAdapter, FormDataChangeCoalescer formDataChangeCoalescer) {
         this.dataAdapter = dataAdapter;
+        this.formDataChangeCoalescer = formDataChangeCoalescer;
     }
 
     /**
@@ -66,11 +69,7 @@ public class FormDataChangeController {
         logger.info("Received formDataChangedNotification request for user: {}, operation ID: {}",
                 request.getRequestObject().getUserId(), request.getRequestObject().getOperationContext().getId());
         FormDataChangeNotificationRequest notification = request.getRequestObject();
-        String userId = notification.getUserId();
-        String organizationId = notification.getOrganizationId();
-        OperationContext operationContext = notification.getOperationContext();
-        FormDataChange formDataChange = notification.getFormDataChange();
-        dataAdapter.formDataChangedNotification(userId, organizationId, formDataChange, operationContext);
+        formDataChangeCoalescer.submit(notification);
         logger.debug("The formDataChangedNotification request succeeded");
         return new Response();
     }
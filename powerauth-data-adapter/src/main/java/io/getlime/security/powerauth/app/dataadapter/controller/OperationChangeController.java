@@ -21,7 +21,7 @@ import io.getlime.core.rest.model.base.response.Response;
 import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
-import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationChange;
+import io.getlime.security.powerauth.app.dataadapter.service.notification.OperationChangeService;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
 import io.getlime.security.powerauth.lib.dataadapter.model.request.CreateImplicitLoginOperationRequest;
 import io.getlime.security.powerauth.lib.dataadapter.model.request.GetPAOperationMappingRequest;
@@ -46,14 +46,17 @@ public class OperationChangeController {
     private static final Logger logger = LoggerFactory.getLogger(OperationChangeController.class);
 
     private final DataAdapter dataAdapter;
+    private final OperationChangeService operationChangeService;
 
     /**
      * Controller constructor.
      * @param dataAdapter Data adapter.
+     * @param operationChangeService Operation change service.
      */
     @Autowired
-    public OperationChangeController(DataAdapter dataAdapter) {
+    public OperationChangeController(DataAdapter dataAdapter, OperationChangeService operationChangeService) {
         this.dataAdapter = dataAdapter;
+        this.operationChangeService = operationChangeService;
     }
 
     /**
@@ -89,12 +92,7 @@ public class OperationChangeController {
     public Response operationChangedNotification(@RequestBody ObjectRequest<OperationChangeNotificationRequest> request) throws DataAdapterRemoteException {
         logger.info("Received operationChangedNotification request for user: {}, operation ID: {}",
                 request.getRequestObject().getUserId(), request.getRequestObject().getOperationContext().getId());
-        final OperationChangeNotificationRequest notification = request.getRequestObject();
-        final String userId = notification.getUserId();
-        final String organizationId = notification.getOrganizationId();
-        final OperationContext operationContext = notification.getOperationContext();
-        final  OperationChange operationChange = notification.getOperationChange();
-        dataAdapter.operationChangedNotification(userId, organizationId, operationChange, operationContext);
+        operationChangeService.operationChanged(request.getRequestObject());
         logger.debug("The operationChangedNotification request succeeded");
         return new Response();
     }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.controller;
+
+import io.getlime.security.powerauth.app.dataadapter.json.OperationContextDeserializer;
+import io.getlime.security.powerauth.app.dataadapter.service.context.OperationContextCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Controller advice which returns the content hash of the cached operation context in a response header, the client
+ * may use the hash instead of the full operation context in subsequent requests for the same operation.
+ */
+@ControllerAdvice
+public class OperationContextHashAdvice implements ResponseBodyAdvice<Object> {
+
+    private final OperationContextCache operationContextCache;
+
+    /**
+     * Controller advice constructor.
+     * @param operationContextCache Operation context cache.
+     */
+    @Autowired
+    public OperationContextHashAdvice(OperationContextCache operationContextCache) {
+        this.operationContextCache = operationContextCache;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return operationContextCache.isEnabled();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            final Object hash = ((ServletServerHttpRequest) request).getServletRequest().getAttribute(OperationContextDeserializer.CONTEXT_HASH_ATTRIBUTE);
+            if (hash != null) {
+                response.getHeaders().set(OperationContextCache.CONTEXT_HASH_HEADER, hash.toString());
+            }
+        }
+        return body;
+    }
+
+}
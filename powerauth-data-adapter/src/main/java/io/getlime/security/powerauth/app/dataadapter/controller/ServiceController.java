@@ -18,6 +18,7 @@ package io.getlime.security.powerauth.app.dataadapter.controller;
 
 import io.getlime.core.rest.model.base.response.ObjectResponse;
 import io.getlime.security.powerauth.app.dataadapter.configuration.DataAdapterConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.service.response.ConstantResponseService;
 import io.getlime.security.powerauth.lib.dataadapter.model.response.ServiceStatusResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,16 +43,19 @@ public class ServiceController {
 
     private final DataAdapterConfiguration dataAdapterConfiguration;
     private final BuildProperties buildProperties;
+    private final ConstantResponseService constantResponseService;
 
     /**
      * Controller constructor.
      * @param dataAdapterConfiguration Data adapter configuration.
      * @param buildProperties Build info.
+     * @param constantResponseService Constant response service.
      */
     @Autowired
-    public ServiceController(DataAdapterConfiguration dataAdapterConfiguration, BuildProperties buildProperties) {
+    public ServiceController(DataAdapterConfiguration dataAdapterConfiguration, BuildProperties buildProperties, ConstantResponseService constantResponseService) {
         this.dataAdapterConfiguration = dataAdapterConfiguration;
         this.buildProperties = buildProperties;
+        this.constantResponseService = constantResponseService;
     }
 
     /**
@@ -61,14 +65,23 @@ public class ServiceController {
     @GetMapping(value = "status")
     public ObjectResponse<ServiceStatusResponse> getServiceStatus() {
         logger.info("Received getServiceStatus request");
+        // Only the timestamp changes between calls, the rest of the response is serialized once
+        final ObjectResponse<ServiceStatusResponse> response = constantResponseService.respondWithStatus(this::createServiceStatusResponse, new Date());
+        logger.debug("The getServiceStatus request succeeded");
+        return response;
+    }
+
+    /**
+     * Create service status response without timestamp.
+     * @return Service status response.
+     */
+    private ServiceStatusResponse createServiceStatusResponse() {
         ServiceStatusResponse response = new ServiceStatusResponse();
         response.setApplicationName(dataAdapterConfiguration.getApplicationName());
         response.setApplicationDisplayName(dataAdapterConfiguration.getApplicationDisplayName());
         response.setApplicationEnvironment(dataAdapterConfiguration.getApplicationEnvironment());
-        response.setTimestamp(new Date());
         response.setVersion(buildProperties.getVersion());
         response.setBuildTime(Date.from(buildProperties.getTime()));
-        logger.debug("The getServiceStatus request succeeded");
-        return new ObjectResponse<>(response);
+        return response;
     }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ package io.getlime.security.powerauth.app.dataadapter.controller;
 
 import io.getlime.core.rest.model.base.request.ObjectRequest;
 import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.api.AsyncDataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
@@ -38,8 +39,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.validation.Valid;
+import java.util.function.Consumer;
 
 /**
  * Controller class which handles SMS OTP authorization.
@@ -54,9 +57,11 @@ public class SmsAuthorizationController {
 
     private final AuthorizationSmsRequestValidator requestValidator;
     private final DataAdapter dataAdapter;
+    private final AsyncDataAdapter asyncDataAdapter;
 
     /**
-     * Controller constructor.
+     * Controller constructor. Backend calls are asynchronous in case the data adapter implements
+     * {@link AsyncDataAdapter}.
      * @param requestValidator Validator for SMS requests.
      * @param dataAdapter Data adapter.
      */
@@ -64,6 +69,7 @@ public class SmsAuthorizationController {
     public SmsAuthorizationController(AuthorizationSmsRequestValidator requestValidator, DataAdapter dataAdapter) {
         this.requestValidator = requestValidator;
         this.dataAdapter = dataAdapter;
+        this.asyncDataAdapter = dataAdapter instanceof AsyncDataAdapter ? (AsyncDataAdapter) dataAdapter : null;
     }
 
     /**
@@ -84,7 +90,7 @@ public class SmsAuthorizationController {
      * @throws InvalidOperationContextException Thrown in case operation context is invalid.
      */
     @PostMapping(value = "create")
-    public ObjectResponse<CreateSmsAuthorizationResponse> createAuthorizationSms(@Valid @RequestBody ObjectRequest<CreateSmsAuthorizationRequest> request) throws DataAdapterRemoteException, InvalidOperationContextException {
+    public DeferredResult<ObjectResponse<CreateSmsAuthorizationResponse>> createAuthorizationSms(@Valid @RequestBody ObjectRequest<CreateSmsAuthorizationRequest> request) throws DataAdapterRemoteException, InvalidOperationContextException {
         logger.info("Received createAuthorizationSms request, operation ID: {}", request.getRequestObject().getOperationContext().getId());
         CreateSmsAuthorizationRequest smsRequest = request.getRequestObject();
 
@@ -95,10 +101,12 @@ public class SmsAuthorizationController {
         AuthMethod authMethod = smsRequest.getAuthMethod();
         OperationContext operationContext = smsRequest.getOperationContext();
         String lang = smsRequest.getLang();
+        Consumer<CreateSmsAuthorizationResponse> onSuccess = response -> logger.info("The createAuthorizationSms request succeeded, operation ID: {}", operationContext.getId());
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.createAndSendAuthorizationSmsAsync(userId, organizationId, accountStatus, authMethod, operationContext, lang), onSuccess);
+        }
         CreateSmsAuthorizationResponse response = dataAdapter.createAndSendAuthorizationSms(userId, organizationId, accountStatus, authMethod, operationContext, lang);
-
-        logger.info("The createAuthorizationSms request succeeded, operation ID: {}", request.getRequestObject().getOperationContext().getId());
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
     /**
@@ -110,7 +118,7 @@ public class SmsAuthorizationController {
      * @throws InvalidOperationContextException Thrown in case operation context is invalid.
      */
     @PostMapping(value = "send")
-    public ObjectResponse<SendAuthorizationSmsResponse> sendAuthorizationSms(@Valid @RequestBody ObjectRequest<SendAuthorizationSmsRequest> request) throws DataAdapterRemoteException, InvalidOperationContextException {
+    public DeferredResult<ObjectResponse<SendAuthorizationSmsResponse>> sendAuthorizationSms(@Valid @RequestBody ObjectRequest<SendAuthorizationSmsRequest> request) throws DataAdapterRemoteException, InvalidOperationContextException {
         logger.info("Received sendAuthorizationSms request, operation ID: {}", request.getRequestObject().getOperationContext().getId());
         SendAuthorizationSmsRequest smsRequest = request.getRequestObject();
 
@@ -123,10 +131,12 @@ public class SmsAuthorizationController {
         String messageId = smsRequest.getMessageId();
         String authorizationCode = smsRequest.getAuthorizationCode();
         String lang = smsRequest.getLang();
+        Consumer<SendAuthorizationSmsResponse> onSuccess = response -> logger.info("The sendAuthorizationSms request succeeded, operation ID: {}", operationContext.getId());
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.sendAuthorizationSmsAsync(userId, organizationId, accountStatus, authMethod, operationContext, messageId, authorizationCode, lang), onSuccess);
+        }
         SendAuthorizationSmsResponse response = dataAdapter.sendAuthorizationSms(userId, organizationId, accountStatus, authMethod, operationContext, messageId, authorizationCode, lang);
-
-        logger.info("The sendAuthorizationSms request succeeded, operation ID: {}", request.getRequestObject().getOperationContext().getId());
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
     /**
@@ -138,7 +148,7 @@ public class SmsAuthorizationController {
      * @throws InvalidOperationContextException Thrown in case operation context is invalid.
      */
     @PostMapping(value = "verify")
-    public ObjectResponse<VerifySmsAuthorizationResponse> verifyAuthorizationSms(@RequestBody ObjectRequest<VerifySmsAuthorizationRequest> request) throws InvalidOperationContextException, DataAdapterRemoteException {
+    public DeferredResult<ObjectResponse<VerifySmsAuthorizationResponse>> verifyAuthorizationSms(@RequestBody ObjectRequest<VerifySmsAuthorizationRequest> request) throws InvalidOperationContextException, DataAdapterRemoteException {
         logger.info("Received verifyAuthorizationSms request, operation ID: {}", request.getRequestObject().getOperationContext().getId());
         VerifySmsAuthorizationRequest verifyRequest = request.getRequestObject();
         String userId = verifyRequest.getUserId();
@@ -148,9 +158,12 @@ public class SmsAuthorizationController {
         String authorizationCode = verifyRequest.getAuthorizationCode();
         OperationContext operationContext = verifyRequest.getOperationContext();
         // Verify authorization code
+        Consumer<VerifySmsAuthorizationResponse> onSuccess = response -> logger.info("The verifyAuthorizationSms request succeeded, operation ID: {}", operationContext.getId());
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.verifyAuthorizationSmsAsync(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext), onSuccess);
+        }
         VerifySmsAuthorizationResponse response = dataAdapter.verifyAuthorizationSms(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext);
-        logger.info("The verifyAuthorizationSms request succeeded, operation ID: {}", request.getRequestObject().getOperationContext().getId());
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
     /**
@@ -162,7 +175,7 @@ public class SmsAuthorizationController {
      * @throws InvalidOperationContextException Thrown in case operation context is invalid.
      */
     @PostMapping(value = "/password/verify")
-    public ObjectResponse<VerifySmsAndPasswordResponse> verifyAuthorizationSmsAndPassword(@RequestBody ObjectRequest<VerifySmsAndPasswordRequest> request) throws DataAdapterRemoteException, InvalidOperationContextException {
+    public DeferredResult<ObjectResponse<VerifySmsAndPasswordResponse>> verifyAuthorizationSmsAndPassword(@RequestBody ObjectRequest<VerifySmsAndPasswordRequest> request) throws DataAdapterRemoteException, InvalidOperationContextException {
         logger.info("Received verifyAuthorizationSmsAndPassword request, operation ID: {}", request.getRequestObject().getOperationContext().getId());
         VerifySmsAndPasswordRequest verifyRequest = request.getRequestObject();
         String userId = verifyRequest.getUserId();
@@ -173,9 +186,12 @@ public class SmsAuthorizationController {
         OperationContext operationContext = verifyRequest.getOperationContext();
         String password = verifyRequest.getPassword();
         AuthenticationContext authenticationContext = verifyRequest.getAuthenticationContext();
+        Consumer<VerifySmsAndPasswordResponse> onSuccess = response -> logger.info("The verifyAuthorizationSmsAndPassword request succeeded, operation ID: {}", operationContext.getId());
+        if (asyncDataAdapter != null) {
+            return DeferredResponses.of(asyncDataAdapter.verifyAuthorizationSmsAndPasswordAsync(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext, authenticationContext, password), onSuccess);
+        }
         VerifySmsAndPasswordResponse response = dataAdapter.verifyAuthorizationSmsAndPassword(userId, organizationId, accountStatus, messageId, authorizationCode, operationContext, authenticationContext, password);
-        logger.info("The verifyAuthorizationSmsAndPassword request succeeded, operation ID: {}", request.getRequestObject().getOperationContext().getId());
-        return new ObjectResponse<>(response);
+        return DeferredResponses.completed(response, onSuccess);
     }
 
 }
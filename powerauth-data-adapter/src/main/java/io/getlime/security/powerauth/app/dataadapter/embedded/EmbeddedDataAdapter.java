@@ -0,0 +1,264 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.embedded;
+
+import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.core.rest.model.base.response.ErrorResponse;
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterInvocationException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DefaultExceptionResolver;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.AuthMethodRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.AuthenticationRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.ConsentFormRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.service.afs.AfsExecutionService;
+import io.getlime.security.powerauth.app.dataadapter.service.notification.FormDataChangeCoalescer;
+import io.getlime.security.powerauth.app.dataadapter.service.notification.OperationChangeService;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.*;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.ValidationUtils;
+import org.springframework.validation.Validator;
+
+/**
+ * In-process invocation layer of the Data Adapter for embedded deployment.
+ *
+ * Each method accepts the request object of the equivalent REST endpoint, validates it with the validator of that
+ * endpoint and calls the same Data Adapter method or service. Exceptions are converted into
+ * {@link DataAdapterInvocationException} with the status and error response which the REST endpoint would return,
+ * so that the caller can handle errors in the same way as errors of the REST client. The operations are the same
+ * as the operations supported by the batch endpoint.
+ */
+@Service
+public class EmbeddedDataAdapter {
+
+    private final DataAdapter dataAdapter;
+    private final AfsExecutionService afsExecutionService;
+    private final FormDataChangeCoalescer formDataChangeCoalescer;
+    private final OperationChangeService operationChangeService;
+    private final AuthenticationRequestValidator authenticationRequestValidator;
+    private final AuthMethodRequestValidator authMethodRequestValidator;
+    private final ConsentFormRequestValidator consentFormRequestValidator;
+    private final DefaultExceptionResolver exceptionResolver;
+
+    /**
+     * Invocation of a Data Adapter method.
+     * @param <T> Response type.
+     */
+    @FunctionalInterface
+    private interface Invocation<T> {
+
+        /**
+         * Invoke the method.
+         * @return Response.
+         * @throws Exception Thrown when invocation fails.
+         */
+        T invoke() throws Exception;
+    }
+
+    /**
+     * Embedded Data Adapter constructor.
+     * @param dataAdapter Data adapter.
+     * @param afsExecutionService AFS execution service.
+     * @param formDataChangeCoalescer Form data change coalescer.
+     * @param operationChangeService Operation change service.
+     * @param authenticationRequestValidator Validator for authentication requests.
+     * @param authMethodRequestValidator Validator for authentication method requests.
+     * @param consentFormRequestValidator Validator for consent form requests.
+     * @param exceptionResolver Default exception resolver.
+     */
+    @Autowired
+    public EmbeddedDataAdapter(DataAdapter dataAdapter, AfsExecutionService afsExecutionService,
+                               FormDataChangeCoalescer formDataChangeCoalescer, OperationChangeService operationChangeService,
+                               AuthenticationRequestValidator authenticationRequestValidator,
+                               AuthMethodRequestValidator authMethodRequestValidator, ConsentFormRequestValidator consentFormRequestValidator,
+                               DefaultExceptionResolver exceptionResolver) {
+        this.dataAdapter = dataAdapter;
+        this.afsExecutionService = afsExecutionService;
+        this.formDataChangeCoalescer = formDataChangeCoalescer;
+        this.operationChangeService = operationChangeService;
+        this.authenticationRequestValidator = authenticationRequestValidator;
+        this.authMethodRequestValidator = authMethodRequestValidator;
+        this.consentFormRequestValidator = consentFormRequestValidator;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    /**
+     * Lookup user account, equivalent of {@code /api/auth/user/lookup}.
+     * @param request User lookup request.
+     * @return User detail response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public UserDetailResponse lookupUser(UserLookupRequest request) throws DataAdapterInvocationException {
+        return invoke(request, authenticationRequestValidator, () ->
+                dataAdapter.lookupUser(request.getUsername(), request.getOrganizationId(), request.getClientCertificate(), request.getOperationContext()));
+    }
+
+    /**
+     * Fetch user detail, equivalent of {@code /api/auth/user/info}.
+     * @param request User detail request.
+     * @return User detail response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public UserDetailResponse fetchUserDetail(UserDetailRequest request) throws DataAdapterInvocationException {
+        return invoke(request, null, () ->
+                dataAdapter.fetchUserDetail(request.getUserId(), request.getOrganizationId(), null));
+    }
+
+    /**
+     * Initialize authentication method, equivalent of {@code /api/auth/method/init}.
+     * @param request Authentication method initialization request.
+     * @return Authentication method initialization response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public InitAuthMethodResponse initAuthMethod(InitAuthMethodRequest request) throws DataAdapterInvocationException {
+        return invoke(request, authMethodRequestValidator, () ->
+                dataAdapter.initAuthMethod(request.getUserId(), request.getOrganizationId(), request.getAuthMethod(), request.getOperationContext()));
+    }
+
+    /**
+     * Decorate operation form data, equivalent of {@code /api/operation/formdata/decorate}.
+     * @param request Form data decoration request.
+     * @return Form data decoration response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public DecorateOperationFormDataResponse decorateFormData(DecorateOperationFormDataRequest request) throws DataAdapterInvocationException {
+        return invoke(request, null, () ->
+                dataAdapter.decorateFormData(request.getUserId(), request.getOrganizationId(), request.getAuthMethod(), request.getOperationContext()));
+    }
+
+    /**
+     * Notify about form data change, equivalent of {@code /api/operation/formdata/change}.
+     * @param request Form data change notification request.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public void formDataChangedNotification(FormDataChangeNotificationRequest request) throws DataAdapterInvocationException {
+        invoke(request, null, () -> {
+            formDataChangeCoalescer.submit(request);
+            return null;
+        });
+    }
+
+    /**
+     * Notify about operation change, equivalent of {@code /api/operation/change}.
+     * @param request Operation change notification request.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public void operationChangedNotification(OperationChangeNotificationRequest request) throws DataAdapterInvocationException {
+        invoke(request, null, () -> {
+            operationChangeService.operationChanged(request);
+            return null;
+        });
+    }
+
+    /**
+     * Get mapping of Next Step operation to PowerAuth operation, equivalent of {@code /api/operation/mapping}.
+     * @param request Operation mapping request.
+     * @return Operation mapping response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public GetPAOperationMappingResponse getPAOperationMapping(GetPAOperationMappingRequest request) throws DataAdapterInvocationException {
+        return invoke(request, null, () ->
+                dataAdapter.getPAOperationMapping(request.getUserId(), request.getOrganizationId(), request.getAuthMethod(), request.getOperationContext()));
+    }
+
+    /**
+     * Execute anti-fraud system action, equivalent of {@code /api/afs/action/execute}.
+     * @param request AFS request.
+     * @return AFS response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public AfsResponse executeAfsAction(AfsRequest request) throws DataAdapterInvocationException {
+        return invoke(request, null, () ->
+                afsExecutionService.executeAfsAction(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getAfsRequestParameters(), request.getExtras()));
+    }
+
+    /**
+     * Initialize consent form, equivalent of {@code /api/auth/consent/init}.
+     * @param request Consent form initialization request.
+     * @return Consent form initialization response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public InitConsentFormResponse initConsentForm(InitConsentFormRequest request) throws DataAdapterInvocationException {
+        return invoke(request, consentFormRequestValidator, () ->
+                dataAdapter.initConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext()));
+    }
+
+    /**
+     * Create consent form, equivalent of {@code /api/auth/consent/create}.
+     * @param request Consent form creation request.
+     * @return Consent form creation response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public CreateConsentFormResponse createConsentForm(CreateConsentFormRequest request) throws DataAdapterInvocationException {
+        return invoke(request, consentFormRequestValidator, () ->
+                dataAdapter.createConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getLang()));
+    }
+
+    /**
+     * Validate consent form, equivalent of {@code /api/auth/consent/validate}.
+     * @param request Consent form validation request.
+     * @return Consent form validation response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public ValidateConsentFormResponse validateConsentForm(ValidateConsentFormRequest request) throws DataAdapterInvocationException {
+        return invoke(request, consentFormRequestValidator, () ->
+                dataAdapter.validateConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getLang(), request.getOptions()));
+    }
+
+    /**
+     * Save consent form, equivalent of {@code /api/auth/consent/save}.
+     * @param request Consent form saving request.
+     * @return Consent form saving response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    public SaveConsentFormResponse saveConsentForm(SaveConsentFormRequest request) throws DataAdapterInvocationException {
+        return invoke(request, consentFormRequestValidator, () ->
+                dataAdapter.saveConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getOptions()));
+    }
+
+    /**
+     * Validate the request and invoke the Data Adapter method, exceptions are resolved into error responses of
+     * the equivalent REST endpoint.
+     * @param request Request object.
+     * @param validator Validator of the equivalent REST endpoint, null in case the endpoint is not validated.
+     * @param invocation Data Adapter method invocation.
+     * @param <R> Request type.
+     * @param <T> Response type.
+     * @return Response.
+     * @throws DataAdapterInvocationException In case the request fails.
+     */
+    private <R, T> T invoke(R request, Validator validator, Invocation<T> invocation) throws DataAdapterInvocationException {
+        try {
+            if (validator != null) {
+                final ObjectRequest<R> objectRequest = new ObjectRequest<>(request);
+                final BeanPropertyBindingResult errors = new BeanPropertyBindingResult(objectRequest, "objectRequest");
+                ValidationUtils.invokeValidator(validator, objectRequest, errors);
+                if (errors.hasErrors()) {
+                    throw new BindException(errors);
+                }
+            }
+            return invocation.invoke();
+        } catch (Exception ex) {
+            final ResponseEntity<ErrorResponse> errorResponse = exceptionResolver.resolveException(ex);
+            throw new DataAdapterInvocationException(errorResponse.getStatusCode(), errorResponse.getBody(), ex);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.exception;
+
+/**
+ * Exception thrown when a backend call is rejected because the bulkhead of its organization is full.
+ */
+public class BulkheadFullException extends DataAdapterRemoteException {
+
+    /**
+     * Default constructor.
+     */
+    public BulkheadFullException() {
+    }
+
+    /**
+     * Constructor with message.
+     *
+     * @param message Message.
+     */
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor with message and cause.
+     *
+     * @param message Message.
+     * @param cause   Cause, original exception.
+     */
+    public BulkheadFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Constructor with cause.
+     *
+     * @param cause Cause, original exception.
+     */
+    public BulkheadFullException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.exception;
+
+import io.getlime.core.rest.model.base.response.ErrorResponse;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown by the embedded Data Adapter invocation layer. The exception carries the status and error
+ * response which the equivalent REST endpoint would return.
+ */
+public class DataAdapterInvocationException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+    private final transient ErrorResponse errorResponse;
+
+    /**
+     * Constructor with status, error response and cause.
+     *
+     * @param status        HTTP status of the equivalent REST endpoint.
+     * @param errorResponse Error response of the equivalent REST endpoint.
+     * @param cause         Cause, original exception.
+     */
+    public DataAdapterInvocationException(HttpStatus status, ErrorResponse errorResponse, Throwable cause) {
+        super(cause);
+        this.status = status;
+        this.errorResponse = errorResponse;
+    }
+
+    /**
+     * Get HTTP status of the equivalent REST endpoint.
+     * @return HTTP status.
+     */
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Get error response of the equivalent REST endpoint.
+     * @return Error response.
+     */
+    public ErrorResponse getErrorResponse() {
+        return errorResponse;
+    }
+}
@@ -21,6 +21,10 @@ import io.getlime.security.powerauth.lib.dataadapter.model.entity.DataAdapterErr
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -68,8 +72,17 @@ public class DefaultExceptionResolver {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public @ResponseBody ErrorResponse handleDefaultException(MethodArgumentNotValidException ex) {
         logger.error("Method argument validation failed", ex);
+        return createValidationErrorResponse(ex.getBindingResult());
+    }
+
+    /**
+     * Create response for validation errors.
+     * @param bindingResult Validation result.
+     * @return Response with error information.
+     */
+    public ErrorResponse createValidationErrorResponse(BindingResult bindingResult) {
         List<String> errorMessages = new ArrayList<>();
-        final List<ObjectError> allErrors = ex.getBindingResult().getAllErrors();
+        final List<ObjectError> allErrors = bindingResult.getAllErrors();
         allErrors.stream()
                       .filter(objError -> (objError.getCodes() != null))
                       .forEachOrdered(objError ->
@@ -141,6 +154,131 @@ public class DefaultExceptionResolver {
         return new ErrorResponse(error);
     }
 
+    /**
+     * Handling of backend calls rejected due to full bulkhead of an organization. The rejection is expected when
+     * the backend of the organization is slow, it is logged at debug level only.
+     * @param ex Exception.
+     * @return Response with error information.
+     */
+    @ExceptionHandler(BulkheadFullException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public @ResponseBody ErrorResponse handleBulkheadFullException(BulkheadFullException ex) {
+        logger.debug("Backend call rejected, error: {}", ex.getMessage());
+        DataAdapterError error = new DataAdapterError(DataAdapterError.Code.REMOTE_ERROR, "error.overloaded");
+        return new ErrorResponse(error);
+    }
+
+    /**
+     * Handling of backend calls aborted because the caller's request deadline is too close. The caller no longer
+     * waits for the response, it is logged at debug level only.
+     * @param ex Exception.
+     * @return Response with error information.
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public @ResponseBody ErrorResponse handleDeadlineExceededException(DeadlineExceededException ex) {
+        logger.debug("Request deadline exceeded, error: {}", ex.getMessage());
+        DataAdapterError error = new DataAdapterError(DataAdapterError.Code.REMOTE_ERROR, "error.deadlineExceeded");
+        return new ErrorResponse(error);
+    }
+
+    /**
+     * Handling of backend calls rejected by an open circuit breaker. The rejection is expected while the backend
+     * recovers, it is logged at debug level only.
+     * @param ex Exception.
+     * @return Response with error information.
+     */
+    @ExceptionHandler(CircuitBreakerOpenException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public @ResponseBody ErrorResponse handleCircuitBreakerOpenException(CircuitBreakerOpenException ex) {
+        logger.debug("Backend call rejected, error: {}", ex.getMessage());
+        DataAdapterError error = new DataAdapterError(DataAdapterError.Code.REMOTE_ERROR, "error.overloaded");
+        return new ErrorResponse(error);
+    }
+
+    /**
+     * Handling of requests rejected due to the concurrency limit of their endpoint group. The rejection is expected
+     * during overload, it is logged at debug level only.
+     * @param ex Exception.
+     * @return Response with error information.
+     */
+    @ExceptionHandler(ConcurrencyLimitExceededException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public @ResponseBody ErrorResponse handleConcurrencyLimitExceededException(ConcurrencyLimitExceededException ex) {
+        logger.debug("Request rejected, error: {}", ex.getMessage());
+        DataAdapterError error = new DataAdapterError(DataAdapterError.Code.REMOTE_ERROR, "error.overloaded");
+        return new ErrorResponse(error);
+    }
+
+    /**
+     * Handling of request messages which could not be read. Requests referring to an operation context which is not
+     * cached are rejected with status 409, the client is expected to repeat the request with the full operation context.
+     * @param ex Exception.
+     * @return Response with error information.
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorResponse> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
+        if (isOperationContextNotCached(ex)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createOperationContextNotCachedResponse());
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(handleDefaultException(ex));
+    }
+
+    /**
+     * Check whether the exception was caused by a reference to an operation context which is not cached.
+     * @param t Throwable.
+     * @return Whether the operation context is not cached.
+     */
+    public boolean isOperationContextNotCached(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OperationContextNotCachedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create response for a request referring to an operation context which is not cached.
+     * @return Response with error information.
+     */
+    public ErrorResponse createOperationContextNotCachedResponse() {
+        logger.debug("Operation context is not cached");
+        DataAdapterError error = new DataAdapterError(DataAdapterError.Code.OPERATION_CONTEXT_INVALID, "operationContext.notCached");
+        return new ErrorResponse(error);
+    }
+
+    /**
+     * Resolve an exception into the status and error response which the REST endpoints return for it.
+     * @param t Throwable.
+     * @return Response entity with status and error information.
+     */
+    public ResponseEntity<ErrorResponse> resolveException(Throwable t) {
+        if (t instanceof BindException) {
+            logger.debug("Request validation failed");
+            return ResponseEntity.badRequest().body(createValidationErrorResponse(((BindException) t).getBindingResult()));
+        } else if (t instanceof UserNotFoundException) {
+            return ResponseEntity.badRequest().body(handleUserNotFoundException((UserNotFoundException) t));
+        } else if (t instanceof InvalidOperationContextException) {
+            return ResponseEntity.badRequest().body(handleInvalidOperationContextException((InvalidOperationContextException) t));
+        } else if (t instanceof InvalidConsentDataException) {
+            return ResponseEntity.badRequest().body(handleInvalidConsentException((InvalidConsentDataException) t));
+        } else if (t instanceof DeadlineExceededException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(handleDeadlineExceededException((DeadlineExceededException) t));
+        } else if (t instanceof CircuitBreakerOpenException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(handleCircuitBreakerOpenException((CircuitBreakerOpenException) t));
+        } else if (t instanceof BulkheadFullException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(handleBulkheadFullException((BulkheadFullException) t));
+        } else if (t instanceof DataAdapterRemoteException) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(handleDataAdapterRemoteException((DataAdapterRemoteException) t));
+        } else if (t instanceof ConcurrencyLimitExceededException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(handleConcurrencyLimitExceededException((ConcurrencyLimitExceededException) t));
+        } else if (isOperationContextNotCached(t)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(createOperationContextNotCachedResponse());
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(handleDefaultException(t));
+    }
+
     private String processErrorMessagesWhenUsernameEmpty(List<String> errorMessages) {
         if (errorMessages.contains(LOGIN_PASS_EMPTY)) {
             return "login.username.empty login.password.empty";
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.exception;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Exception thrown when a request refers to an operation context which is not available in the operation context
+ * cache. The client is expected to repeat the request with the full operation context.
+ */
+public class OperationContextNotCachedException extends JsonMappingException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor with parser and message.
+     *
+     * @param parser  Parser used for deserialization.
+     * @param message Message.
+     */
+    public OperationContextNotCachedException(JsonParser parser, String message) {
+        super(parser, message);
+    }
+}
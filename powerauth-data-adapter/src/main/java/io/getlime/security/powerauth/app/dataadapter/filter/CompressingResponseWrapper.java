@@ -0,0 +1,343 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Response wrapper which compresses the response body once it reaches the size threshold.
+ *
+ * The body is buffered until the threshold is reached. Smaller bodies are written uncompressed with their content
+ * length when the response is finished. Larger bodies are compressed with the negotiated encoding and sent without
+ * content length. Responses with other than textual content type are never compressed.
+ */
+final class CompressingResponseWrapper extends HttpServletResponseWrapper {
+
+    /**
+     * Factory of compressing streams.
+     */
+    @FunctionalInterface
+    interface CompressorFactory {
+
+        /**
+         * Create compressing stream.
+         * @param encoding Content encoding.
+         * @param out Output stream for compressed data.
+         * @return Compressing output stream.
+         * @throws IOException In case the stream cannot be created.
+         */
+        OutputStream create(ContentEncoding encoding, OutputStream out) throws IOException;
+    }
+
+    private final ContentEncoding encoding;
+    private final int threshold;
+    private final CompressorFactory compressorFactory;
+
+    private long contentLength = -1;
+    private ThresholdOutputStream outputStream;
+    private PrintWriter writer;
+
+    /**
+     * Wrapper constructor.
+     * @param response Response.
+     * @param encoding Negotiated content encoding.
+     * @param threshold Minimum body size for compression.
+     * @param compressorFactory Factory of compressing streams.
+     */
+    CompressingResponseWrapper(HttpServletResponse response, ContentEncoding encoding, int threshold, CompressorFactory compressorFactory) {
+        super(response);
+        this.encoding = encoding;
+        this.threshold = threshold;
+        this.compressorFactory = compressorFactory;
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            this.contentLength = value == null ? -1 : Long.parseLong(value);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            this.contentLength = value == null ? -1 : Long.parseLong(value);
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            this.contentLength = value;
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        return getThresholdOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(getThresholdOutputStream(), Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+        if (outputStream == null || outputStream.isDecided()) {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (outputStream != null && outputStream.isDecided()) {
+            throw new IllegalStateException("Response body has already been written");
+        }
+        if (outputStream != null) {
+            outputStream.buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        contentLength = -1;
+        super.reset();
+        super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Finish the response, write buffered body or finish the compression.
+     * @return Number of bytes written to the response, including compressed data, or -1 in case body was not written.
+     * @throws IOException In case the response cannot be written.
+     */
+    long finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream == null) {
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            return -1;
+        }
+        return outputStream.finish();
+    }
+
+    /**
+     * Get number of uncompressed bytes written by the application.
+     * @return Uncompressed body size.
+     */
+    long getUncompressedSize() {
+        return outputStream == null ? 0 : outputStream.uncompressedSize;
+    }
+
+    /**
+     * Get whether the body was compressed.
+     * @return Whether the body was compressed.
+     */
+    boolean isCompressed() {
+        return outputStream != null && outputStream.compressor != null;
+    }
+
+    private ThresholdOutputStream getThresholdOutputStream() {
+        if (outputStream == null) {
+            outputStream = new ThresholdOutputStream();
+        }
+        return outputStream;
+    }
+
+    private boolean isCompressible() {
+        if (getResponse().isCommitted() || getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+            return false;
+        }
+        final String contentType = getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        return contentType.contains("json") || contentType.startsWith("text/") || contentType.contains("xml") || contentType.contains("javascript");
+    }
+
+    /**
+     * Output stream which buffers the body until the compression decision is made.
+     */
+    private final class ThresholdOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(threshold, 256));
+        private OutputStream target;
+        private OutputStream compressor;
+        private CountingOutputStream counter;
+        private long uncompressedSize;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            uncompressedSize += len;
+            if (target != null) {
+                target.write(b, off, len);
+                return;
+            }
+            if (buffer.size() + len < threshold) {
+                buffer.write(b, off, len);
+                return;
+            }
+            decide(true);
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Flush before the decision is ignored, the body is still being buffered
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Asynchronous output is not supported for compressed responses");
+        }
+
+        private boolean isDecided() {
+            return target != null;
+        }
+
+        /**
+         * Decide whether the body is compressed and write the buffered data.
+         * @param thresholdReached Whether the body reached the threshold.
+         * @throws IOException In case the buffered data cannot be written.
+         */
+        private void decide(boolean thresholdReached) throws IOException {
+            counter = new CountingOutputStream(CompressingResponseWrapper.super.getOutputStream());
+            if (thresholdReached && isCompressible()) {
+                CompressingResponseWrapper.super.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+                compressor = compressorFactory.create(encoding, counter);
+                target = compressor;
+            } else {
+                if (contentLength >= 0) {
+                    CompressingResponseWrapper.super.setContentLengthLong(contentLength);
+                } else if (!thresholdReached && buffer.size() > 0) {
+                    CompressingResponseWrapper.super.setContentLengthLong(buffer.size());
+                }
+                target = counter;
+            }
+            buffer.writeTo(target);
+            buffer.reset();
+        }
+
+        private long finish() throws IOException {
+            if (target == null) {
+                decide(false);
+            }
+            if (compressor != null) {
+                compressor.close();
+            } else {
+                target.flush();
+            }
+            return counter.count;
+        }
+    }
+
+    /**
+     * Output stream which counts written bytes.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.github.luben.zstd.util.Native;
+import io.getlime.security.powerauth.app.dataadapter.configuration.CompressionConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Filter which negotiates compression of request and response bodies of Data Adapter endpoints.
+ *
+ * Request bodies with Content-Encoding gzip or zstd are decompressed, other encodings are rejected with status 415.
+ * Responses are compressed with zstd or gzip according to Accept-Encoding request header, zstd is preferred when
+ * enabled. Responses smaller than the configured threshold are sent uncompressed. Gzip deflaters are pooled and
+ * zstd streams use recycled buffers, so that compression does not allocate native memory for each response.
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionFilter.class);
+
+    private static final String API_PATH = "/api/";
+    private static final String IDENTITY = "identity";
+    private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.compression";
+
+    private final boolean enabled;
+    private final boolean zstdAvailable;
+    private final int zstdLevel;
+    private final int minResponseSize;
+    private final long maxRequestSize;
+    private final DeflaterPool deflaterPool;
+    private final Map<ContentEncoding, Counter> uncompressedBytes = new EnumMap<>(ContentEncoding.class);
+    private final Map<ContentEncoding, Counter> compressedBytes = new EnumMap<>(ContentEncoding.class);
+    private final Map<ContentEncoding, Counter> decompressedRequests = new EnumMap<>(ContentEncoding.class);
+
+    /**
+     * Filter constructor.
+     * @param configuration Compression configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public CompressionFilter(CompressionConfiguration configuration, MeterRegistry meterRegistry) {
+        this.enabled = configuration.isEnabled();
+        this.zstdAvailable = configuration.isEnabled() && configuration.isZstdEnabled() && loadZstd();
+        this.zstdLevel = configuration.getZstdLevel();
+        this.minResponseSize = configuration.getMinResponseSizeInBytes();
+        this.maxRequestSize = configuration.getMaxRequestSizeInBytes();
+        this.deflaterPool = new DeflaterPool(configuration.getPoolSize(), configuration.getGzipLevel());
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            uncompressedBytes.put(encoding, Counter.builder(METRIC_PREFIX + ".response.bytes")
+                    .description("Size of compressed response bodies")
+                    .tag("encoding", encoding.getToken())
+                    .tag("stage", "uncompressed")
+                    .baseUnit("bytes")
+                    .register(meterRegistry));
+            compressedBytes.put(encoding, Counter.builder(METRIC_PREFIX + ".response.bytes")
+                    .description("Size of compressed response bodies")
+                    .tag("encoding", encoding.getToken())
+                    .tag("stage", "compressed")
+                    .baseUnit("bytes")
+                    .register(meterRegistry));
+            decompressedRequests.put(encoding, Counter.builder(METRIC_PREFIX + ".request.decompressed")
+                    .description("Number of decompressed request bodies")
+                    .tag("encoding", encoding.getToken())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(request.getContextPath() + API_PATH);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // Compression of responses of asynchronous requests is finished in the async dispatch
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterChain.doFilter(request, response);
+            finishResponse(request, response);
+            return;
+        }
+        HttpServletRequest effectiveRequest = request;
+        final String requestEncodingHeader = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (requestEncodingHeader != null && !IDENTITY.equalsIgnoreCase(requestEncodingHeader.trim())) {
+            final ContentEncoding requestEncoding = ContentEncoding.fromToken(requestEncodingHeader);
+            if (requestEncoding == null || (requestEncoding == ContentEncoding.ZSTD && !zstdAvailable)) {
+                logger.warn("Unsupported request content encoding: {}", requestEncodingHeader);
+                response.setHeader(HttpHeaders.ACCEPT_ENCODING, zstdAvailable ? "zstd, gzip" : "gzip");
+                response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value());
+                return;
+            }
+            effectiveRequest = new DecompressingRequestWrapper(request, decompress(requestEncoding, request.getInputStream()), maxRequestSize);
+            decompressedRequests.get(requestEncoding).increment();
+        }
+        final ContentEncoding responseEncoding = ContentEncoding.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING), zstdAvailable);
+        if (responseEncoding == null) {
+            filterChain.doFilter(effectiveRequest, response);
+            return;
+        }
+        final CompressingResponseWrapper responseWrapper = new CompressingResponseWrapper(response, responseEncoding, minResponseSize, this::compress);
+        filterChain.doFilter(effectiveRequest, responseWrapper);
+        finishResponse(request, responseWrapper);
+    }
+
+    /**
+     * Finish compression of the response unless the request continues asynchronously.
+     * @param request Request.
+     * @param response Response, possibly wrapped.
+     * @throws IOException In case the response cannot be written.
+     */
+    private void finishResponse(HttpServletRequest request, ServletResponse response) throws IOException {
+        if (isAsyncStarted(request)) {
+            return;
+        }
+        final CompressingResponseWrapper responseWrapper = WebUtils.getNativeResponse(response, CompressingResponseWrapper.class);
+        if (responseWrapper == null) {
+            return;
+        }
+        final long writtenBytes = responseWrapper.finish();
+        if (responseWrapper.isCompressed()) {
+            final ContentEncoding encoding = ContentEncoding.fromToken(responseWrapper.getHeader(HttpHeaders.CONTENT_ENCODING));
+            if (encoding != null) {
+                uncompressedBytes.get(encoding).increment(responseWrapper.getUncompressedSize());
+                compressedBytes.get(encoding).increment(writtenBytes);
+            }
+        }
+    }
+
+    private OutputStream compress(ContentEncoding encoding, OutputStream out) throws IOException {
+        if (encoding == ContentEncoding.ZSTD) {
+            return new ZstdOutputStream(out, RecyclingBufferPool.INSTANCE).setLevel(zstdLevel);
+        }
+        return new PooledGzipOutputStream(out, deflaterPool);
+    }
+
+    private InputStream decompress(ContentEncoding encoding, InputStream in) throws IOException {
+        if (encoding == ContentEncoding.ZSTD) {
+            return new ZstdInputStream(in, RecyclingBufferPool.INSTANCE);
+        }
+        return new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+    }
+
+    private static boolean loadZstd() {
+        try {
+            Native.load();
+            return true;
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError ex) {
+            logger.warn("Zstd native library is not available, only gzip encoding is used, error: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Release pooled deflaters.
+     */
+    @PreDestroy
+    public void shutdown() {
+        deflaterPool.clear();
+    }
+
+}
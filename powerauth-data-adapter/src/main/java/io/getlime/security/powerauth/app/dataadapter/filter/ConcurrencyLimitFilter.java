@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import io.getlime.security.powerauth.app.dataadapter.exception.ConcurrencyLimitExceededException;
+import io.getlime.security.powerauth.app.dataadapter.service.limit.ConcurrencyLimitService;
+import io.getlime.security.powerauth.app.dataadapter.service.limit.EndpointGroup;
+import io.getlime.security.powerauth.app.dataadapter.service.limit.GradientConcurrencyLimiter;
+import io.getlime.security.powerauth.app.dataadapter.service.limit.RequestPriority;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Filter which applies adaptive concurrency limits of endpoint groups to Data Adapter endpoints. Requests are
+ * admitted according to the priority class of the endpoint, requests which are not admitted are rejected before
+ * reaching the controllers with status 503, the response is created by the exception handlers. Latency of asynchronous requests is measured until completion of the asynchronous processing.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/";
+    private static final String SERVICE_PATH = "/api/service/";
+
+    private final ConcurrencyLimitService concurrencyLimitService;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    /**
+     * Filter constructor.
+     * @param concurrencyLimitService Concurrency limit service.
+     * @param handlerExceptionResolver Handler exception resolver of Spring MVC.
+     */
+    @Autowired
+    public ConcurrencyLimitFilter(ConcurrencyLimitService concurrencyLimitService,
+                                  @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) {
+        this.concurrencyLimitService = concurrencyLimitService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!concurrencyLimitService.isEnabled()) {
+            return true;
+        }
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        // Service status is used for health checks, it must respond also during overload
+        return !path.startsWith(API_PATH) || path.startsWith(SERVICE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        final EndpointGroup group = EndpointGroup.resolve(path);
+        final RequestPriority priority = RequestPriority.resolve(path);
+        final GradientConcurrencyLimiter limiter;
+        try {
+            limiter = concurrencyLimitService.tryAcquire(group, priority);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            reject(request, response, group, priority);
+            return;
+        }
+        if (limiter == null) {
+            reject(request, response, group, priority);
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            if (async) {
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(limiter, startNanos));
+            } else {
+                limiter.release(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, EndpointGroup group, RequestPriority priority) throws IOException {
+        final ConcurrencyLimitExceededException ex = new ConcurrencyLimitExceededException("Concurrency limit exceeded, endpoint group: "
+                + group.getName() + ", priority: " + priority.getName());
+        if (handlerExceptionResolver.resolveException(request, response, null, ex) == null) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+
+    /**
+     * Listener which releases the limiter slot on completion of an asynchronous request.
+     */
+    private static final class ReleasingAsyncListener implements AsyncListener {
+
+        private final GradientConcurrencyLimiter limiter;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleasingAsyncListener(GradientConcurrencyLimiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listener is registered after the asynchronous processing started
+        }
+
+        private void release() {
+            // Timeout and error are followed by completion, the slot is released only once
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import java.util.Locale;
+
+/**
+ * Content encodings supported for request and response bodies.
+ */
+enum ContentEncoding {
+
+    /**
+     * Gzip encoding, RFC 1952.
+     */
+    GZIP("gzip"),
+
+    /**
+     * Zstandard encoding, RFC 8878.
+     */
+    ZSTD("zstd");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Get encoding token used in HTTP headers.
+     * @return Encoding token.
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Find encoding by HTTP header token.
+     * @param token Encoding token.
+     * @return Content encoding or null for unsupported encodings.
+     */
+    static ContentEncoding fromToken(String token) {
+        final String normalized = token.trim().toLowerCase(Locale.ROOT);
+        if ("x-gzip".equals(normalized)) {
+            return GZIP;
+        }
+        for (ContentEncoding encoding : values()) {
+            if (encoding.token.equals(normalized)) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Choose response encoding based on Accept-Encoding request header. Zstd is preferred over gzip when enabled.
+     * @param acceptEncoding Value of Accept-Encoding header.
+     * @param zstdAvailable Whether zstd encoding is available.
+     * @return Negotiated encoding or null in case the response is not compressed.
+     */
+    static ContentEncoding negotiate(String acceptEncoding, boolean zstdAvailable) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean gzipAccepted = false;
+        boolean zstdAccepted = false;
+        for (String item : acceptEncoding.split(",")) {
+            final String[] parts = item.split(";");
+            if (isRejected(parts)) {
+                continue;
+            }
+            final String name = parts[0].trim();
+            if ("*".equals(name)) {
+                gzipAccepted = true;
+                continue;
+            }
+            final ContentEncoding encoding = fromToken(name);
+            if (encoding == GZIP) {
+                gzipAccepted = true;
+            } else if (encoding == ZSTD) {
+                zstdAccepted = true;
+            }
+        }
+        if (zstdAccepted && zstdAvailable) {
+            return ZSTD;
+        }
+        return gzipAccepted ? GZIP : null;
+    }
+
+    private static boolean isRejected(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException ex) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Filter which reads the request timeout sent by the caller and stores the resulting deadline in
+ * {@link DeadlineContextHolder} for backend calls made while processing the request. Requests whose deadline is
+ * too close are rejected before reaching the controllers with status 504. The timeout of asynchronous processing
+ * is limited by the deadline as well.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineFilter.class);
+
+    private static final String API_PATH = "/api/";
+    private static final String SERVICE_PATH = "/api/service/";
+
+    private final DeadlineConfiguration configuration;
+    private final DeadlineService deadlineService;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    /**
+     * Filter constructor.
+     * @param configuration Deadline configuration.
+     * @param deadlineService Deadline service.
+     * @param handlerExceptionResolver Handler exception resolver of Spring MVC.
+     */
+    @Autowired
+    public DeadlineFilter(DeadlineConfiguration configuration, DeadlineService deadlineService,
+                          @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) {
+        this.configuration = configuration;
+        this.deadlineService = deadlineService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!configuration.isEnabled()) {
+            return true;
+        }
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(API_PATH) || path.startsWith(SERVICE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final Long timeout = parseTimeout(request.getHeader(configuration.getHeaderName()));
+        if (timeout == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        final Deadline deadline = Deadline.after(timeout - configuration.getMarginInMilliseconds());
+        if (deadline.getRemainingMillis() < configuration.getMinimumRemainingInMilliseconds()) {
+            deadlineService.recordExceeded("request");
+            final DeadlineExceededException ex = new DeadlineExceededException("Request timeout is too short: " + timeout + " ms");
+            if (handlerExceptionResolver.resolveException(request, response, null, ex) == null) {
+                response.sendError(HttpStatus.GATEWAY_TIMEOUT.value());
+            }
+            return;
+        }
+        DeadlineContextHolder.setDeadline(deadline);
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().setTimeout(Math.max(1L, deadline.getRemainingMillis()));
+            }
+        } finally {
+            DeadlineContextHolder.resetDeadline();
+        }
+    }
+
+    private Long parseTimeout(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            final long timeout = Long.parseLong(value.trim());
+            return timeout > 0 ? timeout : null;
+        } catch (NumberFormatException ex) {
+            logger.debug("Invalid request timeout header value: {}", value);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Request wrapper which provides decompressed request body. Content-Encoding and Content-Length headers of
+ * the compressed body are hidden from the application.
+ */
+final class DecompressingRequestWrapper extends HttpServletRequestWrapper {
+
+    private final DecompressingInputStream inputStream;
+    private BufferedReader reader;
+
+    /**
+     * Wrapper constructor.
+     * @param request Request.
+     * @param decompressedStream Stream with decompressed body.
+     * @param maxSize Maximum size of decompressed body.
+     */
+    DecompressingRequestWrapper(HttpServletRequest request, InputStream decompressedStream, long maxSize) {
+        super(request);
+        this.inputStream = new DecompressingInputStream(decompressedStream, maxSize);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() has already been called for this request");
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        if (reader == null) {
+            final String characterEncoding = getCharacterEncoding();
+            final Charset charset = characterEncoding == null ? StandardCharsets.UTF_8 : Charset.forName(characterEncoding);
+            reader = new BufferedReader(new InputStreamReader(inputStream, charset));
+        }
+        return reader;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return isHidden(name) ? null : super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        return isHidden(name) ? -1 : super.getIntHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        final List<String> names = Collections.list(super.getHeaderNames());
+        names.removeIf(DecompressingRequestWrapper::isHidden);
+        return Collections.enumeration(names);
+    }
+
+    private static boolean isHidden(String name) {
+        return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+    }
+
+    /**
+     * Servlet input stream over decompressed data with a limit of decompressed size.
+     */
+    private static final class DecompressingInputStream extends ServletInputStream {
+
+        private final InputStream in;
+        private final long maxSize;
+        private long size;
+        private boolean finished;
+
+        private DecompressingInputStream(InputStream in, long maxSize) {
+            this.in = in;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = in.read(b, off, len);
+            if (n < 0) {
+                finished = true;
+                return n;
+            }
+            size += n;
+            if (size > maxSize) {
+                throw new IOException("Decompressed request body exceeds maximum size of " + maxSize + " bytes");
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Asynchronous input is not supported for compressed requests");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+}
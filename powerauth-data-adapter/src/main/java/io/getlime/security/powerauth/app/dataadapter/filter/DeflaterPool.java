@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of deflaters for gzip compression. A deflater allocates native memory on creation, so the idle deflaters
+ * are reset and reused instead of being created for each response.
+ */
+final class DeflaterPool {
+
+    private final BlockingQueue<Deflater> idle;
+    private final int level;
+
+    /**
+     * Pool constructor.
+     * @param size Maximum number of idle deflaters.
+     * @param level Compression level.
+     */
+    DeflaterPool(int size, int level) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(size, 1));
+        this.level = level;
+    }
+
+    /**
+     * Borrow a deflater, a new deflater is created in case no idle deflater is available.
+     * @return Deflater producing raw deflate data.
+     */
+    Deflater borrow() {
+        final Deflater deflater = idle.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    /**
+     * Return a deflater to the pool, the deflater is released in case the pool is full.
+     * @param deflater Deflater.
+     */
+    void release(Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Release all idle deflaters.
+     */
+    void clear() {
+        Deflater deflater;
+        while ((deflater = idle.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+}
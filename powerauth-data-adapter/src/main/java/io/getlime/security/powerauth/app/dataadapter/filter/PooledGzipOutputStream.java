@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Gzip output stream which uses a deflater from {@link DeflaterPool} and returns it to the pool when closed.
+ */
+final class PooledGzipOutputStream extends DeflaterOutputStream {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Gzip header with deflate method, no flags, no modification time and unknown operating system.
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final DeflaterPool pool;
+    private final CRC32 crc = new CRC32();
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Stream constructor.
+     * @param out Output stream for compressed data.
+     * @param pool Deflater pool.
+     * @throws IOException In case the gzip header cannot be written.
+     */
+    PooledGzipOutputStream(OutputStream out, DeflaterPool pool) throws IOException {
+        super(out, pool.borrow(), BUFFER_SIZE);
+        this.pool = pool;
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        super.finish();
+        final long crcValue = crc.getValue();
+        final long size = def.getBytesRead();
+        final byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (crcValue >>> (8 * i));
+            trailer[i + 4] = (byte) (size >>> (8 * i));
+        }
+        out.write(trailer);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            finish();
+        } finally {
+            pool.release(def);
+            out.close();
+        }
+    }
+
+}
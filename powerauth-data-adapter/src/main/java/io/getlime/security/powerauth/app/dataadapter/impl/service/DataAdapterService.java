@@ -15,9 +15,18 @@
  */
 package io.getlime.security.powerauth.app.dataadapter.impl.service;
 
+import io.getlime.security.powerauth.app.dataadapter.api.ConstantResponse;
 import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
 import io.getlime.security.powerauth.app.dataadapter.exception.*;
+import io.getlime.security.powerauth.app.dataadapter.service.AuthenticationAttemptService;
+import io.getlime.security.powerauth.app.dataadapter.service.afs.AfsRiskEngine;
+import io.getlime.security.powerauth.app.dataadapter.service.audit.AuditEventType;
+import io.getlime.security.powerauth.app.dataadapter.service.audit.AuditService;
+import io.getlime.security.powerauth.app.dataadapter.service.bulkhead.OrganizationBulkheadService;
+import io.getlime.security.powerauth.app.dataadapter.service.resilience.ResilienceService;
+import io.getlime.security.powerauth.app.dataadapter.service.CredentialVerificationService;
 import io.getlime.security.powerauth.app.dataadapter.service.DataAdapterI18NService;
+import io.getlime.security.powerauth.app.dataadapter.service.PasswordDecryptionService;
 import io.getlime.security.powerauth.app.dataadapter.service.SmsPersistenceService;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.*;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.attribute.AmountAttribute;
@@ -34,7 +43,9 @@ import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -51,6 +62,8 @@ public class DataAdapterService implements DataAdapter {
 
     private static final String BANK_ACCOUNT_CHOICE_ID = "operation.bankAccountChoice";
     private static final String AUTHENTICATION_FAILED = "login.authenticationFailed";
+    private static final String AUTHENTICATION_RETRY_LATER = "login.authenticationRetryLater";
+    private static final String AUTHENTICATION_BLOCKED = "login.authenticationBlocked";
     private static final String SMS_DELIVERY_FAILED = "smsAuthorization.deliveryFailed";
     private static final String SMS_AUTHORIZATION_FAILED = "smsAuthorization.failed";
     private static final String INVALID_REQUEST = "error.invalidRequest";
@@ -66,13 +79,27 @@ public class DataAdapterService implements DataAdapter {
     private final SmsPersistenceService smsPersistenceService;
     private final SmsDeliveryService smsDeliveryService;
     private final OperationValueExtractionService operationValueExtractionService;
+    private final CredentialVerificationService credentialVerificationService;
+    private final PasswordDecryptionService passwordDecryptionService;
+    private final AuthenticationAttemptService authenticationAttemptService;
+    private final AfsRiskEngine afsRiskEngine;
+    private final AuditService auditService;
+    private final OrganizationBulkheadService bulkheadService;
+    private final ResilienceService resilienceService;
 
     @Autowired
-    public DataAdapterService(DataAdapterI18NService dataAdapterI18NService, SmsPersistenceService smsPersistenceService, SmsDeliveryService smsDeliveryService, OperationValueExtractionService operationValueExtractionService) {
+    public DataAdapterService(DataAdapterI18NService dataAdapterI18NService, SmsPersistenceService smsPersistenceService, SmsDeliveryService smsDeliveryService, OperationValueExtractionService operationValueExtractionService, CredentialVerificationService credentialVerificationService, PasswordDecryptionService passwordDecryptionService, AuthenticationAttemptService authenticationAttemptService, AfsRiskEngine afsRiskEngine, AuditService auditService, OrganizationBulkheadService bulkheadService, ResilienceService resilienceService) {
         this.dataAdapterI18NService = dataAdapterI18NService;
         this.smsPersistenceService = smsPersistenceService;
         this.smsDeliveryService = smsDeliveryService;
         this.operationValueExtractionService = operationValueExtractionService;
+        this.credentialVerificationService = credentialVerificationService;
+        this.passwordDecryptionService = passwordDecryptionService;
+        this.authenticationAttemptService = authenticationAttemptService;
+        this.afsRiskEngine = afsRiskEngine;
+        this.auditService = auditService;
+        this.bulkheadService = bulkheadService;
+        this.resilienceService = resilienceService;
     }
 
     @Override
@@ -82,26 +109,123 @@ public class DataAdapterService implements DataAdapter {
         // If user account account is blocked, return AccountStatus.NOT_ACTIVE as account status.
         // For case when an error should appear instead, throw a UserNotFoundException.
 
-        // In case the client certificate is used, use the certificate to obtain user details. In sample implementation
-        // a static user ID is returned.
-        if (clientCertificate != null) {
-            return fetchUserDetail("certuser", organizationId, operationContext);
-        }
+        // The lookup is an idempotent read, it is protected by a circuit breaker and it may be hedged.
+        return resilienceService.execute("lookupUser", true, () -> {
+            // In case the client certificate is used, use the certificate to obtain user details. In sample implementation
+            // a static user ID is returned.
+            if (clientCertificate != null) {
+                return fetchUserDetail("certuser", organizationId, operationContext);
+            }
 
-        // Use 1:1 mapping of username to user ID in sample implementation.
-        return fetchUserDetail(username, organizationId, operationContext);
+            // Use 1:1 mapping of username to user ID in sample implementation.
+            return fetchUserDetail(username, organizationId, operationContext);
+        });
     }
 
     @Override
     public UserAuthenticationResponse authenticateUser(String userId, String password, AuthenticationContext authenticationContext, String organizationId, OperationContext operationContext) throws DataAdapterRemoteException {
+        // Authentication changes state of failed attempts, it is protected by a circuit breaker and it is never hedged nor interrupted.
+        return authenticateUser(userId, password, authenticationContext, organizationId, operationContext, true);
+    }
+
+    /**
+     * Authenticate user using the backend.
+     * @param userId User ID.
+     * @param password Password for user authentication.
+     * @param authenticationContext Authentication context.
+     * @param organizationId Organization ID.
+     * @param operationContext Operation context.
+     * @param trackAttempts Whether the authentication attempt is reserved and settled by this method, otherwise the caller is responsible for it.
+     * @return Response with authentication result.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails.
+     */
+    private UserAuthenticationResponse authenticateUser(String userId, String password, AuthenticationContext authenticationContext, String organizationId, OperationContext operationContext, boolean trackAttempts) throws DataAdapterRemoteException {
+        return resilienceService.execute("authenticateUser", false, () -> authenticateUserInBackend(userId, password, authenticationContext, organizationId, operationContext, trackAttempts));
+    }
+
+    /**
+     * Authenticate user against the backend.
+     * @param userId User ID.
+     * @param password Password for user authentication.
+     * @param authenticationContext Authentication context.
+     * @param organizationId Organization ID.
+     * @param operationContext Operation context.
+     * @param trackAttempts Whether the authentication attempt is reserved and settled by this method, otherwise the caller is responsible for it.
+     * @return Response with authentication result.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails.
+     */
+    private UserAuthenticationResponse authenticateUserInBackend(String userId, String password, AuthenticationContext authenticationContext, String organizationId, OperationContext operationContext, boolean trackAttempts) throws DataAdapterRemoteException {
+        // Credentials are verified in the bulkhead of the organization, the nested user detail lookup is executed by the same
+        // thread and it reuses the acquired slot.
+        if (!trackAttempts) {
+            return bulkheadService.execute(organizationId, () ->
+                    verifyUserCredentials(userId, password, authenticationContext, organizationId, operationContext));
+        }
+        // The attempt is reserved before verification, so that concurrent attempts cannot exceed the limit of failed attempts.
+        // Let the user know that the account has been blocked temporarily due to too many failed attempts.
+        if (!authenticationAttemptService.tryReserveAttempt(userId, organizationId)) {
+            UserAuthenticationResponse authResponse = new UserAuthenticationResponse();
+            authResponse.setAuthenticationResult(UserAuthenticationResult.FAILED);
+            authResponse.setErrorMessage(AUTHENTICATION_BLOCKED);
+            authResponse.setRemainingAttempts(0);
+            authResponse.setShowRemainingAttempts(true);
+            return authResponse;
+        }
+        final UserAuthenticationResponse authResponse;
+        try {
+            authResponse = bulkheadService.execute(organizationId, () ->
+                    verifyUserCredentials(userId, password, authenticationContext, organizationId, operationContext));
+        } catch (DataAdapterRemoteException | RuntimeException ex) {
+            authenticationAttemptService.releaseAttempt(userId, organizationId);
+            throw ex;
+        }
+        if (authResponse.getAuthenticationResult() == UserAuthenticationResult.SUCCEEDED) {
+            authenticationAttemptService.resetFailedAttempts(userId, organizationId);
+        } else if (isFailedAttempt(authResponse)) {
+            // The reserved attempt is kept as a failed attempt, set number of remaining attempts for this user ID.
+            int remainingAttempts = authenticationAttemptService.getRemainingAttempts(userId, organizationId);
+            authResponse.setRemainingAttempts(remainingAttempts);
+            authResponse.setShowRemainingAttempts(true);
+            if (remainingAttempts == 0) {
+                // Let the user know that the account has been blocked temporarily.
+                authResponse.setErrorMessage(AUTHENTICATION_BLOCKED);
+            }
+        } else {
+            authenticationAttemptService.releaseAttempt(userId, organizationId);
+        }
+        return authResponse;
+    }
+
+    /**
+     * Verify user credentials against the backend, failed attempts are not changed by this method.
+     * @param userId User ID.
+     * @param password Password for user authentication.
+     * @param authenticationContext Authentication context.
+     * @param organizationId Organization ID.
+     * @param operationContext Operation context.
+     * @return Response with authentication result.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails.
+     */
+    private UserAuthenticationResponse verifyUserCredentials(String userId, String password, AuthenticationContext authenticationContext, String organizationId, OperationContext operationContext) throws DataAdapterRemoteException {
         // Here will be the real authentication - call to the backend providing authentication.
         // Return a response with UserAuthenticationResult based on the actual authentication result.
         // The password is optionally encrypted, the authentication context contains information about encryption.
+        // Passwords encrypted using PASSWORD_ENCRYPTION_AES are decrypted before verification.
         // In case of combined user authentication with SMS authorization the authentication context contains information
         // about result of SMS authorization.
         PasswordProtectionType passwordProtection = authenticationContext.getPasswordProtection();
         UserAuthenticationResponse authResponse = new UserAuthenticationResponse();
-        if (passwordProtection == PasswordProtectionType.NO_PROTECTION && "test".equals(password)) {
+        final boolean passwordValid;
+        try {
+            // Password hash verification is CPU intensive, it is executed in a dedicated bounded executor to avoid starving servlet threads.
+            passwordValid = credentialVerificationService.verify(() -> verifyPassword(userId, password, passwordProtection));
+        } catch (CredentialVerificationRejectedException ex) {
+            logger.warn("Credential verification rejected, user ID: {}, reason: {}", userId, ex.getMessage());
+            authResponse.setAuthenticationResult(UserAuthenticationResult.FAILED);
+            authResponse.setErrorMessage(AUTHENTICATION_RETRY_LATER);
+            return authResponse;
+        }
+        if (passwordValid) {
             try {
                 UserDetailResponse userDetail = fetchUserDetail(userId, organizationId, operationContext);
                 // The organization needs to be set in response (e.g. client authenticated against RETAIL organization or SME organization).
@@ -116,17 +240,63 @@ public class DataAdapterService implements DataAdapter {
         }
         authResponse.setAuthenticationResult(UserAuthenticationResult.FAILED);
         authResponse.setErrorMessage(AUTHENTICATION_FAILED);
-        // Set number of remaining attempts for this user ID in case it is available.
-        // authResponse.setRemainingAttempts(5);
+        return authResponse;
+    }
 
-        // To enable showing of remaining attempts for operation, use:
-        // authResponse.setShowRemainingAttempts(true);
+    /**
+     * Get whether user authentication failed due to invalid credentials and the attempt counts as a failed attempt.
+     * @param authResponse User authentication response.
+     * @return Whether the authentication attempt failed.
+     */
+    private boolean isFailedAttempt(UserAuthenticationResponse authResponse) {
+        return authResponse.getAuthenticationResult() == UserAuthenticationResult.FAILED
+                && AUTHENTICATION_FAILED.equals(authResponse.getErrorMessage());
+    }
 
-        // Use the following code to let the user know that the account has been blocked temporarily.
-        // authResponse.setErrorMessage("login.authenticationBlocked");
-        // authResponse.setRemainingAttempts(0);
+    /**
+     * Get whether SMS authorization failed due to an invalid authorization code. Other failures, e.g. an expired
+     * message, do not count as a failed attempt of the user.
+     * @param smsResult SMS authorization result.
+     * @param errorMessage Error message of SMS authorization.
+     * @return Whether the SMS authorization attempt failed.
+     */
+    private boolean isFailedAttempt(SmsAuthorizationResult smsResult, String errorMessage) {
+        return smsResult == SmsAuthorizationResult.FAILED && SMS_AUTHORIZATION_FAILED.equals(errorMessage);
+    }
 
-        return authResponse;
+    /**
+     * Verify user password. The method is executed in the credential verification executor.
+     * @param userId User ID.
+     * @param password Password for user authentication.
+     * @param passwordProtection Password protection type.
+     * @return Whether the password is valid.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails.
+     */
+    private boolean verifyPassword(String userId, String password, PasswordProtectionType passwordProtection) throws DataAdapterRemoteException {
+        if (passwordProtection == null) {
+            return false;
+        }
+        final String plainPassword;
+        switch (passwordProtection) {
+            case NO_PROTECTION:
+                plainPassword = password;
+                break;
+
+            case PASSWORD_ENCRYPTION_AES:
+                try {
+                    plainPassword = passwordDecryptionService.decryptPassword(password);
+                } catch (GeneralSecurityException ex) {
+                    logger.warn("Password decryption failed, user ID: {}, error: {}", userId, ex.getMessage());
+                    logger.debug("Password decryption failed", ex);
+                    return false;
+                }
+                break;
+
+            default:
+                return false;
+        }
+        // Here will be the real password verification, e.g. verification of a memory-hard password hash loaded from the backend.
+        return "test".equals(plainPassword);
     }
 
     @Override
@@ -134,21 +304,26 @@ public class DataAdapterService implements DataAdapter {
         // Fetch user details here ...
         // In case that user is not found, throw a UserNotFoundException.
         // The operation context may be null in case the method is called outside of an active operation (e.g. OAuth user profile request).
-        UserDetailResponse responseObject = new UserDetailResponse();
-        responseObject.setId(userId);
-        responseObject.setGivenName("John");
-        responseObject.setFamilyName("Doe");
-        responseObject.setOrganizationId(organizationId);
-        responseObject.setAccountStatus(AccountStatus.ACTIVE);
-        // Any additional details related to the user can be stored in extras:
-        // responseObject.getExtras().putAll(userAttributes);
-        return responseObject;
+        // Backend calls are executed in the bulkhead of the organization, so that a slow backend does not starve other organizations.
+        return resilienceService.execute("fetchUserDetail", true, () -> bulkheadService.execute(organizationId, () -> {
+            UserDetailResponse responseObject = new UserDetailResponse();
+            responseObject.setId(userId);
+            responseObject.setGivenName("John");
+            responseObject.setFamilyName("Doe");
+            responseObject.setOrganizationId(organizationId);
+            responseObject.setAccountStatus(AccountStatus.ACTIVE);
+            // Any additional details related to the user can be stored in extras:
+            // responseObject.getExtras().putAll(userAttributes);
+            return responseObject;
+        }));
     }
 
     @Override
+    @ConstantResponse
     public InitAuthMethodResponse initAuthMethod(String userId, String organizationId, AuthMethod authMethod, OperationContext operationContext) throws DataAdapterRemoteException, InvalidOperationContextException {
         // Implement logic for initial configuration of authentication methods.
         // Certificate-based authentication can be enabled and the certificate verification URL can be specified based on operation context.
+        // Remove the @ConstantResponse annotation in case the response depends on user or operation context.
         return new InitAuthMethodResponse(CertificateAuthenticationMode.NOT_AVAILABLE);
     }
 
@@ -321,11 +496,11 @@ public class DataAdapterService implements DataAdapter {
         // Generate message text, include previously generated authorization code
         String messageText = smsDeliveryService.generateSmsText(userId, organizationId, authMethod, operationContext, authorizationCode, lang);
 
-        // Persist authorization SMS message
-        smsPersistenceService.createAuthorizationSms(userId, organizationId, messageId, operationContext, authorizationCode, messageText);
-
-        // Send SMS with generated text to target user
-        SmsDeliveryResult deliveryResult = smsDeliveryService.sendAuthorizationSms(userId, organizationId, messageId, messageText, operationContext);
+        // Persist authorization SMS message and send SMS with generated text to target user
+        SmsDeliveryResult deliveryResult = bulkheadService.execute(organizationId, () -> {
+            smsPersistenceService.createAuthorizationSms(userId, organizationId, messageId, operationContext, authorizationCode, messageText);
+            return smsDeliveryService.sendAuthorizationSms(userId, organizationId, messageId, messageText, operationContext);
+        });
         response.setSmsDeliveryResult(deliveryResult);
         if (!SmsDeliveryResult.SUCCEEDED.equals(deliveryResult)) {
             response.setErrorMessage(SMS_DELIVERY_FAILED);
@@ -346,7 +521,8 @@ public class DataAdapterService implements DataAdapter {
         String messageText = smsDeliveryService.generateSmsText(userId, organizationId, authMethod, operationContext, authCode, lang);
 
         // Send SMS with generated text to target user
-        SmsDeliveryResult deliveryResult = smsDeliveryService.sendAuthorizationSms(userId, organizationId, messageId, messageText, operationContext);
+        SmsDeliveryResult deliveryResult = bulkheadService.execute(organizationId, () ->
+                smsDeliveryService.sendAuthorizationSms(userId, organizationId, messageId, messageText, operationContext));
 
         response.setSmsDeliveryResult(deliveryResult);
         if (!SmsDeliveryResult.SUCCEEDED.equals(deliveryResult)) {
@@ -369,11 +545,39 @@ public class DataAdapterService implements DataAdapter {
             return response;
         }
 
-        response = smsPersistenceService.verifyAuthorizationSms(messageId, authorizationCode, false);
-        // Set number of remaining attempts for verification in case it is available.
-        // authResponse.setRemainingAttempts(5);
-        // You can enable showing of remaining attempts for the operation.
-        // response.setShowRemainingAttempts(true);
+        // The attempt is reserved before verification, so that concurrent attempts cannot exceed the limit of failed attempts.
+        if (!authenticationAttemptService.tryReserveAttempt(userId, organizationId)) {
+            response = new VerifySmsAuthorizationResponse();
+            response.setSmsAuthorizationResult(SmsAuthorizationResult.FAILED);
+            response.setErrorMessage(AUTHENTICATION_BLOCKED);
+            response.setRemainingAttempts(0);
+            response.setShowRemainingAttempts(true);
+            return response;
+        }
+
+        try {
+            response = bulkheadService.execute(organizationId, () ->
+                    smsPersistenceService.verifyAuthorizationSms(messageId, authorizationCode, false));
+        } catch (DataAdapterRemoteException | RuntimeException ex) {
+            authenticationAttemptService.releaseAttempt(userId, organizationId);
+            throw ex;
+        }
+        if (!isFailedAttempt(response.getSmsAuthorizationResult(), response.getErrorMessage())) {
+            // Only an invalid authorization code counts as a failed attempt of the user.
+            authenticationAttemptService.releaseAttempt(userId, organizationId);
+            return response;
+        }
+        // Set number of remaining attempts for verification, use lower of the message and user remaining attempt counts.
+        final int userRemainingAttempts = authenticationAttemptService.getRemainingAttempts(userId, organizationId);
+        int remainingAttempts = userRemainingAttempts;
+        if (response.getRemainingAttempts() != null) {
+            remainingAttempts = Math.min(remainingAttempts, response.getRemainingAttempts());
+        }
+        response.setRemainingAttempts(remainingAttempts);
+        response.setShowRemainingAttempts(true);
+        if (userRemainingAttempts == 0) {
+            response.setErrorMessage(AUTHENTICATION_BLOCKED);
+        }
         return response;
     }
 
@@ -390,12 +594,30 @@ public class DataAdapterService implements DataAdapter {
             return response;
         }
 
-        // Verify authorization code from SMS
-        VerifySmsAuthorizationResponse smsResponse = smsPersistenceService.verifyAuthorizationSms(messageId, authorizationCode, true);
-        authenticationContext.setSmsAuthorizationResult(smsResponse.getSmsAuthorizationResult());
+        // A single attempt is reserved for both credentials, so that a request counts as at most one failed attempt.
+        if (!authenticationAttemptService.tryReserveAttempt(userId, organizationId)) {
+            response.setSmsAuthorizationResult(SmsAuthorizationResult.FAILED);
+            response.setUserAuthenticationResult(UserAuthenticationResult.FAILED);
+            response.setErrorMessage(AUTHENTICATION_BLOCKED);
+            response.setRemainingAttempts(0);
+            response.setShowRemainingAttempts(true);
+            return response;
+        }
 
-        // Authenticate user
-        UserAuthenticationResponse authResponse = authenticateUser(userId, password, authenticationContext, organizationId, operationContext);
+        final VerifySmsAuthorizationResponse smsResponse;
+        final UserAuthenticationResponse authResponse;
+        try {
+            // Verify authorization code from SMS
+            smsResponse = bulkheadService.execute(organizationId, () ->
+                    smsPersistenceService.verifyAuthorizationSms(messageId, authorizationCode, true));
+            authenticationContext.setSmsAuthorizationResult(smsResponse.getSmsAuthorizationResult());
+
+            // Authenticate user, the reserved attempt is settled once both the SMS authorization code and the password are verified
+            authResponse = authenticateUser(userId, password, authenticationContext, organizationId, operationContext, false);
+        } catch (DataAdapterRemoteException | RuntimeException ex) {
+            authenticationAttemptService.releaseAttempt(userId, organizationId);
+            throw ex;
+        }
 
         // Create aggregate response
         response.setSmsAuthorizationResult(smsResponse.getSmsAuthorizationResult());
@@ -404,24 +626,37 @@ public class DataAdapterService implements DataAdapter {
                 || authResponse.getAuthenticationResult() != UserAuthenticationResult.SUCCEEDED) {
             // Provide an error message which does not allow to find out reason of failed verification.
             response.setErrorMessage(AUTHENTICATION_FAILED);
+            if (!isFailedAttempt(smsResponse.getSmsAuthorizationResult(), smsResponse.getErrorMessage()) && !isFailedAttempt(authResponse)) {
+                // Neither the authorization code nor the password is invalid, the attempt does not count as a failed attempt.
+                authenticationAttemptService.releaseAttempt(userId, organizationId);
+            }
+            // Set the number of remaining attempts for the user.
+            int remainingAttempts = authenticationAttemptService.getRemainingAttempts(userId, organizationId);
+            response.setRemainingAttempts(remainingAttempts);
+            response.setShowRemainingAttempts(true);
+            if (remainingAttempts == 0) {
+                response.setErrorMessage(AUTHENTICATION_BLOCKED);
+            }
+        } else {
+            authenticationAttemptService.resetFailedAttempts(userId, organizationId);
         }
-        // Optionally set the number of remaining attempts, e.g. using lower of the two remaining attempt counts.
-        // response.setRemainingAttempts(Math.min(smsResponse.getRemainingAttempts(), authResponse.getRemainingAttempts()));
-        // You can enable showing of remaining attempts for the operation.
-        // response.setShowRemainingAttempts(true);
         return response;
     }
 
     @Override
     public VerifyCertificateResponse verifyClientCertificate(String userId, String organizationId, String clientCertificate, AuthMethod authMethod, AccountStatus accountStatus, OperationContext operationContext) throws DataAdapterRemoteException, InvalidOperationContextException {
         // This method should implement client TLS certificate verification. The stub implementation always succeeds.
-        CertificateVerificationResult verificationResult = CertificateVerificationResult.SUCCEEDED;
-        return new VerifyCertificateResponse(verificationResult);
+        return bulkheadService.execute(organizationId, () -> {
+            CertificateVerificationResult verificationResult = CertificateVerificationResult.SUCCEEDED;
+            return new VerifyCertificateResponse(verificationResult);
+        });
     }
 
     @Override
+    @ConstantResponse
     public InitConsentFormResponse initConsentForm(String userId, String organizationId, OperationContext operationContext) throws DataAdapterRemoteException, InvalidOperationContextException, InvalidConsentDataException {
         // Override this logic in case consent form should be displayed conditionally for given operation context.
+        // Remove the @ConstantResponse annotation in case the response depends on user or operation context.
         return new InitConsentFormResponse(true);
     }
 
@@ -576,12 +811,16 @@ public class DataAdapterService implements DataAdapter {
     }
 
     @Override
+    @ConstantResponse(sideEffects = true)
     public SaveConsentFormResponse saveConsentForm(String userId, String organizationId, OperationContext operationContext, List<ConsentOption> options) throws DataAdapterRemoteException, InvalidOperationContextException, InvalidConsentDataException {
         // Save consent form options selected by the user. The sample implementation only logs the selected options.
         logger.info("Saving consent form for user: {}, operation ID: {}", userId, operationContext.getId());
+        final Map<String, Object> selectedOptions = new LinkedHashMap<>();
         for (ConsentOption option: options) {
             logger.info("Option {}: {}", option.getId(), option.getValue());
+            selectedOptions.put(option.getId(), option.getValue());
         }
+        auditService.record(AuditEventType.CONSENT_SAVE, userId, organizationId, operationContext.getId(), selectedOptions);
         return new SaveConsentFormResponse(true);
     }
 
@@ -593,6 +832,15 @@ public class DataAdapterService implements DataAdapter {
             throw new InvalidOperationContextException(INVALID_REQUEST);
         }
 
+        // Evaluate local velocity rules first, clear-cut cases are resolved without calling the anti-fraud system
+        final String localAfsLabel = evaluateLocalAfsRules(userId, organizationId, operationContext, afsRequestParameters, extras);
+        if (localAfsLabel != null) {
+            AfsResponse response = new AfsResponse();
+            response.setAfsResponseApplied(false);
+            response.setAfsLabel(localAfsLabel);
+            return response;
+        }
+
         // Call anti-fraud system and return response for Web Flow. In default implementation of Data Adapter
         // a mocked response is returned with static 2FA AFS label except for the case of payment with low amount.
         AfsResponse response = new AfsResponse();
@@ -631,4 +879,32 @@ public class DataAdapterService implements DataAdapter {
         return response;
     }
 
+    /**
+     * Evaluate local anti-fraud velocity rules.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param operationContext Operation context.
+     * @param afsRequestParameters AFS request parameters.
+     * @param extras Extra parameters for AFS.
+     * @return AFS label in case the request is resolved locally, otherwise null.
+     */
+    private String evaluateLocalAfsRules(String userId, String organizationId, OperationContext operationContext, AfsRequestParameters afsRequestParameters, Map<String, Object> extras) {
+        final AfsAction afsAction = afsRequestParameters.getAfsAction();
+        if (afsAction == AfsAction.LOGOUT) {
+            return null;
+        }
+        String accountId = null;
+        if (afsAction == AfsAction.APPROVAL_INIT || afsAction == AfsAction.APPROVAL_AUTH) {
+            try {
+                accountId = operationValueExtractionService.getAccount(operationContext);
+            } catch (InvalidOperationContextException ex) {
+                // Account velocity is not evaluated for operations without an account
+                logger.debug("Account is not available for AFS evaluation, operation ID: {}", operationContext.getId());
+            }
+        }
+        // Count each operation step only once, the authentication actions re-evaluate the current velocity
+        final boolean recordEvent = afsAction == AfsAction.LOGIN_INIT || afsAction == AfsAction.APPROVAL_INIT;
+        return afsRiskEngine.evaluate(userId, organizationId, extras, accountId, recordEvent);
+    }
+
 }
@@ -18,6 +18,7 @@ package io.getlime.security.powerauth.app.dataadapter.impl.service;
 import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
 import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
 import io.getlime.security.powerauth.app.dataadapter.service.DataAdapterI18NService;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
 import io.getlime.security.powerauth.crypto.server.util.DataDigest;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.AuthorizationCode;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
@@ -41,15 +42,18 @@ public class SmsDeliveryService {
 
     private final DataAdapterI18NService dataAdapterI18NService;
     private final OperationValueExtractionService operationValueExtractionService;
+    private final DeadlineService deadlineService;
 
     /**
      * Service constructor.
      * @param dataAdapterI18NService I18N service.
      * @param operationValueExtractionService Service for extracting values from operation.
+     * @param deadlineService Deadline service.
      */
-    public SmsDeliveryService(DataAdapterI18NService dataAdapterI18NService, OperationValueExtractionService operationValueExtractionService) {
+    public SmsDeliveryService(DataAdapterI18NService dataAdapterI18NService, OperationValueExtractionService operationValueExtractionService, DeadlineService deadlineService) {
         this.dataAdapterI18NService = dataAdapterI18NService;
         this.operationValueExtractionService = operationValueExtractionService;
+        this.deadlineService = deadlineService;
     }
 
     /**
@@ -174,6 +178,8 @@ public class SmsDeliveryService {
         // Add here code to send the SMS OTP message to user identified by userId with messageText.
         // The message entity can be extracted using message ID from table da_sms_authorization.
         // In case message delivery fails, throw a DataAdapterRemoteException.
+        // Do not send the message when the caller gave up, use the remaining time as timeout of the SMS gateway call.
+        deadlineService.checkRemaining("sms.delivery");
         return SmsDeliveryResult.SUCCEEDED;
     }
 
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.impl.validation;
+
+import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.security.powerauth.app.dataadapter.configuration.BatchConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItem;
+import io.getlime.security.powerauth.app.dataadapter.model.request.BatchRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Defines validations for structure of batch requests. Requests of individual items are validated during execution
+ * by validators of the equivalent endpoints.
+ */
+@Component
+public class BatchRequestValidator implements Validator {
+
+    private static final String ITEMS_FIELD = "requestObject.items";
+    private static final String ERROR_ITEMS_EMPTY = "batch.items.empty";
+    private static final String ERROR_ITEMS_TOO_MANY = "batch.items.tooMany";
+    private static final String ERROR_ITEM_INVALID = "batch.item.invalid";
+    private static final String ERROR_ITEM_ID_DUPLICATE = "batch.item.id.duplicate";
+    private static final String ERROR_ITEM_DEPENDENCY_INVALID = "batch.item.dependency.invalid";
+
+    private final BatchConfiguration batchConfiguration;
+
+    /**
+     * Validator constructor.
+     * @param batchConfiguration Batch configuration.
+     */
+    @Autowired
+    public BatchRequestValidator(BatchConfiguration batchConfiguration) {
+        this.batchConfiguration = batchConfiguration;
+    }
+
+    /**
+     * Return whether validator can validate given class.
+     * @param clazz Validated class.
+     * @return Whether validator can validate given class.
+     */
+    @Override
+    public boolean supports(@NonNull Class<?> clazz) {
+        return ObjectRequest.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * Validate object and add validation errors.
+     * @param o Validated object.
+     * @param errors Errors object.
+     */
+    @Override
+    public void validate(@Nullable Object o, @NonNull Errors errors) {
+        ObjectRequest objectRequest = (ObjectRequest) o;
+        if (objectRequest == null || !(objectRequest.getRequestObject() instanceof BatchRequest)) {
+            errors.reject(ERROR_ITEMS_EMPTY);
+            return;
+        }
+        final List<BatchItem> items = ((BatchRequest) objectRequest.getRequestObject()).getItems();
+        if (items == null || items.isEmpty()) {
+            errors.rejectValue(ITEMS_FIELD, ERROR_ITEMS_EMPTY);
+            return;
+        }
+        if (items.size() > batchConfiguration.getMaxItems()) {
+            errors.rejectValue(ITEMS_FIELD, ERROR_ITEMS_TOO_MANY);
+            return;
+        }
+        // Items may only depend on preceding items, which guarantees that there are no dependency cycles
+        final Set<String> precedingIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            final BatchItem item = items.get(i);
+            if (item == null || item.getType() == null || item.getRequest() == null || item.getRequest().isNull()) {
+                errors.rejectValue(ITEMS_FIELD, ERROR_ITEM_INVALID);
+                return;
+            }
+            if (item.getDependsOn() != null) {
+                for (String dependency : item.getDependsOn()) {
+                    if (!precedingIds.contains(dependency)) {
+                        errors.rejectValue(ITEMS_FIELD, ERROR_ITEM_DEPENDENCY_INVALID);
+                        return;
+                    }
+                }
+            }
+            final String id = item.getId() != null ? item.getId() : String.valueOf(i);
+            if (!precedingIds.add(id)) {
+                errors.rejectValue(ITEMS_FIELD, ERROR_ITEM_ID_DUPLICATE);
+                return;
+            }
+        }
+    }
+}
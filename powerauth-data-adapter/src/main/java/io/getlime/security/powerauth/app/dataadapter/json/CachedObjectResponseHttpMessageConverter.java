@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import io.getlime.security.powerauth.app.dataadapter.model.response.CachedObjectResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Message converter which writes pre-serialized responses directly to the response body. The converter is
+ * registered before the JSON converter, other response types are written by the JSON converter.
+ */
+public class CachedObjectResponseHttpMessageConverter extends AbstractHttpMessageConverter<CachedObjectResponse<?>> {
+
+    /**
+     * Converter constructor.
+     */
+    public CachedObjectResponseHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CachedObjectResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected CachedObjectResponse<?> readInternal(Class<? extends CachedObjectResponse<?>> clazz, HttpInputMessage inputMessage) throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("Cached responses cannot be read", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(CachedObjectResponse<?> response, MediaType contentType) {
+        return response.getContentLength();
+    }
+
+    @Override
+    protected void writeInternal(CachedObjectResponse<?> response, HttpOutputMessage outputMessage) throws IOException {
+        final OutputStream body = outputMessage.getBody();
+        for (byte[] part : response.getParts()) {
+            body.write(part);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * JSON merge patch (RFC 7386) applied to object nodes.
+ */
+public final class JsonMergePatch {
+
+    private JsonMergePatch() {
+    }
+
+    /**
+     * Apply JSON merge patch to an object node. Null values remove fields, objects are merged recursively and other
+     * values replace the fields of the target.
+     * @param target Patched object node.
+     * @param patch Merge patch.
+     */
+    public static void apply(ObjectNode target, JsonNode patch) {
+        final Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            final JsonNode value = field.getValue();
+            if (value == null || value instanceof NullNode) {
+                target.remove(field.getKey());
+            } else if (value.isObject()) {
+                final JsonNode existing = target.get(field.getKey());
+                final ObjectNode nested = existing != null && existing.isObject() ? (ObjectNode) existing : JsonNodeFactory.instance.objectNode();
+                apply(nested, value);
+                target.set(field.getKey(), nested);
+            } else {
+                target.set(field.getKey(), value);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.core.rest.model.base.response.Response;
+import io.getlime.security.powerauth.app.dataadapter.model.request.BatchRequest;
+import io.getlime.security.powerauth.app.dataadapter.model.response.BatchResponse;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.*;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pre-warming of the shared object mapper.
+ *
+ * Jackson creates serializers and deserializers on the first use of each type, which makes the first request of each
+ * endpoint noticeably slower. The warm-up creates them for all request and response types of the REST API during
+ * application startup.
+ */
+public final class ObjectMapperWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObjectMapperWarmup.class);
+
+    private static final List<Class<?>> REQUEST_TYPES = Arrays.asList(
+            AfsRequest.class,
+            BatchRequest.class,
+            CreateConsentFormRequest.class,
+            CreateImplicitLoginOperationRequest.class,
+            CreateSmsAuthorizationRequest.class,
+            DecorateOperationFormDataRequest.class,
+            FormDataChangeNotificationRequest.class,
+            GetPAOperationMappingRequest.class,
+            InitAuthMethodRequest.class,
+            InitConsentFormRequest.class,
+            OperationChangeNotificationRequest.class,
+            SaveConsentFormRequest.class,
+            SendAuthorizationSmsRequest.class,
+            UserAuthenticationRequest.class,
+            UserDetailRequest.class,
+            UserLookupRequest.class,
+            ValidateConsentFormRequest.class,
+            VerifyCertificateRequest.class,
+            VerifySmsAndPasswordRequest.class,
+            VerifySmsAuthorizationRequest.class
+    );
+
+    private static final List<Class<?>> RESPONSE_TYPES = Arrays.asList(
+            AfsResponse.class,
+            BatchResponse.class,
+            CreateConsentFormResponse.class,
+            CreateImplicitLoginOperationResponse.class,
+            CreateSmsAuthorizationResponse.class,
+            DecorateOperationFormDataResponse.class,
+            GetPAOperationMappingResponse.class,
+            InitAuthMethodResponse.class,
+            InitConsentFormResponse.class,
+            SaveConsentFormResponse.class,
+            SendAuthorizationSmsResponse.class,
+            ServiceStatusResponse.class,
+            UserAuthenticationResponse.class,
+            UserDetailResponse.class,
+            ValidateConsentFormResponse.class,
+            VerifyCertificateResponse.class,
+            VerifySmsAndPasswordResponse.class,
+            VerifySmsAuthorizationResponse.class
+    );
+
+    private ObjectMapperWarmup() {
+    }
+
+    /**
+     * Create and cache deserializers of all request types and serializers of all response types.
+     * @param objectMapper Object mapper.
+     */
+    public static void warmUp(ObjectMapper objectMapper) {
+        final long startTime = System.nanoTime();
+        for (Class<?> requestType : REQUEST_TYPES) {
+            final JavaType javaType = objectMapper.getTypeFactory().constructParametricType(ObjectRequest.class, requestType);
+            // Reader construction fetches the root deserializer which is cached in the object mapper
+            objectMapper.readerFor(javaType);
+        }
+        serialize(objectMapper, new Response());
+        for (Class<?> responseType : RESPONSE_TYPES) {
+            try {
+                // Serializers are looked up by runtime type, serialize an empty instance to cache them
+                serialize(objectMapper, new ObjectResponse<>(responseType.getDeclaredConstructor().newInstance()));
+            } catch (ReflectiveOperationException ex) {
+                logger.debug("Response type could not be instantiated for warm-up: {}", responseType.getName());
+            }
+        }
+        logger.info("Object mapper warm-up finished in {} ms", (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    private static void serialize(ObjectMapper objectMapper, Object value) {
+        try {
+            objectMapper.writeValueAsBytes(value);
+        } catch (Exception ex) {
+            logger.debug("Warm-up serialization failed for type: {}", value.getClass().getName(), ex);
+        }
+    }
+
+}
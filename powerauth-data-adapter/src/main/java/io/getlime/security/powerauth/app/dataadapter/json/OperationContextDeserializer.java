@@ -0,0 +1,237 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.getlime.security.powerauth.app.dataadapter.exception.OperationContextNotCachedException;
+import io.getlime.security.powerauth.app.dataadapter.model.entity.LazyOperationContext;
+import io.getlime.security.powerauth.app.dataadapter.service.context.CachedOperationContext;
+import io.getlime.security.powerauth.app.dataadapter.service.context.OperationContextCache;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.FormData;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+
+/**
+ * Deserializer of operation context supporting lazy form data and the operation context delta protocol.
+ *
+ * The operation context object is streamed field by field, the form data subtree is copied into a separate token
+ * buffer from the remaining fields. In lazy mode the form data is deserialized on first access of
+ * {@link LazyOperationContext#getFormData()}, the remaining fields are deserialized by the default bean deserializer.
+ *
+ * When the operation context cache is enabled, the client may send only the operation ID with the content hash
+ * received in the {@value OperationContextCache#CONTEXT_HASH_HEADER} response header in the {@code contextHash} field,
+ * optionally with a JSON merge patch (RFC 7386) of changed fields in the {@code contextDelta} field. The operation
+ * context is then reconstructed from the cache. In case the context is not cached, {@link OperationContextNotCachedException}
+ * is thrown and the client is expected to repeat the request with the full operation context.
+ *
+ * The cache is updated and the content hash is published only when the operation context is received in an HTTP
+ * request. Contexts deserialized outside of a request, e.g. during notification journal replay, and contexts of
+ * batch items deserialized with the {@value #CACHE_UPDATE_DISABLED_ATTRIBUTE} attribute do not change the cache.
+ */
+public class OperationContextDeserializer extends StdDeserializer<OperationContext> implements ResolvableDeserializer {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Name of request attribute with the content hash of the deserialized operation context.
+     */
+    public static final String CONTEXT_HASH_ATTRIBUTE = "operationContextHash";
+
+    /**
+     * Name of deserialization attribute which disables updates of the operation context cache.
+     */
+    public static final String CACHE_UPDATE_DISABLED_ATTRIBUTE = "operationContextCacheUpdateDisabled";
+
+    private static final String ID_FIELD = "id";
+    private static final String FORM_DATA_FIELD = "formData";
+    private static final String CONTEXT_HASH_FIELD = "contextHash";
+    private static final String CONTEXT_DELTA_FIELD = "contextDelta";
+
+    private final JsonDeserializer<?> defaultDeserializer;
+    private final boolean lazyFormData;
+    private final transient OperationContextCache operationContextCache;
+
+    /**
+     * Deserializer constructor.
+     * @param defaultDeserializer Default bean deserializer of operation context.
+     * @param lazyFormData Whether form data is deserialized lazily.
+     * @param operationContextCache Operation context cache, null in case the cache is not used.
+     */
+    public OperationContextDeserializer(JsonDeserializer<?> defaultDeserializer, boolean lazyFormData, OperationContextCache operationContextCache) {
+        super(OperationContext.class);
+        this.defaultDeserializer = defaultDeserializer;
+        this.lazyFormData = lazyFormData;
+        this.operationContextCache = operationContextCache;
+    }
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        if (defaultDeserializer instanceof ResolvableDeserializer) {
+            ((ResolvableDeserializer) defaultDeserializer).resolve(ctxt);
+        }
+    }
+
+    @Override
+    public OperationContext deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartObjectToken()) {
+            return deserializeDefault(p, ctxt);
+        }
+        final ObjectCodec codec = p.getCodec();
+        SplitContext context = split(p, ctxt);
+        if (context.contextHash != null) {
+            final CachedOperationContext cachedContext = operationContextCache == null ? null : operationContextCache.get(context.id, context.contextHash);
+            if (cachedContext == null) {
+                throw new OperationContextNotCachedException(p, "Operation context is not cached, operation ID: " + context.id);
+            }
+            if (context.contextDelta == null) {
+                context.fields = cachedContext.getFields();
+                context.formData = cachedContext.getFormData();
+                if (isRequestPath(ctxt)) {
+                    publishHash(cachedContext.getHash());
+                }
+                return materialize(context, codec, ctxt);
+            }
+            final ObjectNode patchedNode = toObjectNode(cachedContext, codec);
+            final JsonNode delta;
+            try (JsonParser deltaParser = context.contextDelta.asParser(codec)) {
+                delta = codec.readTree(deltaParser);
+            }
+            JsonMergePatch.apply(patchedNode, delta);
+            final TokenBuffer patchedTokens = new TokenBuffer(codec, false);
+            codec.writeTree(patchedTokens, patchedNode);
+            try (JsonParser patchedParser = patchedTokens.asParser(codec)) {
+                patchedParser.nextToken();
+                context = split(patchedParser, ctxt);
+            }
+        }
+        if (operationContextCache != null && operationContextCache.isEnabled() && context.id != null && isRequestPath(ctxt)) {
+            final CachedOperationContext cachedContext = operationContextCache.put(context.id, context.fields, context.formData);
+            publishHash(cachedContext.getHash());
+        }
+        return materialize(context, codec, ctxt);
+    }
+
+    /**
+     * Stream the operation context object and split it into buffered fields, buffered form data and delta protocol fields.
+     * @param p Parser positioned at the start of the operation context object.
+     * @param ctxt Deserialization context.
+     * @return Split operation context.
+     * @throws IOException In case of a parsing error.
+     */
+    private SplitContext split(JsonParser p, DeserializationContext ctxt) throws IOException {
+        final SplitContext context = new SplitContext();
+        context.fields = ctxt.bufferForInputBuffering(p);
+        context.fields.writeStartObject();
+        for (JsonToken token = p.nextToken(); token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            final String fieldName = p.currentName();
+            final JsonToken valueToken = p.nextToken();
+            if (FORM_DATA_FIELD.equals(fieldName)) {
+                if (valueToken != JsonToken.VALUE_NULL) {
+                    context.formData = ctxt.bufferForInputBuffering(p);
+                    context.formData.copyCurrentStructure(p);
+                }
+            } else if (CONTEXT_HASH_FIELD.equals(fieldName)) {
+                context.contextHash = valueToken == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+            } else if (CONTEXT_DELTA_FIELD.equals(fieldName)) {
+                if (valueToken != JsonToken.VALUE_NULL) {
+                    context.contextDelta = ctxt.bufferForInputBuffering(p);
+                    context.contextDelta.copyCurrentStructure(p);
+                }
+            } else {
+                if (ID_FIELD.equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                    context.id = p.getText();
+                }
+                context.fields.writeFieldName(fieldName);
+                context.fields.copyCurrentStructure(p);
+            }
+        }
+        context.fields.writeEndObject();
+        return context;
+    }
+
+    @SuppressWarnings("unchecked")
+    private OperationContext materialize(SplitContext context, ObjectCodec codec, DeserializationContext ctxt) throws IOException {
+        final OperationContext operationContext = lazyFormData ? new LazyOperationContext(context.formData, codec) : new OperationContext();
+        try (JsonParser fieldsParser = context.fields.asParser(codec)) {
+            fieldsParser.nextToken();
+            ((JsonDeserializer<OperationContext>) defaultDeserializer).deserialize(fieldsParser, ctxt, operationContext);
+        }
+        if (!lazyFormData && context.formData != null) {
+            try (JsonParser formDataParser = context.formData.asParser(codec)) {
+                operationContext.setFormData(codec.readValue(formDataParser, FormData.class));
+            }
+        }
+        return operationContext;
+    }
+
+    private OperationContext deserializeDefault(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return (OperationContext) defaultDeserializer.deserialize(p, ctxt);
+    }
+
+    private ObjectNode toObjectNode(CachedOperationContext cachedContext, ObjectCodec codec) throws IOException {
+        final ObjectNode node;
+        try (JsonParser fieldsParser = cachedContext.getFields().asParser(codec)) {
+            node = codec.readTree(fieldsParser);
+        }
+        if (cachedContext.getFormData() != null) {
+            try (JsonParser formDataParser = cachedContext.getFormData().asParser(codec)) {
+                node.set(FORM_DATA_FIELD, codec.readTree(formDataParser));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Get whether the operation context is deserialized from an HTTP request which may update the cache.
+     * @param ctxt Deserialization context.
+     * @return Whether the operation context is deserialized from an HTTP request.
+     */
+    private static boolean isRequestPath(DeserializationContext ctxt) {
+        return RequestContextHolder.getRequestAttributes() != null && ctxt.getAttribute(CACHE_UPDATE_DISABLED_ATTRIBUTE) == null;
+    }
+
+    private static void publishHash(String hash) {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(CONTEXT_HASH_ATTRIBUTE, hash, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Operation context split into buffered parts during streaming.
+     */
+    private static class SplitContext {
+        private String id;
+        private String contextHash;
+        private TokenBuffer contextDelta;
+        private TokenBuffer fields;
+        private TokenBuffer formData;
+    }
+
+}
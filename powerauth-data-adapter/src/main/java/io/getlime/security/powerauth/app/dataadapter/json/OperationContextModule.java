@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.getlime.security.powerauth.app.dataadapter.service.context.OperationContextCache;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+
+/**
+ * Jackson module which installs {@link OperationContextDeserializer} for lazy deserialization of operation context
+ * form data and for the operation context delta protocol.
+ */
+public class OperationContextModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Module constructor.
+     * @param lazyFormData Whether form data is deserialized lazily.
+     * @param operationContextCache Operation context cache, null in case the cache is not used.
+     */
+    public OperationContextModule(boolean lazyFormData, OperationContextCache operationContextCache) {
+        super("OperationContextModule");
+        if (!lazyFormData && (operationContextCache == null || !operationContextCache.isEnabled())) {
+            return;
+        }
+        setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+                if (beanDesc.getBeanClass() == OperationContext.class) {
+                    return new OperationContextDeserializer(deserializer, lazyFormData, operationContextCache);
+                }
+                return deserializer;
+            }
+        });
+    }
+
+}
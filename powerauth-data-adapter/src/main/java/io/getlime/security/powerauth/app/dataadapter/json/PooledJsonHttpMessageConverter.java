@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.util.TypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * JSON message converter which serializes responses into reusable buffers.
+ *
+ * The response is fully serialized before it is written, so the response is sent with a content length instead of
+ * chunked transfer encoding and serialization errors are reported before any part of the response is committed.
+ * Buffers are borrowed from a small bounded pool shared by all request threads instead of being bound to a thread,
+ * so that the buffers are reused also when requests are served by virtual threads which are never reused. A new buffer
+ * is allocated when the pool is empty. Buffers larger than {@value #MAX_RETAINED_BUFFER_SIZE} bytes are not returned
+ * to the pool, so that occasional large responses do not keep memory allocated.
+ */
+public class PooledJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_IDLE_BUFFERS = 32;
+
+    private final BlockingQueue<ReusableOutputStream> idleBuffers = new ArrayBlockingQueue<>(MAX_IDLE_BUFFERS);
+
+    private final ObjectWriter writer;
+
+    /**
+     * Converter constructor.
+     * @param objectMapper Shared object mapper.
+     * @param prettyPrint Whether the output is indented.
+     */
+    public PooledJsonHttpMessageConverter(ObjectMapper objectMapper, boolean prettyPrint) {
+        super(objectMapper);
+        this.writer = prettyPrint ? objectMapper.writer(SerializationFeature.INDENT_OUTPUT) : objectMapper.writer();
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+        final MediaType contentType = outputMessage.getHeaders().getContentType();
+        if (object instanceof MappingJacksonValue
+                || (contentType != null && contentType.getCharset() != null && !StandardCharsets.UTF_8.equals(contentType.getCharset()))) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        ObjectWriter objectWriter = writer;
+        if (type != null && TypeUtils.isAssignable(type, object.getClass())) {
+            final JavaType javaType = getJavaType(type, null);
+            if (javaType.isContainerType()) {
+                objectWriter = objectWriter.forType(javaType);
+            }
+        }
+        final ReusableOutputStream pooledBuffer = idleBuffers.poll();
+        final ReusableOutputStream buffer = pooledBuffer != null ? pooledBuffer : new ReusableOutputStream(INITIAL_BUFFER_SIZE);
+        try {
+            try {
+                objectWriter.writeValue(buffer, object);
+            } catch (JsonProcessingException ex) {
+                throw new HttpMessageNotWritableException("Could not write JSON: " + ex.getOriginalMessage(), ex);
+            }
+            outputMessage.getHeaders().setContentLength(buffer.size());
+            buffer.writeTo(outputMessage.getBody());
+        } finally {
+            if (buffer.capacity() <= MAX_RETAINED_BUFFER_SIZE) {
+                buffer.reset();
+                idleBuffers.offer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Get number of idle buffers in the pool.
+     * @return Number of idle buffers.
+     */
+    int getIdleBufferCount() {
+        return idleBuffers.size();
+    }
+
+    /**
+     * Byte array output stream which exposes its capacity.
+     */
+    private static final class ReusableOutputStream extends ByteArrayOutputStream {
+
+        private ReusableOutputStream(int size) {
+            super(size);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.model.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.getlime.security.powerauth.app.dataadapter.model.enumeration.BatchItemType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Item of a batch request.
+ */
+public class BatchItem {
+
+    private String id;
+    private BatchItemType type;
+    private List<String> dependsOn = new ArrayList<>();
+    private JsonNode request;
+
+    /**
+     * Get item ID, unique within the batch.
+     * @return Item ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Set item ID, unique within the batch.
+     * @param id Item ID.
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Get item type.
+     * @return Item type.
+     */
+    public BatchItemType getType() {
+        return type;
+    }
+
+    /**
+     * Set item type.
+     * @param type Item type.
+     */
+    public void setType(BatchItemType type) {
+        this.type = type;
+    }
+
+    /**
+     * Get IDs of preceding items which need to complete successfully before this item is executed.
+     * @return IDs of preceding items.
+     */
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    /**
+     * Set IDs of preceding items which need to complete successfully before this item is executed.
+     * @param dependsOn IDs of preceding items.
+     */
+    public void setDependsOn(List<String> dependsOn) {
+        this.dependsOn = dependsOn;
+    }
+
+    /**
+     * Get request object of the item, the structure is given by the item type.
+     * @return Request object.
+     */
+    public JsonNode getRequest() {
+        return request;
+    }
+
+    /**
+     * Set request object of the item, the structure is given by the item type.
+     * @param request Request object.
+     */
+    public void setRequest(JsonNode request) {
+        this.request = request;
+    }
+}
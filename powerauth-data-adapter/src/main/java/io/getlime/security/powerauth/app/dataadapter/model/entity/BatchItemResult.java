@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.model.entity;
+
+import io.getlime.security.powerauth.app.dataadapter.model.enumeration.BatchItemType;
+
+/**
+ * Result of a batch request item.
+ */
+public class BatchItemResult {
+
+    private String id;
+    private BatchItemType type;
+    private int httpStatus;
+    private Object response;
+
+    /**
+     * Default constructor.
+     */
+    public BatchItemResult() {
+    }
+
+    /**
+     * Constructor with all details.
+     * @param id Item ID.
+     * @param type Item type.
+     * @param httpStatus HTTP status which the equivalent endpoint would return.
+     * @param response Response which the equivalent endpoint would return.
+     */
+    public BatchItemResult(String id, BatchItemType type, int httpStatus, Object response) {
+        this.id = id;
+        this.type = type;
+        this.httpStatus = httpStatus;
+        this.response = response;
+    }
+
+    /**
+     * Get item ID.
+     * @return Item ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Set item ID.
+     * @param id Item ID.
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Get item type.
+     * @return Item type.
+     */
+    public BatchItemType getType() {
+        return type;
+    }
+
+    /**
+     * Set item type.
+     * @param type Item type.
+     */
+    public void setType(BatchItemType type) {
+        this.type = type;
+    }
+
+    /**
+     * Get HTTP status which the equivalent endpoint would return.
+     * @return HTTP status.
+     */
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    /**
+     * Set HTTP status which the equivalent endpoint would return.
+     * @param httpStatus HTTP status.
+     */
+    public void setHttpStatus(int httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+
+    /**
+     * Get response which the equivalent endpoint would return, either a regular response or an error response.
+     * @return Item response.
+     */
+    public Object getResponse() {
+        return response;
+    }
+
+    /**
+     * Set response which the equivalent endpoint would return, either a regular response or an error response.
+     * @param response Item response.
+     */
+    public void setResponse(Object response) {
+        this.response = response;
+    }
+}
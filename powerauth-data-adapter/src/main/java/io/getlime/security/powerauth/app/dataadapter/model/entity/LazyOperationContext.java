@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.model.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.FormData;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Operation context with lazily deserialized form data.
+ *
+ * The form data subtree is kept as buffered JSON tokens and it is deserialized on the first access, endpoints which
+ * never read the form data do not pay for deserialization of polymorphic form attributes, banners and configurations.
+ */
+public class LazyOperationContext extends OperationContext {
+
+    private TokenBuffer formDataTokens;
+    private ObjectCodec codec;
+
+    /**
+     * Default constructor.
+     */
+    public LazyOperationContext() {
+    }
+
+    /**
+     * Constructor with buffered form data.
+     * @param formDataTokens Buffered form data tokens, null in case form data is not present.
+     * @param codec Codec used for deserialization of form data.
+     */
+    public LazyOperationContext(TokenBuffer formDataTokens, ObjectCodec codec) {
+        this.formDataTokens = formDataTokens;
+        this.codec = codec;
+    }
+
+    /**
+     * Get form data, the form data is deserialized on the first access.
+     * @return Form data.
+     */
+    @Override
+    public synchronized FormData getFormData() {
+        if (formDataTokens != null) {
+            try (JsonParser parser = formDataTokens.asParser(codec)) {
+                parser.nextToken();
+                super.setFormData(codec.readValue(parser, FormData.class));
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Form data could not be deserialized", ex);
+            }
+            formDataTokens = null;
+        }
+        return super.getFormData();
+    }
+
+    /**
+     * Set form data, buffered form data tokens are discarded.
+     * @param formData Form data.
+     */
+    @Override
+    public synchronized void setFormData(FormData formData) {
+        formDataTokens = null;
+        super.setFormData(formData);
+    }
+
+    /**
+     * Get whether form data is still buffered and was not deserialized yet.
+     * @return Whether form data is buffered.
+     */
+    @JsonIgnore
+    public synchronized boolean isFormDataBuffered() {
+        return formDataTokens != null;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.model.enumeration;
+
+/**
+ * Type of item in a batch request. Each type corresponds to a single Data Adapter endpoint and uses the request
+ * object of that endpoint.
+ */
+public enum BatchItemType {
+
+    /**
+     * User lookup, equivalent of {@code /api/auth/user/lookup}.
+     */
+    USER_LOOKUP,
+
+    /**
+     * User detail, equivalent of {@code /api/auth/user/info}.
+     */
+    USER_DETAIL,
+
+    /**
+     * Authentication method initialization, equivalent of {@code /api/auth/method/init}.
+     */
+    AUTH_METHOD_INIT,
+
+    /**
+     * Form data decoration, equivalent of {@code /api/operation/formdata/decorate}.
+     */
+    FORM_DATA_DECORATE,
+
+    /**
+     * Form data change notification, equivalent of {@code /api/operation/formdata/change}.
+     */
+    FORM_DATA_CHANGE,
+
+    /**
+     * Operation change notification, equivalent of {@code /api/operation/change}.
+     */
+    OPERATION_CHANGE,
+
+    /**
+     * Operation mapping, equivalent of {@code /api/operation/mapping}.
+     */
+    OPERATION_MAPPING,
+
+    /**
+     * Anti-fraud system action, equivalent of {@code /api/afs/action/execute}.
+     */
+    AFS_ACTION_EXECUTE,
+
+    /**
+     * Consent form initialization, equivalent of {@code /api/auth/consent/init}.
+     */
+    CONSENT_INIT,
+
+    /**
+     * Consent form creation, equivalent of {@code /api/auth/consent/create}.
+     */
+    CONSENT_CREATE,
+
+    /**
+     * Consent form validation, equivalent of {@code /api/auth/consent/validate}.
+     */
+    CONSENT_VALIDATE,
+
+    /**
+     * Consent form saving, equivalent of {@code /api/auth/consent/save}.
+     */
+    CONSENT_SAVE
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.model.request;
+
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request for execution of multiple Data Adapter calls in a single HTTP request.
+ */
+public class BatchRequest {
+
+    private List<BatchItem> items = new ArrayList<>();
+
+    /**
+     * Get ordered list of batch items.
+     * @return Batch items.
+     */
+    public List<BatchItem> getItems() {
+        return items;
+    }
+
+    /**
+     * Set ordered list of batch items.
+     * @param items Batch items.
+     */
+    public void setItems(List<BatchItem> items) {
+        this.items = items;
+    }
+}
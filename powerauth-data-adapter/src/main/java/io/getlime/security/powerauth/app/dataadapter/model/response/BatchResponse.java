@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.model.response;
+
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItemResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response with results of batch request items, the results are in the same order as the request items.
+ */
+public class BatchResponse {
+
+    private List<BatchItemResult> items = new ArrayList<>();
+
+    /**
+     * Default constructor.
+     */
+    public BatchResponse() {
+    }
+
+    /**
+     * Constructor with item results.
+     * @param items Item results.
+     */
+    public BatchResponse(List<BatchItemResult> items) {
+        this.items = items;
+    }
+
+    /**
+     * Get item results.
+     * @return Item results.
+     */
+    public List<BatchItemResult> getItems() {
+        return items;
+    }
+
+    /**
+     * Set item results.
+     * @param items Item results.
+     */
+    public void setItems(List<BatchItemResult> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.model.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Object response which was serialized in advance. The response is written as a sequence of serialized parts,
+ * the response object itself is not constructed.
+ *
+ * @param <T> Type of the response object.
+ */
+public class CachedObjectResponse<T> extends ObjectResponse<T> {
+
+    private final List<byte[]> parts;
+
+    /**
+     * Constructor with serialized response parts.
+     * @param parts Serialized response parts, written in given order.
+     */
+    public CachedObjectResponse(byte[]... parts) {
+        this.parts = Arrays.asList(parts);
+    }
+
+    /**
+     * Get serialized response parts.
+     * @return Serialized response parts.
+     */
+    @JsonIgnore
+    public List<byte[]> getParts() {
+        return parts;
+    }
+
+    /**
+     * Get total length of serialized response.
+     * @return Length of serialized response in bytes.
+     */
+    @JsonIgnore
+    public long getContentLength() {
+        long length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        return length;
+    }
+}
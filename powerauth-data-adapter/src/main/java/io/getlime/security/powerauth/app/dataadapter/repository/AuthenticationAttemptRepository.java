@@ -0,0 +1,39 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.repository;
+
+import io.getlime.security.powerauth.app.dataadapter.repository.model.entity.AuthenticationAttemptEntity;
+import io.getlime.security.powerauth.app.dataadapter.repository.model.entity.AuthenticationAttemptId;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Crud repository for persistence of failed authentication attempt counts.
+ */
+@Repository
+public interface AuthenticationAttemptRepository extends CrudRepository<AuthenticationAttemptEntity, AuthenticationAttemptId> {
+
+    /**
+     * Find failed authentication attempt counts with last failure after given timestamp.
+     * @param timestamp Timestamp.
+     * @return List of failed authentication attempt counts.
+     */
+    List<AuthenticationAttemptEntity> findAllByTimestampLastFailureAfter(Date timestamp);
+
+}
@@ -26,6 +26,6 @@ import org.springframework.stereotype.Repository;
  * @author Roman Strobl, roman.strobl@wultra.com
  */
 @Repository
-public interface SmsAuthorizationRepository extends CrudRepository<SmsAuthorizationEntity, String> {
+public interface SmsAuthorizationRepository extends CrudRepository<SmsAuthorizationEntity, String>, SmsAuthorizationRepositoryCustom {
 
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.repository;
+
+import io.getlime.security.powerauth.app.dataadapter.repository.model.entity.SmsAuthorizationEntity;
+
+import java.util.Optional;
+
+/**
+ * Custom queries of SMS OTP authorization messages which honor the deadline of the current request.
+ */
+public interface SmsAuthorizationRepositoryCustom {
+
+    /**
+     * Find an SMS OTP authorization message by message ID. The query timeout is limited by the remaining time until
+     * the deadline of the current request.
+     * @param messageId Message ID.
+     * @return SMS OTP authorization message.
+     */
+    Optional<SmsAuthorizationEntity> findByMessageIdWithinDeadline(String messageId);
+}
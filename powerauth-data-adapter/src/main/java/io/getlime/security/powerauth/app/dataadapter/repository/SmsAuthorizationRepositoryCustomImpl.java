@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.repository;
+
+import io.getlime.security.powerauth.app.dataadapter.repository.model.entity.SmsAuthorizationEntity;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementation of custom queries of SMS OTP authorization messages. The remaining time until the request deadline
+ * is passed to the JDBC driver as the query timeout.
+ *
+ * JDBC query timeouts have a resolution of whole seconds. Hibernate converts the standard JPA hint in milliseconds
+ * to seconds by truncation, so a remaining time below 500 ms would result in a zero timeout which disables it.
+ * The remaining time is therefore rounded up to whole seconds and passed using the Hibernate hint in seconds.
+ */
+public class SmsAuthorizationRepositoryCustomImpl implements SmsAuthorizationRepositoryCustom {
+
+    private static final String QUERY_TIMEOUT_HINT = "org.hibernate.timeout";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<SmsAuthorizationEntity> findByMessageIdWithinDeadline(String messageId) {
+        final TypedQuery<SmsAuthorizationEntity> query = entityManager.createQuery(
+                "SELECT s FROM SmsAuthorizationEntity s WHERE s.messageId = :messageId", SmsAuthorizationEntity.class);
+        query.setParameter("messageId", messageId);
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        if (deadline != null) {
+            query.setHint(QUERY_TIMEOUT_HINT, toQueryTimeoutSeconds(deadline.getRemainingMillis()));
+        }
+        final List<SmsAuthorizationEntity> result = query.getResultList();
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * Convert remaining time until the request deadline to the query timeout, the timeout is never zero.
+     * @param remainingMillis Remaining time in milliseconds.
+     * @return Query timeout in seconds.
+     */
+    static int toQueryTimeoutSeconds(long remainingMillis) {
+        final long millis = Math.max(remainingMillis, 1L);
+        final long seconds = millis / 1000L + (millis % 1000L == 0 ? 0 : 1);
+        return (int) Math.min(Integer.MAX_VALUE, seconds);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.repository.model.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Entity which stores number of failed authentication attempts of a user, so that the counts survive restarts.
+ */
+@Entity
+@Table(name = "da_authentication_attempt")
+@IdClass(AuthenticationAttemptId.class)
+public class AuthenticationAttemptEntity implements Serializable {
+
+    private static final long serialVersionUID = 4319023357104935521L;
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Id
+    @Column(name = "organization_id")
+    private String organizationId;
+
+    @Column(name = "failed_attempt_count")
+    private int failedAttemptCount;
+
+    @Column(name = "timestamp_last_failure")
+    private Date timestampLastFailure;
+
+    /**
+     * Get user ID.
+     * @return User ID.
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Set user ID.
+     * @param userId User ID.
+     */
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Get organization ID.
+     * @return Organization ID.
+     */
+    public String getOrganizationId() {
+        return organizationId;
+    }
+
+    /**
+     * Set organization ID.
+     * @param organizationId Organization ID.
+     */
+    public void setOrganizationId(String organizationId) {
+        this.organizationId = organizationId;
+    }
+
+    /**
+     * Get number of failed authentication attempts within the tracking window.
+     * @return Number of failed authentication attempts.
+     */
+    public int getFailedAttemptCount() {
+        return failedAttemptCount;
+    }
+
+    /**
+     * Set number of failed authentication attempts within the tracking window.
+     * @param failedAttemptCount Number of failed authentication attempts.
+     */
+    public void setFailedAttemptCount(int failedAttemptCount) {
+        this.failedAttemptCount = failedAttemptCount;
+    }
+
+    /**
+     * Get timestamp of last failed authentication attempt.
+     * @return Timestamp of last failed authentication attempt.
+     */
+    public Date getTimestampLastFailure() {
+        return timestampLastFailure;
+    }
+
+    /**
+     * Set timestamp of last failed authentication attempt.
+     * @param timestampLastFailure Timestamp of last failed authentication attempt.
+     */
+    public void setTimestampLastFailure(Date timestampLastFailure) {
+        this.timestampLastFailure = timestampLastFailure;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AuthenticationAttemptEntity that = (AuthenticationAttemptEntity) o;
+
+        return Objects.equals(userId, that.userId) && Objects.equals(organizationId, that.organizationId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, organizationId);
+    }
+}
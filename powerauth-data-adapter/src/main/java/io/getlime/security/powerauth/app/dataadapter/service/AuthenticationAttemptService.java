@@ -0,0 +1,449 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuthenticationAttemptConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.repository.AuthenticationAttemptRepository;
+import io.getlime.security.powerauth.app.dataadapter.repository.model.entity.AuthenticationAttemptEntity;
+import io.getlime.security.powerauth.app.dataadapter.repository.model.entity.AuthenticationAttemptId;
+import io.getlime.security.powerauth.app.dataadapter.service.counter.SlidingWindowCounter;
+import io.getlime.security.powerauth.app.dataadapter.service.settings.OrganizationSettingsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service which tracks failed authentication attempts of users.
+ *
+ * The counts are kept in memory in lock-free sliding window counters, so that a failed login does not require
+ * a synchronous database round trip. Changed counts are flushed asynchronously into table da_authentication_attempt
+ * in regular intervals and loaded back during startup, so that the counts survive restarts. The DDL of the table
+ * is available in the docs/sql folder.
+ *
+ * When the number of tracked users exceeds the limit, counts are evicted only from memory. The persisted count of
+ * an evicted user is kept and it is loaded from the database again on the next access of the user.
+ */
+@Service
+public class AuthenticationAttemptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationAttemptService.class);
+
+    private static final int BUCKET_COUNT = 30;
+    private static final int EVICTION_SAMPLE_SIZE = 32;
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final AuthenticationAttemptRepository authenticationAttemptRepository;
+    private final OrganizationSettingsService organizationSettingsService;
+    private final long windowMillis;
+    private final int maxTrackedUsers;
+    private final long flushIntervalMillis;
+
+    private final ConcurrentHashMap<AuthenticationAttemptId, TrackedAttempts> attempts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AuthenticationAttemptId, TrackedAttempts> evictedAttempts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AuthenticationAttemptId, Integer> failedFlushes = new ConcurrentHashMap<>();
+    private final Set<AuthenticationAttemptId> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flushExecutor;
+
+    /**
+     * Whether the database may contain counts which are not tracked in memory, either because counts were evicted
+     * or because not all counts were loaded during startup.
+     */
+    private volatile boolean untrackedCountsPersisted;
+
+    /**
+     * Failed authentication attempts of a single user.
+     */
+    private static final class TrackedAttempts {
+        private final SlidingWindowCounter counter;
+        private volatile long lastFailureMillis;
+
+        private TrackedAttempts(long windowMillis) {
+            this.counter = new SlidingWindowCounter(windowMillis, BUCKET_COUNT);
+        }
+    }
+
+    /**
+     * Service constructor.
+     * @param authenticationAttemptRepository Authentication attempt repository.
+     * @param configuration Authentication attempt configuration.
+     * @param organizationSettingsService Organization settings service with per-organization attempt limits.
+     */
+    @Autowired
+    public AuthenticationAttemptService(AuthenticationAttemptRepository authenticationAttemptRepository, AuthenticationAttemptConfiguration configuration,
+                                        OrganizationSettingsService organizationSettingsService) {
+        this.authenticationAttemptRepository = authenticationAttemptRepository;
+        this.organizationSettingsService = organizationSettingsService;
+        this.windowMillis = TimeUnit.SECONDS.toMillis(configuration.getFailedAttemptWindowInSeconds());
+        this.maxTrackedUsers = configuration.getMaxTrackedUsers();
+        this.flushIntervalMillis = configuration.getFlushIntervalInMilliseconds();
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "authentication-attempt-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load persisted failed authentication attempt counts and start the periodic flush.
+     */
+    @PostConstruct
+    public void initialize() {
+        final long now = System.currentTimeMillis();
+        try {
+            final List<AuthenticationAttemptEntity> entities = authenticationAttemptRepository.findAllByTimestampLastFailureAfter(new Date(now - windowMillis));
+            for (AuthenticationAttemptEntity entity : entities) {
+                if (attempts.size() >= maxTrackedUsers) {
+                    untrackedCountsPersisted = true;
+                    break;
+                }
+                attempts.put(new AuthenticationAttemptId(entity.getUserId(), entity.getOrganizationId()), toTrackedAttempts(entity));
+            }
+            logger.info("Loaded failed authentication attempts for {} users", attempts.size());
+        } catch (RuntimeException ex) {
+            // Counts are loaded from the database on access of each user instead
+            untrackedCountsPersisted = true;
+            logger.error("Loading of failed authentication attempts failed", ex);
+        }
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic flush and flush remaining changes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Get number of remaining authentication attempts for a user.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @return Number of remaining authentication attempts.
+     */
+    public int getRemainingAttempts(String userId, String organizationId) {
+        final int maxFailedAttempts = organizationSettingsService.getSettings(organizationId).getMaxFailedAttempts();
+        if (!isValidKey(userId, organizationId)) {
+            return maxFailedAttempts;
+        }
+        final long now = System.currentTimeMillis();
+        final TrackedAttempts tracked = getTrackedAttempts(new AuthenticationAttemptId(userId, organizationId), now, false);
+        if (tracked == null) {
+            return maxFailedAttempts;
+        }
+        return Math.max(0, maxFailedAttempts - tracked.counter.get(now));
+    }
+
+    /**
+     * Reserve an authentication attempt of a user before the credentials are verified. The reserved attempt counts
+     * as a failed attempt until it is released or the failed attempts are reset, so that concurrent attempts of a user
+     * cannot exceed the limit of failed attempts.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @return Whether the attempt was reserved, false in case authentication of the user is blocked.
+     */
+    public boolean tryReserveAttempt(String userId, String organizationId) {
+        final int maxFailedAttempts = organizationSettingsService.getSettings(organizationId).getMaxFailedAttempts();
+        if (!isValidKey(userId, organizationId)) {
+            logger.warn("Authentication attempt is not tracked due to missing identifier, user ID: {}, organization ID: {}", userId, organizationId);
+            return true;
+        }
+        final AuthenticationAttemptId key = new AuthenticationAttemptId(userId, organizationId);
+        final long now = System.currentTimeMillis();
+        final TrackedAttempts tracked = getTrackedAttempts(key, now, true);
+        if (!tracked.counter.tryIncrement(now, maxFailedAttempts)) {
+            return false;
+        }
+        tracked.lastFailureMillis = now;
+        dirtyKeys.add(key);
+        return true;
+    }
+
+    /**
+     * Release a reserved authentication attempt which did not fail due to invalid credentials, e.g. when
+     * the verification was rejected or it did not complete.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     */
+    public void releaseAttempt(String userId, String organizationId) {
+        if (!isValidKey(userId, organizationId)) {
+            return;
+        }
+        final AuthenticationAttemptId key = new AuthenticationAttemptId(userId, organizationId);
+        TrackedAttempts tracked = attempts.get(key);
+        if (tracked == null) {
+            tracked = evictedAttempts.get(key);
+        }
+        if (tracked != null && tracked.counter.decrement(System.currentTimeMillis())) {
+            dirtyKeys.add(key);
+        }
+    }
+
+    /**
+     * Reset failed authentication attempts of a user, e.g. after successful authentication.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     */
+    public void resetFailedAttempts(String userId, String organizationId) {
+        if (!isValidKey(userId, organizationId)) {
+            return;
+        }
+        final AuthenticationAttemptId key = new AuthenticationAttemptId(userId, organizationId);
+        final boolean tracked = attempts.remove(key) != null;
+        final boolean evicted = evictedAttempts.remove(key) != null;
+        if (tracked || evicted || untrackedCountsPersisted) {
+            dirtyKeys.add(key);
+        }
+    }
+
+    /**
+     * Get whether the identifiers can be used as a key of a persisted count.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @return Whether the identifiers are valid.
+     */
+    private boolean isValidKey(String userId, String organizationId) {
+        return userId != null && organizationId != null;
+    }
+
+    /**
+     * Get tracked attempts of a user. Counts which are not tracked in memory are loaded from the database in case
+     * the database may contain counts of users which are not tracked.
+     * @param key Tracked attempts key.
+     * @param now Current timestamp.
+     * @param create Whether to create tracked attempts when the user has no failed attempts.
+     * @return Tracked attempts, null in case the user has no tracked attempts and create is false.
+     */
+    private TrackedAttempts getTrackedAttempts(AuthenticationAttemptId key, long now, boolean create) {
+        final TrackedAttempts tracked = attempts.get(key);
+        if (tracked != null) {
+            return tracked;
+        }
+        TrackedAttempts restored = evictedAttempts.get(key);
+        if (restored == null && untrackedCountsPersisted) {
+            restored = loadTrackedAttempts(key, now);
+        }
+        if (restored == null && !create) {
+            return null;
+        }
+        if (attempts.size() >= maxTrackedUsers) {
+            evictOldest(now);
+        }
+        final TrackedAttempts candidate = restored != null ? restored : new TrackedAttempts(windowMillis);
+        final TrackedAttempts existing = attempts.putIfAbsent(key, candidate);
+        if (existing != null) {
+            return existing;
+        }
+        // A restored evicted count may not be persisted yet, the pending flush persists the tracked state instead
+        evictedAttempts.remove(key, candidate);
+        return candidate;
+    }
+
+    /**
+     * Load persisted count of a user which is not tracked in memory.
+     * @param key Tracked attempts key.
+     * @param now Current timestamp.
+     * @return Tracked attempts, null in case the user has no persisted count within the window.
+     */
+    private TrackedAttempts loadTrackedAttempts(AuthenticationAttemptId key, long now) {
+        try {
+            final Optional<AuthenticationAttemptEntity> entity = authenticationAttemptRepository.findById(key);
+            if (entity.isEmpty() || entity.get().getTimestampLastFailure() == null
+                    || entity.get().getTimestampLastFailure().getTime() <= now - windowMillis) {
+                return null;
+            }
+            return toTrackedAttempts(entity.get());
+        } catch (RuntimeException ex) {
+            logger.warn("Loading of failed authentication attempts failed, user ID: {}, error: {}", key.getUserId(), ex.getMessage());
+            logger.debug("Loading of failed authentication attempts failed", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Convert a persisted count into tracked attempts.
+     * @param entity Authentication attempt entity.
+     * @return Tracked attempts.
+     */
+    private TrackedAttempts toTrackedAttempts(AuthenticationAttemptEntity entity) {
+        final TrackedAttempts tracked = new TrackedAttempts(windowMillis);
+        final long lastFailureMillis = entity.getTimestampLastFailure().getTime();
+        tracked.counter.add(lastFailureMillis, entity.getFailedAttemptCount());
+        tracked.lastFailureMillis = lastFailureMillis;
+        return tracked;
+    }
+
+    /**
+     * Evict entries with expired counts and in case the capacity is still exceeded, evict the entry with the oldest
+     * failure from a sample of tracked entries. Active counts are evicted only from memory, their current state is
+     * persisted by the next flush and loaded again on the next access.
+     * @param now Current timestamp.
+     */
+    private void evictOldest(long now) {
+        AuthenticationAttemptId oldestKey = null;
+        TrackedAttempts oldest = null;
+        int sampled = 0;
+        for (Map.Entry<AuthenticationAttemptId, TrackedAttempts> entry : attempts.entrySet()) {
+            final TrackedAttempts tracked = entry.getValue();
+            if (tracked.counter.get(now) == 0) {
+                if (attempts.remove(entry.getKey(), tracked)) {
+                    dirtyKeys.add(entry.getKey());
+                }
+                return;
+            }
+            if (oldest == null || tracked.lastFailureMillis < oldest.lastFailureMillis) {
+                oldest = tracked;
+                oldestKey = entry.getKey();
+            }
+            if (++sampled >= EVICTION_SAMPLE_SIZE) {
+                break;
+            }
+        }
+        if (oldestKey != null && attempts.remove(oldestKey, oldest)) {
+            untrackedCountsPersisted = true;
+            evictedAttempts.put(oldestKey, oldest);
+            dirtyKeys.add(oldestKey);
+        }
+    }
+
+    /**
+     * Flush changed failed authentication attempt counts into the database and purge expired counts.
+     */
+    private void flush() {
+        final long now = System.currentTimeMillis();
+        final Map<AuthenticationAttemptId, TrackedAttempts> flushedAttempts = new HashMap<>();
+        final List<AuthenticationAttemptEntity> entitiesToSave = new ArrayList<>();
+        final List<AuthenticationAttemptId> idsToDelete = new ArrayList<>();
+
+        // Purge expired counts from memory, rows of purged counts are deleted
+        attempts.forEach((key, tracked) -> {
+            if (tracked.counter.get(now) == 0 && attempts.remove(key, tracked)) {
+                dirtyKeys.add(key);
+            }
+        });
+
+        for (Iterator<AuthenticationAttemptId> iterator = dirtyKeys.iterator(); iterator.hasNext(); ) {
+            final AuthenticationAttemptId key = iterator.next();
+            iterator.remove();
+            TrackedAttempts tracked = attempts.get(key);
+            if (tracked == null) {
+                tracked = evictedAttempts.get(key);
+            }
+            if (tracked == null || tracked.counter.get(now) == 0) {
+                idsToDelete.add(key);
+                continue;
+            }
+            final AuthenticationAttemptEntity entity = new AuthenticationAttemptEntity();
+            entity.setUserId(key.getUserId());
+            entity.setOrganizationId(key.getOrganizationId());
+            entity.setFailedAttemptCount(tracked.counter.get(now));
+            entity.setTimestampLastFailure(new Date(tracked.lastFailureMillis));
+            entitiesToSave.add(entity);
+            flushedAttempts.put(key, tracked);
+        }
+        if (entitiesToSave.isEmpty() && idsToDelete.isEmpty()) {
+            return;
+        }
+
+        try {
+            authenticationAttemptRepository.saveAll(entitiesToSave);
+            if (!idsToDelete.isEmpty()) {
+                authenticationAttemptRepository.deleteAll(authenticationAttemptRepository.findAllById(idsToDelete));
+            }
+            entitiesToSave.forEach(entity -> flushCompleted(toKey(entity), flushedAttempts));
+            idsToDelete.forEach(key -> flushCompleted(key, flushedAttempts));
+            logger.debug("Flushed failed authentication attempts, saved: {}, deleted: {}", entitiesToSave.size(), idsToDelete.size());
+        } catch (RuntimeException ex) {
+            logger.warn("Flush of failed authentication attempts failed, flushing counts one by one, error: {}", ex.getMessage());
+            logger.debug("Flush of failed authentication attempts failed", ex);
+            // A single failing count must not block the flush of other counts
+            for (AuthenticationAttemptEntity entity : entitiesToSave) {
+                final AuthenticationAttemptId key = toKey(entity);
+                try {
+                    authenticationAttemptRepository.save(entity);
+                    flushCompleted(key, flushedAttempts);
+                } catch (RuntimeException entityEx) {
+                    flushFailed(key, flushedAttempts, entityEx);
+                }
+            }
+            for (AuthenticationAttemptId key : idsToDelete) {
+                try {
+                    authenticationAttemptRepository.findById(key).ifPresent(authenticationAttemptRepository::delete);
+                    flushCompleted(key, flushedAttempts);
+                } catch (RuntimeException entityEx) {
+                    flushFailed(key, flushedAttempts, entityEx);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finish flush of a count, evicted counts are released from memory once they are persisted.
+     * @param key Tracked attempts key.
+     * @param flushedAttempts Flushed tracked attempts.
+     */
+    private void flushCompleted(AuthenticationAttemptId key, Map<AuthenticationAttemptId, TrackedAttempts> flushedAttempts) {
+        failedFlushes.remove(key);
+        final TrackedAttempts tracked = flushedAttempts.get(key);
+        if (tracked != null) {
+            evictedAttempts.remove(key, tracked);
+        }
+    }
+
+    /**
+     * Handle a failed flush of a count. The count is retried in the next interval until the maximum number of flush
+     * attempts is reached, then it is kept only in memory.
+     * @param key Tracked attempts key.
+     * @param flushedAttempts Flushed tracked attempts.
+     * @param ex Flush error.
+     */
+    private void flushFailed(AuthenticationAttemptId key, Map<AuthenticationAttemptId, TrackedAttempts> flushedAttempts, RuntimeException ex) {
+        final int failures = failedFlushes.merge(key, 1, Integer::sum);
+        if (failures < MAX_FLUSH_ATTEMPTS) {
+            dirtyKeys.add(key);
+            return;
+        }
+        logger.error("Flush of failed authentication attempts was abandoned, user ID: {}, organization ID: {}, error: {}",
+                key.getUserId(), key.getOrganizationId(), ex.getMessage());
+        logger.debug("Flush of failed authentication attempts was abandoned", ex);
+        failedFlushes.remove(key);
+        final TrackedAttempts tracked = flushedAttempts.get(key);
+        if (tracked != null && evictedAttempts.remove(key, tracked)) {
+            // The evicted count could not be persisted, track it in memory again rather than losing it
+            attempts.putIfAbsent(key, tracked);
+        }
+    }
+
+    private AuthenticationAttemptId toKey(AuthenticationAttemptEntity entity) {
+        return new AuthenticationAttemptId(entity.getUserId(), entity.getOrganizationId());
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+
+/**
+ * Call of a backend system executed by Data Adapter, e.g. within a bulkhead or a circuit breaker.
+ * @param <T> Type of call result.
+ * @param <E> Type of checked exception thrown by the call.
+ */
+@FunctionalInterface
+public interface BackendCall<T, E extends Exception> {
+
+    /**
+     * Execute the backend call.
+     * @return Call result.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails.
+     * @throws E Thrown when the call fails.
+     */
+    T call() throws DataAdapterRemoteException, E;
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.core.rest.model.base.response.ErrorResponse;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.core.rest.model.base.response.Response;
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import io.getlime.security.powerauth.app.dataadapter.configuration.BatchConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.*;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.AuthMethodRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.AuthenticationRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.ConsentFormRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.json.OperationContextDeserializer;
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItem;
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItemResult;
+import io.getlime.security.powerauth.app.dataadapter.model.enumeration.BatchItemType;
+import io.getlime.security.powerauth.app.dataadapter.model.request.BatchRequest;
+import io.getlime.security.powerauth.app.dataadapter.model.response.BatchResponse;
+import io.getlime.security.powerauth.app.dataadapter.service.afs.AfsExecutionService;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.app.dataadapter.service.notification.FormDataChangeCoalescer;
+import io.getlime.security.powerauth.app.dataadapter.service.notification.OperationChangeService;
+import io.getlime.security.powerauth.app.dataadapter.service.threads.VirtualThreads;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.DataAdapterError;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.ValidationUtils;
+import org.springframework.validation.Validator;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service which executes items of batch requests.
+ *
+ * Each item is converted into the request object of the equivalent endpoint, validated by the validator of that
+ * endpoint and dispatched to the same Data Adapter method. Items without dependencies are executed in parallel,
+ * an item with dependencies is executed once all its dependencies complete successfully. Errors are converted into
+ * the same error responses which the equivalent endpoints return.
+ *
+ * Items are executed with the locale, request attributes and deadline of the batch request. The wait for items is
+ * limited by the batch timeout and by the request deadline, items which do not complete in time are cancelled and
+ * their threads are interrupted. Items are rejected when the queue of the batch executor is full.
+ */
+@Service
+public class BatchExecutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchExecutionService.class);
+
+    private static final String DEPENDENCY_FAILED = "batch.item.dependencyFailed";
+    private static final String TIMEOUT = "batch.item.timeout";
+    private static final String OVERLOADED = "error.overloaded";
+    private static final String INVALID_REQUEST = "error.invalidRequest";
+
+    private final ObjectMapper objectMapper;
+    private final DefaultExceptionResolver exceptionResolver;
+    private final long timeoutInMilliseconds;
+    private final ExecutorService executor;
+    private final Map<BatchItemType, ItemHandler<?>> handlers = new EnumMap<>(BatchItemType.class);
+
+    /**
+     * Execution of a single batch item.
+     * @param <T> Request object type.
+     */
+    @FunctionalInterface
+    private interface ItemCall<T> {
+
+        /**
+         * Execute the item.
+         * @param request Request object.
+         * @return Item response.
+         * @throws Exception Thrown when execution fails.
+         */
+        Response call(T request) throws Exception;
+    }
+
+    /**
+     * Request type, validator and execution of a batch item type.
+     * @param <T> Request object type.
+     */
+    private static final class ItemHandler<T> {
+
+        private final Class<T> requestType;
+        private final Validator validator;
+        private final ItemCall<T> call;
+
+        private ItemHandler(Class<T> requestType, Validator validator, ItemCall<T> call) {
+            this.requestType = requestType;
+            this.validator = validator;
+            this.call = call;
+        }
+    }
+
+    /**
+     * Service constructor.
+     * @param dataAdapter Data adapter.
+     * @param afsExecutionService AFS execution service.
+     * @param formDataChangeCoalescer Form data change coalescer.
+     * @param operationChangeService Operation change service.
+     * @param authenticationRequestValidator Validator for authentication requests.
+     * @param authMethodRequestValidator Validator for authentication method requests.
+     * @param consentFormRequestValidator Validator for consent form requests.
+     * @param exceptionResolver Default exception resolver.
+     * @param objectMapper Object mapper.
+     * @param configuration Batch configuration.
+     * @param virtualThreadConfiguration Virtual thread configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public BatchExecutionService(DataAdapter dataAdapter, AfsExecutionService afsExecutionService,
+                                 FormDataChangeCoalescer formDataChangeCoalescer, OperationChangeService operationChangeService,
+                                 AuthenticationRequestValidator authenticationRequestValidator, AuthMethodRequestValidator authMethodRequestValidator,
+                                 ConsentFormRequestValidator consentFormRequestValidator, DefaultExceptionResolver exceptionResolver,
+                                 ObjectMapper objectMapper, BatchConfiguration configuration, VirtualThreadConfiguration virtualThreadConfiguration,
+                                 MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.exceptionResolver = exceptionResolver;
+        this.timeoutInMilliseconds = configuration.getTimeoutInMilliseconds();
+        if (virtualThreadConfiguration.isVirtualThreadsActive()) {
+            // Batch items block on backend calls, a virtual thread is started for each item instead of queueing
+            this.executor = VirtualThreads.newThreadPerTaskExecutor("batch-item-");
+        } else {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(configuration.getThreadCount(), configuration.getThreadCount(), 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(configuration.getQueueCapacity()),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "batch-item-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            Gauge.builder("powerauth.dataadapter.batch.queue.size", threadPoolExecutor, e -> e.getQueue().size())
+                    .description("Number of batch items waiting for a free thread")
+                    .register(meterRegistry);
+            this.executor = threadPoolExecutor;
+        }
+
+        register(BatchItemType.USER_LOOKUP, UserLookupRequest.class, authenticationRequestValidator, request ->
+                new ObjectResponse<>(dataAdapter.lookupUser(request.getUsername(), request.getOrganizationId(), request.getClientCertificate(), request.getOperationContext())));
+        register(BatchItemType.USER_DETAIL, UserDetailRequest.class, null, request ->
+                new ObjectResponse<>(dataAdapter.fetchUserDetail(request.getUserId(), request.getOrganizationId(), null)));
+        register(BatchItemType.AUTH_METHOD_INIT, InitAuthMethodRequest.class, authMethodRequestValidator, request ->
+                new ObjectResponse<>(dataAdapter.initAuthMethod(request.getUserId(), request.getOrganizationId(), request.getAuthMethod(), request.getOperationContext())));
+        register(BatchItemType.FORM_DATA_DECORATE, DecorateOperationFormDataRequest.class, null, request ->
+                new ObjectResponse<>(dataAdapter.decorateFormData(request.getUserId(), request.getOrganizationId(), request.getAuthMethod(), request.getOperationContext())));
+        register(BatchItemType.FORM_DATA_CHANGE, FormDataChangeNotificationRequest.class, null, request -> {
+            formDataChangeCoalescer.submit(request);
+            return new Response();
+        });
+        register(BatchItemType.OPERATION_CHANGE, OperationChangeNotificationRequest.class, null, request -> {
+            operationChangeService.operationChanged(request);
+            return new Response();
+        });
+        register(BatchItemType.OPERATION_MAPPING, GetPAOperationMappingRequest.class, null, request ->
+                new ObjectResponse<>(dataAdapter.getPAOperationMapping(request.getUserId(), request.getOrganizationId(), request.getAuthMethod(), request.getOperationContext())));
+        register(BatchItemType.AFS_ACTION_EXECUTE, AfsRequest.class, null, request ->
+                new ObjectResponse<>(afsExecutionService.executeAfsAction(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getAfsRequestParameters(), request.getExtras())));
+        register(BatchItemType.CONSENT_INIT, InitConsentFormRequest.class, consentFormRequestValidator, request ->
+                new ObjectResponse<>(dataAdapter.initConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext())));
+        register(BatchItemType.CONSENT_CREATE, CreateConsentFormRequest.class, consentFormRequestValidator, request ->
+                new ObjectResponse<>(dataAdapter.createConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getLang())));
+        register(BatchItemType.CONSENT_VALIDATE, ValidateConsentFormRequest.class, consentFormRequestValidator, request ->
+                new ObjectResponse<>(dataAdapter.validateConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getLang(), request.getOptions())));
+        register(BatchItemType.CONSENT_SAVE, SaveConsentFormRequest.class, consentFormRequestValidator, request ->
+                new ObjectResponse<>(dataAdapter.saveConsentForm(request.getUserId(), request.getOrganizationId(), request.getOperationContext(), request.getOptions())));
+    }
+
+    /**
+     * Execute a batch request. The structure of the request needs to be validated before execution.
+     * @param batchRequest Batch request.
+     * @return Batch response with results in the order of request items.
+     */
+    public BatchResponse execute(BatchRequest batchRequest) {
+        final List<BatchItem> items = batchRequest.getItems();
+        final ItemContext context = new ItemContext();
+        final Map<String, CompletableFuture<BatchItemResult>> futuresById = new HashMap<>();
+        final List<CompletableFuture<BatchItemResult>> futures = new ArrayList<>(items.size());
+        final List<AtomicReference<Future<?>>> tasks = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            final BatchItem item = items.get(i);
+            final String id = item.getId() != null ? item.getId() : String.valueOf(i);
+            final List<CompletableFuture<BatchItemResult>> dependencies = new ArrayList<>();
+            if (item.getDependsOn() != null) {
+                item.getDependsOn().forEach(dependency -> dependencies.add(futuresById.get(dependency)));
+            }
+            final CompletableFuture<BatchItemResult> future = new CompletableFuture<>();
+            final AtomicReference<Future<?>> task = new AtomicReference<>();
+            CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                    .whenComplete((ignored, error) -> submitItem(id, item, dependencies, context, future, task));
+            futuresById.put(id, future);
+            futures.add(future);
+            tasks.add(task);
+        }
+
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMilliseconds);
+        if (context.deadline != null) {
+            timeoutNanos = Math.min(timeoutNanos, context.deadline.getRemainingNanos());
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        final List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < futures.size(); i++) {
+            final CompletableFuture<BatchItemResult> future = futures.get(i);
+            final BatchItem item = items.get(i);
+            final String id = item.getId() != null ? item.getId() : String.valueOf(i);
+            try {
+                results.add(future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException ex) {
+                cancel(future, tasks.get(i));
+                results.add(errorResult(id, item.getType(), HttpStatus.GATEWAY_TIMEOUT, TIMEOUT));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                cancel(future, tasks.get(i));
+                results.add(errorResult(id, item.getType(), HttpStatus.GATEWAY_TIMEOUT, TIMEOUT));
+            } catch (ExecutionException ex) {
+                results.add(resolveError(id, item.getType(), ex.getCause()));
+            }
+        }
+        return new BatchResponse(results);
+    }
+
+    /**
+     * Context of the batch request which is restored in threads executing batch items.
+     */
+    private static final class ItemContext {
+
+        private final LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        private final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        private final Deadline deadline = DeadlineContextHolder.getDeadline();
+
+        private void restore() {
+            LocaleContextHolder.setLocaleContext(localeContext);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            DeadlineContextHolder.setDeadline(deadline);
+        }
+
+        private void reset() {
+            DeadlineContextHolder.resetDeadline();
+            RequestContextHolder.resetRequestAttributes();
+            LocaleContextHolder.resetLocaleContext();
+        }
+    }
+
+    /**
+     * Submit a batch item for execution once its dependencies complete.
+     * @param id Item ID.
+     * @param item Batch item.
+     * @param dependencies Futures of item dependencies.
+     * @param context Context of the batch request.
+     * @param future Future completed with the item result.
+     * @param task Reference to the submitted task, used for cancellation.
+     */
+    private void submitItem(String id, BatchItem item, List<CompletableFuture<BatchItemResult>> dependencies, ItemContext context,
+                            CompletableFuture<BatchItemResult> future, AtomicReference<Future<?>> task) {
+        if (future.isDone()) {
+            return;
+        }
+        for (CompletableFuture<BatchItemResult> dependency : dependencies) {
+            if (dependency.isCompletedExceptionally() || dependency.join().getHttpStatus() != HttpStatus.OK.value()) {
+                future.complete(errorResult(id, item.getType(), HttpStatus.FAILED_DEPENDENCY, DEPENDENCY_FAILED));
+                return;
+            }
+        }
+        try {
+            task.set(executor.submit(() -> {
+                context.restore();
+                try {
+                    future.complete(executeItem(id, item));
+                } finally {
+                    context.reset();
+                }
+            }));
+        } catch (RejectedExecutionException ex) {
+            logger.warn("Batch item rejected, executor queue is full, item ID: {}, type: {}", id, item.getType());
+            future.complete(errorResult(id, item.getType(), HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED));
+            return;
+        }
+        if (future.isCancelled()) {
+            // The batch timed out while the item was being submitted
+            task.get().cancel(true);
+        }
+    }
+
+    /**
+     * Cancel a batch item and interrupt its thread in case the item is running.
+     * @param future Future of the item result.
+     * @param task Reference to the submitted task.
+     */
+    private void cancel(CompletableFuture<BatchItemResult> future, AtomicReference<Future<?>> task) {
+        future.cancel(true);
+        final Future<?> submitted = task.get();
+        if (submitted != null) {
+            submitted.cancel(true);
+        }
+    }
+
+    /**
+     * Convert, validate and execute a batch item.
+     * @param id Item ID.
+     * @param item Batch item.
+     * @return Item result.
+     */
+    private BatchItemResult executeItem(String id, BatchItem item) {
+        try {
+            final Response response = dispatch(handlers.get(item.getType()), item);
+            return new BatchItemResult(id, item.getType(), HttpStatus.OK.value(), response);
+        } catch (Throwable t) {
+            return resolveError(id, item.getType(), t);
+        }
+    }
+
+    private <T> Response dispatch(ItemHandler<T> handler, BatchItem item) throws Exception {
+        // Operation contexts of batch items are resolved from the cache, but they do not replace the cached context
+        final T request = objectMapper.readerFor(handler.requestType)
+                .withAttribute(OperationContextDeserializer.CACHE_UPDATE_DISABLED_ATTRIBUTE, Boolean.TRUE)
+                .readValue(item.getRequest());
+        if (handler.validator != null) {
+            final ObjectRequest<T> objectRequest = new ObjectRequest<>(request);
+            final BeanPropertyBindingResult errors = new BeanPropertyBindingResult(objectRequest, "objectRequest");
+            ValidationUtils.invokeValidator(handler.validator, objectRequest, errors);
+            if (errors.hasErrors()) {
+                throw new BindException(errors);
+            }
+        }
+        return handler.call.call(request);
+    }
+
+    /**
+     * Convert an exception into the error response which the equivalent endpoint would return.
+     * @param id Item ID.
+     * @param type Item type.
+     * @param t Exception.
+     * @return Item result with error response.
+     */
+    private BatchItemResult resolveError(String id, BatchItemType type, Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof JsonProcessingException && !exceptionResolver.isOperationContextNotCached(t)) {
+            logger.warn("Batch item request could not be converted, item ID: {}, type: {}", id, type);
+            return errorResult(id, type, HttpStatus.BAD_REQUEST, INVALID_REQUEST);
+        }
+        if (t instanceof BindException) {
+            logger.warn("Batch item validation failed, item ID: {}, type: {}", id, type);
+        }
+        final ResponseEntity<ErrorResponse> errorResponse = exceptionResolver.resolveException(t);
+        return new BatchItemResult(id, type, errorResponse.getStatusCodeValue(), errorResponse.getBody());
+    }
+
+    private BatchItemResult errorResult(String id, BatchItemType type, HttpStatus status, String message) {
+        final DataAdapterError error = new DataAdapterError(DataAdapterError.Code.ERROR_GENERIC, message);
+        return new BatchItemResult(id, type, status.value(), new ErrorResponse(error));
+    }
+
+    private <T> void register(BatchItemType type, Class<T> requestType, Validator validator, ItemCall<T> call) {
+        handlers.put(type, new ItemHandler<>(requestType, validator, call));
+    }
+
+    /**
+     * Shutdown the batch executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
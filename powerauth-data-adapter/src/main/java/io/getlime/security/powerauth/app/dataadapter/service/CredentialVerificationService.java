@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.CredentialVerificationConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.CredentialVerificationRejectedException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service which verifies user credentials in a dedicated executor sized by the number of CPUs.
+ *
+ * Verification of memory-hard password hashes is CPU intensive. Running it directly on servlet threads would allow
+ * a burst of login requests to starve all other endpoints. The executor uses a bounded queue and rejects verification
+ * immediately in case the queue is full, so that the caller can answer quickly with a retry-later response.
+ *
+ * The wait for the result is limited by the request deadline, which is passed to the verification thread.
+ * Verification which would start only after the deadline is skipped.
+ */
+@Service
+public class CredentialVerificationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialVerificationService.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.credential.verification";
+    private static final String DEADLINE_OPERATION = "credential.verification";
+
+    private final DeadlineService deadlineService;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutInMilliseconds;
+
+    private final Timer queueWaitTimer;
+    private final Timer computeTimer;
+    private final Counter rejectedCounter;
+    private final Counter timeoutCounter;
+
+    /**
+     * Credential verification logic executed in the credential verification executor.
+     * @param <T> Type of verification result.
+     */
+    @FunctionalInterface
+    public interface CredentialVerification<T> {
+
+        /**
+         * Verify credentials.
+         * @return Verification result.
+         * @throws DataAdapterRemoteException Thrown when remote communication fails.
+         */
+        T verify() throws DataAdapterRemoteException;
+    }
+
+    /**
+     * Service constructor.
+     * @param configuration Credential verification configuration.
+     * @param deadlineService Deadline service.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public CredentialVerificationService(CredentialVerificationConfiguration configuration, DeadlineService deadlineService, MeterRegistry meterRegistry) {
+        this.deadlineService = deadlineService;
+        final int threadCount = configuration.getThreadCount() > 0 ? configuration.getThreadCount() : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(configuration.getQueueCapacity()),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "credential-verification-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.prestartAllCoreThreads();
+        this.timeoutInMilliseconds = configuration.getTimeoutInMilliseconds();
+
+        this.queueWaitTimer = Timer.builder(METRIC_PREFIX + ".queue.wait")
+                .description("Time spent by credential verification waiting for a free thread")
+                .register(meterRegistry);
+        this.computeTimer = Timer.builder(METRIC_PREFIX + ".compute")
+                .description("Time spent by credential verification computation")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Number of credential verifications rejected due to full queue")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder(METRIC_PREFIX + ".timeout")
+                .description("Number of credential verifications which did not complete in time")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".queue.size", executor, e -> e.getQueue().size())
+                .description("Number of credential verifications waiting for a free thread")
+                .register(meterRegistry);
+        logger.info("Credential verification executor initialized, threads: {}, queue capacity: {}", threadCount, configuration.getQueueCapacity());
+    }
+
+    /**
+     * Execute credential verification in the credential verification executor and wait for its result.
+     * @param verification Credential verification logic.
+     * @param <T> Type of verification result.
+     * @return Verification result.
+     * @throws CredentialVerificationRejectedException Thrown when verification is rejected due to full queue or timeout.
+     * @throws DeadlineExceededException Thrown when verification does not complete before the request deadline.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails during verification.
+     */
+    public <T> T verify(CredentialVerification<T> verification) throws CredentialVerificationRejectedException, DataAdapterRemoteException {
+        deadlineService.checkRemaining(DEADLINE_OPERATION);
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        final long submittedNanos = System.nanoTime();
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                final long startedNanos = System.nanoTime();
+                queueWaitTimer.record(startedNanos - submittedNanos, TimeUnit.NANOSECONDS);
+                // The caller gives up at the deadline, the computation would be wasted
+                if (deadline != null && deadline.isExpired()) {
+                    throw new DeadlineExceededException("Credential verification was not started before request deadline");
+                }
+                DeadlineContextHolder.setDeadline(deadline);
+                try {
+                    return verification.verify();
+                } finally {
+                    DeadlineContextHolder.resetDeadline();
+                    computeTimer.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejectedCounter.increment();
+            throw new CredentialVerificationRejectedException("Credential verification queue is full");
+        }
+        final long remainingMillis = deadline != null ? deadline.getRemainingMillis() : Long.MAX_VALUE;
+        final boolean limitedByDeadline = remainingMillis < timeoutInMilliseconds;
+        try {
+            return future.get(Math.min(remainingMillis, timeoutInMilliseconds), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            if (limitedByDeadline) {
+                deadlineService.recordExceeded(DEADLINE_OPERATION);
+                throw new DeadlineExceededException("Credential verification exceeded request deadline", ex);
+            }
+            timeoutCounter.increment();
+            throw new CredentialVerificationRejectedException("Credential verification timed out", ex);
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CredentialVerificationRejectedException("Credential verification was interrupted", ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof DataAdapterRemoteException) {
+                throw (DataAdapterRemoteException) cause;
+            }
+            throw new DataAdapterRemoteException("Credential verification failed", cause);
+        }
+    }
+
+    /**
+     * Shutdown the credential verification executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
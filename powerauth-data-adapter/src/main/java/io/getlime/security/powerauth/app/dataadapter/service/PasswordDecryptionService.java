@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.PasswordEncryptionConfiguration;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Service which decrypts passwords protected using PASSWORD_ENCRYPTION_AES password protection type.
+ *
+ * The encrypted password is expected in format {@code Base64(IV):Base64(encrypted password)}. The secret key is
+ * derived once during service initialization and cipher instances are cached per thread, so that the cipher
+ * lookup and provider resolution are not repeated for every login.
+ */
+@Service
+public class PasswordDecryptionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordDecryptionService.class);
+
+    private static final char SEPARATOR = ':';
+    private static final int GCM_TAG_LENGTH_BITS = 128;
+
+    static {
+        // Register BC provider once, the provider may already be registered by servlet initializer
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    private final SecretKeySpec secretKey;
+    private final String cipherTransformation;
+    private final boolean gcmMode;
+
+    private final ThreadLocal<Cipher> cipherCache = new ThreadLocal<>();
+    private final ThreadLocal<ByteBuffer> outputBufferCache = new ThreadLocal<>();
+
+    /**
+     * Service constructor.
+     * @param configuration Password encryption configuration.
+     */
+    @Autowired
+    public PasswordDecryptionService(PasswordEncryptionConfiguration configuration) {
+        final String encryptionKey = configuration.getEncryptionKey();
+        if (encryptionKey == null || encryptionKey.isEmpty()) {
+            this.secretKey = null;
+        } else {
+            this.secretKey = new SecretKeySpec(Base64.getDecoder().decode(encryptionKey), "AES");
+        }
+        this.cipherTransformation = configuration.getCipherTransformation();
+        this.gcmMode = cipherTransformation.toUpperCase().contains("/GCM/");
+        if (secretKey != null) {
+            try {
+                // Fail fast in case the cipher transformation is not supported
+                Cipher.getInstance(cipherTransformation, BouncyCastleProvider.PROVIDER_NAME);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Unsupported password encryption cipher transformation: " + cipherTransformation, ex);
+            }
+        } else {
+            logger.info("Password encryption key is not configured, decryption of encrypted passwords is not available");
+        }
+    }
+
+    /**
+     * Decrypt password protected using PASSWORD_ENCRYPTION_AES password protection type.
+     * @param encryptedPassword Encrypted password in format Base64(IV):Base64(encrypted password).
+     * @return Decrypted password.
+     * @throws GeneralSecurityException Thrown when the password cannot be decrypted.
+     */
+    public String decryptPassword(String encryptedPassword) throws GeneralSecurityException {
+        if (secretKey == null) {
+            throw new InvalidKeyException("Password encryption key is not configured");
+        }
+        final int separatorIndex = encryptedPassword == null ? -1 : encryptedPassword.indexOf(SEPARATOR);
+        if (separatorIndex < 1 || separatorIndex == encryptedPassword.length() - 1) {
+            throw new GeneralSecurityException("Invalid format of encrypted password");
+        }
+
+        // Decode both parts directly from the single ASCII representation of the password
+        final byte[] encoded = encryptedPassword.getBytes(StandardCharsets.US_ASCII);
+        final ByteBuffer iv;
+        final ByteBuffer cipherText;
+        try {
+            final Base64.Decoder decoder = Base64.getDecoder();
+            iv = decoder.decode(ByteBuffer.wrap(encoded, 0, separatorIndex));
+            cipherText = decoder.decode(ByteBuffer.wrap(encoded, separatorIndex + 1, encoded.length - separatorIndex - 1));
+        } catch (IllegalArgumentException ex) {
+            throw new GeneralSecurityException("Invalid Base64 encoding of encrypted password", ex);
+        }
+
+        final Cipher cipher = getCipher();
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec(iv));
+        final ByteBuffer output = getOutputBuffer(cipher.getOutputSize(cipherText.remaining()));
+        try {
+            final int length = cipher.doFinal(cipherText, output);
+            return new String(output.array(), 0, length, StandardCharsets.UTF_8);
+        } finally {
+            // Do not leave plain text password in the reused buffer
+            Arrays.fill(output.array(), (byte) 0);
+        }
+    }
+
+    /**
+     * Get cipher instance cached for current thread.
+     * @return Cipher instance.
+     * @throws GeneralSecurityException Thrown when cipher cannot be created.
+     */
+    private Cipher getCipher() throws GeneralSecurityException {
+        Cipher cipher = cipherCache.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(cipherTransformation, BouncyCastleProvider.PROVIDER_NAME);
+            cipherCache.set(cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Get output buffer cached for current thread with at least required capacity.
+     * @param capacity Required capacity.
+     * @return Cleared output buffer.
+     */
+    private ByteBuffer getOutputBuffer(int capacity) {
+        ByteBuffer buffer = outputBufferCache.get();
+        if (buffer == null || buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocate(Math.max(capacity, 256));
+            outputBufferCache.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Create cipher parameters from decoded initialization vector.
+     * @param iv Initialization vector.
+     * @return Cipher parameters.
+     */
+    private AlgorithmParameterSpec parameterSpec(ByteBuffer iv) {
+        final int offset = iv.arrayOffset() + iv.position();
+        if (gcmMode) {
+            return new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv.array(), offset, iv.remaining());
+        }
+        return new IvParameterSpec(iv.array(), offset, iv.remaining());
+    }
+
+}
@@ -15,14 +15,18 @@
  */
 package io.getlime.security.powerauth.app.dataadapter.service;
 
-import io.getlime.security.powerauth.app.dataadapter.configuration.DataAdapterConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
 import io.getlime.security.powerauth.app.dataadapter.repository.SmsAuthorizationRepository;
 import io.getlime.security.powerauth.app.dataadapter.repository.model.entity.SmsAuthorizationEntity;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.getlime.security.powerauth.app.dataadapter.service.settings.OrganizationSettings;
+import io.getlime.security.powerauth.app.dataadapter.service.settings.OrganizationSettingsService;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.AuthorizationCode;
 import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
 import io.getlime.security.powerauth.lib.dataadapter.model.enumeration.SmsAuthorizationResult;
 import io.getlime.security.powerauth.lib.dataadapter.model.response.VerifySmsAuthorizationResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
 
 import java.time.ZonedDateTime;
@@ -38,17 +42,20 @@ import java.util.Optional;
 public class SmsPersistenceService {
 
     private final SmsAuthorizationRepository smsAuthorizationRepository;
-    private final DataAdapterConfiguration dataAdapterConfiguration;
+    private final OrganizationSettingsService organizationSettingsService;
+    private final DeadlineService deadlineService;
 
     /**
      * SMS persistence service constructor.
      * @param smsAuthorizationRepository SMS authorization repository.
-     * @param dataAdapterConfiguration Data adapter configuration.
+     * @param organizationSettingsService Organization settings service.
+     * @param deadlineService Deadline service.
      */
     @Autowired
-    public SmsPersistenceService(SmsAuthorizationRepository smsAuthorizationRepository, DataAdapterConfiguration dataAdapterConfiguration) {
+    public SmsPersistenceService(SmsAuthorizationRepository smsAuthorizationRepository, OrganizationSettingsService organizationSettingsService, DeadlineService deadlineService) {
         this.smsAuthorizationRepository = smsAuthorizationRepository;
-        this.dataAdapterConfiguration = dataAdapterConfiguration;
+        this.organizationSettingsService = organizationSettingsService;
+        this.deadlineService = deadlineService;
     }
 
     /**
@@ -60,9 +67,10 @@ public class SmsPersistenceService {
      * @param authorizationCode Authorization code for SMS message.
      * @param messageText Localized SMS message text.
      * @return Created entity with SMS message details.
+     * @throws DeadlineExceededException Thrown when the remaining time until the request deadline is insufficient.
      */
     public SmsAuthorizationEntity createAuthorizationSms(String userId, String organizationId, String messageId, OperationContext operationContext,
-                                                         AuthorizationCode authorizationCode, String messageText) {
+                                                         AuthorizationCode authorizationCode, String messageText) throws DeadlineExceededException {
 
         SmsAuthorizationEntity smsEntity = new SmsAuthorizationEntity();
         smsEntity.setMessageId(messageId);
@@ -75,12 +83,13 @@ public class SmsPersistenceService {
         smsEntity.setMessageText(messageText);
         smsEntity.setVerifyRequestCount(0);
         smsEntity.setTimestampCreated(new Date());
-        ZonedDateTime timestampExpires = ZonedDateTime.now().plusSeconds(dataAdapterConfiguration.getSmsOtpExpirationTime());
+        ZonedDateTime timestampExpires = ZonedDateTime.now().plusSeconds(organizationSettingsService.getSettings(organizationId).getSmsOtpExpirationTimeInSeconds());
         smsEntity.setTimestampExpires(Date.from(timestampExpires.toInstant()));
         smsEntity.setTimestampVerified(null);
         smsEntity.setVerified(false);
 
         // store entity in database
+        deadlineService.checkRemaining("sms.persistence.create");
         smsAuthorizationRepository.save(smsEntity);
 
         return smsEntity;
@@ -92,9 +101,18 @@ public class SmsPersistenceService {
      * @param authorizationCode Authorization code.
      * @param allowMultipleVerifications Whether authorization code can be verified multiple times.
      * @return Result of SMS verification.
+     * @throws DeadlineExceededException Thrown when the remaining time until the request deadline is insufficient.
      */
-    public VerifySmsAuthorizationResponse verifyAuthorizationSms(String messageId, String authorizationCode, boolean allowMultipleVerifications) {
-        Optional<SmsAuthorizationEntity> smsEntityOptional = smsAuthorizationRepository.findById(messageId);
+    public VerifySmsAuthorizationResponse verifyAuthorizationSms(String messageId, String authorizationCode, boolean allowMultipleVerifications) throws DeadlineExceededException {
+        deadlineService.checkRemaining("sms.persistence.verify");
+        final Optional<SmsAuthorizationEntity> smsEntityOptional;
+        try {
+            // The query timeout is limited by the request deadline
+            smsEntityOptional = smsAuthorizationRepository.findByMessageIdWithinDeadline(messageId);
+        } catch (QueryTimeoutException ex) {
+            deadlineService.recordExceeded("sms.persistence.verify");
+            throw new DeadlineExceededException("SMS authorization query exceeded request deadline", ex);
+        }
         VerifySmsAuthorizationResponse response = new VerifySmsAuthorizationResponse();
         if (!smsEntityOptional.isPresent()) {
             response.setSmsAuthorizationResult(SmsAuthorizationResult.FAILED);
@@ -102,11 +120,12 @@ public class SmsPersistenceService {
             return response;
         }
         SmsAuthorizationEntity smsEntity = smsEntityOptional.get();
-        // increase number of verification tries and save entity
+        // increase number of verification tries and save entity, the attempt is recorded even when the deadline is close
         smsEntity.setVerifyRequestCount(smsEntity.getVerifyRequestCount() + 1);
         smsAuthorizationRepository.save(smsEntity);
 
-        final Integer remainingAttempts = dataAdapterConfiguration.getSmsOtpMaxVerifyTriesPerMessage() - smsEntity.getVerifyRequestCount();
+        final int maxVerifyTries = organizationSettingsService.getSettings(smsEntity.getOrganizationId()).getSmsOtpMaxVerifyTriesPerMessage();
+        final Integer remainingAttempts = maxVerifyTries - smsEntity.getVerifyRequestCount();
 
         if (smsEntity.getAuthorizationCode() == null || smsEntity.getAuthorizationCode().isEmpty()) {
             response.setSmsAuthorizationResult(SmsAuthorizationResult.FAILED);
@@ -124,7 +143,7 @@ public class SmsPersistenceService {
             response.setErrorMessage("smsAuthorization.alreadyVerified");
             return response;
         }
-        if (smsEntity.getVerifyRequestCount() > dataAdapterConfiguration.getSmsOtpMaxVerifyTriesPerMessage()) {
+        if (smsEntity.getVerifyRequestCount() > maxVerifyTries) {
             response.setSmsAuthorizationResult(SmsAuthorizationResult.FAILED);
             response.setErrorMessage("smsAuthorization.maxAttemptsExceeded");
             return response;
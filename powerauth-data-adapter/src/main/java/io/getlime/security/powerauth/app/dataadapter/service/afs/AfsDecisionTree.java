@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.afs;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decision tree compiled from local anti-fraud velocity rules.
+ *
+ * Rules are configured as a comma separated list of {@code feature operator threshold:label} items in priority order,
+ * e.g. {@code user.velocity>=20:2FA,device.velocity>=10:2FA}. The first matching rule determines the AFS label.
+ *
+ * During compilation the rules of each feature are converted into a sorted table of value intervals, each interval
+ * resolved to the highest priority rule matching it. Evaluation is a binary search per feature followed by selection
+ * of the highest priority rule across features, so the cost does not grow linearly with the number of rules.
+ */
+public final class AfsDecisionTree {
+
+    private static final Pattern RULE_PATTERN = Pattern.compile("^\\s*([a-z.]+)\\s*(>=|<=|==|>|<)\\s*(-?\\d+)\\s*:\\s*(\\S+)\\s*$");
+    private static final int NO_RULE = Integer.MAX_VALUE;
+
+    /**
+     * Value of a feature which is not available for the evaluated request, rules on such feature never match.
+     */
+    public static final int UNKNOWN_VALUE = Integer.MIN_VALUE;
+
+    private final FeatureNode[] nodes;
+    private final String[] labels;
+
+    /**
+     * Interval table for a single feature.
+     */
+    private static final class FeatureNode {
+
+        private final AfsVelocityFeature feature;
+        private final long[] boundaries;
+        private final int[] ruleIndexes;
+
+        private FeatureNode(AfsVelocityFeature feature, long[] boundaries, int[] ruleIndexes) {
+            this.feature = feature;
+            this.boundaries = boundaries;
+            this.ruleIndexes = ruleIndexes;
+        }
+
+        private int find(long value) {
+            final int position = Arrays.binarySearch(boundaries, value);
+            final int segment = position >= 0 ? position : -position - 2;
+            return ruleIndexes[segment];
+        }
+    }
+
+    /**
+     * Rule converted into an inclusive value interval.
+     */
+    private static final class Interval {
+
+        private final long low;
+        private final long high;
+        private final int ruleIndex;
+
+        private Interval(long low, long high, int ruleIndex) {
+            this.low = low;
+            this.high = high;
+            this.ruleIndex = ruleIndex;
+        }
+    }
+
+    private AfsDecisionTree(FeatureNode[] nodes, String[] labels) {
+        this.nodes = nodes;
+        this.labels = labels;
+    }
+
+    /**
+     * Compile rules into a decision tree.
+     * @param rules Comma separated list of rules in priority order.
+     * @return Compiled decision tree.
+     */
+    public static AfsDecisionTree compile(String rules) {
+        final List<String> labels = new ArrayList<>();
+        final Map<AfsVelocityFeature, List<Interval>> intervals = new EnumMap<>(AfsVelocityFeature.class);
+        if (rules != null) {
+            for (String rule : rules.split(",")) {
+                if (rule.trim().isEmpty()) {
+                    continue;
+                }
+                final Matcher matcher = RULE_PATTERN.matcher(rule);
+                if (!matcher.matches()) {
+                    throw new IllegalArgumentException("Invalid AFS rule: " + rule);
+                }
+                final AfsVelocityFeature feature = AfsVelocityFeature.fromRuleName(matcher.group(1));
+                final long threshold = Long.parseLong(matcher.group(3));
+                final int ruleIndex = labels.size();
+                labels.add(matcher.group(4));
+                intervals.computeIfAbsent(feature, f -> new ArrayList<>()).add(toInterval(matcher.group(2), threshold, ruleIndex));
+            }
+        }
+
+        final List<FeatureNode> nodes = new ArrayList<>();
+        intervals.forEach((feature, featureIntervals) -> nodes.add(compileFeature(feature, featureIntervals)));
+        return new AfsDecisionTree(nodes.toArray(new FeatureNode[0]), labels.toArray(new String[0]));
+    }
+
+    /**
+     * Evaluate the decision tree.
+     * @param featureValues Feature values indexed by {@link AfsVelocityFeature} ordinal, {@link #UNKNOWN_VALUE}
+     *                      for features which are not available.
+     * @return AFS label of the first matching rule or null in case no rule matches.
+     */
+    public String evaluate(int[] featureValues) {
+        int ruleIndex = NO_RULE;
+        for (FeatureNode node : nodes) {
+            final int value = featureValues[node.feature.ordinal()];
+            if (value == UNKNOWN_VALUE) {
+                continue;
+            }
+            ruleIndex = Math.min(ruleIndex, node.find(value));
+        }
+        return ruleIndex == NO_RULE ? null : labels[ruleIndex];
+    }
+
+    /**
+     * Get whether the decision tree contains any rules.
+     * @return Whether the decision tree is empty.
+     */
+    public boolean isEmpty() {
+        return labels.length == 0;
+    }
+
+    private static Interval toInterval(String operator, long threshold, int ruleIndex) {
+        switch (operator) {
+            case ">=":
+                return new Interval(threshold, Long.MAX_VALUE, ruleIndex);
+            case ">":
+                return new Interval(threshold + 1, Long.MAX_VALUE, ruleIndex);
+            case "<=":
+                return new Interval(Long.MIN_VALUE, threshold, ruleIndex);
+            case "<":
+                return new Interval(Long.MIN_VALUE, threshold - 1, ruleIndex);
+            default:
+                return new Interval(threshold, threshold, ruleIndex);
+        }
+    }
+
+    private static FeatureNode compileFeature(AfsVelocityFeature feature, List<Interval> intervals) {
+        final TreeSet<Long> boundarySet = new TreeSet<>();
+        boundarySet.add(Long.MIN_VALUE);
+        for (Interval interval : intervals) {
+            boundarySet.add(interval.low);
+            if (interval.high != Long.MAX_VALUE) {
+                boundarySet.add(interval.high + 1);
+            }
+        }
+        final long[] boundaries = new long[boundarySet.size()];
+        final int[] ruleIndexes = new int[boundarySet.size()];
+        int segment = 0;
+        for (long boundary : boundarySet) {
+            int winner = NO_RULE;
+            for (Interval interval : intervals) {
+                if (interval.low <= boundary && boundary <= interval.high) {
+                    winner = Math.min(winner, interval.ruleIndex);
+                }
+            }
+            boundaries[segment] = boundary;
+            ruleIndexes[segment] = winner;
+            segment++;
+        }
+        return new FeatureNode(feature, boundaries, ruleIndexes);
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.afs;
+
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AfsConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.exception.InvalidOperationContextException;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.app.dataadapter.service.limit.ConcurrencyLimitService;
+import io.getlime.security.powerauth.app.dataadapter.service.limit.EndpointGroup;
+import io.getlime.security.powerauth.app.dataadapter.service.limit.RequestPriority;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.enumeration.AfsAction;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.AfsRequestParameters;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.AfsResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service which executes anti-fraud system actions either synchronously or asynchronously based on configuration.
+ *
+ * In asynchronous mode the actions whose response is applied in Web Flow ({@link AfsAction#LOGIN_INIT} and
+ * {@link AfsAction#APPROVAL_INIT}) are executed with a strict deadline. In case the deadline is exceeded, a response
+ * with the configured fallback AFS label is returned without applying any authentication step options. The deadline
+ * is shortened to the request deadline, which is passed to the action thread. All other actions are executed in the
+ * background through a bounded queue and the response is returned immediately. Actions which do not fit into
+ * the queue are dropped. Background actions outlive the request, they are not limited by the request deadline.
+ *
+ * {@link AfsAction#LOGOUT} actions are shed when the concurrency limit of AFS endpoints is saturated for sheddable
+ * requests, the fallback response is returned without executing the action.
+ */
+@Service
+public class AfsExecutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AfsExecutionService.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.afs.async";
+
+    private final DataAdapter dataAdapter;
+    private final ConcurrencyLimitService concurrencyLimitService;
+    private final boolean asyncEnabled;
+    private final long deadlineInMilliseconds;
+    private final String fallbackLabel;
+
+    private final ThreadPoolExecutor deadlineExecutor;
+    private final ThreadPoolExecutor backgroundExecutor;
+
+    private final Counter timeoutCounter;
+    private final Counter deadlineDroppedCounter;
+    private final Counter backgroundDroppedCounter;
+    private final Counter backgroundFailedCounter;
+
+    /**
+     * Service constructor.
+     * @param dataAdapter Data adapter.
+     * @param configuration AFS configuration.
+     * @param concurrencyLimitService Concurrency limit service.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public AfsExecutionService(DataAdapter dataAdapter, AfsConfiguration configuration, ConcurrencyLimitService concurrencyLimitService, MeterRegistry meterRegistry) {
+        this.dataAdapter = dataAdapter;
+        this.concurrencyLimitService = concurrencyLimitService;
+        this.asyncEnabled = configuration.isAsyncEnabled();
+        this.deadlineInMilliseconds = configuration.getAsyncDeadlineInMilliseconds();
+        this.fallbackLabel = configuration.getAsyncFallbackLabel();
+        if (asyncEnabled) {
+            this.deadlineExecutor = createExecutor("afs-deadline-", configuration.getAsyncThreadCount(), configuration.getAsyncQueueCapacity());
+            this.backgroundExecutor = createExecutor("afs-background-", configuration.getAsyncThreadCount(), configuration.getAsyncQueueCapacity());
+            Gauge.builder(METRIC_PREFIX + ".queue.size", deadlineExecutor, e -> e.getQueue().size())
+                    .description("Number of AFS actions waiting for a free thread")
+                    .tag("mode", "deadline")
+                    .register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + ".queue.size", backgroundExecutor, e -> e.getQueue().size())
+                    .description("Number of AFS actions waiting for a free thread")
+                    .tag("mode", "background")
+                    .register(meterRegistry);
+        } else {
+            this.deadlineExecutor = null;
+            this.backgroundExecutor = null;
+        }
+        this.timeoutCounter = Counter.builder(METRIC_PREFIX + ".timeout")
+                .description("Number of AFS actions which did not complete before the deadline")
+                .register(meterRegistry);
+        this.deadlineDroppedCounter = Counter.builder(METRIC_PREFIX + ".dropped")
+                .description("Number of AFS actions dropped due to full queue")
+                .tag("mode", "deadline")
+                .register(meterRegistry);
+        this.backgroundDroppedCounter = Counter.builder(METRIC_PREFIX + ".dropped")
+                .description("Number of AFS actions dropped due to full queue")
+                .tag("mode", "background")
+                .register(meterRegistry);
+        this.backgroundFailedCounter = Counter.builder(METRIC_PREFIX + ".failed")
+                .description("Number of AFS actions executed in the background which failed")
+                .register(meterRegistry);
+        logger.info("AFS actions are executed {}", asyncEnabled ? "asynchronously" : "synchronously");
+    }
+
+    /**
+     * Execute an anti-fraud system action.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param operationContext Operation context.
+     * @param afsRequestParameters AFS request parameters.
+     * @param extras Extra parameters for AFS.
+     * @return AFS response.
+     * @throws DataAdapterRemoteException In case communication with remote system fails.
+     * @throws InvalidOperationContextException In case operation context is invalid.
+     */
+    public AfsResponse executeAfsAction(String userId, String organizationId, OperationContext operationContext, AfsRequestParameters afsRequestParameters, Map<String, Object> extras) throws DataAdapterRemoteException, InvalidOperationContextException {
+        final AfsAction afsAction = afsRequestParameters != null ? afsRequestParameters.getAfsAction() : null;
+        if (afsAction == AfsAction.LOGOUT && concurrencyLimitService.shouldShed(EndpointGroup.AFS, RequestPriority.SHEDDABLE)) {
+            logger.debug("AFS action {} shed due to overload", afsAction);
+            return createFallbackResponse(afsAction);
+        }
+        if (!asyncEnabled || afsAction == null) {
+            // Invalid requests are executed synchronously so that the validation error is reported to the caller
+            return dataAdapter.executeAfsAction(userId, organizationId, operationContext, afsRequestParameters, extras);
+        }
+        final Callable<AfsResponse> action = () -> dataAdapter.executeAfsAction(userId, organizationId, operationContext, afsRequestParameters, extras);
+        switch (afsAction) {
+            case LOGIN_INIT:
+            case APPROVAL_INIT:
+                return executeWithDeadline(action, afsAction);
+
+            default:
+                executeInBackground(action, afsAction);
+                return createFallbackResponse(afsAction);
+        }
+    }
+
+    /**
+     * Execute an action whose response is applied in Web Flow and wait for its result until the deadline.
+     * @param action AFS action execution.
+     * @param afsAction AFS action.
+     * @return AFS response or fallback response in case the deadline is exceeded.
+     * @throws DataAdapterRemoteException In case communication with remote system fails.
+     * @throws InvalidOperationContextException In case operation context is invalid.
+     */
+    private AfsResponse executeWithDeadline(Callable<AfsResponse> action, AfsAction afsAction) throws DataAdapterRemoteException, InvalidOperationContextException {
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        final Future<AfsResponse> future;
+        try {
+            future = deadlineExecutor.submit(() -> {
+                DeadlineContextHolder.setDeadline(deadline);
+                try {
+                    return action.call();
+                } finally {
+                    DeadlineContextHolder.resetDeadline();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            deadlineDroppedCounter.increment();
+            logger.warn("AFS action {} dropped due to full queue, fallback label is used", afsAction);
+            return createFallbackResponse(afsAction);
+        }
+        final long waitMillis = deadline != null ? Math.min(deadlineInMilliseconds, deadline.getRemainingMillis()) : deadlineInMilliseconds;
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            timeoutCounter.increment();
+            logger.warn("AFS action {} did not complete in {} ms, fallback label is used", afsAction, waitMillis);
+            return createFallbackResponse(afsAction);
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return createFallbackResponse(afsAction);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof DataAdapterRemoteException) {
+                throw (DataAdapterRemoteException) cause;
+            }
+            if (cause instanceof InvalidOperationContextException) {
+                throw (InvalidOperationContextException) cause;
+            }
+            throw new DataAdapterRemoteException("AFS action failed", cause);
+        }
+    }
+
+    /**
+     * Execute an action whose response is not applied in Web Flow in the background.
+     * @param action AFS action execution.
+     * @param afsAction AFS action.
+     */
+    private void executeInBackground(Callable<AfsResponse> action, AfsAction afsAction) {
+        try {
+            backgroundExecutor.execute(() -> {
+                try {
+                    action.call();
+                } catch (Exception ex) {
+                    backgroundFailedCounter.increment();
+                    logger.warn("AFS action {} failed, error: {}", afsAction, ex.getMessage());
+                    logger.debug(ex.getMessage(), ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            backgroundDroppedCounter.increment();
+            logger.warn("AFS action {} dropped due to full queue", afsAction);
+        }
+    }
+
+    /**
+     * Create response which is not applied in Web Flow with the fallback AFS label.
+     * @param afsAction AFS action.
+     * @return Fallback AFS response.
+     */
+    private AfsResponse createFallbackResponse(AfsAction afsAction) {
+        final AfsResponse response = new AfsResponse();
+        response.setAfsResponseApplied(false);
+        if (afsAction != AfsAction.LOGOUT) {
+            response.setAfsLabel(fallbackLabel);
+        }
+        return response;
+    }
+
+    private static ThreadPoolExecutor createExecutor(String threadNamePrefix, int threadCount, int queueCapacity) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    /**
+     * Shutdown the AFS executors, actions queued for background execution are completed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (deadlineExecutor != null) {
+            deadlineExecutor.shutdownNow();
+        }
+        if (backgroundExecutor != null) {
+            backgroundExecutor.shutdown();
+        }
+    }
+
+}
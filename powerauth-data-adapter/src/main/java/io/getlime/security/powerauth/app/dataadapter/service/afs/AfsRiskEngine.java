@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.afs;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.AfsConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.service.counter.SlidingWindowCounterMap;
+import io.getlime.security.powerauth.app.dataadapter.service.settings.OrganizationSettingsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local anti-fraud risk engine evaluated before the remote anti-fraud system is called.
+ *
+ * The engine keeps per-user, per-device and per-account velocity counters and evaluates configured velocity rules.
+ * Clear-cut cases are resolved locally with the label of the matching rule, only requests which do not match any rule
+ * need to be resolved by the remote anti-fraud system.
+ */
+@Service
+public class AfsRiskEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(AfsRiskEngine.class);
+
+    private static final int BUCKET_COUNT = 12;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final boolean enabled;
+    private final String deviceIdExtrasKey;
+    private final OrganizationSettingsService organizationSettingsService;
+    private final SlidingWindowCounterMap userCounters;
+    private final SlidingWindowCounterMap deviceCounters;
+    private final SlidingWindowCounterMap accountCounters;
+
+    /**
+     * Risk engine constructor.
+     * @param configuration AFS configuration.
+     * @param organizationSettingsService Organization settings service with per-organization AFS rules.
+     */
+    @Autowired
+    public AfsRiskEngine(AfsConfiguration configuration, OrganizationSettingsService organizationSettingsService) {
+        this.organizationSettingsService = organizationSettingsService;
+        this.enabled = configuration.isLocalRulesEnabled();
+        this.deviceIdExtrasKey = configuration.getDeviceIdExtrasKey();
+        final long windowMillis = TimeUnit.SECONDS.toMillis(configuration.getVelocityWindowInSeconds());
+        this.userCounters = new SlidingWindowCounterMap(windowMillis, BUCKET_COUNT, configuration.getMaxTrackedKeys());
+        this.deviceCounters = new SlidingWindowCounterMap(windowMillis, BUCKET_COUNT, configuration.getMaxTrackedKeys());
+        this.accountCounters = new SlidingWindowCounterMap(windowMillis, BUCKET_COUNT, configuration.getMaxTrackedKeys());
+        logger.info("Local AFS rules are {}", enabled ? "enabled" : "disabled");
+    }
+
+    /**
+     * Evaluate local velocity rules.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param extras Extra parameters of AFS request.
+     * @param accountId Account ID related to the operation, null in case it is not available.
+     * @param recordEvent Whether the request starts a new operation step and should be counted in velocity counters.
+     * @return AFS label in case the request is resolved locally, null in case the remote anti-fraud system should be called.
+     */
+    public String evaluate(String userId, String organizationId, Map<String, Object> extras, String accountId, boolean recordEvent) {
+        if (!enabled) {
+            return null;
+        }
+        // The decision tree is compiled when the organization settings are loaded
+        final AfsDecisionTree decisionTree = organizationSettingsService.getSettings(organizationId).getAfsDecisionTree();
+        if (decisionTree.isEmpty()) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        final int[] featureValues = new int[AfsVelocityFeature.values().length];
+        // Features which are not available for the request must not be resolved by rules on their value
+        Arrays.fill(featureValues, AfsDecisionTree.UNKNOWN_VALUE);
+        if (userId != null) {
+            featureValues[AfsVelocityFeature.USER_VELOCITY.ordinal()] = count(userCounters, organizationId + KEY_SEPARATOR + userId, now, recordEvent);
+        }
+        final Object deviceId = extras == null ? null : extras.get(deviceIdExtrasKey);
+        if (deviceId != null) {
+            featureValues[AfsVelocityFeature.DEVICE_VELOCITY.ordinal()] = count(deviceCounters, deviceId.toString(), now, recordEvent);
+        }
+        if (accountId != null) {
+            featureValues[AfsVelocityFeature.ACCOUNT_VELOCITY.ordinal()] = count(accountCounters, accountId, now, recordEvent);
+        }
+        final String label = decisionTree.evaluate(featureValues);
+        if (label != null) {
+            logger.debug("AFS request resolved locally, user ID: {}, label: {}", userId, label);
+        }
+        return label;
+    }
+
+    private int count(SlidingWindowCounterMap counters, String key, long now, boolean recordEvent) {
+        return recordEvent ? counters.incrementAndGet(key, now) : counters.get(key, now);
+    }
+
+}
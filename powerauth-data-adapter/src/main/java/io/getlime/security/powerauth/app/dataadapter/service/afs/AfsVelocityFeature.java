@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.afs;
+
+/**
+ * Features evaluated by local anti-fraud velocity rules.
+ */
+public enum AfsVelocityFeature {
+
+    /**
+     * Number of operations initiated by the user within the velocity window.
+     */
+    USER_VELOCITY("user.velocity"),
+
+    /**
+     * Number of operations initiated from the device within the velocity window.
+     */
+    DEVICE_VELOCITY("device.velocity"),
+
+    /**
+     * Number of approvals for the account within the velocity window.
+     */
+    ACCOUNT_VELOCITY("account.velocity");
+
+    private final String ruleName;
+
+    AfsVelocityFeature(String ruleName) {
+        this.ruleName = ruleName;
+    }
+
+    /**
+     * Get name of the feature used in rule configuration.
+     * @return Feature name.
+     */
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    /**
+     * Resolve feature by its name used in rule configuration.
+     * @param ruleName Feature name.
+     * @return Feature.
+     */
+    public static AfsVelocityFeature fromRuleName(String ruleName) {
+        for (AfsVelocityFeature feature : values()) {
+            if (feature.ruleName.equals(ruleName)) {
+                return feature;
+            }
+        }
+        throw new IllegalArgumentException("Unknown AFS velocity feature: " + ruleName);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.audit;
+
+/**
+ * Type of audit event, the code is stored as record type in the audit journal.
+ */
+public enum AuditEventType {
+
+    /**
+     * Operation status changed.
+     */
+    OPERATION_CHANGE(1),
+
+    /**
+     * User chose a bank account.
+     */
+    BANK_ACCOUNT_CHOICE(2),
+
+    /**
+     * User chose an authentication method.
+     */
+    AUTH_METHOD_CHOICE(3),
+
+    /**
+     * User saved the consent form.
+     */
+    CONSENT_SAVE(4);
+
+    private final int code;
+
+    AuditEventType(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Get code stored as record type in the audit journal.
+     * @return Record type code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+}
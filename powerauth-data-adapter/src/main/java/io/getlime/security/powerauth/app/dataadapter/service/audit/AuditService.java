@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuditConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.service.journal.EventJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service which records audit events into the audit event journal.
+ *
+ * Each event is stored as a JSON payload with user ID, organization ID, operation ID and event details. The event is
+ * flushed to disk before the method returns, flushes of concurrent events are grouped by the journal.
+ */
+@Service
+public class AuditService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
+
+    private static final String JOURNAL_NAME = "audit";
+
+    private final AuditConfiguration configuration;
+    private final ObjectMapper objectMapper;
+
+    private EventJournal journal;
+
+    /**
+     * Service constructor.
+     * @param configuration Audit configuration.
+     * @param objectMapper Object mapper.
+     */
+    @Autowired
+    public AuditService(AuditConfiguration configuration, ObjectMapper objectMapper) {
+        this.configuration = configuration;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Open the audit journal.
+     * @throws IOException Thrown when the audit journal cannot be opened.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!configuration.isEnabled()) {
+            return;
+        }
+        journal = new EventJournal(Paths.get(configuration.getJournalDirectory()), JOURNAL_NAME,
+                configuration.getSegmentSizeInMegabytes() * 1024 * 1024,
+                configuration.getRetentionSegmentCount(),
+                configuration.getCommitWindowInMicroseconds());
+    }
+
+    /**
+     * Record an audit event.
+     * @param type Audit event type.
+     * @param userId User ID.
+     * @param organizationId Organization ID.
+     * @param operationId Operation ID.
+     * @param details Event details.
+     * @throws DataAdapterRemoteException Thrown when the audit event cannot be recorded.
+     */
+    public void record(AuditEventType type, String userId, String organizationId, String operationId, Map<String, Object> details) throws DataAdapterRemoteException {
+        if (journal == null) {
+            return;
+        }
+        final Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", type);
+        event.put("userId", userId);
+        event.put("organizationId", organizationId);
+        event.put("operationId", operationId);
+        event.put("details", details);
+        try {
+            journal.appendAndSync(type.getCode(), objectMapper.writeValueAsBytes(event));
+        } catch (JsonProcessingException ex) {
+            throw new DataAdapterRemoteException("Audit event could not be serialized", ex);
+        } catch (IOException ex) {
+            throw new DataAdapterRemoteException("Audit event could not be recorded", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAdapterRemoteException("Audit event recording was interrupted", ex);
+        }
+    }
+
+    /**
+     * Close the audit journal.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            logger.warn("Audit journal could not be closed, error: {}", ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead of a single organization which bounds the number of concurrent backend calls.
+ */
+class OrganizationBulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final long maxWaitNanos;
+    private final Semaphore semaphore;
+
+    /**
+     * Bulkhead constructor.
+     * @param name Bulkhead name.
+     * @param maxConcurrentCalls Maximum number of concurrent backend calls.
+     * @param maxWaitInMilliseconds Maximum time a backend call waits for a free slot.
+     */
+    OrganizationBulkhead(String name, int maxConcurrentCalls, long maxWaitInMilliseconds) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitInMilliseconds);
+        this.semaphore = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Try to acquire a slot of the bulkhead, waiting at most the configured time.
+     * @return Whether the slot was acquired.
+     * @throws InterruptedException Thrown when the thread is interrupted while waiting.
+     */
+    boolean tryAcquire() throws InterruptedException {
+        if (semaphore.tryAcquire()) {
+            return true;
+        }
+        return maxWaitNanos > 0 && semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Release a previously acquired slot.
+     */
+    void release() {
+        semaphore.release();
+    }
+
+    /**
+     * Get bulkhead name.
+     * @return Bulkhead name.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Get maximum number of concurrent backend calls.
+     * @return Maximum number of concurrent calls.
+     */
+    int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Get number of backend calls currently in progress.
+     * @return Number of calls in progress.
+     */
+    int getInUse() {
+        return maxConcurrentCalls - semaphore.availablePermits();
+    }
+
+    /**
+     * Get ratio of used and total slots.
+     * @return Saturation between 0 and 1.
+     */
+    double getSaturation() {
+        return maxConcurrentCalls > 0 ? (double) getInUse() / maxConcurrentCalls : 1.0;
+    }
+}
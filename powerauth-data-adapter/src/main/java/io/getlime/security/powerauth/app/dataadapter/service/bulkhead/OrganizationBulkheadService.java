@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.bulkhead;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.BulkheadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.BulkheadFullException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.service.BackendCall;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service which isolates backend calls of organizations using bulkheads.
+ *
+ * Different organizations (e.g. RETAIL and SME) are usually served by different backends. Without isolation a single
+ * slow backend would occupy all request threads and starve the other organizations. Each organization has a bounded
+ * number of concurrent backend calls, calls over the capacity wait a short time for a free slot and are rejected
+ * afterwards. Nested backend calls of the same organization executed by the same thread reuse the acquired slot.
+ *
+ * Bulkheads are created at startup for the configured organizations. Organization IDs are received in requests, calls
+ * of organizations which are not configured and calls without an organization share the bulkhead "other", so that
+ * unknown organization IDs neither occupy dedicated bulkheads nor increase metric cardinality.
+ */
+@Service
+public class OrganizationBulkheadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrganizationBulkheadService.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.bulkhead";
+    private static final String OTHER_ORGANIZATION = "other";
+
+    private final BulkheadConfiguration configuration;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, OrganizationBulkhead> bulkheads = new HashMap<>();
+    private final Map<String, Counter> rejectedCounters = new HashMap<>();
+    private final OrganizationBulkhead otherBulkhead;
+    private final ThreadLocal<Set<String>> acquiredBulkheads = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * Service constructor.
+     * @param configuration Bulkhead configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public OrganizationBulkheadService(BulkheadConfiguration configuration, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        this.meterRegistry = meterRegistry;
+        for (String organizationId : configuration.getOrganizations()) {
+            bulkheads.put(organizationId, createBulkhead(organizationId));
+        }
+        this.otherBulkhead = bulkheads.computeIfAbsent(OTHER_ORGANIZATION, this::createBulkhead);
+    }
+
+    /**
+     * Execute a backend call within the bulkhead of an organization.
+     * @param organizationId Organization ID, organizations which are not configured use the shared bulkhead.
+     * @param call Backend call.
+     * @param <T> Type of call result.
+     * @param <E> Type of checked exception thrown by the call.
+     * @return Call result.
+     * @throws BulkheadFullException Thrown when the bulkhead of the organization is full.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails.
+     * @throws E Thrown when the call fails.
+     */
+    public <T, E extends Exception> T execute(String organizationId, BackendCall<T, E> call) throws DataAdapterRemoteException, E {
+        if (!configuration.isEnabled()) {
+            return call.call();
+        }
+        final OrganizationBulkhead bulkhead = getBulkhead(organizationId);
+        final Set<String> acquired = acquiredBulkheads.get();
+        if (acquired.contains(bulkhead.getName())) {
+            return call.call();
+        }
+        final boolean permitted;
+        try {
+            permitted = bulkhead.tryAcquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException("Interrupted while waiting for bulkhead of organization: " + bulkhead.getName(), ex);
+        }
+        if (!permitted) {
+            rejectedCounters.get(bulkhead.getName()).increment();
+            throw new BulkheadFullException("Bulkhead is full for organization: " + bulkhead.getName());
+        }
+        acquired.add(bulkhead.getName());
+        try {
+            return call.call();
+        } finally {
+            acquired.remove(bulkhead.getName());
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Get the bulkhead of an organization.
+     * @param organizationId Organization ID.
+     * @return Bulkhead of the organization, the shared bulkhead in case the organization is not configured.
+     */
+    private OrganizationBulkhead getBulkhead(String organizationId) {
+        return bulkheads.getOrDefault(organizationId, otherBulkhead);
+    }
+
+    /**
+     * Create a bulkhead for an organization and register its metrics.
+     * @param name Bulkhead name.
+     * @return Bulkhead.
+     */
+    private OrganizationBulkhead createBulkhead(String name) {
+        final OrganizationBulkhead bulkhead = new OrganizationBulkhead(name,
+                configuration.getMaxConcurrentCalls(name), configuration.getMaxWaitInMilliseconds(name));
+        Gauge.builder(METRIC_PREFIX + ".capacity", bulkhead, OrganizationBulkhead::getMaxConcurrentCalls)
+                .description("Maximum number of concurrent backend calls of an organization")
+                .tag("organization", name)
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".inuse", bulkhead, OrganizationBulkhead::getInUse)
+                .description("Number of backend calls of an organization in progress")
+                .tag("organization", name)
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".saturation", bulkhead, OrganizationBulkhead::getSaturation)
+                .description("Ratio of used and total backend call slots of an organization")
+                .tag("organization", name)
+                .register(meterRegistry);
+        rejectedCounters.put(name, Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Number of backend calls rejected due to full bulkhead of an organization")
+                .tag("organization", name)
+                .register(meterRegistry));
+        logger.info("Bulkhead initialized, organization: {}, max concurrent calls: {}", name, bulkhead.getMaxConcurrentCalls());
+        return bulkhead;
+    }
+
+}
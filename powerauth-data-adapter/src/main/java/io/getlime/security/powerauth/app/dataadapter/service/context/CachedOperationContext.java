@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.context;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Operation context stored in the operation context cache as buffered JSON tokens.
+ */
+public class CachedOperationContext {
+
+    private final String hash;
+    private final TokenBuffer fields;
+    private final TokenBuffer formData;
+
+    /**
+     * Constructor with all details.
+     * @param hash Content hash of the operation context.
+     * @param fields Buffered operation context object without form data.
+     * @param formData Buffered form data, null in case form data is not present.
+     */
+    public CachedOperationContext(String hash, TokenBuffer fields, TokenBuffer formData) {
+        this.hash = hash;
+        this.fields = fields;
+        this.formData = formData;
+    }
+
+    /**
+     * Get content hash of the operation context.
+     * @return Content hash.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Get buffered operation context object without form data.
+     * @return Buffered operation context fields.
+     */
+    public TokenBuffer getFields() {
+        return fields;
+    }
+
+    /**
+     * Get buffered form data.
+     * @return Buffered form data, null in case form data is not present.
+     */
+    public TokenBuffer getFormData() {
+        return formData;
+    }
+
+}
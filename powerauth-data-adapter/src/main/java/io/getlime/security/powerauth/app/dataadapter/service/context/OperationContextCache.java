@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.context;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.getlime.security.powerauth.app.dataadapter.configuration.OperationContextCacheConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the last operation context received for each operation.
+ *
+ * Each cached context is identified by a SHA-256 hash of its JSON content. The hash is returned to the client, which
+ * may then send only the operation ID with the hash, optionally with a JSON merge patch of changed fields, instead of
+ * the full operation context. Cached contexts are evicted when the operation changes its state or after the
+ * configured time since the last access.
+ */
+@Service
+public class OperationContextCache {
+
+    /**
+     * Name of HTTP header with the content hash of the operation context received in the request.
+     */
+    public static final String CONTEXT_HASH_HEADER = "X-Operation-Context-Hash";
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.operation.context.cache";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final boolean enabled;
+    private final Cache<String, CachedOperationContext> cache;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    /**
+     * Cache constructor.
+     * @param configuration Operation context cache configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public OperationContextCache(OperationContextCacheConfiguration configuration, MeterRegistry meterRegistry) {
+        this.enabled = configuration.isEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(configuration.getMaxSize())
+                .expireAfterAccess(configuration.getTtlInSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.hitCounter = Counter.builder(METRIC_PREFIX + ".hit")
+                .description("Number of requests which referred to a cached operation context")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder(METRIC_PREFIX + ".miss")
+                .description("Number of requests which referred to an operation context missing in cache")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".size", cache, Cache::size)
+                .description("Number of cached operation contexts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get whether the operation context cache is enabled.
+     * @return Whether the cache is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get cached operation context with given hash.
+     * @param operationId Operation ID.
+     * @param hash Content hash.
+     * @return Cached operation context or null in case the operation context with given hash is not cached.
+     */
+    public CachedOperationContext get(String operationId, String hash) {
+        final CachedOperationContext cachedContext = operationId == null ? null : cache.getIfPresent(operationId);
+        if (cachedContext == null || !cachedContext.getHash().equals(hash)) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return cachedContext;
+    }
+
+    /**
+     * Store operation context in the cache.
+     * @param operationId Operation ID.
+     * @param fields Buffered operation context object without form data.
+     * @param formData Buffered form data, null in case form data is not present.
+     * @return Cached operation context with computed content hash.
+     */
+    public CachedOperationContext put(String operationId, TokenBuffer fields, TokenBuffer formData) {
+        final CachedOperationContext cachedContext = new CachedOperationContext(computeHash(fields, formData), fields, formData);
+        cache.put(operationId, cachedContext);
+        return cachedContext;
+    }
+
+    /**
+     * Evict cached operation context, e.g. when the operation is finished.
+     * @param operationId Operation ID.
+     */
+    public void evict(String operationId) {
+        if (operationId != null) {
+            cache.invalidate(operationId);
+        }
+    }
+
+    private String computeHash(TokenBuffer fields, TokenBuffer formData) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        try (OutputStream output = Funnels.asOutputStream(hasher);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+            fields.serialize(generator);
+            if (formData != null) {
+                formData.serialize(generator);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Operation context hash could not be computed", ex);
+        }
+        return hasher.hash().toString();
+    }
+
+}
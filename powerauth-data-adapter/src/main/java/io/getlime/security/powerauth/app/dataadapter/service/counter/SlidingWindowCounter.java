@@ -0,0 +1,164 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.counter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter of events within a sliding time window.
+ *
+ * The window is split into a fixed number of buckets stored in a ring. Each bucket packs the bucket epoch
+ * and the event count into a single long value, so that both can be updated using a single compare-and-set
+ * operation. Buckets which belong to an older epoch are reset lazily on the next update.
+ */
+public final class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final long bucketDurationMillis;
+    private final int bucketCount;
+    private final AtomicLongArray buckets;
+
+    /**
+     * Counter constructor.
+     * @param windowMillis Duration of the sliding window in milliseconds.
+     * @param bucketCount Number of buckets the window is split into.
+     */
+    public SlidingWindowCounter(long windowMillis, int bucketCount) {
+        if (windowMillis <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("Invalid sliding window configuration");
+        }
+        this.bucketCount = bucketCount;
+        this.bucketDurationMillis = Math.max(1, windowMillis / bucketCount);
+        this.buckets = new AtomicLongArray(bucketCount);
+    }
+
+    /**
+     * Add events to the counter.
+     * @param timestampMillis Timestamp of the events.
+     * @param delta Number of events.
+     */
+    public void add(long timestampMillis, int delta) {
+        addToBucket(timestampMillis, delta);
+    }
+
+    /**
+     * Increment the counter in case the number of events within the window is lower than the limit. The event is added
+     * before the limit is checked and it is removed again when the limit is exceeded, so that concurrent callers never
+     * add more events than the limit allows.
+     * @param timestampMillis Timestamp of the event.
+     * @param limit Maximum number of events within the window.
+     * @return Whether the event was added.
+     */
+    public boolean tryIncrement(long timestampMillis, int limit) {
+        if (get(timestampMillis) >= limit || !addToBucket(timestampMillis, 1)) {
+            return false;
+        }
+        if (get(timestampMillis) <= limit) {
+            return true;
+        }
+        decrement(timestampMillis);
+        return false;
+    }
+
+    /**
+     * Remove a single event from the most recent bucket within the window which contains events.
+     * @param timestampMillis Current timestamp.
+     * @return Whether an event was removed.
+     */
+    public boolean decrement(long timestampMillis) {
+        final long epoch = timestampMillis / bucketDurationMillis;
+        for (long bucketEpoch = epoch; bucketEpoch > epoch - bucketCount && bucketEpoch >= 0; bucketEpoch--) {
+            final int index = (int) (bucketEpoch % bucketCount);
+            while (true) {
+                final long current = buckets.get(index);
+                if ((current >>> COUNT_BITS) != bucketEpoch || (current & COUNT_MASK) == 0) {
+                    break;
+                }
+                if (buckets.compareAndSet(index, current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add events to the bucket of given timestamp.
+     * @param timestampMillis Timestamp of the events.
+     * @param delta Number of events.
+     * @return Whether the events were added, false in case the bucket was already reused for a newer epoch.
+     */
+    private boolean addToBucket(long timestampMillis, int delta) {
+        final long epoch = timestampMillis / bucketDurationMillis;
+        final int index = (int) (epoch % bucketCount);
+        while (true) {
+            final long current = buckets.get(index);
+            final long currentEpoch = current >>> COUNT_BITS;
+            final long next;
+            if (currentEpoch == epoch) {
+                next = (epoch << COUNT_BITS) | Math.min(COUNT_MASK, (current & COUNT_MASK) + delta);
+            } else if (currentEpoch < epoch) {
+                next = (epoch << COUNT_BITS) | Math.min(COUNT_MASK, delta);
+            } else {
+                // The bucket was already reused for a newer epoch, the events are outside of the window
+                return false;
+            }
+            if (buckets.compareAndSet(index, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Increment the counter and return the number of events within the window.
+     * @param timestampMillis Timestamp of the event.
+     * @return Number of events within the window including the new event.
+     */
+    public int incrementAndGet(long timestampMillis) {
+        add(timestampMillis, 1);
+        return get(timestampMillis);
+    }
+
+    /**
+     * Get number of events within the window.
+     * @param timestampMillis Current timestamp.
+     * @return Number of events within the window.
+     */
+    public int get(long timestampMillis) {
+        final long epoch = timestampMillis / bucketDurationMillis;
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            final long value = buckets.get(i);
+            final long bucketEpoch = value >>> COUNT_BITS;
+            if (bucketEpoch > epoch - bucketCount && bucketEpoch <= epoch) {
+                total += value & COUNT_MASK;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+
+    /**
+     * Reset the counter.
+     */
+    public void reset() {
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.set(i, 0L);
+        }
+    }
+
+}
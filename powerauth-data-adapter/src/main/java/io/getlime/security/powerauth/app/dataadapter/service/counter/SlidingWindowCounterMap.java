@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.counter;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded map of sliding window counters keyed by string keys.
+ *
+ * When the maximum size is reached, counters with no events in the window are evicted first. In case all sampled
+ * counters are still active, an arbitrary counter from the sample is evicted to keep memory usage bounded.
+ */
+public final class SlidingWindowCounterMap {
+
+    private static final int EVICTION_SAMPLE_SIZE = 32;
+
+    private final ConcurrentHashMap<String, SlidingWindowCounter> counters = new ConcurrentHashMap<>();
+    private final long windowMillis;
+    private final int bucketCount;
+    private final int maxSize;
+
+    /**
+     * Constructor.
+     * @param windowMillis Duration of the sliding window in milliseconds.
+     * @param bucketCount Number of buckets the window is split into.
+     * @param maxSize Maximum number of counters.
+     */
+    public SlidingWindowCounterMap(long windowMillis, int bucketCount, int maxSize) {
+        this.windowMillis = windowMillis;
+        this.bucketCount = bucketCount;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Increment counter for given key and return the number of events within the window.
+     * @param key Counter key.
+     * @param timestampMillis Timestamp of the event.
+     * @return Number of events within the window including the new event.
+     */
+    public int incrementAndGet(String key, long timestampMillis) {
+        SlidingWindowCounter counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= maxSize) {
+                evict(timestampMillis);
+            }
+            counter = counters.computeIfAbsent(key, k -> new SlidingWindowCounter(windowMillis, bucketCount));
+        }
+        return counter.incrementAndGet(timestampMillis);
+    }
+
+    /**
+     * Get number of events within the window for given key.
+     * @param key Counter key.
+     * @param timestampMillis Current timestamp.
+     * @return Number of events within the window.
+     */
+    public int get(String key, long timestampMillis) {
+        final SlidingWindowCounter counter = counters.get(key);
+        return counter == null ? 0 : counter.get(timestampMillis);
+    }
+
+    /**
+     * Get number of tracked counters.
+     * @return Number of tracked counters.
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    private void evict(long timestampMillis) {
+        String candidate = null;
+        int sampled = 0;
+        for (Iterator<Map.Entry<String, SlidingWindowCounter>> iterator = counters.entrySet().iterator(); iterator.hasNext() && sampled < EVICTION_SAMPLE_SIZE; sampled++) {
+            final Map.Entry<String, SlidingWindowCounter> entry = iterator.next();
+            if (entry.getValue().get(timestampMillis) == 0) {
+                iterator.remove();
+                return;
+            }
+            candidate = entry.getKey();
+        }
+        if (candidate != null) {
+            counters.remove(candidate);
+        }
+    }
+
+}
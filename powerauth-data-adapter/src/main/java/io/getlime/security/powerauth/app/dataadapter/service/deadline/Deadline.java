@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time after which the caller no longer waits for the response. The deadline is based on the monotonic
+ * clock of the Java runtime.
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Create a deadline after the given timeout from now.
+     * @param timeoutInMilliseconds Timeout in milliseconds.
+     * @return Deadline.
+     */
+    public static Deadline after(long timeoutInMilliseconds) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMilliseconds));
+    }
+
+    /**
+     * Get remaining time until the deadline.
+     * @return Remaining time in nanoseconds, negative when the deadline passed.
+     */
+    public long getRemainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * Get remaining time until the deadline.
+     * @return Remaining time in milliseconds, zero when the deadline passed.
+     */
+    public long getRemainingMillis() {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(getRemainingNanos()));
+    }
+
+    /**
+     * Get whether the deadline passed.
+     * @return Whether the deadline passed.
+     */
+    public boolean isExpired() {
+        return getRemainingNanos() <= 0;
+    }
+}
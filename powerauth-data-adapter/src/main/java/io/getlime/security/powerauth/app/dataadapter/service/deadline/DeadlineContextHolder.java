@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.deadline;
+
+/**
+ * Holder of the deadline of the request processed by the current thread. Code which moves processing of a request
+ * to another thread is responsible for passing the deadline to that thread.
+ */
+public final class DeadlineContextHolder {
+
+    private static final ThreadLocal<Deadline> deadlineHolder = new ThreadLocal<>();
+
+    private DeadlineContextHolder() {
+    }
+
+    /**
+     * Get deadline of the current request.
+     * @return Deadline or null in case the request has no deadline.
+     */
+    public static Deadline getDeadline() {
+        return deadlineHolder.get();
+    }
+
+    /**
+     * Set deadline of the current request.
+     * @param deadline Deadline or null to remove the deadline.
+     */
+    public static void setDeadline(Deadline deadline) {
+        if (deadline == null) {
+            deadlineHolder.remove();
+        } else {
+            deadlineHolder.set(deadline);
+        }
+    }
+
+    /**
+     * Remove deadline of the current request.
+     */
+    public static void resetDeadline() {
+        deadlineHolder.remove();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.deadline;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service which checks the remaining time until the deadline of the current request before backend calls. Calls
+ * with insufficient remaining time are aborted early, because the caller would not receive their result anyway.
+ */
+@Service
+public class DeadlineService {
+
+    private static final String METRIC_NAME = "powerauth.dataadapter.deadline.exceeded";
+
+    private final DeadlineConfiguration configuration;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Service constructor.
+     * @param configuration Deadline configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public DeadlineService(DeadlineConfiguration configuration, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Get remaining time until the deadline of the current request.
+     * @return Remaining time in milliseconds, {@link Long#MAX_VALUE} when the request has no deadline.
+     */
+    public long getRemainingMillis() {
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        return deadline != null ? deadline.getRemainingMillis() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Check that the remaining time until the deadline of the current request is sufficient for a backend call.
+     * @param operation Backend operation name.
+     * @throws DeadlineExceededException Thrown when the remaining time is insufficient.
+     */
+    public void checkRemaining(String operation) throws DeadlineExceededException {
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        if (deadline == null) {
+            return;
+        }
+        final long remainingMillis = deadline.getRemainingMillis();
+        if (remainingMillis < configuration.getMinimumRemainingInMilliseconds()) {
+            recordExceeded(operation);
+            throw new DeadlineExceededException("Insufficient time until request deadline, operation: " + operation + ", remaining: " + remainingMillis + " ms");
+        }
+    }
+
+    /**
+     * Record a backend operation aborted due to the request deadline.
+     * @param operation Backend operation name.
+     */
+    public void recordExceeded(String operation) {
+        Counter.builder(METRIC_NAME)
+                .description("Number of backend operations aborted due to the request deadline")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+}
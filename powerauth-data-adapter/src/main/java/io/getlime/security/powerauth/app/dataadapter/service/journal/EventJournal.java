@@ -0,0 +1,335 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only event journal stored in memory-mapped segment files.
+ *
+ * Records are written into the active segment with the layout described in {@link JournalSegment}. Appends only copy
+ * the record into the mapped segment, a dedicated sync thread flushes the segment to disk. Callers which require
+ * durability wait for the flush using {@link #awaitSync(long)}, the sync thread waits for the configured commit window
+ * before each flush so that records of concurrent callers are flushed together (group commit).
+ *
+ * When a record does not fit into the active segment, the segment is flushed and a new segment is created. Segments
+ * over the retention limit are deleted, segments can also be deleted explicitly once their records were processed.
+ */
+public class EventJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    private final Path directory;
+    private final String name;
+    private final int segmentSize;
+    private final int retentionSegmentCount;
+    private final long commitWindowNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writesPending = lock.newCondition();
+    private final Condition writesSynced = lock.newCondition();
+    private final ByteBuffer header = ByteBuffer.allocate(JournalSegment.HEADER_SIZE);
+    private final Thread syncThread;
+
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private int position;
+    private long writtenSequence;
+    private long syncedSequence;
+    private boolean closed;
+
+    /**
+     * Open an event journal. The last segment is scanned and appends continue after its last valid record.
+     * @param directory Journal directory.
+     * @param name Journal name used as segment file name prefix.
+     * @param segmentSize Size of segment files in bytes.
+     * @param retentionSegmentCount Maximum number of retained segments, zero for unlimited retention.
+     * @param commitWindowInMicroseconds Time for which the sync thread collects records before flushing them.
+     * @throws IOException Thrown when journal cannot be opened.
+     */
+    public EventJournal(Path directory, String name, int segmentSize, int retentionSegmentCount, long commitWindowInMicroseconds) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.retentionSegmentCount = retentionSegmentCount;
+        this.commitWindowNanos = TimeUnit.MICROSECONDS.toNanos(commitWindowInMicroseconds);
+        Files.createDirectories(directory);
+        recover();
+        this.syncThread = new Thread(this::syncLoop, "journal-sync-" + name);
+        this.syncThread.setDaemon(true);
+        this.syncThread.start();
+    }
+
+    /**
+     * Append a record to the journal. The record is not guaranteed to be flushed to disk when the method returns.
+     * @param type Record type.
+     * @param payload Record payload.
+     * @return Sequence number assigned to the record.
+     * @throws IOException Thrown when a new segment cannot be created.
+     */
+    public long append(int type, byte[] payload) throws IOException {
+        final int recordSize = JournalSegment.HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Journal record exceeds segment size: " + recordSize);
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Journal is closed: " + name);
+            }
+            if (position + recordSize > segmentSize) {
+                rotate();
+            }
+            final long sequence = writtenSequence + 1;
+            header.clear();
+            header.putInt(JournalSegment.MAGIC)
+                    .putInt(payload.length)
+                    .putLong(sequence)
+                    .putLong(System.currentTimeMillis())
+                    .putInt(type);
+            header.putInt(JournalSegment.checksum(header.duplicate().position(0), payload));
+            header.flip();
+            activeBuffer.position(position);
+            activeBuffer.put(header);
+            activeBuffer.put(payload);
+            position += recordSize;
+            writtenSequence = sequence;
+            writesPending.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append a record to the journal and wait until it is flushed to disk.
+     * @param type Record type.
+     * @param payload Record payload.
+     * @return Sequence number assigned to the record.
+     * @throws IOException Thrown when the record cannot be written or flushed.
+     * @throws InterruptedException Thrown when the thread is interrupted while waiting for flush.
+     */
+    public long appendAndSync(int type, byte[] payload) throws IOException, InterruptedException {
+        final long sequence = append(type, payload);
+        awaitSync(sequence);
+        return sequence;
+    }
+
+    /**
+     * Wait until the record with given sequence number is flushed to disk.
+     * @param sequence Sequence number.
+     * @throws IOException Thrown when the journal is closed before the record is flushed.
+     * @throws InterruptedException Thrown when the thread is interrupted while waiting.
+     */
+    public void awaitSync(long sequence) throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            while (syncedSequence < sequence) {
+                if (closed) {
+                    throw new IOException("Journal is closed: " + name);
+                }
+                writesSynced.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get sequence number of the last appended record.
+     * @return Sequence number of the last record, zero for an empty journal.
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delete segments which contain only records with sequence number lower or equal to given sequence number.
+     * The active segment is never deleted.
+     * @param sequence Sequence number up to which records are no longer needed.
+     * @throws IOException Thrown when segments cannot be deleted.
+     */
+    public void deleteSegmentsUpTo(long sequence) throws IOException {
+        lock.lock();
+        try {
+            final List<Path> segments = JournalSegment.list(directory, name);
+            for (int i = 0; i < segments.size() - 1; i++) {
+                if (JournalSegment.firstSequence(segments.get(i + 1)) - 1 > sequence) {
+                    break;
+                }
+                Files.deleteIfExists(segments.get(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Open a reader of records starting with given sequence number.
+     * @param fromSequence First sequence number to read.
+     * @return Journal reader.
+     * @throws IOException Thrown when the journal cannot be read.
+     */
+    public JournalReader openReader(long fromSequence) throws IOException {
+        return JournalReader.open(directory, name, fromSequence);
+    }
+
+    /**
+     * Flush all records and close the journal.
+     * @throws IOException Thrown when the journal cannot be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            activeBuffer.force();
+            syncedSequence = writtenSequence;
+            activeChannel.close();
+            writesPending.signalAll();
+            writesSynced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flush records to disk in the background, records appended during the commit window are flushed together.
+     */
+    private void syncLoop() {
+        while (true) {
+            final MappedByteBuffer buffer;
+            final long targetSequence;
+            lock.lock();
+            try {
+                while (!closed && writtenSequence == syncedSequence) {
+                    writesPending.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (commitWindowNanos > 0) {
+                LockSupport.parkNanos(commitWindowNanos);
+            }
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                buffer = activeBuffer;
+                targetSequence = writtenSequence;
+            } finally {
+                lock.unlock();
+            }
+            // Records of previous segments were flushed during rotation, so flushing the active segment is sufficient
+            buffer.force();
+            lock.lock();
+            try {
+                syncedSequence = Math.max(syncedSequence, targetSequence);
+                writesSynced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Open the last segment for appends or create the first segment for an empty journal.
+     * @throws IOException Thrown when segment cannot be opened.
+     */
+    private void recover() throws IOException {
+        final List<Path> segments = JournalSegment.list(directory, name);
+        if (segments.isEmpty()) {
+            openSegment(1);
+            return;
+        }
+        final Path lastSegment = segments.get(segments.size() - 1);
+        final long firstSequence = JournalSegment.firstSequence(lastSegment);
+        mapSegment(lastSegment);
+        writtenSequence = firstSequence - 1;
+        JournalRecord record;
+        while ((record = JournalSegment.read(activeBuffer, position)) != null) {
+            writtenSequence = record.getSequence();
+            position += JournalSegment.HEADER_SIZE + record.getPayload().length;
+        }
+        if (position + 4 <= segmentSize && activeBuffer.getInt(position) != 0) {
+            // Incomplete record written before the process was terminated, clear the rest of the segment
+            logger.warn("Incomplete record found in journal segment: {}, position: {}", lastSegment, position);
+            for (int i = position; i < activeBuffer.capacity(); i++) {
+                activeBuffer.put(i, (byte) 0);
+            }
+            activeBuffer.force();
+        }
+        syncedSequence = writtenSequence;
+        logger.info("Journal {} opened, last sequence: {}", name, writtenSequence);
+    }
+
+    /**
+     * Flush the active segment and continue in a new segment.
+     * @throws IOException Thrown when the new segment cannot be created.
+     */
+    private void rotate() throws IOException {
+        activeBuffer.force();
+        syncedSequence = writtenSequence;
+        writesSynced.signalAll();
+        activeChannel.close();
+        openSegment(writtenSequence + 1);
+        if (retentionSegmentCount > 0) {
+            final List<Path> segments = JournalSegment.list(directory, name);
+            for (int i = 0; i < segments.size() - retentionSegmentCount; i++) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        mapSegment(directory.resolve(JournalSegment.fileName(name, firstSequence)));
+        logger.debug("Journal {} continues in a new segment, first sequence: {}", name, firstSequence);
+    }
+
+    private void mapSegment(Path path) throws IOException {
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        position = 0;
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.journal;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+
+/**
+ * Offline tool which exports event journal segments into newline delimited JSON.
+ *
+ * Each record is written as a single JSON object with fields {@code sequence}, {@code timestamp}, {@code type} and
+ * {@code payload}. JSON payloads are embedded as is, other payloads are Base64 encoded.
+ *
+ * <p>Usage with an unpacked WAR file:</p>
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" \
+ *     io.getlime.security.powerauth.app.dataadapter.service.journal.JournalExportTool \
+ *     &lt;journal directory&gt; &lt;journal name&gt; [from sequence] [output file]
+ * </pre>
+ */
+public final class JournalExportTool {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private JournalExportTool() {
+    }
+
+    /**
+     * Export journal records into NDJSON.
+     * @param args Journal directory, journal name, optional first sequence number and optional output file.
+     * @throws IOException Thrown when the journal cannot be read or the output cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: JournalExportTool <journal directory> <journal name> [from sequence] [output file]");
+            System.exit(1);
+        }
+        final Path directory = Paths.get(args[0]);
+        final String name = args[1];
+        final long fromSequence = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        if (args.length > 3) {
+            try (OutputStream output = Files.newOutputStream(Paths.get(args[3]))) {
+                export(directory, name, fromSequence, output);
+            }
+        } else {
+            export(directory, name, fromSequence, System.out);
+            System.out.flush();
+        }
+    }
+
+    /**
+     * Export journal records into NDJSON.
+     * @param directory Journal directory.
+     * @param name Journal name.
+     * @param fromSequence First sequence number to export.
+     * @param output Output stream, the stream is not closed.
+     * @return Number of exported records.
+     * @throws IOException Thrown when the journal cannot be read or the output cannot be written.
+     */
+    public static long export(Path directory, String name, long fromSequence, OutputStream output) throws IOException {
+        long count = 0;
+        try (JournalReader reader = JournalReader.open(directory, name, fromSequence);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (reader.hasNext()) {
+                final JournalRecord record = reader.next();
+                generator.writeStartObject();
+                generator.writeNumberField("sequence", record.getSequence());
+                generator.writeStringField("timestamp", Instant.ofEpochMilli(record.getTimestamp()).toString());
+                generator.writeNumberField("type", record.getType());
+                generator.writeFieldName("payload");
+                writePayload(generator, record.getPayload());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void writePayload(JsonGenerator generator, byte[] payload) throws IOException {
+        if (isJson(payload)) {
+            try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+        } else {
+            generator.writeBinary(payload);
+        }
+    }
+
+    private static boolean isJson(byte[] payload) {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() == null) {
+                return false;
+            }
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader of event journal records.
+ *
+ * Segments are mapped one at a time and records are read in sequence order. Reading stops at the first incomplete
+ * record, so the reader can be used for a journal which is being written concurrently.
+ */
+public class JournalReader implements Iterator<JournalRecord>, Closeable {
+
+    private final List<Path> segments;
+    private final long fromSequence;
+
+    private int segmentIndex = -1;
+    private MappedByteBuffer buffer;
+    private int position;
+    private JournalRecord next;
+
+    private JournalReader(List<Path> segments, long fromSequence) {
+        this.segments = segments;
+        this.fromSequence = fromSequence;
+    }
+
+    /**
+     * Open a reader of journal records.
+     * @param directory Journal directory.
+     * @param name Journal name.
+     * @param fromSequence First sequence number to read.
+     * @return Journal reader.
+     * @throws IOException Thrown when the journal directory cannot be listed.
+     */
+    public static JournalReader open(Path directory, String name, long fromSequence) throws IOException {
+        final List<Path> segments = JournalSegment.list(directory, name);
+        // Skip segments which end before the requested sequence number
+        int first = 0;
+        while (first + 1 < segments.size() && JournalSegment.firstSequence(segments.get(first + 1)) <= fromSequence) {
+            first++;
+        }
+        return new JournalReader(segments.subList(first, segments.size()), fromSequence);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (buffer != null) {
+                final JournalRecord record = JournalSegment.read(buffer, position);
+                if (record != null) {
+                    position += JournalSegment.HEADER_SIZE + record.getPayload().length;
+                    if (record.getSequence() >= fromSequence) {
+                        next = record;
+                    }
+                    continue;
+                }
+            }
+            if (!openNextSegment()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public JournalRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final JournalRecord record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+        segmentIndex = segments.size();
+    }
+
+    private boolean openNextSegment() {
+        while (++segmentIndex < segments.size()) {
+            try (FileChannel channel = FileChannel.open(segments.get(segmentIndex), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                position = 0;
+                return true;
+            } catch (NoSuchFileException ex) {
+                // Segment was deleted by retention after the reader was opened
+            } catch (IOException ex) {
+                throw new IllegalStateException("Journal segment cannot be read: " + segments.get(segmentIndex), ex);
+            }
+        }
+        buffer = null;
+        return false;
+    }
+
+}
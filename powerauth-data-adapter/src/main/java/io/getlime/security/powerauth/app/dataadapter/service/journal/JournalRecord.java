@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.journal;
+
+/**
+ * Record stored in the event journal.
+ */
+public class JournalRecord {
+
+    private final long sequence;
+    private final long timestamp;
+    private final int type;
+    private final byte[] payload;
+
+    /**
+     * Journal record constructor.
+     * @param sequence Sequence number assigned by the journal.
+     * @param timestamp Timestamp when the record was appended in milliseconds.
+     * @param type Record type.
+     * @param payload Record payload.
+     */
+    public JournalRecord(long sequence, long timestamp, int type, byte[] payload) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.payload = payload;
+    }
+
+    /**
+     * Get sequence number assigned by the journal.
+     * @return Sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get timestamp when the record was appended.
+     * @return Timestamp in milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get record type.
+     * @return Record type.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Get record payload.
+     * @return Record payload.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Layout of journal segment files.
+ *
+ * Segment files are named {@code <journal name>-<first sequence>.seg} and preallocated to a fixed size. Records are
+ * stored one after another, the unused tail of a segment is filled with zeros. Each record has the following layout,
+ * all numbers are big-endian:
+ * <pre>
+ * offset  size  field
+ *      0     4  magic
+ *      4     4  payload length
+ *      8     8  sequence
+ *     16     8  timestamp in milliseconds
+ *     24     4  record type
+ *     28     4  CRC32 of bytes 8-27 and payload
+ *     32     n  payload
+ * </pre>
+ */
+final class JournalSegment {
+
+    static final int MAGIC = 0x4A524E4C;
+    static final int HEADER_SIZE = 32;
+
+    private static final String SUFFIX = ".seg";
+
+    private JournalSegment() {
+    }
+
+    /**
+     * Get segment file name.
+     * @param name Journal name.
+     * @param firstSequence Sequence number of the first record in the segment.
+     * @return Segment file name.
+     */
+    static String fileName(String name, long firstSequence) {
+        return String.format("%s-%020d%s", name, firstSequence, SUFFIX);
+    }
+
+    /**
+     * Get sequence number of the first record in the segment from the segment file name.
+     * @param path Segment path.
+     * @return Sequence number of the first record.
+     */
+    static long firstSequence(Path path) {
+        final String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(fileName.lastIndexOf('-') + 1, fileName.length() - SUFFIX.length()));
+    }
+
+    /**
+     * List segment files of a journal ordered by the first sequence number.
+     * @param directory Journal directory.
+     * @param name Journal name.
+     * @return Ordered segment paths.
+     * @throws IOException Thrown when the directory cannot be listed.
+     */
+    static List<Path> list(Path directory, String name) throws IOException {
+        final List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        // Segments of journals whose name starts with the same prefix, e.g. a dead letter journal, must not match
+        final Pattern pattern = Pattern.compile(Pattern.quote(name) + "-\\d{20}" + Pattern.quote(SUFFIX));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, path -> pattern.matcher(path.getFileName().toString()).matches())) {
+            stream.forEach(segments::add);
+        }
+        // Sequence numbers are zero padded, so lexicographic ordering matches numeric ordering
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Compute checksum of a record.
+     * @param header Record header positioned at the record start.
+     * @param payload Record payload.
+     * @return Checksum.
+     */
+    static int checksum(ByteBuffer header, byte[] payload) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer fields = header.duplicate();
+        fields.position(header.position() + 8).limit(header.position() + 28);
+        crc.update(fields);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Read a record at given position.
+     * @param buffer Segment buffer.
+     * @param position Record position.
+     * @return Record or null in case there is no complete valid record at given position.
+     */
+    static JournalRecord read(ByteBuffer buffer, int position) {
+        if (position + HEADER_SIZE > buffer.capacity() || buffer.getInt(position) != MAGIC) {
+            return null;
+        }
+        final int length = buffer.getInt(position + 4);
+        if (length < 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        final byte[] payload = new byte[length];
+        final ByteBuffer payloadBuffer = buffer.duplicate();
+        payloadBuffer.position(position + HEADER_SIZE);
+        payloadBuffer.get(payload);
+        final ByteBuffer header = buffer.duplicate();
+        header.position(position);
+        if (checksum(header, payload) != buffer.getInt(position + 28)) {
+            return null;
+        }
+        return new JournalRecord(buffer.getLong(position + 8), buffer.getLong(position + 16), buffer.getInt(position + 24), payload);
+    }
+
+}
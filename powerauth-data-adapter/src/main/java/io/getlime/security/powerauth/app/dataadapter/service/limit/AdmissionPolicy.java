@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.limit;
+
+/**
+ * Admission policy of a request priority class: the share of the concurrency limit available to the class and
+ * the bounded queue in which requests of the class wait for a free slot.
+ */
+public class AdmissionPolicy {
+
+    private final double limitShare;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+
+    /**
+     * Admission policy constructor.
+     * @param limitShare Share of the concurrency limit available to the class.
+     * @param queueCapacity Number of requests which may wait for a free slot, zero for immediate rejection.
+     * @param maxWaitNanos Maximum time a request waits for a free slot in nanoseconds.
+     */
+    public AdmissionPolicy(double limitShare, int queueCapacity, long maxWaitNanos) {
+        this.limitShare = limitShare;
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * Get share of the concurrency limit available to the class.
+     * @return Limit share.
+     */
+    public double getLimitShare() {
+        return limitShare;
+    }
+
+    /**
+     * Get number of requests which may wait for a free slot.
+     * @return Queue capacity.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Get maximum time a request waits for a free slot.
+     * @return Maximum wait time in nanoseconds.
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+}
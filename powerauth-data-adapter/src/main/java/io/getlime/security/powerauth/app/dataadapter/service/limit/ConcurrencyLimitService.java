@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.limit;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.ConcurrencyLimitConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service which holds adaptive concurrency limiters of endpoint groups and admits requests according to their
+ * priority class.
+ */
+@Service
+public class ConcurrencyLimitService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitService.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.concurrency";
+
+    private final boolean enabled;
+    private final Map<EndpointGroup, GradientConcurrencyLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+    private final Map<EndpointGroup, Map<RequestPriority, Counter>> shedCounters = new EnumMap<>(EndpointGroup.class);
+
+    /**
+     * Service constructor.
+     * @param configuration Concurrency limit configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public ConcurrencyLimitService(ConcurrencyLimitConfiguration configuration, MeterRegistry meterRegistry) {
+        this.enabled = configuration.isEnabled();
+        if (!enabled) {
+            return;
+        }
+        final Map<RequestPriority, AdmissionPolicy> admissionPolicies = new EnumMap<>(RequestPriority.class);
+        for (RequestPriority priority : RequestPriority.values()) {
+            admissionPolicies.put(priority, new AdmissionPolicy(configuration.getLimitShare(priority), configuration.getQueueCapacity(priority),
+                    TimeUnit.MILLISECONDS.toNanos(configuration.getMaxWaitInMilliseconds(priority))));
+        }
+        for (EndpointGroup group : EndpointGroup.values()) {
+            final GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(
+                    configuration.getInitialLimit(group.getName()), configuration.getMinLimit(group.getName()), configuration.getMaxLimit(group.getName()),
+                    configuration.getRttTolerance(), configuration.getSmoothing(), configuration.getNoLoadRttWindow(), configuration.getSampleWindowSize(),
+                    admissionPolicies);
+            limiters.put(group, limiter);
+            Gauge.builder(METRIC_PREFIX + ".limit", limiter, GradientConcurrencyLimiter::getLimit)
+                    .description("Current concurrency limit of an endpoint group")
+                    .tag("group", group.getName())
+                    .register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + ".inflight", limiter, GradientConcurrencyLimiter::getInFlight)
+                    .description("Number of requests in flight in an endpoint group")
+                    .tag("group", group.getName())
+                    .register(meterRegistry);
+            final Map<RequestPriority, Counter> groupShedCounters = new EnumMap<>(RequestPriority.class);
+            for (RequestPriority priority : RequestPriority.values()) {
+                groupShedCounters.put(priority, Counter.builder(METRIC_PREFIX + ".rejected")
+                        .description("Number of requests rejected or shed due to the concurrency limit of an endpoint group")
+                        .tag("group", group.getName())
+                        .tag("priority", priority.getName())
+                        .register(meterRegistry));
+            }
+            shedCounters.put(group, groupShedCounters);
+        }
+        logger.info("Adaptive concurrency limits enabled for endpoint groups");
+    }
+
+    /**
+     * Get whether concurrency limits are enabled.
+     * @return Whether concurrency limits are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Try to acquire a slot for a request of an endpoint group, the request may wait in the admission queue of its
+     * priority class.
+     * @param group Endpoint group.
+     * @param priority Request priority class.
+     * @return Limiter which must be released on completion of the request, null in case the request is rejected.
+     * @throws InterruptedException Thrown when waiting for a slot is interrupted.
+     */
+    public GradientConcurrencyLimiter tryAcquire(EndpointGroup group, RequestPriority priority) throws InterruptedException {
+        final GradientConcurrencyLimiter limiter = limiters.get(group);
+        if (limiter.tryAcquire(priority)) {
+            return limiter;
+        }
+        shedCounters.get(group).get(priority).increment();
+        return null;
+    }
+
+    /**
+     * Decide whether work of a priority class should be shed. Used for work which is classified only after
+     * admission of the request, e.g. based on the request body.
+     * @param group Endpoint group.
+     * @param priority Priority class of the work.
+     * @return Whether the work should be shed.
+     */
+    public boolean shouldShed(EndpointGroup group, RequestPriority priority) {
+        if (!enabled || !limiters.get(group).isSaturated(priority)) {
+            return false;
+        }
+        shedCounters.get(group).get(priority).increment();
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.limit;
+
+/**
+ * Group of Data Adapter endpoints with a common concurrency limit. Endpoints of a group share the same backend
+ * dependencies, so that a slow backend limits only the endpoints which depend on it.
+ */
+public enum EndpointGroup {
+
+    /**
+     * User lookup, authentication and user detail endpoints.
+     */
+    AUTH_USER("auth.user", "/api/auth/user/"),
+
+    /**
+     * SMS authorization endpoints.
+     */
+    AUTH_SMS("auth.sms", "/api/auth/sms/"),
+
+    /**
+     * Client certificate verification endpoints.
+     */
+    AUTH_CERTIFICATE("auth.certificate", "/api/auth/certificate/"),
+
+    /**
+     * Authentication method endpoints.
+     */
+    AUTH_METHOD("auth.method", "/api/auth/method/"),
+
+    /**
+     * Consent endpoints.
+     */
+    AUTH_CONSENT("auth.consent", "/api/auth/consent/"),
+
+    /**
+     * Operation and form data endpoints.
+     */
+    OPERATION("operation", "/api/operation/"),
+
+    /**
+     * Anti-fraud system endpoints.
+     */
+    AFS("afs", "/api/afs/"),
+
+    /**
+     * Batch endpoint.
+     */
+    BATCH("batch", "/api/batch"),
+
+    /**
+     * Other endpoints.
+     */
+    OTHER("other", "/api/");
+
+    private final String name;
+    private final String pathPrefix;
+
+    EndpointGroup(String name, String pathPrefix) {
+        this.name = name;
+        this.pathPrefix = pathPrefix;
+    }
+
+    /**
+     * Get group name used in configuration and metrics.
+     * @return Group name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Resolve endpoint group of a request path.
+     * @param path Request path without context path.
+     * @return Endpoint group.
+     */
+    public static EndpointGroup resolve(String path) {
+        for (EndpointGroup group : values()) {
+            if (path.startsWith(group.pathPrefix)) {
+                return group;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.limit;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limit based on the gradient of request latency.
+ *
+ * The limiter compares the average latency of recent requests with the latency without load, estimated as
+ * the minimum sampled latency. When recent latency grows, the backend is queueing requests and the limit is
+ * decreased proportionally to the gradient of both latencies. When latency stays within the tolerance, the limit
+ * grows by the square root of the current limit, which plays the role of a tolerated queue. The limit is changed
+ * only when the group is actually busy, i.e. when at least half of the limit was in flight during the sample
+ * window, and changes are smoothed to avoid oscillation. The minimum latency is tracked in two rotating buckets,
+ * so that the estimate follows permanent changes of backend latency.
+ *
+ * Requests are admitted according to their priority class. A class may use only its share of the limit, so that
+ * lower classes are rejected first when the limit is reached. Requests of a class with an admission queue wait for
+ * a released slot for a bounded time, released slots are handed to waiting requests of the highest class first.
+ * A waiting request which leaves the queue passes the signal on to the next waiting request, so that lower classes
+ * are admitted as well while capacity remains.
+ */
+public class GradientConcurrencyLimiter {
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int noLoadRttWindow;
+    private final int sampleWindowSize;
+
+    private final Map<RequestPriority, AdmissionPolicy> admissionPolicies;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // Admission queues, waiting counts are guarded by admissionLock
+    private final ReentrantLock admissionLock = new ReentrantLock();
+    private final Map<RequestPriority, Condition> slotReleased = new EnumMap<>(RequestPriority.class);
+    private final int[] waiting = new int[RequestPriority.values().length];
+    private final AtomicInteger totalWaiting = new AtomicInteger();
+
+    // Sample window and latency estimates, guarded by this
+    private double estimatedLimit;
+    private double previousMinRtt = Double.MAX_VALUE;
+    private double currentMinRtt = Double.MAX_VALUE;
+    private long bucketSamples;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    /**
+     * Limiter constructor.
+     * @param initialLimit Initial limit.
+     * @param minLimit Minimum limit.
+     * @param maxLimit Maximum limit.
+     * @param rttTolerance Tolerated ratio of recent latency and latency without load.
+     * @param smoothing Weight of a new limit estimate.
+     * @param noLoadRttWindow Number of requests after which the oldest bucket of minimum latency is discarded.
+     * @param sampleWindowSize Number of completed requests in a sample window.
+     * @param admissionPolicies Admission policies of request priority classes.
+     */
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing,
+                                      int noLoadRttWindow, int sampleWindowSize, Map<RequestPriority, AdmissionPolicy> admissionPolicies) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.noLoadRttWindow = Math.max(1, noLoadRttWindow);
+        this.sampleWindowSize = Math.max(1, sampleWindowSize);
+        this.estimatedLimit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+        this.admissionPolicies = new EnumMap<>(admissionPolicies);
+        for (RequestPriority priority : RequestPriority.values()) {
+            slotReleased.put(priority, admissionLock.newCondition());
+        }
+    }
+
+    /**
+     * Try to acquire a slot for a request of a priority class. In case the share of the limit available to the class
+     * is used, the request waits in the admission queue of the class, if the class has one.
+     * @param priority Request priority class.
+     * @return Whether the request may proceed, in such case {@link #release(long)} must be called on completion.
+     * @throws InterruptedException Thrown when waiting for a slot is interrupted.
+     */
+    public boolean tryAcquire(RequestPriority priority) throws InterruptedException {
+        final AdmissionPolicy policy = admissionPolicies.get(priority);
+        // Requests do not overtake waiting requests of the same or higher class
+        if (totalWaiting.get() == 0 && tryAcquireSlot(policy)) {
+            return true;
+        }
+        if (policy.getQueueCapacity() <= 0 || policy.getMaxWaitNanos() <= 0) {
+            return false;
+        }
+        final int index = priority.ordinal();
+        admissionLock.lock();
+        try {
+            if (waiting[index] >= policy.getQueueCapacity()) {
+                return false;
+            }
+            waiting[index]++;
+            totalWaiting.incrementAndGet();
+            try {
+                long remainingNanos = policy.getMaxWaitNanos();
+                while (true) {
+                    if (!isHigherClassWaiting(index) && tryAcquireSlot(policy)) {
+                        return true;
+                    }
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    remainingNanos = slotReleased.get(priority).awaitNanos(remainingNanos);
+                }
+            } finally {
+                waiting[index]--;
+                // Hand the signal over, the released slot may still fit the next waiting request
+                if (totalWaiting.decrementAndGet() > 0) {
+                    signalWaiting();
+                }
+            }
+        } finally {
+            admissionLock.unlock();
+        }
+    }
+
+    /**
+     * Check whether the share of the limit available to a priority class is used, e.g. for shedding of work
+     * which is identified only after admission of the request.
+     * @param priority Request priority class.
+     * @return Whether requests of the class would be rejected.
+     */
+    public boolean isSaturated(RequestPriority priority) {
+        return inFlight.get() >= limit * admissionPolicies.get(priority).getLimitShare();
+    }
+
+    /**
+     * Release the slot of a completed request and update the limit with the request latency.
+     * @param rttNanos Request latency in nanoseconds.
+     */
+    public void release(long rttNanos) {
+        final int inFlightAtCompletion = inFlight.getAndDecrement();
+        if (totalWaiting.get() > 0) {
+            signalWaiting();
+        }
+        final boolean limitIncreased;
+        synchronized (this) {
+            final int previousLimit = limit;
+            windowRttSum += rttNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtCompletion);
+            if (windowSamples >= sampleWindowSize) {
+                updateLimit((double) windowRttSum / windowSamples, windowMaxInFlight);
+                windowRttSum = 0;
+                windowSamples = 0;
+                windowMaxInFlight = 0;
+            }
+            limitIncreased = limit > previousLimit;
+        }
+        if (limitIncreased && totalWaiting.get() > 0) {
+            signalWaiting();
+        }
+    }
+
+    /**
+     * Get current concurrency limit.
+     * @return Current limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get number of requests in flight.
+     * @return Number of requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private boolean tryAcquireSlot(AdmissionPolicy policy) {
+        final double classLimit = limit * policy.getLimitShare();
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= classLimit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean isHigherClassWaiting(int index) {
+        for (int i = 0; i < index; i++) {
+            if (waiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void signalWaiting() {
+        admissionLock.lock();
+        try {
+            for (RequestPriority priority : RequestPriority.values()) {
+                if (waiting[priority.ordinal()] > 0) {
+                    slotReleased.get(priority).signal();
+                    return;
+                }
+            }
+        } finally {
+            admissionLock.unlock();
+        }
+    }
+
+    private void updateLimit(double shortRtt, int maxInFlight) {
+        currentMinRtt = Math.min(currentMinRtt, shortRtt);
+        bucketSamples += sampleWindowSize;
+        if (bucketSamples >= noLoadRttWindow) {
+            previousMinRtt = currentMinRtt;
+            currentMinRtt = shortRtt;
+            bucketSamples = 0;
+        }
+        // Latency measured while the group is mostly idle says nothing about the limit
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        final double noLoadRtt = Math.min(previousMinRtt, currentMinRtt);
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * noLoadRtt / shortRtt));
+        final double queueSize = Math.sqrt(estimatedLimit);
+        final double newLimit = estimatedLimit * gradient + queueSize;
+        estimatedLimit = Math.min(maxLimit, Math.max(minLimit, estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.limit;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Priority class of Data Adapter requests used for load shedding. Under overload requests of lower classes are
+ * rejected first, so that requests which complete a user's login keep being served. Classes are ordered from
+ * the highest priority.
+ */
+public enum RequestPriority {
+
+    /**
+     * Requests which complete authentication of a user, e.g. verification of credentials or SMS authorization code.
+     */
+    CRITICAL("critical", 1.0, 50, 100),
+
+    /**
+     * Regular requests of an authentication flow.
+     */
+    NORMAL("normal", 0.9, 20, 20),
+
+    /**
+     * Requests whose result is not needed for completion of the operation, e.g. notifications of form data
+     * changes, they are shed first.
+     */
+    SHEDDABLE("sheddable", 0.6, 0, 0);
+
+    private static final Set<String> CRITICAL_PATHS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "/api/auth/user/authenticate",
+            "/api/auth/sms/verify",
+            "/api/auth/sms/password/verify",
+            "/api/auth/certificate/verify"
+    )));
+
+    private static final Set<String> SHEDDABLE_PATHS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "/api/operation/formdata/change",
+            "/api/auth/consent/save"
+    )));
+
+    private final String name;
+    private final double defaultLimitShare;
+    private final int defaultQueueCapacity;
+    private final long defaultMaxWaitInMilliseconds;
+
+    RequestPriority(String name, double defaultLimitShare, int defaultQueueCapacity, long defaultMaxWaitInMilliseconds) {
+        this.name = name;
+        this.defaultLimitShare = defaultLimitShare;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+        this.defaultMaxWaitInMilliseconds = defaultMaxWaitInMilliseconds;
+    }
+
+    /**
+     * Get priority class name used in configuration and metrics.
+     * @return Priority class name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get default share of the concurrency limit available to the class.
+     * @return Default limit share.
+     */
+    public double getDefaultLimitShare() {
+        return defaultLimitShare;
+    }
+
+    /**
+     * Get default number of requests of the class which may wait for a free slot.
+     * @return Default queue capacity.
+     */
+    public int getDefaultQueueCapacity() {
+        return defaultQueueCapacity;
+    }
+
+    /**
+     * Get default maximum time a request of the class waits for a free slot.
+     * @return Default maximum wait time in milliseconds.
+     */
+    public long getDefaultMaxWaitInMilliseconds() {
+        return defaultMaxWaitInMilliseconds;
+    }
+
+    /**
+     * Resolve priority class of a request path. The path is normalized the same way Spring MVC matches it to
+     * a controller, i.e. path parameters, repeated slashes and trailing slashes are ignored.
+     * @param path Request path without context path.
+     * @return Priority class.
+     */
+    public static RequestPriority resolve(String path) {
+        final String normalizedPath = normalize(path);
+        if (CRITICAL_PATHS.contains(normalizedPath)) {
+            return CRITICAL;
+        }
+        if (SHEDDABLE_PATHS.contains(normalizedPath)) {
+            return SHEDDABLE;
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Remove path parameters, e.g. ";jsessionid=...", repeated slashes and trailing slashes from the path.
+     */
+    private static String normalize(String path) {
+        final StringBuilder normalized = new StringBuilder(path.length());
+        boolean pathParameter = false;
+        for (int i = 0; i < path.length(); i++) {
+            final char c = path.charAt(i);
+            if (c == '/') {
+                pathParameter = false;
+                if (normalized.length() == 0 || normalized.charAt(normalized.length() - 1) != '/') {
+                    normalized.append(c);
+                }
+            } else if (c == ';') {
+                pathParameter = true;
+            } else if (!pathParameter) {
+                normalized.append(c);
+            }
+        }
+        while (normalized.length() > 1 && normalized.charAt(normalized.length() - 1) == '/') {
+            normalized.setLength(normalized.length() - 1);
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.metrics;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.MethodMetricsConfiguration;
+import io.getlime.security.powerauth.lib.dataadapter.model.enumeration.SmsAuthorizationResult;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.*;
+import io.getlime.security.powerauth.lib.nextstep.model.enumeration.AuthMethod;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service which measures method calls of the Data Adapter and of the internal services. Each call is recorded
+ * by a timer tagged by component, operation name, authentication method and result. The result is derived from
+ * the authentication, authorization or delivery result in the response, calls which end with an exception are
+ * recorded with result {@code error} and the exception class name.
+ *
+ * Timers are cached, so that a measured call does not allocate a new timer builder and histogram configuration.
+ */
+@Service
+public class MethodMetricsService {
+
+    private static final String METRIC_NAME = "powerauth.dataadapter.method";
+
+    private static final String AUTH_METHOD_NONE = "none";
+    private static final String RESULT_SUCCEEDED = "succeeded";
+    private static final String RESULT_ERROR = "error";
+    private static final String EXCEPTION_NONE = "none";
+
+    private final MethodMetricsConfiguration configuration;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Service constructor.
+     * @param configuration Method metrics configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public MethodMetricsService(MethodMetricsConfiguration configuration, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Proceed with a method invocation and record its duration.
+     * @param component Name of the measured component.
+     * @param invocation Method invocation.
+     * @return Result of the invocation.
+     * @throws Throwable Thrown when the invocation fails.
+     */
+    public Object invoke(String component, MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        final long start = System.nanoTime();
+        Object result = null;
+        Throwable error = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } catch (Throwable t) {
+            error = t;
+            throw t;
+        } finally {
+            final long durationNanos = System.nanoTime() - start;
+            final String operation = invocation.getMethod().getName();
+            final String authMethod = resolveAuthMethod(invocation.getArguments());
+            final String resultTag = error == null ? resolveResult(result) : RESULT_ERROR;
+            final String exception = error == null ? EXCEPTION_NONE : error.getClass().getSimpleName();
+            getTimer(component, operation, authMethod, resultTag, exception).record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer getTimer(String component, String operation, String authMethod, String result, String exception) {
+        final String key = component + '|' + operation + '|' + authMethod + '|' + result + '|' + exception;
+        final Timer timer = timers.get(key);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(key, k -> {
+            final Timer.Builder builder = Timer.builder(METRIC_NAME)
+                    .description("Duration of Data Adapter and internal service method calls")
+                    .tags("component", component, "operation", operation, "authMethod", authMethod,
+                            "result", result, "exception", exception)
+                    .publishPercentileHistogram(configuration.isPercentileHistogram())
+                    .minimumExpectedValue(Duration.ofMillis(configuration.getMinimumExpectedValueInMilliseconds()))
+                    .maximumExpectedValue(Duration.ofMillis(configuration.getMaximumExpectedValueInMilliseconds()));
+            final double[] percentiles = configuration.getPercentiles();
+            if (percentiles != null && percentiles.length > 0) {
+                builder.publishPercentiles(percentiles);
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    /**
+     * Resolve authentication method from method arguments.
+     * @param arguments Method arguments.
+     * @return Authentication method tag value.
+     */
+    private String resolveAuthMethod(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof AuthMethod) {
+                return ((AuthMethod) argument).name();
+            }
+        }
+        return AUTH_METHOD_NONE;
+    }
+
+    /**
+     * Resolve result of a successful call from the returned value.
+     * @param value Returned value.
+     * @return Result tag value.
+     */
+    private String resolveResult(Object value) {
+        if (value instanceof Enum) {
+            return toTag((Enum<?>) value);
+        }
+        if (value instanceof UserAuthenticationResponse) {
+            return toTag(((UserAuthenticationResponse) value).getAuthenticationResult());
+        }
+        if (value instanceof VerifySmsAuthorizationResponse) {
+            return toTag(((VerifySmsAuthorizationResponse) value).getSmsAuthorizationResult());
+        }
+        if (value instanceof VerifySmsAndPasswordResponse) {
+            final VerifySmsAndPasswordResponse response = (VerifySmsAndPasswordResponse) value;
+            if (response.getSmsAuthorizationResult() != SmsAuthorizationResult.SUCCEEDED) {
+                return toTag(response.getSmsAuthorizationResult());
+            }
+            return toTag(response.getUserAuthenticationResult());
+        }
+        if (value instanceof CreateSmsAuthorizationResponse) {
+            return toTag(((CreateSmsAuthorizationResponse) value).getSmsDeliveryResult());
+        }
+        if (value instanceof SendAuthorizationSmsResponse) {
+            return toTag(((SendAuthorizationSmsResponse) value).getSmsDeliveryResult());
+        }
+        return RESULT_SUCCEEDED;
+    }
+
+    private String toTag(Enum<?> value) {
+        if (value == null) {
+            return RESULT_SUCCEEDED;
+        }
+        return value.name().toLowerCase();
+    }
+}
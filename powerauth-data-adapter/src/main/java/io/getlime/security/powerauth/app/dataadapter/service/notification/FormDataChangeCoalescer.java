@@ -0,0 +1,261 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import com.google.common.util.concurrent.Striped;
+import io.getlime.security.powerauth.app.dataadapter.configuration.NotificationConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.FormDataChangeNotificationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Service which coalesces delivery of bursts of form data change notifications.
+ *
+ * Each change is audited and persisted in the notification journal before it is acknowledged, only its delivery is
+ * coalesced. Changes are keyed by operation ID and change type. Delivery of a change is held until no newer change with
+ * the same key arrives for the quiet period, newer changes replace the held one, so only the latest state is delivered.
+ * The maximum delay limits how long a change can be held while the user keeps changing the form. Held changes of
+ * an operation are released before the operation change notification using {@link #flush(String)}. Held changes are
+ * pending in the journal and they are replayed after a restart. A superseded change is no longer pending, however it
+ * can still be replayed in case the checkpoint did not advance past it.
+ *
+ * Coalescing is applied only when notifications are delivered asynchronously. In synchronous mode the notification
+ * is forwarded before the request completes, so that delivery errors are reported to the caller. A held change is
+ * delivered after the request completed, it is detached from the request deadline like other asynchronous
+ * notifications.
+ */
+@Service
+public class FormDataChangeCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FormDataChangeCoalescer.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.notification.coalescing";
+
+    private final NotificationPipelineService notificationPipelineService;
+    private final boolean enabled;
+    private final long quietPeriodInMilliseconds;
+    private final long maxDelayInMilliseconds;
+
+    private final ConcurrentMap<ChangeKey, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+    private final Striped<Lock> operationLocks = Striped.lock(64);
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter coalescedCounter;
+    private final Counter forwardedCounter;
+
+    /**
+     * Key of coalesced changes.
+     */
+    private static final class ChangeKey {
+
+        private final String operationId;
+        private final Object changeType;
+
+        private ChangeKey(String operationId, Object changeType) {
+            this.operationId = operationId;
+            this.changeType = changeType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final ChangeKey changeKey = (ChangeKey) o;
+            return Objects.equals(operationId, changeKey.operationId) && Objects.equals(changeType, changeKey.changeType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operationId, changeType);
+        }
+    }
+
+    /**
+     * Change held during the quiet period.
+     */
+    private static final class PendingChange {
+
+        private final Notification notification;
+        private final long firstReceived;
+        private final ScheduledFuture<?> flushFuture;
+
+        private PendingChange(Notification notification, long firstReceived, ScheduledFuture<?> flushFuture) {
+            this.notification = notification;
+            this.firstReceived = firstReceived;
+            this.flushFuture = flushFuture;
+        }
+    }
+
+    /**
+     * Service constructor.
+     * @param notificationPipelineService Notification pipeline service.
+     * @param configuration Notification configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public FormDataChangeCoalescer(NotificationPipelineService notificationPipelineService, NotificationConfiguration configuration, MeterRegistry meterRegistry) {
+        this.notificationPipelineService = notificationPipelineService;
+        this.quietPeriodInMilliseconds = configuration.getCoalescingQuietPeriodInMilliseconds();
+        this.maxDelayInMilliseconds = Math.max(configuration.getCoalescingMaxDelayInMilliseconds(), quietPeriodInMilliseconds);
+        this.enabled = quietPeriodInMilliseconds > 0 && configuration.isAsyncEnabled();
+        if (quietPeriodInMilliseconds > 0 && !configuration.isAsyncEnabled()) {
+            logger.warn("Coalescing of form data changes requires asynchronous notification delivery, coalescing is disabled");
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            final Thread thread = new Thread(runnable, "form-data-coalescer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.coalescedCounter = Counter.builder(METRIC_PREFIX + ".superseded")
+                .description("Number of form data changes replaced by a newer change before delivery")
+                .register(meterRegistry);
+        this.forwardedCounter = Counter.builder(METRIC_PREFIX + ".forwarded")
+                .description("Number of coalesced form data changes released for delivery")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pending", pendingChanges, Map::size)
+                .description("Number of form data changes held during the quiet period")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Submit a form data change notification. The change is forwarded immediately in case coalescing is disabled.
+     * @param request Form data change notification request.
+     * @throws DataAdapterRemoteException Thrown when the change cannot be persisted or when it is forwarded immediately and forwarding fails.
+     */
+    public void submit(FormDataChangeNotificationRequest request) throws DataAdapterRemoteException {
+        if (!enabled || request.getFormDataChange() == null) {
+            notificationPipelineService.formDataChanged(request);
+            return;
+        }
+        // The change is audited and persisted before it is acknowledged, only its delivery is coalesced
+        final Notification notification = notificationPipelineService.holdFormDataChange(request);
+        final ChangeKey key = new ChangeKey(request.getOperationContext().getId(), request.getFormDataChange().getType());
+        // The operation lock makes sure that a scheduled flush which is already running does not forward
+        // the replaced change while the newer change keeps waiting
+        final Lock lock = operationLocks.get(key.operationId);
+        lock.lock();
+        try {
+            final long now = System.currentTimeMillis();
+            final PendingChange previous = pendingChanges.get(key);
+            if (previous != null && previous.notification.getSequence() > notification.getSequence()) {
+                // A newer change of a concurrent request is already held
+                notificationPipelineService.discard(notification);
+                coalescedCounter.increment();
+                return;
+            }
+            final long firstReceived;
+            if (previous == null) {
+                firstReceived = now;
+            } else {
+                previous.flushFuture.cancel(false);
+                notificationPipelineService.discard(previous.notification);
+                coalescedCounter.increment();
+                firstReceived = previous.firstReceived;
+            }
+            final long delay = Math.min(quietPeriodInMilliseconds, firstReceived + maxDelayInMilliseconds - now);
+            final ScheduledFuture<?> flushFuture = scheduler.schedule(() -> flushScheduled(key), Math.max(delay, 0), TimeUnit.MILLISECONDS);
+            pendingChanges.put(key, new PendingChange(notification, firstReceived, flushFuture));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release all held changes of an operation for delivery, e.g. before the operation change notification is accepted.
+     * @param operationId Operation ID.
+     */
+    public void flush(String operationId) {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+        final Lock lock = operationLocks.get(operationId);
+        lock.lock();
+        try {
+            final List<PendingChange> changes = new ArrayList<>();
+            for (ChangeKey key : pendingChanges.keySet()) {
+                if (Objects.equals(operationId, key.operationId)) {
+                    final PendingChange change = pendingChanges.remove(key);
+                    if (change != null) {
+                        change.flushFuture.cancel(false);
+                        changes.add(change);
+                    }
+                }
+            }
+            changes.sort(Comparator.comparingLong(change -> change.notification.getSequence()));
+            for (PendingChange change : changes) {
+                forward(change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release a held change after the quiet period. The operation lock makes sure that a change released
+     * concurrently with {@link #flush(String)} is released before the operation change is accepted.
+     * @param key Change key.
+     */
+    private void flushScheduled(ChangeKey key) {
+        final Lock lock = operationLocks.get(key.operationId);
+        lock.lock();
+        try {
+            final PendingChange change = pendingChanges.get(key);
+            if (change == null || change.flushFuture.getDelay(TimeUnit.MILLISECONDS) > 0) {
+                // The change was already forwarded or replaced by a newer change with a later flush
+                return;
+            }
+            pendingChanges.remove(key, change);
+            forward(change);
+        } catch (RuntimeException ex) {
+            logger.warn("Form data change could not be released, operation ID: {}, error: {}", key.operationId, ex.getMessage());
+            logger.debug(ex.getMessage(), ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forward(PendingChange change) {
+        notificationPipelineService.release(change.notification);
+        forwardedCounter.increment();
+    }
+
+    /**
+     * Release all held changes and stop the scheduler.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        final Set<String> operationIds = new HashSet<>();
+        pendingChanges.keySet().forEach(key -> operationIds.add(key.operationId));
+        for (String operationId : operationIds) {
+            flush(operationId);
+        }
+    }
+
+}
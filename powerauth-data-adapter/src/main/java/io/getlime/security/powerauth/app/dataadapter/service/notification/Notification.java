@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.FormDataChangeNotificationRequest;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.OperationChangeNotificationRequest;
+
+/**
+ * Notification stored as JSON payload in the notification journal.
+ */
+public class Notification {
+
+    private long sequence;
+    private NotificationType type;
+    private long timestamp;
+    private OperationChangeNotificationRequest operationChangeRequest;
+    private FormDataChangeNotificationRequest formDataChangeRequest;
+
+    /**
+     * Default constructor.
+     */
+    public Notification() {
+    }
+
+    /**
+     * Constructor for operation change notification.
+     * @param timestamp Timestamp when the notification was accepted.
+     * @param request Operation change notification request.
+     */
+    public Notification(long timestamp, OperationChangeNotificationRequest request) {
+        this.type = NotificationType.OPERATION_CHANGE;
+        this.timestamp = timestamp;
+        this.operationChangeRequest = request;
+    }
+
+    /**
+     * Constructor for form data change notification.
+     * @param timestamp Timestamp when the notification was accepted.
+     * @param request Form data change notification request.
+     */
+    public Notification(long timestamp, FormDataChangeNotificationRequest request) {
+        this.type = NotificationType.FORM_DATA_CHANGE;
+        this.timestamp = timestamp;
+        this.formDataChangeRequest = request;
+    }
+
+    /**
+     * Get journal sequence number. The sequence number is assigned by the journal and it is not part of the payload.
+     * @return Sequence number.
+     */
+    @JsonIgnore
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Set journal sequence number.
+     * @param sequence Sequence number.
+     */
+    @JsonIgnore
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Get notification type.
+     * @return Notification type.
+     */
+    public NotificationType getType() {
+        return type;
+    }
+
+    /**
+     * Set notification type.
+     * @param type Notification type.
+     */
+    public void setType(NotificationType type) {
+        this.type = type;
+    }
+
+    /**
+     * Get timestamp when the notification was accepted.
+     * @return Timestamp in milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Set timestamp when the notification was accepted.
+     * @param timestamp Timestamp in milliseconds.
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Get operation change notification request.
+     * @return Operation change notification request.
+     */
+    public OperationChangeNotificationRequest getOperationChangeRequest() {
+        return operationChangeRequest;
+    }
+
+    /**
+     * Set operation change notification request.
+     * @param operationChangeRequest Operation change notification request.
+     */
+    public void setOperationChangeRequest(OperationChangeNotificationRequest operationChangeRequest) {
+        this.operationChangeRequest = operationChangeRequest;
+    }
+
+    /**
+     * Get form data change notification request.
+     * @return Form data change notification request.
+     */
+    public FormDataChangeNotificationRequest getFormDataChangeRequest() {
+        return formDataChangeRequest;
+    }
+
+    /**
+     * Set form data change notification request.
+     * @param formDataChangeRequest Form data change notification request.
+     */
+    public void setFormDataChangeRequest(FormDataChangeNotificationRequest formDataChangeRequest) {
+        this.formDataChangeRequest = formDataChangeRequest;
+    }
+
+    /**
+     * Get ID of operation the notification relates to.
+     * @return Operation ID.
+     */
+    @JsonIgnore
+    public String getOperationId() {
+        if (type == NotificationType.OPERATION_CHANGE) {
+            return operationChangeRequest.getOperationContext().getId();
+        }
+        return formDataChangeRequest.getOperationContext().getId();
+    }
+
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import io.getlime.security.powerauth.app.dataadapter.configuration.NotificationConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.service.audit.AuditEventType;
+import io.getlime.security.powerauth.app.dataadapter.service.audit.AuditService;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.getlime.security.powerauth.app.dataadapter.service.journal.EventJournal;
+import io.getlime.security.powerauth.app.dataadapter.service.journal.JournalReader;
+import io.getlime.security.powerauth.app.dataadapter.service.journal.JournalRecord;
+import io.getlime.security.powerauth.app.dataadapter.service.threads.PinningDiagnostics;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.AuthMethodChoice;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.BankAccountChoice;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.FormDataChange;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.FormDataChangeNotificationRequest;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.OperationChangeNotificationRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service which delivers operation change and form data change notifications to the Data Adapter implementation.
+ *
+ * In asynchronous mode each notification is appended to the notification event journal and acknowledged as soon as
+ * the journal is flushed to disk. Delivery lanes deliver a notification only after it is flushed to disk, so that
+ * a delivered notification is never lost from the journal.
+ * Notifications are delivered in batches by delivery lanes. All notifications for the same operation are assigned
+ * to the same lane, so they are delivered in the order in which they were accepted. Failed deliveries are retried
+ * with exponential backoff, later notifications in the lane wait for the retries to preserve the ordering.
+ * The checkpoint file contains the sequence number up to which all notifications were delivered. Undelivered
+ * notifications are replayed from the journal after restart, journal segments with delivered notifications are deleted.
+ * Notifications which could not be delivered within the maximum number of attempts are moved to the dead letter journal
+ * {@code notifications-dead-letter}, which can be exported using {@link io.getlime.security.powerauth.app.dataadapter.service.journal.JournalExportTool}.
+ * In case a notification cannot be moved to the dead letter journal, the checkpoint does not advance past it and
+ * the notification is replayed after restart.
+ *
+ * Audit events of notifications are recorded once when a notification is accepted, so that delivery retries and
+ * replays do not record duplicate audit events.
+ *
+ * Delivery of a form data change can be held by the caller using {@link #holdFormDataChange(FormDataChangeNotificationRequest)},
+ * the change is audited and persisted when it is accepted, only its delivery waits until it is released or discarded.
+ * A held notification stays pending, so the checkpoint does not advance past it and it is replayed after restart.
+ *
+ * In synchronous mode the notification is delivered within the request, the delivery is not started when the remaining
+ * time until the request deadline is insufficient. A notification accepted in asynchronous mode is detached from the
+ * request, its delivery and retries are not limited by the request deadline.
+ */
+@Service
+public class NotificationPipelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPipelineService.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.notification";
+
+    private static final String JOURNAL_NAME = "notifications";
+    private static final String DEAD_LETTER_JOURNAL_NAME = "notifications-dead-letter";
+    private static final String CHECKPOINT_FILE_NAME = "notifications.checkpoint";
+    private static final int NOTIFICATION_RECORD_TYPE = 1;
+    private static final String DEADLINE_OPERATION = "notification.delivery";
+
+    private final DataAdapter dataAdapter;
+    private final NotificationConfiguration configuration;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final PinningDiagnostics pinningDiagnostics;
+    private final AuditService auditService;
+    private final DeadlineService deadlineService;
+
+    private final ConcurrentSkipListMap<Long, Long> pendingTimestamps = new ConcurrentSkipListMap<>();
+    private final Object acceptLock = new Object();
+
+    private EventJournal journal;
+    private EventJournal deadLetterJournal;
+    private Path checkpointPath;
+    private List<BlockingQueue<Notification>> laneQueues;
+    private ExecutorService laneExecutor;
+    private ScheduledExecutorService checkpointExecutor;
+    private volatile boolean running;
+    private volatile long checkpoint;
+
+    private Timer lagTimer;
+    private Counter deliveredCounter;
+    private Counter retryCounter;
+    private Counter failedCounter;
+    private Counter deadLetterCounter;
+
+    /**
+     * Service constructor.
+     * @param dataAdapter Data adapter.
+     * @param configuration Notification configuration.
+     * @param objectMapper Object mapper.
+     * @param meterRegistry Meter registry.
+     * @param pinningDiagnostics Diagnostics of virtual thread pinning.
+     * @param auditService Audit service.
+     * @param deadlineService Deadline service.
+     */
+    @Autowired
+    public NotificationPipelineService(DataAdapter dataAdapter, NotificationConfiguration configuration, ObjectMapper objectMapper,
+                                       MeterRegistry meterRegistry, PinningDiagnostics pinningDiagnostics, AuditService auditService,
+                                       DeadlineService deadlineService) {
+        this.dataAdapter = dataAdapter;
+        this.configuration = configuration;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.pinningDiagnostics = pinningDiagnostics;
+        this.auditService = auditService;
+        this.deadlineService = deadlineService;
+    }
+
+    /**
+     * Open the notification journal, replay undelivered notifications and start delivery lanes.
+     * @throws IOException Thrown when notification journal cannot be opened or read.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!configuration.isAsyncEnabled()) {
+            return;
+        }
+        lagTimer = Timer.builder(METRIC_PREFIX + ".delivery.lag")
+                .description("Time between acceptance and delivery of a notification")
+                .register(meterRegistry);
+        deliveredCounter = Counter.builder(METRIC_PREFIX + ".delivered")
+                .description("Number of delivered notifications")
+                .register(meterRegistry);
+        retryCounter = Counter.builder(METRIC_PREFIX + ".retry")
+                .description("Number of notification delivery retries")
+                .register(meterRegistry);
+        failedCounter = Counter.builder(METRIC_PREFIX + ".failed")
+                .description("Number of notifications which could not be delivered")
+                .register(meterRegistry);
+        deadLetterCounter = Counter.builder(METRIC_PREFIX + ".deadletter")
+                .description("Number of undelivered notifications moved to the dead letter journal")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".pending", pendingTimestamps, Map::size)
+                .description("Number of accepted notifications waiting for delivery")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".lag.oldest", this, NotificationPipelineService::getOldestPendingAgeInMilliseconds)
+                .description("Age of the oldest notification waiting for delivery in milliseconds")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        final Path journalDirectory = Paths.get(configuration.getJournalDirectory());
+        journal = new EventJournal(journalDirectory, JOURNAL_NAME,
+                configuration.getSegmentSizeInMegabytes() * 1024 * 1024, 0,
+                configuration.getCommitWindowInMicroseconds());
+        deadLetterJournal = new EventJournal(journalDirectory, DEAD_LETTER_JOURNAL_NAME,
+                configuration.getSegmentSizeInMegabytes() * 1024 * 1024, 0, 0);
+        checkpointPath = journalDirectory.resolve(CHECKPOINT_FILE_NAME);
+        laneQueues = new ArrayList<>();
+        for (int i = 0; i < configuration.getLaneCount(); i++) {
+            laneQueues.add(new LinkedBlockingQueue<>());
+        }
+        replay();
+
+        running = true;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        laneExecutor = Executors.newFixedThreadPool(configuration.getLaneCount(), runnable -> {
+            final Thread thread = new Thread(runnable, "notification-delivery-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (BlockingQueue<Notification> laneQueue : laneQueues) {
+            laneExecutor.execute(() -> deliverLane(laneQueue));
+        }
+        checkpointExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "notification-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = configuration.getCheckpointIntervalInMilliseconds();
+        checkpointExecutor.scheduleWithFixedDelay(this::writeCheckpoint, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("Notification pipeline started, lanes: {}, replayed notifications: {}", laneQueues.size(), pendingTimestamps.size());
+    }
+
+    /**
+     * Accept an operation change notification.
+     * @param request Operation change notification request.
+     * @throws DataAdapterRemoteException Thrown when notification cannot be delivered or persisted.
+     */
+    public void operationChanged(OperationChangeNotificationRequest request) throws DataAdapterRemoteException {
+        if (!configuration.isAsyncEnabled()) {
+            deadlineService.checkRemaining(DEADLINE_OPERATION);
+        }
+        auditService.record(AuditEventType.OPERATION_CHANGE, request.getUserId(), request.getOrganizationId(), request.getOperationContext().getId(),
+                Collections.singletonMap("operationChange", request.getOperationChange().toString()));
+        if (!configuration.isAsyncEnabled()) {
+            dataAdapter.operationChangedNotification(request.getUserId(), request.getOrganizationId(), request.getOperationChange(), request.getOperationContext());
+            return;
+        }
+        accept(new Notification(System.currentTimeMillis(), request));
+    }
+
+    /**
+     * Accept a form data change notification.
+     * @param request Form data change notification request.
+     * @throws DataAdapterRemoteException Thrown when notification cannot be delivered or persisted.
+     */
+    public void formDataChanged(FormDataChangeNotificationRequest request) throws DataAdapterRemoteException {
+        if (!configuration.isAsyncEnabled()) {
+            deadlineService.checkRemaining(DEADLINE_OPERATION);
+        }
+        auditFormDataChange(request);
+        if (!configuration.isAsyncEnabled()) {
+            dataAdapter.formDataChangedNotification(request.getUserId(), request.getOrganizationId(), request.getFormDataChange(), request.getOperationContext());
+            return;
+        }
+        accept(new Notification(System.currentTimeMillis(), request));
+    }
+
+    /**
+     * Accept a form data change notification whose delivery is held by the caller. The notification is audited and
+     * persisted in the journal, it is delivered once it is released using {@link #release(Notification)} or it is
+     * dropped using {@link #discard(Notification)}. Delivery can be held only in asynchronous mode.
+     * @param request Form data change notification request.
+     * @return Held notification.
+     * @throws DataAdapterRemoteException Thrown when notification cannot be persisted.
+     */
+    public Notification holdFormDataChange(FormDataChangeNotificationRequest request) throws DataAdapterRemoteException {
+        if (!configuration.isAsyncEnabled()) {
+            throw new IllegalStateException("Delivery of notifications can be held only in asynchronous mode");
+        }
+        auditFormDataChange(request);
+        final Notification notification = new Notification(System.currentTimeMillis(), request);
+        persist(notification, false);
+        return notification;
+    }
+
+    /**
+     * Release a held notification for delivery.
+     * @param notification Held notification.
+     */
+    public void release(Notification notification) {
+        laneFor(notification).add(notification);
+    }
+
+    /**
+     * Discard a held notification which was superseded by a newer notification. The notification remains in
+     * the journal, it is not delivered unless it is replayed after restart.
+     * @param notification Held notification.
+     */
+    public void discard(Notification notification) {
+        pendingTimestamps.remove(notification.getSequence());
+    }
+
+    /**
+     * Record audit event of a form data change.
+     * @param request Form data change notification request.
+     * @throws DataAdapterRemoteException Thrown when the audit event cannot be recorded.
+     */
+    private void auditFormDataChange(FormDataChangeNotificationRequest request) throws DataAdapterRemoteException {
+        final FormDataChange change = request.getFormDataChange();
+        final String operationId = request.getOperationContext().getId();
+        if (change instanceof BankAccountChoice) {
+            auditService.record(AuditEventType.BANK_ACCOUNT_CHOICE, request.getUserId(), request.getOrganizationId(), operationId,
+                    Collections.singletonMap("bankAccountId", ((BankAccountChoice) change).getBankAccountId()));
+        } else if (change instanceof AuthMethodChoice) {
+            auditService.record(AuditEventType.AUTH_METHOD_CHOICE, request.getUserId(), request.getOrganizationId(), operationId,
+                    Collections.singletonMap("authMethod", ((AuthMethodChoice) change).getChosenAuthMethod().toString()));
+        }
+    }
+
+    /**
+     * Persist the notification in the journal, assign it to a delivery lane and wait until the journal is flushed.
+     * The lane delivers the notification only after the journal is flushed.
+     * @param notification Notification.
+     * @throws DataAdapterRemoteException Thrown when notification cannot be persisted.
+     */
+    private void accept(Notification notification) throws DataAdapterRemoteException {
+        persist(notification, true);
+    }
+
+    /**
+     * Persist the notification in the journal, register it as pending and wait until the journal is flushed.
+     * @param notification Notification.
+     * @param deliver Whether the notification is assigned to a delivery lane, otherwise its delivery is held.
+     * @throws DataAdapterRemoteException Thrown when notification cannot be persisted.
+     */
+    private void persist(Notification notification, boolean deliver) throws DataAdapterRemoteException {
+        try {
+            final byte[] payload = objectMapper.writeValueAsBytes(notification);
+            final long notificationSequence;
+            // Notifications are assigned to lanes in sequence order and registered as pending before the checkpoint
+            // can observe their sequence number, the journal write pins a virtual thread to its carrier thread
+            final long pinningStart = pinningDiagnostics.begin();
+            synchronized (acceptLock) {
+                notificationSequence = journal.append(NOTIFICATION_RECORD_TYPE, payload);
+                notification.setSequence(notificationSequence);
+                pendingTimestamps.put(notificationSequence, notification.getTimestamp());
+                if (deliver) {
+                    laneFor(notification).add(notification);
+                }
+            }
+            pinningDiagnostics.end("notification.journal.append", pinningStart);
+            journal.awaitSync(notificationSequence);
+        } catch (IOException ex) {
+            throw new DataAdapterRemoteException("Notification could not be persisted", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAdapterRemoteException("Notification persistence was interrupted", ex);
+        }
+    }
+
+    /**
+     * Replay notifications which were not delivered before the previous shutdown.
+     * @throws IOException Thrown when notification journal cannot be read.
+     */
+    private void replay() throws IOException {
+        checkpoint = readCheckpoint();
+        try (JournalReader reader = journal.openReader(checkpoint + 1)) {
+            while (reader.hasNext()) {
+                final JournalRecord record = reader.next();
+                final Notification notification = objectMapper.readValue(record.getPayload(), Notification.class);
+                notification.setSequence(record.getSequence());
+                pendingTimestamps.put(notification.getSequence(), notification.getTimestamp());
+                laneFor(notification).add(notification);
+            }
+        }
+    }
+
+    /**
+     * Deliver notifications from a lane queue in batches until the pipeline is stopped.
+     * @param laneQueue Lane queue.
+     */
+    private void deliverLane(BlockingQueue<Notification> laneQueue) {
+        final List<Notification> batch = new ArrayList<>(configuration.getBatchSize());
+        while (running) {
+            try {
+                final Notification first = laneQueue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                laneQueue.drainTo(batch, configuration.getBatchSize() - 1);
+                // Held notifications are released after later notifications, wait for the highest sequence of the batch
+                long lastSequence = 0;
+                for (Notification notification : batch) {
+                    lastSequence = Math.max(lastSequence, notification.getSequence());
+                }
+                journal.awaitSync(lastSequence);
+                for (Notification notification : batch) {
+                    deliverWithRetry(notification);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException ex) {
+                // The journal was closed, undelivered notifications are replayed after restart
+                logger.debug("Notification lane stopped, error: {}", ex.getMessage());
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Deliver a single notification, retry the delivery with exponential backoff in case it fails.
+     * @param notification Notification.
+     * @throws InterruptedException Thrown when the lane is interrupted during backoff.
+     */
+    private void deliverWithRetry(Notification notification) throws InterruptedException {
+        long backoff = configuration.getRetryBackoffInMilliseconds();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                deliver(notification);
+                deliveredCounter.increment();
+                break;
+            } catch (DataAdapterRemoteException | RuntimeException ex) {
+                if (attempt >= configuration.getMaxDeliveryAttempts()) {
+                    failedCounter.increment();
+                    logger.error("Notification delivery failed after {} attempts, sequence: {}, operation ID: {}, error: {}",
+                            attempt, notification.getSequence(), notification.getOperationId(), ex.getMessage());
+                    logger.debug(ex.getMessage(), ex);
+                    if (!moveToDeadLetter(notification)) {
+                        // The notification stays pending, the checkpoint does not advance past it
+                        return;
+                    }
+                    break;
+                }
+                retryCounter.increment();
+                logger.warn("Notification delivery failed, retrying in {} ms, sequence: {}, operation ID: {}, error: {}",
+                        backoff, notification.getSequence(), notification.getOperationId(), ex.getMessage());
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+        lagTimer.record(System.currentTimeMillis() - notification.getTimestamp(), TimeUnit.MILLISECONDS);
+        pendingTimestamps.remove(notification.getSequence());
+    }
+
+    /**
+     * Move an undelivered notification to the dead letter journal.
+     * @param notification Notification.
+     * @return Whether the notification was persisted in the dead letter journal.
+     * @throws InterruptedException Thrown when the lane is interrupted while waiting for flush.
+     */
+    private boolean moveToDeadLetter(Notification notification) throws InterruptedException {
+        try {
+            deadLetterJournal.appendAndSync(NOTIFICATION_RECORD_TYPE, objectMapper.writeValueAsBytes(notification));
+            deadLetterCounter.increment();
+            return true;
+        } catch (IOException ex) {
+            logger.error("Notification could not be moved to the dead letter journal, it is replayed after restart, sequence: {}, error: {}",
+                    notification.getSequence(), ex.getMessage());
+            logger.debug(ex.getMessage(), ex);
+            return false;
+        }
+    }
+
+    private void deliver(Notification notification) throws DataAdapterRemoteException {
+        switch (notification.getType()) {
+            case OPERATION_CHANGE: {
+                final OperationChangeNotificationRequest request = notification.getOperationChangeRequest();
+                dataAdapter.operationChangedNotification(request.getUserId(), request.getOrganizationId(), request.getOperationChange(), request.getOperationContext());
+                break;
+            }
+            case FORM_DATA_CHANGE: {
+                final FormDataChangeNotificationRequest request = notification.getFormDataChangeRequest();
+                dataAdapter.formDataChangedNotification(request.getUserId(), request.getOrganizationId(), request.getFormDataChange(), request.getOperationContext());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write checkpoint of delivered notifications and delete journal segments with delivered notifications only.
+     */
+    private void writeCheckpoint() {
+        try {
+            final long delivered;
+            synchronized (acceptLock) {
+                final Map.Entry<Long, Long> oldestPending = pendingTimestamps.firstEntry();
+                delivered = oldestPending == null ? journal.getLastSequence() : oldestPending.getKey() - 1;
+            }
+            if (delivered > checkpoint) {
+                writeCheckpoint(delivered);
+                checkpoint = delivered;
+                journal.deleteSegmentsUpTo(delivered);
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Notification journal checkpoint failed, error: {}", ex.getMessage());
+            logger.debug(ex.getMessage(), ex);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return 0L;
+        }
+        final String value = new String(Files.readAllBytes(checkpointPath), StandardCharsets.UTF_8).trim();
+        return value.isEmpty() ? 0L : Long.parseLong(value);
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        final Path temporaryPath = checkpointPath.resolveSibling(CHECKPOINT_FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temporaryPath, checkpointPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private BlockingQueue<Notification> laneFor(Notification notification) {
+        final String operationId = notification.getOperationId();
+        final int hash = operationId == null ? 0 : operationId.hashCode();
+        return laneQueues.get(Math.floorMod(hash, laneQueues.size()));
+    }
+
+    private double getOldestPendingAgeInMilliseconds() {
+        final Map.Entry<Long, Long> oldestPending = pendingTimestamps.firstEntry();
+        return oldestPending == null ? 0 : System.currentTimeMillis() - oldestPending.getValue();
+    }
+
+    /**
+     * Stop delivery lanes and close the notification journal. Undelivered notifications are replayed after restart.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        laneExecutor.shutdownNow();
+        checkpointExecutor.shutdown();
+        try {
+            laneExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            writeCheckpoint();
+            journal.close();
+            deadLetterJournal.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.warn("Notification journal could not be closed, error: {}", ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+/**
+ * Type of notification delivered by the notification pipeline.
+ */
+public enum NotificationType {
+
+    /**
+     * Operation change notification.
+     */
+    OPERATION_CHANGE,
+
+    /**
+     * Operation form data change notification.
+     */
+    FORM_DATA_CHANGE
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.service.context.OperationContextCache;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.OperationChangeNotificationRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service which handles operation change notifications received by the REST endpoint, the batch endpoint and
+ * the embedded Data Adapter.
+ */
+@Service
+public class OperationChangeService {
+
+    private final NotificationPipelineService notificationPipelineService;
+    private final FormDataChangeCoalescer formDataChangeCoalescer;
+    private final OperationContextCache operationContextCache;
+
+    /**
+     * Service constructor.
+     * @param notificationPipelineService Notification pipeline service.
+     * @param formDataChangeCoalescer Form data change coalescer.
+     * @param operationContextCache Operation context cache.
+     */
+    @Autowired
+    public OperationChangeService(NotificationPipelineService notificationPipelineService, FormDataChangeCoalescer formDataChangeCoalescer, OperationContextCache operationContextCache) {
+        this.notificationPipelineService = notificationPipelineService;
+        this.formDataChangeCoalescer = formDataChangeCoalescer;
+        this.operationContextCache = operationContextCache;
+    }
+
+    /**
+     * Accept an operation change notification.
+     * @param request Operation change notification request.
+     * @throws DataAdapterRemoteException Thrown when the notification cannot be accepted.
+     */
+    public void operationChanged(OperationChangeNotificationRequest request) throws DataAdapterRemoteException {
+        final String operationId = request.getOperationContext().getId();
+        // Form data changes held by the coalescer must reach the backend before the operation change
+        formDataChangeCoalescer.flush(operationId);
+        notificationPipelineService.operationChanged(request);
+        // The operation is finished, its context is no longer referenced by subsequent requests
+        operationContextCache.evict(operationId);
+    }
+
+}
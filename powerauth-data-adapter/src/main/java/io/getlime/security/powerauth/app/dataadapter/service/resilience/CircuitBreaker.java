@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker with a count-based sliding window.
+ *
+ * The circuit breaker is closed while the failure rate of recent calls is below the threshold. Once the threshold is
+ * reached, the circuit breaker opens and calls are rejected without reaching the backend. After the wait duration
+ * a limited number of trial calls is permitted, the circuit breaker closes when all of them succeed and opens again
+ * on the first failure.
+ */
+public class CircuitBreaker {
+
+    /**
+     * State of the circuit breaker.
+     */
+    public enum State {
+
+        /**
+         * Calls are permitted and their outcomes are recorded.
+         */
+        CLOSED,
+
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+
+        /**
+         * A limited number of trial calls is permitted.
+         */
+        HALF_OPEN
+    }
+
+    private final int failureRateThreshold;
+    private final int minimumNumberOfCalls;
+    private final long waitDurationInOpenStateNanos;
+    private final int permittedCallsInHalfOpenState;
+
+    // Outcomes of recent calls, the window is guarded by the circuit breaker monitor
+    private final boolean[] failures;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    /**
+     * Circuit breaker constructor.
+     * @param failureRateThreshold Failure rate in percent at which the circuit breaker opens.
+     * @param slidingWindowSize Number of recent calls used to compute the failure rate.
+     * @param minimumNumberOfCalls Minimum number of calls before the failure rate is evaluated.
+     * @param waitDurationInOpenStateInMilliseconds Time the circuit breaker stays open.
+     * @param permittedCallsInHalfOpenState Number of trial calls which need to succeed to close the circuit breaker.
+     */
+    public CircuitBreaker(int failureRateThreshold, int slidingWindowSize, int minimumNumberOfCalls,
+                          long waitDurationInOpenStateInMilliseconds, int permittedCallsInHalfOpenState) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.failures = new boolean[Math.max(1, slidingWindowSize)];
+        this.minimumNumberOfCalls = Math.min(Math.max(1, minimumNumberOfCalls), failures.length);
+        this.waitDurationInOpenStateNanos = TimeUnit.MILLISECONDS.toNanos(waitDurationInOpenStateInMilliseconds);
+        this.permittedCallsInHalfOpenState = Math.max(1, permittedCallsInHalfOpenState);
+    }
+
+    /**
+     * Try to obtain permission for a call.
+     * @return Whether the call is permitted.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < waitDurationInOpenStateNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= permittedCallsInHalfOpenState) {
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * Release permission of a call whose outcome is not recorded, e.g. a call rejected by a bulkhead.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+
+    /**
+     * Record a successful call.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSucceeded++;
+            if (halfOpenSucceeded >= permittedCallsInHalfOpenState) {
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Record a failed call.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumNumberOfCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Get state of the circuit breaker.
+     * @return Circuit breaker state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Get failure rate of calls in the sliding window.
+     * @return Failure rate in percent.
+     */
+    public synchronized double getFailureRate() {
+        return windowCount > 0 ? windowFailures * 100.0 / windowCount : 0.0;
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == failures.length) {
+            if (failures[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        failures[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
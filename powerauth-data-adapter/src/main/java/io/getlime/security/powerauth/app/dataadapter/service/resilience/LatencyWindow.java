@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.resilience;
+
+import java.util.Arrays;
+
+/**
+ * Window of recent call latencies used to estimate a latency percentile.
+ */
+class LatencyWindow {
+
+    private final long[] latencies;
+    private int index;
+    private int count;
+
+    /**
+     * Latency window constructor.
+     * @param size Number of recent latencies kept in the window.
+     */
+    LatencyWindow(int size) {
+        this.latencies = new long[Math.max(1, size)];
+    }
+
+    /**
+     * Record latency of a call.
+     * @param latencyNanos Latency in nanoseconds.
+     */
+    synchronized void record(long latencyNanos) {
+        latencies[index] = latencyNanos;
+        index = (index + 1) % latencies.length;
+        if (count < latencies.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Get latency percentile of calls in the window.
+     * @param percentile Percentile between 0 and 1.
+     * @return Latency in nanoseconds, zero when no latency was recorded yet.
+     */
+    long getPercentile(double percentile) {
+        final long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return 0L;
+            }
+            sorted = Arrays.copyOf(latencies, count);
+        }
+        Arrays.sort(sorted);
+        final int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.min(Math.max(rank, 0), sorted.length - 1)];
+    }
+}
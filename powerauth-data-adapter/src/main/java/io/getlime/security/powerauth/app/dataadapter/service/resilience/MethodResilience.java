@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resilience settings, state and meters of a single Data Adapter method.
+ */
+class MethodResilience {
+
+    private final String method;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyWindow latencyWindow;
+    private final long timeoutNanos;
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+    private final long hedgeMinDelayNanos;
+
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Counter notPermittedCounter;
+    private final Counter timeoutCounter;
+    private final Counter hedgedCounter;
+    private final Counter hedgeWonCounter;
+
+    /**
+     * Constructor.
+     * @param method Data Adapter method name.
+     * @param circuitBreaker Circuit breaker of the method.
+     * @param latencyWindow Window of recent call latencies.
+     * @param timeoutInMilliseconds Timeout of a backend call, zero disables the timeout.
+     * @param hedgeEnabled Whether hedged requests are enabled.
+     * @param hedgePercentile Latency percentile after which the hedged request is sent.
+     * @param hedgeMinDelayInMilliseconds Minimum delay after which the hedged request is sent.
+     * @param successTimer Timer of successful calls.
+     * @param failureTimer Timer of failed calls.
+     * @param notPermittedCounter Counter of calls rejected by the circuit breaker.
+     * @param timeoutCounter Counter of timed out calls.
+     * @param hedgedCounter Counter of sent hedged requests.
+     * @param hedgeWonCounter Counter of hedged requests which completed first.
+     */
+    MethodResilience(String method, CircuitBreaker circuitBreaker, LatencyWindow latencyWindow, long timeoutInMilliseconds,
+                     boolean hedgeEnabled, double hedgePercentile, long hedgeMinDelayInMilliseconds,
+                     Timer successTimer, Timer failureTimer, Counter notPermittedCounter, Counter timeoutCounter,
+                     Counter hedgedCounter, Counter hedgeWonCounter) {
+        this.method = method;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyWindow = latencyWindow;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMilliseconds);
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayInMilliseconds);
+        this.successTimer = successTimer;
+        this.failureTimer = failureTimer;
+        this.notPermittedCounter = notPermittedCounter;
+        this.timeoutCounter = timeoutCounter;
+        this.hedgedCounter = hedgedCounter;
+        this.hedgeWonCounter = hedgeWonCounter;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    LatencyWindow getLatencyWindow() {
+        return latencyWindow;
+    }
+
+    long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    /**
+     * Get delay after which the hedged request is sent, based on the configured percentile of recent latencies.
+     * @return Hedge delay in nanoseconds.
+     */
+    long getHedgeDelayNanos() {
+        return Math.max(hedgeMinDelayNanos, latencyWindow.getPercentile(hedgePercentile));
+    }
+
+    Timer getSuccessTimer() {
+        return successTimer;
+    }
+
+    Timer getFailureTimer() {
+        return failureTimer;
+    }
+
+    Counter getNotPermittedCounter() {
+        return notPermittedCounter;
+    }
+
+    Counter getTimeoutCounter() {
+        return timeoutCounter;
+    }
+
+    Counter getHedgedCounter() {
+        return hedgedCounter;
+    }
+
+    Counter getHedgeWonCounter() {
+        return hedgeWonCounter;
+    }
+}
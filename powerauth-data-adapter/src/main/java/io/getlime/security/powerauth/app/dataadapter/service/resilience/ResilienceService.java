@@ -0,0 +1,347 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.resilience;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.ResilienceConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.BulkheadFullException;
+import io.getlime.security.powerauth.app.dataadapter.exception.CircuitBreakerOpenException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
+import io.getlime.security.powerauth.app.dataadapter.service.BackendCall;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.app.dataadapter.service.threads.VirtualThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service which protects backend calls of Data Adapter methods using circuit breakers, timeouts and hedged requests.
+ *
+ * A struggling backend would otherwise receive full-timeout calls from every request. The circuit breaker of a method
+ * opens when the failure rate of recent calls reaches the threshold and rejects calls until the backend recovers.
+ * Calls with a timeout are executed in a separate thread, so that the caller can give up once the timeout elapses.
+ * Idempotent calls are interrupted when the caller gives up. Calls which change state, e.g. user authentication, are
+ * never interrupted, they complete in the background so that their effects are not applied only partially.
+ * Idempotent reads may send a second hedged request when the first one does not complete within a percentile of
+ * recent latencies, the first completed request wins and the other one is cancelled.
+ *
+ * Only {@link DataAdapterRemoteException} and runtime exceptions are recorded as failures, other exceptions such as
+ * user not found are valid responses of the backend. Calls rejected by a bulkhead or aborted due to the request
+ * deadline are not recorded at all. The configured timeout is limited by the remaining time until the request deadline.
+ *
+ * The executor of platform threads is bounded. A call rejected because all executor threads are busy and the queue is
+ * full fails with {@link BulkheadFullException}, which is not recorded as a failure of the backend. A hedged request
+ * rejected by the executor is not sent, the caller keeps waiting for the original request.
+ */
+@Service
+public class ResilienceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilienceService.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.resilience";
+
+    private final ResilienceConfiguration configuration;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Counter rejectedCounter;
+
+    private final Map<String, MethodResilience> methods = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> insideCall = new ThreadLocal<>();
+
+    /**
+     * Service constructor.
+     * @param configuration Resilience configuration.
+     * @param virtualThreadConfiguration Virtual thread configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public ResilienceService(ResilienceConfiguration configuration, VirtualThreadConfiguration virtualThreadConfiguration, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        this.meterRegistry = meterRegistry;
+        if (virtualThreadConfiguration.isVirtualThreadsActive()) {
+            this.executor = VirtualThreads.newThreadPerTaskExecutor("backend-call-");
+        } else {
+            // Backend calls block on I/O, idle threads are released after the keep alive time
+            final AtomicInteger threadNumber = new AtomicInteger();
+            final int threadCount = Math.max(configuration.getExecutorThreadCount(), 1);
+            final int queueCapacity = configuration.getExecutorQueueCapacity();
+            final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threadCount, threadCount, 60L, TimeUnit.SECONDS,
+                    queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "backend-call-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            Gauge.builder(METRIC_PREFIX + ".executor.active", threadPoolExecutor, ThreadPoolExecutor::getActiveCount)
+                    .description("Number of threads executing backend calls")
+                    .register(meterRegistry);
+            this.executor = threadPoolExecutor;
+        }
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".executor.rejected")
+                .description("Number of backend calls rejected because the executor is full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Execute a backend call of a Data Adapter method. Backend calls nested in another protected call are executed
+     * directly, they are covered by the outer call.
+     * @param method Data Adapter method name.
+     * @param idempotent Whether the call is an idempotent read which may be hedged and interrupted.
+     * @param call Backend call.
+     * @param <T> Type of call result.
+     * @param <E> Type of checked exception thrown by the call.
+     * @return Call result.
+     * @throws CircuitBreakerOpenException Thrown when the circuit breaker of the method is open.
+     * @throws DataAdapterRemoteException Thrown when remote communication fails or the call times out.
+     * @throws E Thrown when the call fails.
+     */
+    public <T, E extends Exception> T execute(String method, boolean idempotent, BackendCall<T, E> call) throws DataAdapterRemoteException, E {
+        if (insideCall.get() != null || !configuration.isEnabled(method)) {
+            return call.call();
+        }
+        final MethodResilience resilience = methods.computeIfAbsent(method, this::createMethodResilience);
+        final CircuitBreaker circuitBreaker = resilience.getCircuitBreaker();
+        if (!circuitBreaker.tryAcquirePermission()) {
+            resilience.getNotPermittedCounter().increment();
+            throw new CircuitBreakerOpenException("Circuit breaker is open for method: " + method);
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            final T result;
+            if (resilience.getTimeoutNanos() <= 0 && !(idempotent && resilience.isHedgeEnabled())) {
+                result = invokeDirectly(call);
+            } else {
+                result = invokeAsync(resilience, idempotent, call, startNanos);
+            }
+            circuitBreaker.onSuccess();
+            resilience.getSuccessTimer().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (BulkheadFullException | DeadlineExceededException ex) {
+            circuitBreaker.releasePermission();
+            throw ex;
+        } catch (DataAdapterRemoteException | RuntimeException ex) {
+            circuitBreaker.onFailure();
+            resilience.getFailureTimer().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            throw ex;
+        } catch (Exception ex) {
+            // The backend responded, e.g. the user was not found
+            circuitBreaker.onSuccess();
+            resilience.getSuccessTimer().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    /**
+     * Invoke the backend call in the calling thread.
+     */
+    private <T, E extends Exception> T invokeDirectly(BackendCall<T, E> call) throws DataAdapterRemoteException, E {
+        insideCall.set(Boolean.TRUE);
+        try {
+            return call.call();
+        } finally {
+            insideCall.remove();
+        }
+    }
+
+    /**
+     * Invoke the backend call in the executor, wait for it at most the configured timeout and send a hedged request
+     * for idempotent reads which do not complete within the hedge delay.
+     */
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T invokeAsync(MethodResilience resilience, boolean idempotent, BackendCall<T, E> call, long startNanos) throws DataAdapterRemoteException, E {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicInteger pendingAttempts = new AtomicInteger(1);
+        final AtomicReference<Throwable> lastFailure = new AtomicReference<>();
+        final List<Future<?>> attempts = new ArrayList<>(2);
+        // The timeout is measured from the start of the call, it is limited by the request deadline
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        final long deadlineTimeoutNanos = deadline != null ? System.nanoTime() - startNanos + deadline.getRemainingNanos() : Long.MAX_VALUE;
+        final boolean limitedByDeadline = deadline != null && (resilience.getTimeoutNanos() <= 0 || deadlineTimeoutNanos < resilience.getTimeoutNanos());
+        final long timeoutNanos = limitedByDeadline ? Math.max(1L, deadlineTimeoutNanos) : resilience.getTimeoutNanos();
+        try {
+            try {
+                attempts.add(submitAttempt(resilience, call, result, pendingAttempts, lastFailure, false));
+            } catch (RejectedExecutionException ex) {
+                rejectedCounter.increment();
+                throw new BulkheadFullException("Backend call executor is full, method: " + resilience.getMethod(), ex);
+            }
+            if (idempotent && resilience.isHedgeEnabled()) {
+                final long hedgeDelayNanos = resilience.getHedgeDelayNanos();
+                if (timeoutNanos <= 0 || hedgeDelayNanos < timeoutNanos) {
+                    try {
+                        return result.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+                    } catch (TimeoutException ex) {
+                        pendingAttempts.incrementAndGet();
+                        try {
+                            attempts.add(submitAttempt(resilience, call, result, pendingAttempts, lastFailure, true));
+                            resilience.getHedgedCounter().increment();
+                        } catch (RejectedExecutionException rejected) {
+                            // The hedged request is not sent, complete the result in case the original request already failed
+                            rejectedCounter.increment();
+                            if (pendingAttempts.decrementAndGet() == 0) {
+                                result.completeExceptionally(lastFailure.get());
+                            }
+                        }
+                    }
+                }
+            }
+            if (timeoutNanos <= 0) {
+                return result.get();
+            }
+            final long remainingNanos = timeoutNanos - (System.nanoTime() - startNanos);
+            try {
+                return result.get(Math.max(remainingNanos, 0L), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (limitedByDeadline) {
+                    throw new DeadlineExceededException("Backend call exceeded request deadline, method: " + resilience.getMethod(), ex);
+                }
+                resilience.getTimeoutCounter().increment();
+                throw new DataAdapterRemoteException("Backend call timed out, method: " + resilience.getMethod(), ex);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataAdapterRemoteException("Backend call was interrupted, method: " + resilience.getMethod(), ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof DataAdapterRemoteException) {
+                throw (DataAdapterRemoteException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        } finally {
+            // Cancel attempts which are still running, e.g. the slower one of hedged requests, calls which
+            // change state are left to complete
+            for (Future<?> attempt : attempts) {
+                attempt.cancel(idempotent);
+            }
+        }
+    }
+
+    /**
+     * Submit an attempt of the backend call to the executor. The first successful attempt completes the result,
+     * a failure completes the result only when no other attempt is pending.
+     */
+    private <T, E extends Exception> Future<?> submitAttempt(MethodResilience resilience, BackendCall<T, E> call, CompletableFuture<T> result,
+                                                             AtomicInteger pendingAttempts, AtomicReference<Throwable> lastFailure, boolean hedged) {
+        final LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        final Deadline deadline = DeadlineContextHolder.getDeadline();
+        return executor.submit(() -> {
+            final long attemptStartNanos = System.nanoTime();
+            insideCall.set(Boolean.TRUE);
+            LocaleContextHolder.setLocaleContext(localeContext);
+            DeadlineContextHolder.setDeadline(deadline);
+            try {
+                final T value = call.call();
+                resilience.getLatencyWindow().record(System.nanoTime() - attemptStartNanos);
+                if (result.complete(value) && hedged) {
+                    resilience.getHedgeWonCounter().increment();
+                }
+            } catch (Throwable t) {
+                lastFailure.set(t);
+                if (pendingAttempts.decrementAndGet() == 0) {
+                    result.completeExceptionally(t);
+                }
+            } finally {
+                DeadlineContextHolder.resetDeadline();
+                LocaleContextHolder.resetLocaleContext();
+                insideCall.remove();
+            }
+        });
+    }
+
+    /**
+     * Create resilience state of a method and register its metrics.
+     * @param method Data Adapter method name.
+     * @return Method resilience.
+     */
+    private MethodResilience createMethodResilience(String method) {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(configuration.getFailureRateThreshold(method),
+                configuration.getSlidingWindowSize(method), configuration.getMinimumNumberOfCalls(method),
+                configuration.getWaitDurationInOpenStateInMilliseconds(method), configuration.getPermittedCallsInHalfOpenState(method));
+        Gauge.builder(METRIC_PREFIX + ".circuitbreaker.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("State of the circuit breaker of a method: 0 closed, 1 open, 2 half-open")
+                .tag("method", method)
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".circuitbreaker.failure.rate", circuitBreaker, CircuitBreaker::getFailureRate)
+                .description("Failure rate of recent calls of a method in percent")
+                .tag("method", method)
+                .register(meterRegistry);
+        final MethodResilience resilience = new MethodResilience(method, circuitBreaker,
+                new LatencyWindow(configuration.getHedgeLatencyWindowSize(method)),
+                configuration.getTimeoutInMilliseconds(method), configuration.isHedgeEnabled(method),
+                configuration.getHedgePercentile(method), configuration.getHedgeMinDelayInMilliseconds(method),
+                Timer.builder(METRIC_PREFIX + ".calls")
+                        .description("Duration of protected backend calls")
+                        .tags("method", method, "outcome", "success")
+                        .register(meterRegistry),
+                Timer.builder(METRIC_PREFIX + ".calls")
+                        .description("Duration of protected backend calls")
+                        .tags("method", method, "outcome", "failure")
+                        .register(meterRegistry),
+                Counter.builder(METRIC_PREFIX + ".circuitbreaker.rejected")
+                        .description("Number of calls rejected by an open circuit breaker")
+                        .tag("method", method)
+                        .register(meterRegistry),
+                Counter.builder(METRIC_PREFIX + ".timeout")
+                        .description("Number of calls which did not complete in time")
+                        .tag("method", method)
+                        .register(meterRegistry),
+                Counter.builder(METRIC_PREFIX + ".hedge.sent")
+                        .description("Number of hedged requests sent")
+                        .tag("method", method)
+                        .register(meterRegistry),
+                Counter.builder(METRIC_PREFIX + ".hedge.won")
+                        .description("Number of hedged requests which completed before the original request")
+                        .tag("method", method)
+                        .register(meterRegistry));
+        logger.info("Resilience initialized, method: {}, timeout: {} ms, hedge enabled: {}", method,
+                configuration.getTimeoutInMilliseconds(method), configuration.isHedgeEnabled(method));
+        return resilience;
+    }
+
+    /**
+     * Shutdown the backend call executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.api.ConstantResponse;
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import io.getlime.security.powerauth.app.dataadapter.configuration.ConfigurationReloadedEvent;
+import io.getlime.security.powerauth.app.dataadapter.model.response.CachedObjectResponse;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.ServiceStatusResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Service which serializes constant responses only once.
+ *
+ * Responses of {@link DataAdapter} methods annotated with {@link ConstantResponse} are serialized on the first request
+ * of each endpoint key and the serialized bytes are returned as {@link CachedObjectResponse} for subsequent requests.
+ * The service status response is constant apart from its timestamp, it is serialized once into a prefix and a suffix
+ * around the timestamp value. Cached responses are discarded when the configuration is reloaded.
+ */
+@Service
+public class ConstantResponseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConstantResponseService.class);
+
+    /**
+     * Endpoint for initialization of authentication method.
+     */
+    public static final String INIT_AUTH_METHOD = "initAuthMethod";
+
+    /**
+     * Endpoint for initialization of consent form.
+     */
+    public static final String INIT_CONSENT_FORM = "initConsentForm";
+
+    /**
+     * Endpoint for saving of consent form.
+     */
+    public static final String SAVE_CONSENT_FORM = "saveConsentForm";
+
+    private static final byte[] TIMESTAMP_PLACEHOLDER = "\"timestamp\":null".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] QUOTE = "\"".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, ConstantResponse> constantEndpoints;
+    private final Map<String, byte[]> cache = new ConcurrentHashMap<>();
+    private volatile StatusTemplate statusTemplate;
+
+    /**
+     * Serialized service status response split around the timestamp value.
+     */
+    private static final class StatusTemplate {
+
+        private final byte[] prefix;
+        private final byte[] suffix;
+        private final DateTimeFormatter timestampFormatter;
+
+        private StatusTemplate(byte[] prefix, byte[] suffix, DateTimeFormatter timestampFormatter) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.timestampFormatter = timestampFormatter;
+        }
+    }
+
+    /**
+     * Service constructor.
+     * @param dataAdapter Data adapter.
+     * @param objectMapper Object mapper.
+     */
+    @Autowired
+    public ConstantResponseService(DataAdapter dataAdapter, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        final Map<String, ConstantResponse> endpoints = new HashMap<>();
+        ReflectionUtils.doWithMethods(AopUtils.getTargetClass(dataAdapter), method -> {
+            final ConstantResponse annotation = AnnotationUtils.findAnnotation(method, ConstantResponse.class);
+            if (annotation != null) {
+                endpoints.put(method.getName(), annotation);
+            }
+        });
+        this.constantEndpoints = Collections.unmodifiableMap(endpoints);
+        logger.info("Constant responses enabled for endpoints: {}", constantEndpoints.keySet());
+    }
+
+    /**
+     * Get cached response for an endpoint whose Data Adapter method has no side effects and does not need to be invoked.
+     * @param endpoint Endpoint.
+     * @param key Endpoint key, null in case the endpoint has a single key.
+     * @param <T> Type of the response object.
+     * @return Cached response or null in case the Data Adapter method needs to be invoked.
+     */
+    public <T> CachedObjectResponse<T> getCachedResponse(String endpoint, String key) {
+        final ConstantResponse annotation = constantEndpoints.get(endpoint);
+        if (annotation == null || annotation.sideEffects()) {
+            return null;
+        }
+        final byte[] serializedResponse = cache.get(cacheKey(endpoint, key));
+        return serializedResponse == null ? null : new CachedObjectResponse<>(serializedResponse);
+    }
+
+    /**
+     * Create response for an endpoint. Constant responses are serialized on the first call and the serialized bytes
+     * are reused for subsequent calls.
+     * @param endpoint Endpoint.
+     * @param key Endpoint key, null in case the endpoint has a single key.
+     * @param response Response object.
+     * @param <T> Type of the response object.
+     * @return Object response.
+     */
+    public <T> ObjectResponse<T> respond(String endpoint, String key, T response) {
+        if (!constantEndpoints.containsKey(endpoint)) {
+            return new ObjectResponse<>(response);
+        }
+        final String cacheKey = cacheKey(endpoint, key);
+        byte[] serializedResponse = cache.get(cacheKey);
+        if (serializedResponse == null) {
+            final ObjectResponse<T> objectResponse = new ObjectResponse<>(response);
+            serializedResponse = serialize(objectResponse);
+            if (serializedResponse == null) {
+                return objectResponse;
+            }
+            cache.putIfAbsent(cacheKey, serializedResponse);
+        }
+        return new CachedObjectResponse<>(serializedResponse);
+    }
+
+    /**
+     * Create service status response. The response is created and serialized once, each call only formats
+     * the current timestamp.
+     * @param responseSupplier Supplier of service status response.
+     * @param timestamp Timestamp of the response.
+     * @return Service status response.
+     */
+    public ObjectResponse<ServiceStatusResponse> respondWithStatus(Supplier<ServiceStatusResponse> responseSupplier, Date timestamp) {
+        StatusTemplate template = statusTemplate;
+        if (template == null) {
+            template = createStatusTemplate(responseSupplier.get());
+            if (template == null) {
+                final ServiceStatusResponse response = responseSupplier.get();
+                response.setTimestamp(timestamp);
+                return new ObjectResponse<>(response);
+            }
+            statusTemplate = template;
+        }
+        final byte[] formattedTimestamp = template.timestampFormatter.format(timestamp.toInstant()).getBytes(StandardCharsets.UTF_8);
+        return new CachedObjectResponse<>(template.prefix, QUOTE, formattedTimestamp, QUOTE, template.suffix);
+    }
+
+    /**
+     * Discard cached responses after configuration reload.
+     * @param event Configuration reloaded event.
+     */
+    @EventListener
+    public void onConfigurationReloaded(ConfigurationReloadedEvent event) {
+        cache.clear();
+        statusTemplate = null;
+        logger.info("Cached constant responses were discarded after configuration reload");
+    }
+
+    /**
+     * Serialize service status response without timestamp and split it around the timestamp placeholder. The template
+     * is used only when the object mapper formats dates using the default ISO-8601 format.
+     * @param response Service status response.
+     * @return Status template or null in case the response cannot be split.
+     */
+    private StatusTemplate createStatusTemplate(ServiceStatusResponse response) {
+        if (objectMapper.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                || !(objectMapper.getSerializationConfig().getDateFormat() instanceof StdDateFormat)) {
+            return null;
+        }
+        response.setTimestamp(null);
+        final byte[] serializedResponse = serialize(new ObjectResponse<>(response));
+        if (serializedResponse == null) {
+            return null;
+        }
+        final int index = indexOf(serializedResponse, TIMESTAMP_PLACEHOLDER);
+        if (index < 0) {
+            return null;
+        }
+        final int valueIndex = index + TIMESTAMP_PLACEHOLDER.length - "null".length();
+        final byte[] prefix = Arrays.copyOfRange(serializedResponse, 0, valueIndex);
+        final byte[] suffix = Arrays.copyOfRange(serializedResponse, index + TIMESTAMP_PLACEHOLDER.length, serializedResponse.length);
+        // Same format as StdDateFormat of Jackson, e.g. 2022-05-30T10:15:30.000+00:00
+        final DateTimeFormatter timestampFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx")
+                .withZone(objectMapper.getSerializationConfig().getTimeZone().toZoneId());
+        return new StatusTemplate(prefix, suffix, timestampFormatter);
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException ex) {
+            logger.warn("Constant response could not be serialized, error: {}", ex.getMessage());
+            logger.debug(ex.getMessage(), ex);
+            return null;
+        }
+    }
+
+    private static String cacheKey(String endpoint, String key) {
+        return key == null ? endpoint : endpoint + ":" + key;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+}
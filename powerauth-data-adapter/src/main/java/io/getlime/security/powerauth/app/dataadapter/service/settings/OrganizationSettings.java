@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.settings;
+
+import io.getlime.security.powerauth.app.dataadapter.service.afs.AfsDecisionTree;
+
+/**
+ * Immutable settings of a single organization. Values derived from the settings, such as the compiled AFS decision
+ * tree, are prepared when the settings are loaded, so that request processing only reads them.
+ */
+public final class OrganizationSettings {
+
+    private final int smsOtpExpirationTimeInSeconds;
+    private final int smsOtpMaxVerifyTriesPerMessage;
+    private final int maxFailedAttempts;
+    private final String afsRules;
+    private final AfsDecisionTree afsDecisionTree;
+
+    /**
+     * Settings constructor.
+     * @param smsOtpExpirationTimeInSeconds SMS OTP message expiration time in seconds.
+     * @param smsOtpMaxVerifyTriesPerMessage Maximum number of tries to verify a SMS OTP message.
+     * @param maxFailedAttempts Maximum number of failed authentication attempts before the user is blocked.
+     * @param afsRules Local AFS velocity rules.
+     */
+    public OrganizationSettings(int smsOtpExpirationTimeInSeconds, int smsOtpMaxVerifyTriesPerMessage, int maxFailedAttempts, String afsRules) {
+        this.smsOtpExpirationTimeInSeconds = smsOtpExpirationTimeInSeconds;
+        this.smsOtpMaxVerifyTriesPerMessage = smsOtpMaxVerifyTriesPerMessage;
+        this.maxFailedAttempts = maxFailedAttempts;
+        this.afsRules = afsRules;
+        this.afsDecisionTree = AfsDecisionTree.compile(afsRules);
+    }
+
+    /**
+     * Get SMS OTP message expiration time.
+     * @return Expiration time in seconds.
+     */
+    public int getSmsOtpExpirationTimeInSeconds() {
+        return smsOtpExpirationTimeInSeconds;
+    }
+
+    /**
+     * Get maximum number of tries to verify a SMS OTP message.
+     * @return Maximum number of verification tries.
+     */
+    public int getSmsOtpMaxVerifyTriesPerMessage() {
+        return smsOtpMaxVerifyTriesPerMessage;
+    }
+
+    /**
+     * Get maximum number of failed authentication attempts before the user is blocked.
+     * @return Maximum number of failed attempts.
+     */
+    public int getMaxFailedAttempts() {
+        return maxFailedAttempts;
+    }
+
+    /**
+     * Get local AFS velocity rules.
+     * @return AFS rules.
+     */
+    public String getAfsRules() {
+        return afsRules;
+    }
+
+    /**
+     * Get decision tree compiled from local AFS velocity rules.
+     * @return AFS decision tree.
+     */
+    public AfsDecisionTree getAfsDecisionTree() {
+        return afsDecisionTree;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.settings;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.AfsConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuthenticationAttemptConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.ConfigurationReloadedEvent;
+import io.getlime.security.powerauth.app.dataadapter.configuration.DataAdapterConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.OrganizationSettingsConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service which provides settings of organizations, e.g. OTP expiration, attempt limits and AFS rules.
+ *
+ * Settings of all organizations are resolved into an immutable snapshot published through an atomic reference.
+ * Request processing reads the current snapshot with a single volatile read and never waits for a reload. The settings
+ * file is checked for changes in the background, a changed file is parsed and validated completely before the new
+ * snapshot replaces the previous one. An invalid file is rejected and the previous snapshot stays in use.
+ */
+@Service
+public class OrganizationSettingsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrganizationSettingsService.class);
+
+    private static final String METRIC_PREFIX = "powerauth.dataadapter.organization.settings";
+
+    private static final String SMS_OTP_EXPIRATION_TIME = "smsOtpExpirationTimeInSeconds";
+    private static final String SMS_OTP_MAX_VERIFY_TRIES = "smsOtpMaxVerifyTriesPerMessage";
+    private static final String MAX_FAILED_ATTEMPTS = "maxFailedAttempts";
+    private static final String AFS_RULES = "afsRules";
+
+    private final OrganizationSettingsConfiguration configuration;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrganizationSettings defaultSettings;
+    private final AtomicReference<OrganizationSettingsSnapshot> snapshot;
+
+    private final Counter reloadSucceededCounter;
+    private final Counter reloadFailedCounter;
+
+    private ScheduledExecutorService reloadExecutor;
+    private FileTime lastModifiedTime;
+    private long lastSize;
+
+    /**
+     * Service constructor.
+     * @param configuration Organization settings configuration.
+     * @param dataAdapterConfiguration Data Adapter configuration with global SMS OTP settings.
+     * @param authenticationAttemptConfiguration Authentication attempt configuration with global attempt limit.
+     * @param afsConfiguration AFS configuration with global AFS rules.
+     * @param eventPublisher Application event publisher.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public OrganizationSettingsService(OrganizationSettingsConfiguration configuration, DataAdapterConfiguration dataAdapterConfiguration,
+                                       AuthenticationAttemptConfiguration authenticationAttemptConfiguration, AfsConfiguration afsConfiguration,
+                                       ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        this.eventPublisher = eventPublisher;
+        this.defaultSettings = new OrganizationSettings(dataAdapterConfiguration.getSmsOtpExpirationTime(),
+                dataAdapterConfiguration.getSmsOtpMaxVerifyTriesPerMessage(), authenticationAttemptConfiguration.getMaxFailedAttempts(),
+                afsConfiguration.getLocalRules());
+        this.snapshot = new AtomicReference<>(new OrganizationSettingsSnapshot(defaultSettings, new HashMap<>(), 0L));
+        this.reloadSucceededCounter = Counter.builder(METRIC_PREFIX + ".reload")
+                .description("Number of reloads of organization settings")
+                .tag("result", "succeeded")
+                .register(meterRegistry);
+        this.reloadFailedCounter = Counter.builder(METRIC_PREFIX + ".reload")
+                .description("Number of reloads of organization settings")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".version", snapshot, s -> s.get().getVersion())
+                .description("Version of the current organization settings snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Load the settings file and start the periodic check for changes. The application fails to start in case
+     * the settings file is invalid.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (configuration.getLocation() == null || configuration.getLocation().isEmpty()) {
+            logger.info("Per-organization settings are not configured, global settings are used");
+            return;
+        }
+        final Path path = Paths.get(configuration.getLocation());
+        try {
+            lastModifiedTime = Files.getLastModifiedTime(path);
+            lastSize = Files.size(path);
+            publish(load(path, 1L));
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalStateException("Invalid organization settings file: " + path, ex);
+        }
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "organization-settings-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = configuration.getReloadIntervalInMilliseconds();
+        reloadExecutor.scheduleWithFixedDelay(() -> reloadIfChanged(path), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic check for changes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get settings of an organization from the current snapshot.
+     * @param organizationId Organization ID.
+     * @return Settings of the organization.
+     */
+    public OrganizationSettings getSettings(String organizationId) {
+        return snapshot.get().getSettings(organizationId);
+    }
+
+    /**
+     * Get the current snapshot of settings of all organizations.
+     * @return Settings snapshot.
+     */
+    public OrganizationSettingsSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Reload the settings file in case it changed since the last check.
+     * @param path Path to the settings file.
+     */
+    private void reloadIfChanged(Path path) {
+        try {
+            final FileTime modifiedTime = Files.getLastModifiedTime(path);
+            final long size = Files.size(path);
+            if (modifiedTime.equals(lastModifiedTime) && size == lastSize) {
+                return;
+            }
+            // Remember the change also in case the file is invalid, so that the failure is reported only once
+            lastModifiedTime = modifiedTime;
+            lastSize = size;
+            publish(load(path, snapshot.get().getVersion() + 1));
+            reloadSucceededCounter.increment();
+        } catch (IOException | IllegalArgumentException ex) {
+            reloadFailedCounter.increment();
+            logger.error("Reload of organization settings failed, previous settings are kept, error: {}", ex.getMessage());
+            logger.debug("Reload of organization settings failed", ex);
+        }
+    }
+
+    /**
+     * Publish a new settings snapshot and notify components which cache values derived from the configuration.
+     * @param newSnapshot New settings snapshot.
+     */
+    private void publish(OrganizationSettingsSnapshot newSnapshot) {
+        snapshot.set(newSnapshot);
+        logger.info("Organization settings loaded, organizations: {}, version: {}", newSnapshot.getOrganizationCount(), newSnapshot.getVersion());
+        eventPublisher.publishEvent(new ConfigurationReloadedEvent(this));
+    }
+
+    /**
+     * Load and validate settings of all organizations from the settings file.
+     * @param path Path to the settings file.
+     * @param version Version of the new snapshot.
+     * @return Settings snapshot.
+     * @throws IOException Thrown when the file cannot be read.
+     * @throws IllegalArgumentException Thrown when the file contains invalid settings.
+     */
+    private OrganizationSettingsSnapshot load(Path path, long version) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        final Map<String, Map<String, String>> values = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            final int separator = key.lastIndexOf('.');
+            if (separator <= 0 || separator == key.length() - 1) {
+                throw new IllegalArgumentException("Invalid organization setting: " + key);
+            }
+            values.computeIfAbsent(key.substring(0, separator), k -> new HashMap<>())
+                    .put(key.substring(separator + 1), properties.getProperty(key).trim());
+        }
+        final Map<String, OrganizationSettings> organizationSettings = new HashMap<>();
+        values.forEach((organizationId, organizationValues) -> organizationSettings.put(organizationId, createSettings(organizationId, organizationValues)));
+        return new OrganizationSettingsSnapshot(defaultSettings, organizationSettings, version);
+    }
+
+    /**
+     * Create settings of an organization, settings which are not specified use the global configuration.
+     * @param organizationId Organization ID.
+     * @param values Settings values of the organization.
+     * @return Organization settings.
+     */
+    private OrganizationSettings createSettings(String organizationId, Map<String, String> values) {
+        int smsOtpExpirationTime = defaultSettings.getSmsOtpExpirationTimeInSeconds();
+        int smsOtpMaxVerifyTries = defaultSettings.getSmsOtpMaxVerifyTriesPerMessage();
+        int maxFailedAttempts = defaultSettings.getMaxFailedAttempts();
+        String afsRules = defaultSettings.getAfsRules();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            switch (entry.getKey()) {
+                case SMS_OTP_EXPIRATION_TIME:
+                    smsOtpExpirationTime = parsePositive(organizationId, entry);
+                    break;
+                case SMS_OTP_MAX_VERIFY_TRIES:
+                    smsOtpMaxVerifyTries = parsePositive(organizationId, entry);
+                    break;
+                case MAX_FAILED_ATTEMPTS:
+                    maxFailedAttempts = parsePositive(organizationId, entry);
+                    break;
+                case AFS_RULES:
+                    afsRules = entry.getValue();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting: " + entry.getKey() + ", organization ID: " + organizationId);
+            }
+        }
+        return new OrganizationSettings(smsOtpExpirationTime, smsOtpMaxVerifyTries, maxFailedAttempts, afsRules);
+    }
+
+    private int parsePositive(String organizationId, Map.Entry<String, String> entry) {
+        final int value;
+        try {
+            value = Integer.parseInt(entry.getValue());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Setting must be a number: " + entry.getKey() + ", organization ID: " + organizationId, ex);
+        }
+        if (value <= 0) {
+            throw new IllegalArgumentException("Setting must be positive: " + entry.getKey() + ", organization ID: " + organizationId);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.settings;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of settings of all organizations.
+ */
+public final class OrganizationSettingsSnapshot {
+
+    private final OrganizationSettings defaultSettings;
+    private final Map<String, OrganizationSettings> organizationSettings;
+    private final long version;
+
+    /**
+     * Snapshot constructor.
+     * @param defaultSettings Settings of organizations which are not configured explicitly.
+     * @param organizationSettings Settings of configured organizations.
+     * @param version Version of the snapshot, incremented on each reload.
+     */
+    public OrganizationSettingsSnapshot(OrganizationSettings defaultSettings, Map<String, OrganizationSettings> organizationSettings, long version) {
+        this.defaultSettings = defaultSettings;
+        this.organizationSettings = Collections.unmodifiableMap(new HashMap<>(organizationSettings));
+        this.version = version;
+    }
+
+    /**
+     * Get settings of an organization.
+     * @param organizationId Organization ID.
+     * @return Settings of the organization, default settings when the organization is not configured.
+     */
+    public OrganizationSettings getSettings(String organizationId) {
+        if (organizationId == null) {
+            return defaultSettings;
+        }
+        return organizationSettings.getOrDefault(organizationId, defaultSettings);
+    }
+
+    /**
+     * Get settings of organizations which are not configured explicitly.
+     * @return Default settings.
+     */
+    public OrganizationSettings getDefaultSettings() {
+        return defaultSettings;
+    }
+
+    /**
+     * Get number of configured organizations.
+     * @return Number of organizations.
+     */
+    public int getOrganizationCount() {
+        return organizationSettings.size();
+    }
+
+    /**
+     * Get version of the snapshot.
+     * @return Snapshot version.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
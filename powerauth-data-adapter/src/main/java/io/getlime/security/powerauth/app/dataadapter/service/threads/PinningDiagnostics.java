@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.threads;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diagnostics of sections which pin a virtual thread to its carrier thread. A virtual thread blocked inside
+ * a synchronized block, e.g. on file or JDBC I/O, cannot unmount and it occupies a carrier thread for the whole
+ * duration of the section. Time spent by virtual threads in sections which can pin is recorded per section and
+ * sections exceeding the configured threshold are logged, sections executed on platform threads are ignored.
+ *
+ * Pinning in third party code, e.g. inside the JDBC driver, is reported by the Java runtime itself when
+ * the application is started with {@code -Djdk.tracePinnedThreads=short}.
+ */
+@Service
+public class PinningDiagnostics {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinningDiagnostics.class);
+
+    private static final String METRIC_NAME = "powerauth.dataadapter.virtualthreads.pinned";
+
+    private final boolean enabled;
+    private final long thresholdInNanos;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Service constructor.
+     * @param configuration Virtual thread configuration.
+     * @param meterRegistry Meter registry.
+     */
+    @Autowired
+    public PinningDiagnostics(VirtualThreadConfiguration configuration, MeterRegistry meterRegistry) {
+        this.enabled = configuration.isVirtualThreadsActive() && configuration.isPinningDiagnosticsEnabled();
+        this.thresholdInNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getPinningThresholdInMilliseconds());
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Mark start of a section which pins a virtual thread.
+     * @return Start timestamp to be passed to {@link #end(String, long)}, zero when the section is not measured.
+     */
+    public long begin() {
+        if (!enabled || !VirtualThreads.isVirtual(Thread.currentThread())) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Mark end of a section which pins a virtual thread.
+     * @param section Section name.
+     * @param startNanos Start timestamp returned by {@link #begin()}.
+     */
+    public void end(String section, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        final long durationNanos = System.nanoTime() - startNanos;
+        Timer.builder(METRIC_NAME)
+                .description("Time spent by virtual threads in sections which pin the carrier thread")
+                .tag("section", section)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (durationNanos > thresholdInNanos) {
+            logger.warn("Virtual thread {} was pinned in section {} for {} ms", Thread.currentThread().getName(), section,
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads of the Java runtime. The application is compiled for Java 11, virtual threads are
+ * accessed reflectively and they are available only when the application runs on Java 21 or newer.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method IS_VIRTUAL;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method isVirtual = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            // Virtual threads are a preview feature in Java 19 and 20, the builder cannot be created unless preview
+            // features are enabled
+            ofVirtual.invoke(null);
+            builderName = ofVirtual.getReturnType().getMethod("name", String.class, long.class);
+            builderFactory = ofVirtual.getReturnType().getMethod("factory");
+            isVirtual = Thread.class.getMethod("isVirtual");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        IS_VIRTUAL = isVirtual;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Get whether the Java runtime supports virtual threads.
+     * @return Whether virtual threads are supported.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Get whether a thread is a virtual thread.
+     * @param thread Thread.
+     * @return Whether the thread is a virtual thread, false when virtual threads are not supported.
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Create a factory of virtual threads named with a prefix and a sequence number.
+     * @param threadNamePrefix Thread name prefix.
+     * @return Virtual thread factory.
+     * @throws IllegalStateException Thrown when virtual threads are not supported.
+     */
+    public static ThreadFactory newThreadFactory(String threadNamePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads are not supported by the Java runtime");
+        }
+        try {
+            final Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), threadNamePrefix, 1L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Virtual thread factory could not be created", ex);
+        }
+    }
+
+    /**
+     * Create an executor which starts a new virtual thread for each task.
+     * @param threadNamePrefix Thread name prefix.
+     * @return Executor service.
+     * @throws IllegalStateException Thrown when virtual threads are not supported.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String threadNamePrefix) {
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, newThreadFactory(threadNamePrefix));
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Virtual thread executor could not be created", ex);
+        }
+    }
+}
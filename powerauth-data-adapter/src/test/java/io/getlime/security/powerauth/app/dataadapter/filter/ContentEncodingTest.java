@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of negotiation of response content encoding.
+ */
+class ContentEncodingTest {
+
+    @Test
+    void testNoAcceptEncoding() {
+        assertNull(ContentEncoding.negotiate(null, true));
+        assertNull(ContentEncoding.negotiate("", true));
+        assertNull(ContentEncoding.negotiate("identity", true));
+        assertNull(ContentEncoding.negotiate("br, deflate", true));
+    }
+
+    @Test
+    void testGzip() {
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip", true));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("deflate, GZIP;q=0.5", true));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("x-gzip", false));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*", true));
+    }
+
+    @Test
+    void testZstdIsPreferredWhenAvailable() {
+        assertEquals(ContentEncoding.ZSTD, ContentEncoding.negotiate("gzip, zstd", true));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, zstd", false));
+        assertNull(ContentEncoding.negotiate("zstd", false));
+    }
+
+    @Test
+    void testRejectedEncodings() {
+        assertNull(ContentEncoding.negotiate("gzip;q=0", true));
+        assertNull(ContentEncoding.negotiate("gzip; q=0.0, zstd;q=0", true));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("zstd;q=0, gzip", true));
+        assertNull(ContentEncoding.negotiate("gzip;q=invalid", true));
+    }
+
+    @Test
+    void testFromToken() {
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.fromToken(" Gzip "));
+        assertEquals(ContentEncoding.ZSTD, ContentEncoding.fromToken("zstd"));
+        assertNull(ContentEncoding.fromToken("br"));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of propagation of the request deadline.
+ */
+class DeadlineFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> sentErrors = new ArrayList<>();
+    private final AtomicReference<Long> asyncTimeout = new AtomicReference<>();
+    private DeadlineConfiguration configuration;
+    private DeadlineService deadlineService;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new DeadlineConfiguration();
+        ReflectionTestUtils.setField(configuration, "enabled", true);
+        ReflectionTestUtils.setField(configuration, "headerName", "X-Request-Timeout");
+        ReflectionTestUtils.setField(configuration, "marginInMilliseconds", 50L);
+        ReflectionTestUtils.setField(configuration, "minimumRemainingInMilliseconds", 20L);
+        deadlineService = new DeadlineService(configuration, meterRegistry);
+    }
+
+    @Test
+    void testRequestWithoutTimeout() throws Exception {
+        final AtomicReference<Deadline> deadline = new AtomicReference<>();
+        final DeadlineFilter filter = new DeadlineFilter(configuration, deadlineService, (request, response, handler, ex) -> null);
+        filter.doFilterInternal(request("/api/auth/user/authenticate", null, false), response(),
+                (request, response) -> deadline.set(DeadlineContextHolder.getDeadline()));
+        assertNull(deadline.get());
+        assertTrue(sentErrors.isEmpty());
+    }
+
+    @Test
+    void testDeadlinePropagatedToRequestProcessing() throws Exception {
+        final AtomicReference<Deadline> deadline = new AtomicReference<>();
+        final DeadlineFilter filter = new DeadlineFilter(configuration, deadlineService, (request, response, handler, ex) -> null);
+        filter.doFilterInternal(request("/api/auth/user/authenticate", "5000", false), response(),
+                (request, response) -> deadline.set(DeadlineContextHolder.getDeadline()));
+        assertNotNull(deadline.get());
+        // The margin is subtracted from the timeout sent by the caller
+        assertTrue(deadline.get().getRemainingMillis() <= 4950L);
+        assertNull(DeadlineContextHolder.getDeadline());
+    }
+
+    @Test
+    void testRequestWithShortTimeoutRejected() throws Exception {
+        final AtomicReference<Boolean> chainInvoked = new AtomicReference<>(false);
+        final DeadlineFilter filter = new DeadlineFilter(configuration, deadlineService, (request, response, handler, ex) -> null);
+        filter.doFilterInternal(request("/api/auth/user/authenticate", "60", false), response(),
+                (request, response) -> chainInvoked.set(true));
+        assertFalse(chainInvoked.get());
+        assertEquals(List.of(504), sentErrors);
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.deadline.exceeded").tag("operation", "request").counter().count());
+    }
+
+    @Test
+    void testRejectionHandledByExceptionResolver() throws Exception {
+        final AtomicReference<Exception> resolved = new AtomicReference<>();
+        final DeadlineFilter filter = new DeadlineFilter(configuration, deadlineService, (request, response, handler, ex) -> {
+            resolved.set(ex);
+            return new ModelAndView();
+        });
+        filter.doFilterInternal(request("/api/auth/user/authenticate", "10", false), response(), (request, response) -> fail("Request must not be processed"));
+        assertTrue(resolved.get() instanceof DeadlineExceededException);
+        assertTrue(sentErrors.isEmpty());
+    }
+
+    @Test
+    void testAsyncTimeoutLimitedByDeadline() throws Exception {
+        final DeadlineFilter filter = new DeadlineFilter(configuration, deadlineService, (request, response, handler, ex) -> null);
+        filter.doFilterInternal(request("/api/auth/user/authenticate", "2000", true), response(), (request, response) -> { });
+        assertNotNull(asyncTimeout.get());
+        assertTrue(asyncTimeout.get() > 0L && asyncTimeout.get() <= 1950L);
+    }
+
+    @Test
+    void testServiceEndpointsNotFiltered() {
+        final DeadlineFilter filter = new DeadlineFilter(configuration, deadlineService, (request, response, handler, ex) -> null);
+        assertTrue(filter.shouldNotFilter(request("/api/service/status", "5000", false)));
+        assertTrue(filter.shouldNotFilter(request("/actuator/health", "5000", false)));
+        assertFalse(filter.shouldNotFilter(request("/api/auth/user/authenticate", "5000", false)));
+    }
+
+    private HttpServletRequest request(String path, String timeout, boolean asyncStarted) {
+        final AsyncContext asyncContext = (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{AsyncContext.class}, (proxy, method, args) -> {
+            if ("setTimeout".equals(method.getName())) {
+                asyncTimeout.set((Long) args[0]);
+            }
+            return null;
+        });
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getRequestURI":
+                    return path;
+                case "getContextPath":
+                    return "";
+                case "getHeader":
+                    return "X-Request-Timeout".equals(args[0]) ? timeout : null;
+                case "isAsyncStarted":
+                    return asyncStarted;
+                case "getAsyncContext":
+                    return asyncContext;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private HttpServletResponse response() {
+        return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+            if ("sendError".equals(method.getName())) {
+                sentErrors.add((Integer) args[0]);
+            }
+            return null;
+        });
+    }
+
+}
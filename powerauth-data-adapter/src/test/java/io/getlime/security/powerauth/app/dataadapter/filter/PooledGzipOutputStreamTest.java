@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of gzip compression with pooled deflaters.
+ */
+class PooledGzipOutputStreamTest {
+
+    @Test
+    void testRoundTrip() throws IOException {
+        final DeflaterPool pool = new DeflaterPool(1, Deflater.DEFAULT_COMPRESSION);
+        final byte[] data = "{\"status\":\"OK\",\"responseObject\":{\"id\":\"user\"}}".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(data, decompress(compress(pool, data)));
+    }
+
+    @Test
+    void testRoundTripWithReusedDeflater() throws IOException {
+        final DeflaterPool pool = new DeflaterPool(1, Deflater.BEST_SPEED);
+        final Random random = new Random(1);
+        for (int size : new int[]{0, 1, 100_000, 20}) {
+            final byte[] data = new byte[size];
+            random.nextBytes(data);
+            assertArrayEquals(data, decompress(compress(pool, data)));
+        }
+    }
+
+    @Test
+    void testCloseIsIdempotent() throws IOException {
+        final DeflaterPool pool = new DeflaterPool(1, Deflater.DEFAULT_COMPRESSION);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final PooledGzipOutputStream gzip = new PooledGzipOutputStream(output, pool);
+        gzip.write(new byte[]{1, 2, 3});
+        gzip.close();
+        final int size = output.size();
+        gzip.close();
+        assertEquals(size, output.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, decompress(output.toByteArray()));
+    }
+
+    private static byte[] compress(DeflaterPool pool, byte[] data) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PooledGzipOutputStream gzip = new PooledGzipOutputStream(output, pool)) {
+            // Write in chunks and single bytes to cover both write methods
+            if (data.length > 0) {
+                gzip.write(data[0]);
+                gzip.write(data, 1, data.length - 1);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+}
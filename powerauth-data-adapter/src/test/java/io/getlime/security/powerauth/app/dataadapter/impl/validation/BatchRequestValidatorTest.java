@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.impl.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.core.rest.model.base.request.ObjectRequest;
+import io.getlime.security.powerauth.app.dataadapter.configuration.BatchConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItem;
+import io.getlime.security.powerauth.app.dataadapter.model.enumeration.BatchItemType;
+import io.getlime.security.powerauth.app.dataadapter.model.request.BatchRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of validation of the structure of batch requests.
+ */
+class BatchRequestValidatorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BatchRequestValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        final BatchConfiguration configuration = new BatchConfiguration();
+        ReflectionTestUtils.setField(configuration, "maxItems", 3);
+        validator = new BatchRequestValidator(configuration);
+    }
+
+    @Test
+    void testValidRequest() {
+        assertNull(validate(item("a"), item("b", "a"), item("c", "a", "b")));
+    }
+
+    @Test
+    void testItemIdDefaultsToIndex() {
+        assertNull(validate(item(null), item(null, "0")));
+    }
+
+    @Test
+    void testEmptyRequest() {
+        assertEquals("batch.items.empty", validate());
+    }
+
+    @Test
+    void testTooManyItems() {
+        assertEquals("batch.items.tooMany", validate(item("a"), item("b"), item("c"), item("d")));
+    }
+
+    @Test
+    void testInvalidItem() {
+        final BatchItem item = item("a");
+        item.setType(null);
+        assertEquals("batch.item.invalid", validate(item));
+    }
+
+    @Test
+    void testDuplicateItemId() {
+        assertEquals("batch.item.id.duplicate", validate(item("a"), item("a")));
+    }
+
+    @Test
+    void testDependencyOnUnknownItem() {
+        assertEquals("batch.item.dependency.invalid", validate(item("a"), item("b", "x")));
+    }
+
+    @Test
+    void testDependencyOnFollowingItem() {
+        // Items may only depend on preceding items, so that dependency cycles are not possible
+        assertEquals("batch.item.dependency.invalid", validate(item("a", "b"), item("b", "a")));
+        assertEquals("batch.item.dependency.invalid", validate(item("a", "a")));
+    }
+
+    private String validate(BatchItem... items) {
+        final BatchRequest request = new BatchRequest();
+        request.setItems(new ArrayList<>(Arrays.asList(items)));
+        final ObjectRequest<BatchRequest> objectRequest = new ObjectRequest<>(request);
+        final Errors errors = new BeanPropertyBindingResult(objectRequest, "objectRequest");
+        validator.validate(objectRequest, errors);
+        return errors.hasErrors() ? errors.getAllErrors().get(0).getCode() : null;
+    }
+
+    private BatchItem item(String id, String... dependsOn) {
+        final BatchItem item = new BatchItem();
+        item.setId(id);
+        item.setType(BatchItemType.USER_DETAIL);
+        item.setDependsOn(List.of(dependsOn));
+        item.setRequest(objectMapper.valueToTree(Map.of("userId", "user")));
+        return item;
+    }
+
+}
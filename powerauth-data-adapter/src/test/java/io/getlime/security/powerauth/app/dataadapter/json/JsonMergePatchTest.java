@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of JSON merge patch using the examples from RFC 7386 with object targets and patches.
+ */
+class JsonMergePatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testReplaceValue() throws Exception {
+        assertPatch("{\"a\":\"b\"}", "{\"a\":\"c\"}", "{\"a\":\"c\"}");
+    }
+
+    @Test
+    void testAddValue() throws Exception {
+        assertPatch("{\"a\":\"b\"}", "{\"b\":\"c\"}", "{\"a\":\"b\",\"b\":\"c\"}");
+    }
+
+    @Test
+    void testRemoveValue() throws Exception {
+        assertPatch("{\"a\":\"b\"}", "{\"a\":null}", "{}");
+        assertPatch("{\"a\":\"b\",\"b\":\"c\"}", "{\"a\":null}", "{\"b\":\"c\"}");
+    }
+
+    @Test
+    void testReplaceArray() throws Exception {
+        assertPatch("{\"a\":[\"b\"]}", "{\"a\":\"c\"}", "{\"a\":\"c\"}");
+        assertPatch("{\"a\":\"c\"}", "{\"a\":[\"b\"]}", "{\"a\":[\"b\"]}");
+        assertPatch("{\"a\":[{\"b\":\"c\"}]}", "{\"a\":[1]}", "{\"a\":[1]}");
+    }
+
+    @Test
+    void testMergeNestedObject() throws Exception {
+        assertPatch("{\"a\":{\"b\":\"c\"}}", "{\"a\":{\"b\":\"d\",\"c\":null}}", "{\"a\":{\"b\":\"d\"}}");
+    }
+
+    @Test
+    void testCreateNestedObject() throws Exception {
+        assertPatch("{\"e\":null}", "{\"a\":1}", "{\"e\":null,\"a\":1}");
+        assertPatch("{}", "{\"a\":{\"bb\":{\"ccc\":null}}}", "{\"a\":{\"bb\":{}}}");
+        assertPatch("{\"a\":\"b\"}", "{\"a\":{\"c\":\"d\"}}", "{\"a\":{\"c\":\"d\"}}");
+    }
+
+    @Test
+    void testEmptyPatch() throws Exception {
+        assertPatch("{\"a\":{\"b\":\"c\"}}", "{}", "{\"a\":{\"b\":\"c\"}}");
+    }
+
+    private void assertPatch(String target, String patch, String expected) throws Exception {
+        final ObjectNode node = (ObjectNode) objectMapper.readTree(target);
+        JsonMergePatch.apply(node, objectMapper.readTree(patch));
+        assertEquals(objectMapper.readTree(expected), node);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of JSON message converter with reusable serialization buffers.
+ */
+class PooledJsonHttpMessageConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testWriteWithContentLength() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, false);
+        final TestOutputMessage message = write(converter, Map.of("a", "b"));
+        assertEquals("{\"a\":\"b\"}", message.getBodyAsString());
+        assertEquals(message.body.size(), message.getHeaders().getContentLength());
+    }
+
+    @Test
+    void testWritePrettyPrint() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, true);
+        final TestOutputMessage message = write(converter, Map.of("a", "b"));
+        assertTrue(message.getBodyAsString().contains("\n"));
+        assertEquals(Map.of("a", "b"), objectMapper.readValue(message.getBodyAsString(), new TypeReference<Map<String, String>>() {}));
+    }
+
+    @Test
+    void testWriteGenericList() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, false);
+        final TestOutputMessage message = new TestOutputMessage();
+        final List<Map<String, Integer>> value = List.of(Map.of("a", 1), Map.of("b", 2));
+        converter.write(value, new TypeReference<List<Map<String, Integer>>>() {}.getType(), MediaType.APPLICATION_JSON, message);
+        assertEquals("[{\"a\":1},{\"b\":2}]", message.getBodyAsString());
+    }
+
+    @Test
+    void testBufferIsResetBetweenWrites() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, false);
+        final String large = String.join("", Collections.nCopies(100 * 1024, "x"));
+        final TestOutputMessage largeMessage = write(converter, Map.of("a", large));
+        assertEquals(large.length() + 8, largeMessage.body.size());
+        final TestOutputMessage firstMessage = write(converter, Map.of("a", "b"));
+        final TestOutputMessage secondMessage = write(converter, Map.of("c", "d"));
+        assertEquals("{\"a\":\"b\"}", firstMessage.getBodyAsString());
+        assertEquals("{\"c\":\"d\"}", secondMessage.getBodyAsString());
+        assertEquals(secondMessage.body.size(), secondMessage.getHeaders().getContentLength());
+    }
+
+    @Test
+    void testBuffersSharedBetweenThreads() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, false);
+        write(converter, Map.of("a", "b"));
+        assertEquals(1, converter.getIdleBufferCount());
+        // A buffer returned by one thread is reused by another thread
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("{\"c\":\"d\"}", executor.submit(() -> write(converter, Map.of("c", "d")).getBodyAsString()).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, converter.getIdleBufferCount());
+    }
+
+    @Test
+    void testConcurrentWritesUseSeparateBuffers() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, false);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final int index = i;
+                results.add(executor.submit(() -> write(converter, Map.of("a", index)).getBodyAsString()));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("{\"a\":" + i + "}", results.get(i).get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(converter.getIdleBufferCount() >= 1 && converter.getIdleBufferCount() <= 8);
+    }
+
+    @Test
+    void testLargeBufferIsNotRetained() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, false);
+        write(converter, Map.of("a", String.join("", Collections.nCopies(100 * 1024, "x"))));
+        assertEquals(0, converter.getIdleBufferCount());
+    }
+
+    @Test
+    void testSerializationErrorIsNotWritten() throws Exception {
+        final PooledJsonHttpMessageConverter converter = new PooledJsonHttpMessageConverter(objectMapper, false);
+        final TestOutputMessage message = new TestOutputMessage();
+        assertThrows(HttpMessageNotWritableException.class, () -> converter.write(new FailingValue(), null, MediaType.APPLICATION_JSON, message));
+        assertEquals(0, message.body.size());
+        assertEquals("{\"a\":\"b\"}", write(converter, Map.of("a", "b")).getBodyAsString());
+    }
+
+    private TestOutputMessage write(PooledJsonHttpMessageConverter converter, Object value) throws Exception {
+        final TestOutputMessage message = new TestOutputMessage();
+        converter.write(value, null, MediaType.APPLICATION_JSON, message);
+        return message;
+    }
+
+    /**
+     * Value whose serialization fails.
+     */
+    public static class FailingValue {
+
+        public String getValue() {
+            throw new IllegalStateException("Serialization failed");
+        }
+
+    }
+
+    /**
+     * HTTP output message which collects the body in memory.
+     */
+    private static class TestOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public ByteArrayOutputStream getBody() {
+            return body;
+        }
+
+        private String getBodyAsString() {
+            return body.toString(StandardCharsets.UTF_8);
+        }
+
+    }
+
+}
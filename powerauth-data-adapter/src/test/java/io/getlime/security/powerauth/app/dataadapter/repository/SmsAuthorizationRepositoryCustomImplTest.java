@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of conversion of the remaining time until the request deadline to the query timeout.
+ */
+class SmsAuthorizationRepositoryCustomImplTest {
+
+    @Test
+    void testTimeoutRoundedUpToSeconds() {
+        assertEquals(1, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(1L));
+        assertEquals(1, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(499L));
+        assertEquals(1, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(1000L));
+        assertEquals(2, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(1001L));
+        assertEquals(30, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(29_500L));
+    }
+
+    @Test
+    void testTimeoutIsNeverZero() {
+        assertEquals(1, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(0L));
+        assertEquals(1, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(-100L));
+    }
+
+    @Test
+    void testTimeoutLimitedToIntegerRange() {
+        assertEquals(Integer.MAX_VALUE, SmsAuthorizationRepositoryCustomImpl.toQueryTimeoutSeconds(Long.MAX_VALUE));
+    }
+}
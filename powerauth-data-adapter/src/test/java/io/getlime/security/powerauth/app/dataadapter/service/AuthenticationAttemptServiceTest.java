@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.AfsConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuthenticationAttemptConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.DataAdapterConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.OrganizationSettingsConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.repository.AuthenticationAttemptRepository;
+import io.getlime.security.powerauth.app.dataadapter.service.settings.OrganizationSettingsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of tracking of failed authentication attempts.
+ */
+class AuthenticationAttemptServiceTest {
+
+    private static final int MAX_FAILED_ATTEMPTS = 5;
+
+    private AuthenticationAttemptService attemptService;
+
+    @BeforeEach
+    void setUp() {
+        final AuthenticationAttemptConfiguration configuration = new AuthenticationAttemptConfiguration();
+        ReflectionTestUtils.setField(configuration, "maxFailedAttempts", MAX_FAILED_ATTEMPTS);
+        ReflectionTestUtils.setField(configuration, "failedAttemptWindowInSeconds", 600L);
+        ReflectionTestUtils.setField(configuration, "maxTrackedUsers", 1000);
+        ReflectionTestUtils.setField(configuration, "flushIntervalInMilliseconds", 60000L);
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final OrganizationSettingsService settingsService = new OrganizationSettingsService(new OrganizationSettingsConfiguration(),
+                new DataAdapterConfiguration(), configuration, new AfsConfiguration(), event -> { }, meterRegistry);
+        attemptService = new AuthenticationAttemptService(createRepository(), configuration, settingsService);
+    }
+
+    @Test
+    void testReservedAttemptsBlockUser() {
+        for (int i = 0; i < MAX_FAILED_ATTEMPTS; i++) {
+            assertTrue(attemptService.tryReserveAttempt("user", "RETAIL"));
+        }
+        assertEquals(0, attemptService.getRemainingAttempts("user", "RETAIL"));
+        assertFalse(attemptService.tryReserveAttempt("user", "RETAIL"));
+        // Attempts are tracked per organization
+        assertTrue(attemptService.tryReserveAttempt("user", "SME"));
+    }
+
+    @Test
+    void testReleasedAttemptIsNotCounted() {
+        assertTrue(attemptService.tryReserveAttempt("user", "RETAIL"));
+        assertEquals(MAX_FAILED_ATTEMPTS - 1, attemptService.getRemainingAttempts("user", "RETAIL"));
+        attemptService.releaseAttempt("user", "RETAIL");
+        assertEquals(MAX_FAILED_ATTEMPTS, attemptService.getRemainingAttempts("user", "RETAIL"));
+        // Releasing without a reservation does not add attempts
+        attemptService.releaseAttempt("user", "RETAIL");
+        assertEquals(MAX_FAILED_ATTEMPTS, attemptService.getRemainingAttempts("user", "RETAIL"));
+    }
+
+    @Test
+    void testResetUnblocksUser() {
+        for (int i = 0; i < MAX_FAILED_ATTEMPTS; i++) {
+            assertTrue(attemptService.tryReserveAttempt("user", "RETAIL"));
+        }
+        attemptService.resetFailedAttempts("user", "RETAIL");
+        assertEquals(MAX_FAILED_ATTEMPTS, attemptService.getRemainingAttempts("user", "RETAIL"));
+        assertTrue(attemptService.tryReserveAttempt("user", "RETAIL"));
+    }
+
+    @Test
+    void testConcurrentAttemptsDoNotExceedLimit() throws Exception {
+        final int threadCount = 32;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger verifications = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    if (attemptService.tryReserveAttempt("user", "RETAIL")) {
+                        // Verification with an invalid password, the reserved attempt is kept as a failed attempt
+                        verifications.incrementAndGet();
+                        TimeUnit.MILLISECONDS.sleep(20);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(MAX_FAILED_ATTEMPTS, verifications.get());
+        assertEquals(0, attemptService.getRemainingAttempts("user", "RETAIL"));
+    }
+
+    @Test
+    void testMissingIdentifierIsNotTracked() {
+        for (int i = 0; i < MAX_FAILED_ATTEMPTS + 1; i++) {
+            assertTrue(attemptService.tryReserveAttempt("user", null));
+        }
+        assertEquals(MAX_FAILED_ATTEMPTS, attemptService.getRemainingAttempts("user", null));
+    }
+
+    /**
+     * Create a repository without persisted counts, all changes are discarded.
+     * @return Authentication attempt repository.
+     */
+    private AuthenticationAttemptRepository createRepository() {
+        return (AuthenticationAttemptRepository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{AuthenticationAttemptRepository.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "findById":
+                    return Optional.empty();
+                case "save":
+                case "saveAll":
+                    return args[0];
+                case "findAllById":
+                case "findAllByTimestampLastFailureAfter":
+                case "findAll":
+                    return Collections.emptyList();
+                default:
+                    return null;
+            }
+        });
+    }
+
+}
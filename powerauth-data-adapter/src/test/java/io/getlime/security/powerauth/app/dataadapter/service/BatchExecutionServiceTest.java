@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.core.rest.model.base.response.ObjectResponse;
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import io.getlime.security.powerauth.app.dataadapter.configuration.BatchConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DefaultExceptionResolver;
+import io.getlime.security.powerauth.app.dataadapter.exception.UserNotFoundException;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.AuthMethodRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.AuthenticationRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.impl.validation.ConsentFormRequestValidator;
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItem;
+import io.getlime.security.powerauth.app.dataadapter.model.entity.BatchItemResult;
+import io.getlime.security.powerauth.app.dataadapter.model.enumeration.BatchItemType;
+import io.getlime.security.powerauth.app.dataadapter.model.request.BatchRequest;
+import io.getlime.security.powerauth.app.dataadapter.model.response.BatchResponse;
+import io.getlime.security.powerauth.lib.dataadapter.model.response.UserDetailResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of execution of batch items with dependencies.
+ */
+class BatchExecutionServiceTest {
+
+    private static final String UNKNOWN_USER = "unknown";
+    private static final String SLOW_USER = "slow";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final Map<String, UserDetailResponse> responses = new ConcurrentHashMap<>();
+    private BatchExecutionService batchExecutionService;
+
+    @BeforeEach
+    void setUp() {
+        final BatchConfiguration configuration = new BatchConfiguration();
+        ReflectionTestUtils.setField(configuration, "maxItems", 10);
+        ReflectionTestUtils.setField(configuration, "threadCount", 4);
+        ReflectionTestUtils.setField(configuration, "queueCapacity", 10);
+        ReflectionTestUtils.setField(configuration, "timeoutInMilliseconds", 2000L);
+        batchExecutionService = createService(configuration);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchExecutionService.shutdown();
+    }
+
+    @Test
+    void testResultsInOrderOfItems() {
+        final BatchResponse response = batchExecutionService.execute(batch(
+                userDetail("a", "user1"),
+                userDetail("b", "user2")));
+        final List<BatchItemResult> results = response.getItems();
+        assertEquals(2, results.size());
+        assertResult(results.get(0), "a", 200);
+        assertResult(results.get(1), "b", 200);
+        assertSame(responses.get("user1"), ((ObjectResponse<?>) results.get(0).getResponse()).getResponseObject());
+        assertSame(responses.get("user2"), ((ObjectResponse<?>) results.get(1).getResponse()).getResponseObject());
+    }
+
+    @Test
+    void testDependentItemExecutedAfterDependency() {
+        final BatchResponse response = batchExecutionService.execute(batch(
+                userDetail("a", SLOW_USER),
+                userDetail("b", "user2", "a")));
+        assertResult(response.getItems().get(0), "a", 200);
+        assertResult(response.getItems().get(1), "b", 200);
+        assertEquals(List.of(SLOW_USER, "user2"), calls);
+    }
+
+    @Test
+    void testPartialFailure() {
+        final BatchResponse response = batchExecutionService.execute(batch(
+                userDetail("a", UNKNOWN_USER),
+                userDetail("b", "user2"),
+                userDetail("c", "user3", "a"),
+                userDetail("d", "user4", "c")));
+        final List<BatchItemResult> results = response.getItems();
+        // The failed item returns the same status as the equivalent endpoint, independent items are not affected
+        assertResult(results.get(0), "a", 400);
+        assertResult(results.get(1), "b", 200);
+        // Items depending on a failed item are not executed, the failure is propagated transitively
+        assertResult(results.get(2), "c", 424);
+        assertResult(results.get(3), "d", 424);
+        assertFalse(calls.contains("user3"));
+        assertFalse(calls.contains("user4"));
+    }
+
+    @Test
+    void testInvalidItemRequest() {
+        final BatchItem item = new BatchItem();
+        item.setId("a");
+        item.setType(BatchItemType.USER_DETAIL);
+        item.setRequest(objectMapper.valueToTree(Map.of("unknownField", "value")));
+        final BatchResponse response = batchExecutionService.execute(batch(item, userDetail("b", "user2", "a")));
+        assertResult(response.getItems().get(0), "a", 400);
+        assertResult(response.getItems().get(1), "b", 424);
+    }
+
+    @Test
+    void testItemTimeout() {
+        batchExecutionService.shutdown();
+        final BatchConfiguration configuration = new BatchConfiguration();
+        ReflectionTestUtils.setField(configuration, "maxItems", 10);
+        ReflectionTestUtils.setField(configuration, "threadCount", 4);
+        ReflectionTestUtils.setField(configuration, "queueCapacity", 10);
+        ReflectionTestUtils.setField(configuration, "timeoutInMilliseconds", 50L);
+        batchExecutionService = createService(configuration);
+        final BatchResponse response = batchExecutionService.execute(batch(
+                userDetail("a", SLOW_USER),
+                userDetail("b", "user2")));
+        assertResult(response.getItems().get(0), "a", 504);
+        assertResult(response.getItems().get(1), "b", 200);
+    }
+
+    private BatchExecutionService createService(BatchConfiguration configuration) {
+        return new BatchExecutionService(dataAdapter(), null, null, null,
+                new AuthenticationRequestValidator(), new AuthMethodRequestValidator(), new ConsentFormRequestValidator(),
+                new DefaultExceptionResolver(), objectMapper, configuration, new VirtualThreadConfiguration(), new SimpleMeterRegistry());
+    }
+
+    private DataAdapter dataAdapter() {
+        return (DataAdapter) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataAdapter.class}, (proxy, method, args) -> {
+            if (!"fetchUserDetail".equals(method.getName())) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            final String userId = (String) args[0];
+            if (SLOW_USER.equals(userId)) {
+                Thread.sleep(200);
+            }
+            calls.add(userId);
+            if (UNKNOWN_USER.equals(userId)) {
+                throw new UserNotFoundException("User not found: " + userId);
+            }
+            return responses.computeIfAbsent(userId, id -> new UserDetailResponse());
+        });
+    }
+
+    private BatchItem userDetail(String id, String userId, String... dependsOn) {
+        final BatchItem item = new BatchItem();
+        item.setId(id);
+        item.setType(BatchItemType.USER_DETAIL);
+        item.setDependsOn(Arrays.asList(dependsOn));
+        item.setRequest(objectMapper.valueToTree(Map.of("userId", userId, "organizationId", "RETAIL")));
+        return item;
+    }
+
+    private static BatchRequest batch(BatchItem... items) {
+        final BatchRequest request = new BatchRequest();
+        request.setItems(Arrays.asList(items));
+        return request;
+    }
+
+    private static void assertResult(BatchItemResult result, String id, int httpStatus) {
+        assertEquals(id, result.getId());
+        assertEquals(BatchItemType.USER_DETAIL, result.getType());
+        assertEquals(httpStatus, result.getHttpStatus());
+    }
+
+}
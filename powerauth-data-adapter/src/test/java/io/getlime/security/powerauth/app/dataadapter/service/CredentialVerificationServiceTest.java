@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.CredentialVerificationConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.CredentialVerificationRejectedException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.Deadline;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineContextHolder;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of credential verification in the dedicated executor.
+ */
+class CredentialVerificationServiceTest {
+
+    private CredentialVerificationService verificationService;
+
+    @BeforeEach
+    void setUp() {
+        verificationService = createService(200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DeadlineContextHolder.resetDeadline();
+        verificationService.shutdown();
+    }
+
+    @Test
+    void testVerificationResult() throws Exception {
+        assertTrue(verificationService.verify(() -> true));
+    }
+
+    @Test
+    void testVerificationTimeout() {
+        assertThrows(CredentialVerificationRejectedException.class, () -> verificationService.verify(() -> sleep(1000)));
+    }
+
+    @Test
+    void testFullQueueIsRejected() throws Exception {
+        verificationService.shutdown();
+        verificationService = createService(5000);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread busy = new Thread(() -> {
+            try {
+                verificationService.verify(() -> {
+                    running.countDown();
+                    return await(release);
+                });
+            } catch (Exception ex) {
+                // The result is not relevant
+            }
+        });
+        busy.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        final Thread queued = new Thread(() -> {
+            try {
+                verificationService.verify(() -> true);
+            } catch (Exception ex) {
+                // The result is not relevant
+            }
+        });
+        queued.start();
+        while (queued.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        assertThrows(CredentialVerificationRejectedException.class, () -> verificationService.verify(() -> true));
+        release.countDown();
+        busy.join();
+        queued.join();
+    }
+
+    @Test
+    void testDeadlineIsPropagated() throws Exception {
+        final Deadline deadline = Deadline.after(5000);
+        DeadlineContextHolder.setDeadline(deadline);
+        assertSame(deadline, verificationService.verify(DeadlineContextHolder::getDeadline));
+    }
+
+    @Test
+    void testWaitIsLimitedByDeadline() {
+        DeadlineContextHolder.setDeadline(Deadline.after(50));
+        final long startNanos = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> verificationService.verify(() -> sleep(1000)));
+        assertTrue(System.nanoTime() - startNanos < 200_000_000L);
+    }
+
+    @Test
+    void testExpiredDeadlineIsRejected() {
+        DeadlineContextHolder.setDeadline(Deadline.after(0));
+        final AtomicBoolean verified = new AtomicBoolean();
+        assertThrows(DeadlineExceededException.class, () -> verificationService.verify(() -> verified.getAndSet(true)));
+        assertFalse(verified.get());
+    }
+
+    private static CredentialVerificationService createService(long timeoutInMilliseconds) {
+        final CredentialVerificationConfiguration configuration = new CredentialVerificationConfiguration();
+        ReflectionTestUtils.setField(configuration, "threadCount", 1);
+        ReflectionTestUtils.setField(configuration, "queueCapacity", 1);
+        ReflectionTestUtils.setField(configuration, "timeoutInMilliseconds", timeoutInMilliseconds);
+        final DeadlineConfiguration deadlineConfiguration = new DeadlineConfiguration();
+        ReflectionTestUtils.setField(deadlineConfiguration, "minimumRemainingInMilliseconds", 10L);
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new CredentialVerificationService(configuration, new DeadlineService(deadlineConfiguration, meterRegistry), meterRegistry);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.PasswordEncryptionConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of decryption of passwords protected using AES encryption.
+ */
+class PasswordDecryptionServiceTest {
+
+    private static final byte[] KEY = new byte[16];
+
+    static {
+        new SecureRandom().nextBytes(KEY);
+    }
+
+    @Test
+    void testDecryptCbc() throws Exception {
+        final PasswordDecryptionService service = createService("AES/CBC/PKCS7Padding");
+        final byte[] iv = randomBytes(16);
+        assertEquals("s3cret", service.decryptPassword(encrypt("AES/CBC/PKCS5Padding", new IvParameterSpec(iv), iv, "s3cret")));
+    }
+
+    @Test
+    void testDecryptGcm() throws Exception {
+        final PasswordDecryptionService service = createService("AES/GCM/NoPadding");
+        final byte[] iv = randomBytes(12);
+        assertEquals("p\u00e4ssw\u00f6rd", service.decryptPassword(encrypt("AES/GCM/NoPadding", new GCMParameterSpec(128, iv), iv, "p\u00e4ssw\u00f6rd")));
+    }
+
+    @Test
+    void testReusedCipherDecryptsPasswordsOfDifferentLength() throws Exception {
+        final PasswordDecryptionService service = createService("AES/CBC/PKCS7Padding");
+        for (String password : new String[]{"a very long password which does not fit into a single block", "short", ""}) {
+            final byte[] iv = randomBytes(16);
+            assertEquals(password, service.decryptPassword(encrypt("AES/CBC/PKCS5Padding", new IvParameterSpec(iv), iv, password)));
+        }
+    }
+
+    @Test
+    void testInvalidFormat() {
+        final PasswordDecryptionService service = createService("AES/CBC/PKCS7Padding");
+        assertThrows(GeneralSecurityException.class, () -> service.decryptPassword(null));
+        assertThrows(GeneralSecurityException.class, () -> service.decryptPassword("no-separator"));
+        assertThrows(GeneralSecurityException.class, () -> service.decryptPassword(":cipherText"));
+        assertThrows(GeneralSecurityException.class, () -> service.decryptPassword("iv:"));
+        assertThrows(GeneralSecurityException.class, () -> service.decryptPassword("!!!:???"));
+    }
+
+    @Test
+    void testTamperedCipherTextIsRejected() throws Exception {
+        final PasswordDecryptionService service = createService("AES/GCM/NoPadding");
+        final byte[] iv = randomBytes(12);
+        final String encrypted = encrypt("AES/GCM/NoPadding", new GCMParameterSpec(128, iv), iv, "s3cret");
+        final byte[] cipherText = Base64.getDecoder().decode(encrypted.substring(encrypted.indexOf(':') + 1));
+        cipherText[0] ^= 1;
+        final String tampered = encrypted.substring(0, encrypted.indexOf(':') + 1) + Base64.getEncoder().encodeToString(cipherText);
+        assertThrows(GeneralSecurityException.class, () -> service.decryptPassword(tampered));
+    }
+
+    @Test
+    void testMissingKey() {
+        final PasswordEncryptionConfiguration configuration = new PasswordEncryptionConfiguration();
+        ReflectionTestUtils.setField(configuration, "encryptionKey", "");
+        ReflectionTestUtils.setField(configuration, "cipherTransformation", "AES/CBC/PKCS7Padding");
+        final PasswordDecryptionService service = new PasswordDecryptionService(configuration);
+        assertThrows(GeneralSecurityException.class, () -> service.decryptPassword("aXY=:Y2lwaGVy"));
+    }
+
+    private static PasswordDecryptionService createService(String cipherTransformation) {
+        final PasswordEncryptionConfiguration configuration = new PasswordEncryptionConfiguration();
+        ReflectionTestUtils.setField(configuration, "encryptionKey", Base64.getEncoder().encodeToString(KEY));
+        ReflectionTestUtils.setField(configuration, "cipherTransformation", cipherTransformation);
+        return new PasswordDecryptionService(configuration);
+    }
+
+    private static String encrypt(String cipherTransformation, AlgorithmParameterSpec parameterSpec, byte[] iv, String password) throws GeneralSecurityException {
+        final Cipher cipher = Cipher.getInstance(cipherTransformation);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), parameterSpec);
+        final byte[] cipherText = cipher.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(iv) + ":" + Base64.getEncoder().encodeToString(cipherText);
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.afs;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of compilation and evaluation of local AFS velocity rules.
+ */
+class AfsDecisionTreeTest {
+
+    private static final int UNKNOWN = AfsDecisionTree.UNKNOWN_VALUE;
+
+    @Test
+    void testOperators() {
+        assertEquals("A", evaluate("user.velocity>=5:A", 5, UNKNOWN, UNKNOWN));
+        assertNull(evaluate("user.velocity>=5:A", 4, UNKNOWN, UNKNOWN));
+        assertEquals("A", evaluate("user.velocity>5:A", 6, UNKNOWN, UNKNOWN));
+        assertNull(evaluate("user.velocity>5:A", 5, UNKNOWN, UNKNOWN));
+        assertEquals("A", evaluate("user.velocity<=5:A", 5, UNKNOWN, UNKNOWN));
+        assertNull(evaluate("user.velocity<=5:A", 6, UNKNOWN, UNKNOWN));
+        assertEquals("A", evaluate("user.velocity<5:A", 4, UNKNOWN, UNKNOWN));
+        assertNull(evaluate("user.velocity<5:A", 5, UNKNOWN, UNKNOWN));
+        assertEquals("A", evaluate("user.velocity==5:A", 5, UNKNOWN, UNKNOWN));
+        assertNull(evaluate("user.velocity==5:A", 6, UNKNOWN, UNKNOWN));
+    }
+
+    @Test
+    void testFirstMatchingRuleWins() {
+        final String rules = "user.velocity>=20:BLOCK, device.velocity>=10:2FA, user.velocity>=5:2FA, account.velocity<1:NONE";
+        assertEquals("BLOCK", evaluate(rules, 25, 12, 0));
+        assertEquals("2FA", evaluate(rules, 6, 0, 3));
+        assertEquals("NONE", evaluate(rules, 0, 0, 0));
+        assertNull(evaluate(rules, 0, 0, 3));
+    }
+
+    @Test
+    void testUnknownFeatureNeverMatches() {
+        assertNull(evaluate("user.velocity<5:ALLOW", UNKNOWN, UNKNOWN, UNKNOWN));
+        assertNull(evaluate("account.velocity<=0:ALLOW", 0, 0, UNKNOWN));
+        assertEquals("2FA", evaluate("user.velocity<5:ALLOW,device.velocity>=10:2FA", UNKNOWN, 10, UNKNOWN));
+    }
+
+    @Test
+    void testEmptyRules() {
+        assertTrue(AfsDecisionTree.compile(null).isEmpty());
+        assertTrue(AfsDecisionTree.compile(" , ").isEmpty());
+        assertNull(evaluate("", 100, 100, 100));
+    }
+
+    @Test
+    void testInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> AfsDecisionTree.compile("user.velocity=>5:A"));
+        assertThrows(IllegalArgumentException.class, () -> AfsDecisionTree.compile("user.velocity>=5"));
+        assertThrows(IllegalArgumentException.class, () -> AfsDecisionTree.compile("ip.velocity>=5:A"));
+    }
+
+    @Test
+    void testEvaluationMatchesLinearScan() {
+        final String[] operators = {">=", ">", "<=", "<", "=="};
+        final AfsVelocityFeature[] features = AfsVelocityFeature.values();
+        final Random random = new Random(42);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            final int ruleCount = 1 + random.nextInt(12);
+            final String[][] rules = new String[ruleCount][];
+            final StringBuilder config = new StringBuilder();
+            for (int i = 0; i < ruleCount; i++) {
+                rules[i] = new String[]{features[random.nextInt(features.length)].getRuleName(),
+                        operators[random.nextInt(operators.length)], String.valueOf(random.nextInt(20)), "L" + i};
+                if (i > 0) {
+                    config.append(',');
+                }
+                config.append(rules[i][0]).append(rules[i][1]).append(rules[i][2]).append(':').append(rules[i][3]);
+            }
+            final AfsDecisionTree tree = AfsDecisionTree.compile(config.toString());
+            for (int sample = 0; sample < 50; sample++) {
+                final int[] values = new int[features.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = random.nextInt(10) == 0 ? UNKNOWN : random.nextInt(25) - 2;
+                }
+                assertEquals(evaluateLinear(rules, values), tree.evaluate(values), "Rules: " + config);
+            }
+        }
+    }
+
+    private static String evaluate(String rules, int userVelocity, int deviceVelocity, int accountVelocity) {
+        final int[] values = new int[AfsVelocityFeature.values().length];
+        values[AfsVelocityFeature.USER_VELOCITY.ordinal()] = userVelocity;
+        values[AfsVelocityFeature.DEVICE_VELOCITY.ordinal()] = deviceVelocity;
+        values[AfsVelocityFeature.ACCOUNT_VELOCITY.ordinal()] = accountVelocity;
+        return AfsDecisionTree.compile(rules).evaluate(values);
+    }
+
+    private static String evaluateLinear(String[][] rules, int[] values) {
+        for (String[] rule : rules) {
+            final int value = values[AfsVelocityFeature.fromRuleName(rule[0]).ordinal()];
+            if (value == UNKNOWN) {
+                continue;
+            }
+            final int threshold = Integer.parseInt(rule[2]);
+            final boolean matches;
+            switch (rule[1]) {
+                case ">=":
+                    matches = value >= threshold;
+                    break;
+                case ">":
+                    matches = value > threshold;
+                    break;
+                case "<=":
+                    matches = value <= threshold;
+                    break;
+                case "<":
+                    matches = value < threshold;
+                    break;
+                default:
+                    matches = value == threshold;
+            }
+            if (matches) {
+                return rule[3];
+            }
+        }
+        return null;
+    }
+}
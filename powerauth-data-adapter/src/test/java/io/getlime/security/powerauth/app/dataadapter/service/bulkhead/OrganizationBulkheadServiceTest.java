@@ -0,0 +1,131 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.bulkhead;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.BulkheadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.BulkheadFullException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DefaultExceptionResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of per-organization bulkheads around backend calls.
+ */
+class OrganizationBulkheadServiceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private OrganizationBulkheadService bulkheadService;
+
+    @BeforeEach
+    void setUp() {
+        final BulkheadConfiguration configuration = new BulkheadConfiguration(new StandardEnvironment());
+        ReflectionTestUtils.setField(configuration, "enabled", true);
+        ReflectionTestUtils.setField(configuration, "organizations", "RETAIL, SME");
+        ReflectionTestUtils.setField(configuration, "maxConcurrentCalls", 1);
+        ReflectionTestUtils.setField(configuration, "maxWaitInMilliseconds", 10L);
+        bulkheadService = new OrganizationBulkheadService(configuration, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testBulkheadsCreatedForConfiguredOrganizations() {
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.bulkhead.capacity").tag("organization", "RETAIL").gauge().value());
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.bulkhead.capacity").tag("organization", "SME").gauge().value());
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.bulkhead.capacity").tag("organization", "other").gauge().value());
+    }
+
+    @Test
+    void testCallRejectedWhenBulkheadSaturated() throws Exception {
+        final CountDownLatch release = occupy("RETAIL");
+        try {
+            assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.bulkhead.saturation").tag("organization", "RETAIL").gauge().value());
+            assertThrows(BulkheadFullException.class, () -> bulkheadService.execute("RETAIL", () -> "result"));
+            assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.bulkhead.rejected").tag("organization", "RETAIL").counter().count());
+            // Other organizations are isolated from the saturated bulkhead
+            assertEquals("result", bulkheadService.execute("SME", () -> "result"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testSlotReleasedAfterCall() throws Exception {
+        final CountDownLatch release = occupy("RETAIL");
+        release.countDown();
+        for (int i = 0; i < 100; i++) {
+            if (meterRegistry.get("powerauth.dataadapter.bulkhead.inuse").tag("organization", "RETAIL").gauge().value() == 0.0) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals("result", bulkheadService.execute("RETAIL", () -> "result"));
+    }
+
+    @Test
+    void testNestedCallReusesSlot() throws Exception {
+        assertEquals("result", bulkheadService.execute("RETAIL", () -> bulkheadService.execute("RETAIL", () -> "result")));
+    }
+
+    @Test
+    void testUnknownOrganizationsShareBulkhead() throws Exception {
+        final CountDownLatch release = occupy("UNKNOWN1");
+        try {
+            assertThrows(BulkheadFullException.class, () -> bulkheadService.execute("UNKNOWN2", () -> "result"));
+            assertThrows(BulkheadFullException.class, () -> bulkheadService.execute(null, () -> "result"));
+            assertEquals("result", bulkheadService.execute("RETAIL", () -> "result"));
+            assertNull(meterRegistry.find("powerauth.dataadapter.bulkhead.capacity").tag("organization", "UNKNOWN1").gauge());
+            assertEquals(2.0, meterRegistry.get("powerauth.dataadapter.bulkhead.rejected").tag("organization", "other").counter().count());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testRejectionMappedToServiceUnavailable() {
+        final BulkheadFullException ex = new BulkheadFullException("Bulkhead is full for organization: RETAIL");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, new DefaultExceptionResolver().resolveException(ex).getStatusCode());
+    }
+
+    /**
+     * Occupy the only slot of the bulkhead of an organization until the returned latch is released.
+     */
+    private CountDownLatch occupy(String organizationId) throws Exception {
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> bulkheadService.execute(organizationId, () -> {
+            acquired.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the lock-free sliding window counter.
+ */
+class SlidingWindowCounterTest {
+
+    @Test
+    void testEventsWithinWindow() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        assertEquals(1, counter.incrementAndGet(1000));
+        assertEquals(2, counter.incrementAndGet(1050));
+        assertEquals(3, counter.incrementAndGet(1500));
+        assertEquals(3, counter.get(1999));
+    }
+
+    @Test
+    void testEventsExpireBucketByBucket() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        counter.add(1000, 2);
+        counter.add(1500, 3);
+        assertEquals(5, counter.get(1999));
+        assertEquals(3, counter.get(2000));
+        assertEquals(3, counter.get(2499));
+        assertEquals(0, counter.get(2500));
+    }
+
+    @Test
+    void testReusedBucketIsReset() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        counter.add(1000, 5);
+        // The same bucket of the ring is used one window later
+        assertEquals(1, counter.incrementAndGet(2000));
+        assertEquals(1, counter.get(2000));
+    }
+
+    @Test
+    void testEventsOlderThanReusedBucketAreIgnored() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        counter.add(2000, 1);
+        counter.add(1000, 5);
+        assertEquals(1, counter.get(2000));
+    }
+
+    @Test
+    void testReset() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        counter.add(1000, 5);
+        counter.reset();
+        assertEquals(0, counter.get(1000));
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(1000, 0));
+    }
+
+    @Test
+    void testConcurrentIncrements() throws InterruptedException {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(60000, 60);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    counter.add(1000 + j % 1000, 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, counter.get(2000));
+    }
+
+    @Test
+    void testTryIncrementWithinLimit() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        assertTrue(counter.tryIncrement(1000, 2));
+        assertTrue(counter.tryIncrement(1500, 2));
+        assertFalse(counter.tryIncrement(1600, 2));
+        assertEquals(2, counter.get(1600));
+        // The first event leaves the window
+        assertTrue(counter.tryIncrement(2000, 2));
+        assertEquals(2, counter.get(2000));
+    }
+
+    @Test
+    void testDecrementRemovesMostRecentEvent() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        counter.add(1000, 1);
+        counter.add(1500, 1);
+        assertTrue(counter.decrement(1600));
+        assertEquals(1, counter.get(1600));
+        // The remaining event expires with its original bucket
+        assertEquals(0, counter.get(2000));
+        assertFalse(counter.decrement(2000));
+    }
+
+    @Test
+    void testConcurrentTryIncrementDoesNotExceedLimit() throws InterruptedException {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(60000, 60);
+        final AtomicInteger admitted = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    if (counter.tryIncrement(1000 + j % 1000, 100)) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(100, admitted.get());
+        assertEquals(100, counter.get(2000));
+    }
+
+    @Test
+    void testCounterMapEvictsIdleCountersFirst() {
+        final SlidingWindowCounterMap counters = new SlidingWindowCounterMap(1000, 10, 2);
+        counters.incrementAndGet("idle", 1000);
+        counters.incrementAndGet("active", 2500);
+        counters.incrementAndGet("new", 2600);
+        assertEquals(2, counters.size());
+        assertEquals(0, counters.get("idle", 2600));
+        assertEquals(1, counters.get("active", 2600));
+        assertEquals(1, counters.get("new", 2600));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.deadline;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of checks of the remaining time until the request deadline.
+ */
+class DeadlineServiceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DeadlineService deadlineService;
+
+    @BeforeEach
+    void setUp() {
+        final DeadlineConfiguration configuration = new DeadlineConfiguration();
+        ReflectionTestUtils.setField(configuration, "minimumRemainingInMilliseconds", 20L);
+        deadlineService = new DeadlineService(configuration, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DeadlineContextHolder.resetDeadline();
+    }
+
+    @Test
+    void testNoDeadline() throws Exception {
+        assertEquals(Long.MAX_VALUE, deadlineService.getRemainingMillis());
+        deadlineService.checkRemaining("fetchUserDetail");
+    }
+
+    @Test
+    void testSufficientRemainingTime() throws Exception {
+        DeadlineContextHolder.setDeadline(Deadline.after(10_000L));
+        final long remainingMillis = deadlineService.getRemainingMillis();
+        assertTrue(remainingMillis > 9_000L && remainingMillis <= 10_000L);
+        deadlineService.checkRemaining("fetchUserDetail");
+    }
+
+    @Test
+    void testInsufficientRemainingTime() {
+        DeadlineContextHolder.setDeadline(Deadline.after(10L));
+        assertThrows(DeadlineExceededException.class, () -> deadlineService.checkRemaining("fetchUserDetail"));
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.deadline.exceeded").tag("operation", "fetchUserDetail").counter().count());
+    }
+
+    @Test
+    void testExpiredDeadline() {
+        DeadlineContextHolder.setDeadline(Deadline.after(-1L));
+        assertThrows(DeadlineExceededException.class, () -> deadlineService.checkRemaining("verifyAuthorizationSms"));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of writing, recovery and reading of the event journal.
+ */
+class EventJournalTest {
+
+    private static final String NAME = "test";
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRoundTrip() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, SEGMENT_SIZE, 0, 0)) {
+            assertEquals(1, journal.append(1, payload("first")));
+            assertEquals(2, journal.append(2, payload("second")));
+            assertEquals(3, journal.appendAndSync(1, new byte[0]));
+            assertEquals(3, journal.getLastSequence());
+        }
+        final List<JournalRecord> records = readAll(1);
+        assertEquals(3, records.size());
+        assertRecord(records.get(0), 1, 1, "first");
+        assertRecord(records.get(1), 2, 2, "second");
+        assertRecord(records.get(2), 3, 1, "");
+    }
+
+    @Test
+    void testReadFromSequence() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, SEGMENT_SIZE, 0, 0)) {
+            for (int i = 1; i <= 5; i++) {
+                journal.append(1, payload("record-" + i));
+            }
+        }
+        final List<JournalRecord> records = readAll(4);
+        assertEquals(2, records.size());
+        assertRecord(records.get(0), 4, 1, "record-4");
+        assertRecord(records.get(1), 5, 1, "record-5");
+    }
+
+    @Test
+    void testRoundTripAcrossSegments() throws Exception {
+        // Two records of 37 bytes fit into a segment of 100 bytes
+        try (EventJournal journal = new EventJournal(directory, NAME, 100, 0, 0)) {
+            for (int i = 1; i <= 9; i++) {
+                journal.append(1, payload("rec-" + i));
+            }
+        }
+        assertEquals(5, JournalSegment.list(directory, NAME).size());
+        final List<JournalRecord> records = readAll(1);
+        assertEquals(9, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertRecord(records.get(i), i + 1, 1, "rec-" + (i + 1));
+        }
+        assertEquals(5, readAll(5).get(0).getSequence());
+    }
+
+    @Test
+    void testAppendAfterReopen() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, SEGMENT_SIZE, 0, 0)) {
+            journal.append(1, payload("before"));
+        }
+        try (EventJournal journal = new EventJournal(directory, NAME, SEGMENT_SIZE, 0, 0)) {
+            assertEquals(1, journal.getLastSequence());
+            assertEquals(2, journal.appendAndSync(1, payload("after")));
+        }
+        final List<JournalRecord> records = readAll(1);
+        assertEquals(2, records.size());
+        assertRecord(records.get(1), 2, 1, "after");
+    }
+
+    @Test
+    void testRecoveryDiscardsCorruptedRecord() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, SEGMENT_SIZE, 0, 0)) {
+            journal.append(1, payload("rec-1"));
+            journal.append(1, payload("rec-2"));
+            journal.append(1, payload("rec-3"));
+        }
+        // Damage payload of the last record, e.g. a write interrupted by process termination
+        final int recordSize = JournalSegment.HEADER_SIZE + payload("rec-1").length;
+        try (FileChannel channel = FileChannel.open(directory.resolve(JournalSegment.fileName(NAME, 1)), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 2L * recordSize + JournalSegment.HEADER_SIZE);
+        }
+        try (EventJournal journal = new EventJournal(directory, NAME, SEGMENT_SIZE, 0, 0)) {
+            assertEquals(2, journal.getLastSequence());
+            assertEquals(3, journal.append(1, payload("rec-3b")));
+        }
+        final List<JournalRecord> records = readAll(1);
+        assertEquals(3, records.size());
+        assertRecord(records.get(2), 3, 1, "rec-3b");
+    }
+
+    @Test
+    void testDeleteSegmentsUpTo() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, 100, 0, 0)) {
+            for (int i = 1; i <= 9; i++) {
+                journal.append(1, payload("rec-" + i));
+            }
+            journal.deleteSegmentsUpTo(4);
+            assertEquals(3, JournalSegment.list(directory, NAME).size());
+            journal.deleteSegmentsUpTo(100);
+            assertEquals(1, JournalSegment.list(directory, NAME).size(), "The active segment is retained");
+        }
+        assertEquals(9, readAll(1).get(0).getSequence());
+    }
+
+    @Test
+    void testJournalsWithSharedNamePrefix() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, 100, 0, 0);
+             EventJournal otherJournal = new EventJournal(directory, NAME + "-other", 100, 0, 0)) {
+            for (int i = 1; i <= 3; i++) {
+                journal.append(1, payload("rec-" + i));
+            }
+            otherJournal.append(1, payload("other"));
+            journal.deleteSegmentsUpTo(100);
+            assertEquals(1, otherJournal.getLastSequence());
+        }
+        try (EventJournal journal = new EventJournal(directory, NAME, 100, 0, 0)) {
+            assertEquals(3, journal.getLastSequence());
+        }
+        assertEquals(3, readAll(1).get(0).getSequence());
+        assertEquals(1, JournalSegment.list(directory, NAME + "-other").size());
+    }
+
+    @Test
+    void testRetention() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, 100, 2, 0)) {
+            for (int i = 1; i <= 9; i++) {
+                journal.append(1, payload("rec-" + i));
+            }
+        }
+        assertEquals(2, JournalSegment.list(directory, NAME).size());
+        assertEquals(7, readAll(1).get(0).getSequence());
+    }
+
+    @Test
+    void testRecordLargerThanSegment() throws Exception {
+        try (EventJournal journal = new EventJournal(directory, NAME, 100, 0, 0)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append(1, new byte[100]));
+        }
+    }
+
+    @Test
+    void testAppendToClosedJournal() throws Exception {
+        final EventJournal journal = new EventJournal(directory, NAME, SEGMENT_SIZE, 0, 0);
+        journal.close();
+        assertThrows(IOException.class, () -> journal.append(1, payload("closed")));
+    }
+
+    private List<JournalRecord> readAll(long fromSequence) throws IOException {
+        final List<JournalRecord> records = new ArrayList<>();
+        try (JournalReader reader = JournalReader.open(directory, NAME, fromSequence)) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    private static void assertRecord(JournalRecord record, long sequence, int type, String payload) {
+        assertEquals(sequence, record.getSequence());
+        assertEquals(type, record.getType());
+        assertEquals(payload, new String(record.getPayload(), StandardCharsets.UTF_8));
+        assertTrue(record.getTimestamp() > 0);
+    }
+
+    private static byte[] payload(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the gradient concurrency limiter.
+ */
+class GradientConcurrencyLimiterTest {
+
+    private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    void testClassShareOfLimit() throws InterruptedException {
+        final GradientConcurrencyLimiter limiter = createFixedLimiter(10);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.SHEDDABLE));
+        }
+        assertFalse(limiter.tryAcquire(RequestPriority.SHEDDABLE));
+        assertTrue(limiter.isSaturated(RequestPriority.SHEDDABLE));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        }
+        assertEquals(10, limiter.getInFlight());
+        assertTrue(limiter.isSaturated(RequestPriority.CRITICAL));
+    }
+
+    @Test
+    void testWaitingRequestIsAdmittedOnRelease() throws InterruptedException {
+        final GradientConcurrencyLimiter limiter = createFixedLimiter(1);
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        final Waiter waiter = startWaiter(limiter, RequestPriority.CRITICAL);
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        waiter.thread.join(TimeUnit.SECONDS.toMillis(1));
+        assertTrue(waiter.acquired.get());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void testLowerClassIsAdmittedAfterHigherClass() throws InterruptedException {
+        final GradientConcurrencyLimiter limiter = createFixedLimiter(2);
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        final Waiter critical = startWaiter(limiter, RequestPriority.CRITICAL);
+        final Waiter normal = startWaiter(limiter, RequestPriority.NORMAL);
+        // Both slots are released before the waiting requests wake up
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        critical.thread.join(TimeUnit.SECONDS.toMillis(1));
+        normal.thread.join(TimeUnit.SECONDS.toMillis(1));
+        assertTrue(critical.acquired.get());
+        assertTrue(normal.acquired.get());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testRequestWithoutQueueIsRejected() throws InterruptedException {
+        final GradientConcurrencyLimiter limiter = createFixedLimiter(1);
+        assertTrue(limiter.tryAcquire(RequestPriority.SHEDDABLE));
+        final long startNanos = System.nanoTime();
+        assertFalse(limiter.tryAcquire(RequestPriority.SHEDDABLE));
+        assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void testLimitFollowsLatency() throws InterruptedException {
+        final GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 1, 100, 1.0, 1.0,
+                1000, 10, createPolicies());
+        runRound(limiter, TimeUnit.MILLISECONDS.toNanos(1));
+        final int grownLimit = limiter.getLimit();
+        assertTrue(grownLimit > 20, "Limit grows while latency is stable");
+        runRound(limiter, TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(limiter.getLimit() < grownLimit, "Limit decreases when latency grows");
+        for (int i = 0; i < 20; i++) {
+            runRound(limiter, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertTrue(limiter.getLimit() >= 1);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testIdleLimiterKeepsLimit() throws InterruptedException {
+        final GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 1, 100, 1.0, 1.0,
+                1000, 10, createPolicies());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    private static void runRound(GradientConcurrencyLimiter limiter, long rttNanos) throws InterruptedException {
+        final int slots = limiter.getLimit();
+        for (int i = 0; i < slots; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.CRITICAL));
+        }
+        for (int i = 0; i < slots; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+
+    private static GradientConcurrencyLimiter createFixedLimiter(int limit) {
+        return new GradientConcurrencyLimiter(limit, limit, limit, 1.0, 0.2, 1000, 1000, createPolicies());
+    }
+
+    private static Map<RequestPriority, AdmissionPolicy> createPolicies() {
+        final Map<RequestPriority, AdmissionPolicy> policies = new EnumMap<>(RequestPriority.class);
+        policies.put(RequestPriority.CRITICAL, new AdmissionPolicy(1.0, 10, MAX_WAIT_NANOS));
+        policies.put(RequestPriority.NORMAL, new AdmissionPolicy(1.0, 10, MAX_WAIT_NANOS));
+        policies.put(RequestPriority.SHEDDABLE, new AdmissionPolicy(0.5, 0, 0));
+        return policies;
+    }
+
+    private static Waiter startWaiter(GradientConcurrencyLimiter limiter, RequestPriority priority) throws InterruptedException {
+        final Waiter waiter = new Waiter(limiter, priority);
+        waiter.thread.start();
+        while (waiter.thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        return waiter;
+    }
+
+    /**
+     * Thread waiting for a slot of the limiter.
+     */
+    private static final class Waiter {
+
+        private final AtomicBoolean acquired = new AtomicBoolean();
+        private final Thread thread;
+
+        private Waiter(GradientConcurrencyLimiter limiter, RequestPriority priority) {
+            this.thread = new Thread(() -> {
+                try {
+                    acquired.set(limiter.tryAcquire(priority));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+}
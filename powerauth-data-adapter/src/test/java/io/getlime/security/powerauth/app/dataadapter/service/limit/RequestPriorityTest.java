@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of resolving priority classes of request paths.
+ */
+class RequestPriorityTest {
+
+    @Test
+    void testResolveExactPath() {
+        assertEquals(RequestPriority.CRITICAL, RequestPriority.resolve("/api/auth/user/authenticate"));
+        assertEquals(RequestPriority.SHEDDABLE, RequestPriority.resolve("/api/operation/formdata/change"));
+        assertEquals(RequestPriority.NORMAL, RequestPriority.resolve("/api/user/lookup"));
+    }
+
+    @Test
+    void testResolveTrailingSlash() {
+        assertEquals(RequestPriority.CRITICAL, RequestPriority.resolve("/api/auth/user/authenticate/"));
+        assertEquals(RequestPriority.CRITICAL, RequestPriority.resolve("/api/auth/sms/verify//"));
+        assertEquals(RequestPriority.SHEDDABLE, RequestPriority.resolve("/api/auth/consent/save/"));
+    }
+
+    @Test
+    void testResolveNonCanonicalPath() {
+        assertEquals(RequestPriority.CRITICAL, RequestPriority.resolve("/api//auth/sms/password/verify"));
+        assertEquals(RequestPriority.CRITICAL, RequestPriority.resolve("/api/auth/certificate/verify;jsessionid=ABC"));
+        assertEquals(RequestPriority.SHEDDABLE, RequestPriority.resolve("/api/operation;v=1/formdata/change/"));
+    }
+
+    @Test
+    void testResolveRootPath() {
+        assertEquals(RequestPriority.NORMAL, RequestPriority.resolve("/"));
+        assertEquals(RequestPriority.NORMAL, RequestPriority.resolve(""));
+    }
+}
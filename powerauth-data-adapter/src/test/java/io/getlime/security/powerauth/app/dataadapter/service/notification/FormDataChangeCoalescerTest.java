@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuditConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.NotificationConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.service.audit.AuditService;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.getlime.security.powerauth.app.dataadapter.service.journal.JournalReader;
+import io.getlime.security.powerauth.app.dataadapter.service.threads.PinningDiagnostics;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationChange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static io.getlime.security.powerauth.app.dataadapter.service.notification.NotificationPipelineServiceTest.formDataChange;
+import static io.getlime.security.powerauth.app.dataadapter.service.notification.NotificationPipelineServiceTest.operationChange;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of coalescing of form data change notifications.
+ */
+class FormDataChangeCoalescerTest {
+
+    @TempDir
+    Path directory;
+
+    private final RecordingDataAdapter dataAdapter = new RecordingDataAdapter();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AuditService auditService;
+    private NotificationPipelineService pipelineService;
+    private FormDataChangeCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+        if (pipelineService != null) {
+            pipelineService.shutdown();
+        }
+        if (auditService != null) {
+            auditService.shutdown();
+        }
+    }
+
+    @Test
+    void testSupersededChangesNotDelivered() throws Exception {
+        start(dataAdapter, 200L);
+        coalescer.submit(formDataChange("op1", "account1"));
+        coalescer.submit(formDataChange("op1", "account2"));
+        coalescer.submit(formDataChange("op1", "account3"));
+        assertEquals("op1:account3", dataAdapter.nextDelivery());
+        assertNull(dataAdapter.pollDelivery());
+        // Every change is audited, including the superseded ones
+        assertEquals(3, countAuditEvents());
+    }
+
+    @Test
+    void testFlushBeforeOperationChange() throws Exception {
+        start(dataAdapter, 10_000L);
+        coalescer.submit(formDataChange("op1", "account1"));
+        coalescer.submit(formDataChange("op2", "account2"));
+        coalescer.flush("op1");
+        pipelineService.operationChanged(operationChange("op1", OperationChange.DONE));
+        assertEquals("op1:account1", dataAdapter.nextDelivery());
+        assertEquals("op1:DONE", dataAdapter.nextDelivery());
+        // Changes of other operations are still held
+        assertNull(dataAdapter.pollDelivery());
+    }
+
+    @Test
+    void testHeldChangeReplayedAfterRestart() throws Exception {
+        start(dataAdapter, 10_000L);
+        coalescer.submit(formDataChange("op1", "account1"));
+        coalescer.submit(formDataChange("op1", "account2"));
+        // Simulate a crash, the held changes are never released
+        pipelineService.shutdown();
+
+        final RecordingDataAdapter restartedDataAdapter = new RecordingDataAdapter();
+        pipelineService = startPipeline(restartedDataAdapter);
+        assertEquals("op1:account2", restartedDataAdapter.nextDelivery());
+        // The superseded change was discarded before the checkpoint was written
+        assertNull(restartedDataAdapter.pollDelivery());
+        assertNull(dataAdapter.pollDelivery());
+    }
+
+    private void start(RecordingDataAdapter recordingDataAdapter, long quietPeriodInMilliseconds) throws Exception {
+        final AuditConfiguration auditConfiguration = new AuditConfiguration();
+        ReflectionTestUtils.setField(auditConfiguration, "enabled", true);
+        ReflectionTestUtils.setField(auditConfiguration, "journalDirectory", directory.toString());
+        ReflectionTestUtils.setField(auditConfiguration, "segmentSizeInMegabytes", 1);
+        ReflectionTestUtils.setField(auditConfiguration, "retentionSegmentCount", 0);
+        ReflectionTestUtils.setField(auditConfiguration, "commitWindowInMicroseconds", 0L);
+        auditService = new AuditService(auditConfiguration, new ObjectMapper());
+        auditService.start();
+        pipelineService = startPipeline(recordingDataAdapter);
+        final NotificationConfiguration configuration = configuration();
+        ReflectionTestUtils.setField(configuration, "coalescingQuietPeriodInMilliseconds", quietPeriodInMilliseconds);
+        ReflectionTestUtils.setField(configuration, "coalescingMaxDelayInMilliseconds", 10_000L);
+        coalescer = new FormDataChangeCoalescer(pipelineService, configuration, meterRegistry);
+    }
+
+    private NotificationPipelineService startPipeline(RecordingDataAdapter recordingDataAdapter) throws Exception {
+        final NotificationPipelineService service = new NotificationPipelineService(recordingDataAdapter.create(), configuration(), new ObjectMapper(),
+                meterRegistry, new PinningDiagnostics(new VirtualThreadConfiguration(), meterRegistry), auditService,
+                new DeadlineService(new DeadlineConfiguration(), meterRegistry));
+        service.start();
+        return service;
+    }
+
+    private NotificationConfiguration configuration() {
+        final NotificationConfiguration configuration = new NotificationConfiguration();
+        ReflectionTestUtils.setField(configuration, "asyncEnabled", true);
+        ReflectionTestUtils.setField(configuration, "journalDirectory", directory.toString());
+        ReflectionTestUtils.setField(configuration, "segmentSizeInMegabytes", 1);
+        ReflectionTestUtils.setField(configuration, "commitWindowInMicroseconds", 0L);
+        ReflectionTestUtils.setField(configuration, "laneCount", 2);
+        ReflectionTestUtils.setField(configuration, "batchSize", 10);
+        ReflectionTestUtils.setField(configuration, "maxDeliveryAttempts", 2);
+        ReflectionTestUtils.setField(configuration, "retryBackoffInMilliseconds", 10L);
+        ReflectionTestUtils.setField(configuration, "checkpointIntervalInMilliseconds", 50L);
+        return configuration;
+    }
+
+    private int countAuditEvents() throws Exception {
+        int count = 0;
+        try (JournalReader reader = JournalReader.open(directory, "audit", 1)) {
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
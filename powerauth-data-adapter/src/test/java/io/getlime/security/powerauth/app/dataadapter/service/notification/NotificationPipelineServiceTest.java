@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuditConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.NotificationConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.service.audit.AuditService;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.getlime.security.powerauth.app.dataadapter.service.journal.JournalReader;
+import io.getlime.security.powerauth.app.dataadapter.service.threads.PinningDiagnostics;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.BankAccountChoice;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationChange;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.FormDataChangeNotificationRequest;
+import io.getlime.security.powerauth.lib.dataadapter.model.request.OperationChangeNotificationRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the journaled notification pipeline.
+ */
+class NotificationPipelineServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final RecordingDataAdapter dataAdapter = new RecordingDataAdapter();
+    private NotificationPipelineService pipelineService;
+
+    @AfterEach
+    void tearDown() {
+        if (pipelineService != null) {
+            pipelineService.shutdown();
+        }
+    }
+
+    @Test
+    void testNotificationsDeliveredInOrder() throws Exception {
+        pipelineService = startPipeline(dataAdapter);
+        pipelineService.formDataChanged(formDataChange("op1", "account1"));
+        pipelineService.operationChanged(operationChange("op1", OperationChange.DONE));
+        assertEquals("op1:account1", dataAdapter.nextDelivery());
+        assertEquals("op1:DONE", dataAdapter.nextDelivery());
+    }
+
+    @Test
+    void testUndeliveredNotificationReplayedAfterRestart() throws Exception {
+        dataAdapter.setMode(RecordingDataAdapter.Mode.BLOCK);
+        pipelineService = startPipeline(dataAdapter);
+        pipelineService.operationChanged(operationChange("op1", OperationChange.DONE));
+        assertTrue(dataAdapter.awaitBlocked());
+        pipelineService.shutdown();
+
+        final RecordingDataAdapter restartedDataAdapter = new RecordingDataAdapter();
+        pipelineService = startPipeline(restartedDataAdapter);
+        assertEquals("op1:DONE", restartedDataAdapter.nextDelivery());
+    }
+
+    @Test
+    void testDeliveredNotificationNotReplayedAfterRestart() throws Exception {
+        pipelineService = startPipeline(dataAdapter);
+        pipelineService.operationChanged(operationChange("op1", OperationChange.DONE));
+        pipelineService.operationChanged(operationChange("op2", OperationChange.CANCELED));
+        assertNotNull(dataAdapter.nextDelivery());
+        assertNotNull(dataAdapter.nextDelivery());
+        pipelineService.shutdown();
+        assertEquals("2", readCheckpoint());
+
+        final RecordingDataAdapter restartedDataAdapter = new RecordingDataAdapter();
+        pipelineService = startPipeline(restartedDataAdapter);
+        assertNull(restartedDataAdapter.pollDelivery());
+        pipelineService.operationChanged(operationChange("op3", OperationChange.FAILED));
+        assertEquals("op3:FAILED", restartedDataAdapter.nextDelivery());
+    }
+
+    @Test
+    void testUndeliverableNotificationMovedToDeadLetter() throws Exception {
+        dataAdapter.setMode(RecordingDataAdapter.Mode.FAIL);
+        pipelineService = startPipeline(dataAdapter);
+        pipelineService.operationChanged(operationChange("op1", OperationChange.DONE));
+        waitForDeadLetters(1);
+        dataAdapter.setMode(RecordingDataAdapter.Mode.DELIVER);
+        pipelineService.operationChanged(operationChange("op1", OperationChange.CANCELED));
+        assertEquals("op1:CANCELED", dataAdapter.nextDelivery());
+        pipelineService.shutdown();
+        // The checkpoint advances past the dead letter, it is not replayed after restart
+        assertEquals("2", readCheckpoint());
+
+        final RecordingDataAdapter restartedDataAdapter = new RecordingDataAdapter();
+        pipelineService = startPipeline(restartedDataAdapter);
+        assertNull(restartedDataAdapter.pollDelivery());
+    }
+
+    private NotificationPipelineService startPipeline(RecordingDataAdapter recordingDataAdapter) throws Exception {
+        final NotificationConfiguration configuration = new NotificationConfiguration();
+        ReflectionTestUtils.setField(configuration, "asyncEnabled", true);
+        ReflectionTestUtils.setField(configuration, "journalDirectory", directory.toString());
+        ReflectionTestUtils.setField(configuration, "segmentSizeInMegabytes", 1);
+        ReflectionTestUtils.setField(configuration, "commitWindowInMicroseconds", 0L);
+        ReflectionTestUtils.setField(configuration, "laneCount", 2);
+        ReflectionTestUtils.setField(configuration, "batchSize", 10);
+        ReflectionTestUtils.setField(configuration, "maxDeliveryAttempts", 2);
+        ReflectionTestUtils.setField(configuration, "retryBackoffInMilliseconds", 10L);
+        ReflectionTestUtils.setField(configuration, "checkpointIntervalInMilliseconds", 50L);
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final NotificationPipelineService service = new NotificationPipelineService(recordingDataAdapter.create(), configuration, objectMapper, meterRegistry,
+                new PinningDiagnostics(new VirtualThreadConfiguration(), meterRegistry), new AuditService(new AuditConfiguration(), objectMapper),
+                new DeadlineService(new DeadlineConfiguration(), meterRegistry));
+        service.start();
+        return service;
+    }
+
+    private void waitForDeadLetters(int count) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            int deadLetters = 0;
+            try (JournalReader reader = JournalReader.open(directory, "notifications-dead-letter", 1)) {
+                while (reader.hasNext()) {
+                    reader.next();
+                    deadLetters++;
+                }
+            }
+            if (deadLetters >= count) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Notification was not moved to the dead letter journal");
+    }
+
+    private String readCheckpoint() throws Exception {
+        return new String(Files.readAllBytes(directory.resolve("notifications.checkpoint")), StandardCharsets.UTF_8);
+    }
+
+    static FormDataChangeNotificationRequest formDataChange(String operationId, String bankAccountId) {
+        final BankAccountChoice change = new BankAccountChoice();
+        change.setBankAccountId(bankAccountId);
+        final FormDataChangeNotificationRequest request = new FormDataChangeNotificationRequest();
+        request.setUserId("user");
+        request.setOrganizationId("RETAIL");
+        request.setFormDataChange(change);
+        request.setOperationContext(operationContext(operationId));
+        return request;
+    }
+
+    static OperationChangeNotificationRequest operationChange(String operationId, OperationChange operationChange) {
+        final OperationChangeNotificationRequest request = new OperationChangeNotificationRequest();
+        request.setUserId("user");
+        request.setOrganizationId("RETAIL");
+        request.setOperationChange(operationChange);
+        request.setOperationContext(operationContext(operationId));
+        return request;
+    }
+
+    private static OperationContext operationContext(String operationId) {
+        final OperationContext operationContext = new OperationContext();
+        operationContext.setId(operationId);
+        operationContext.setName("authorize_payment");
+        return operationContext;
+    }
+
+}
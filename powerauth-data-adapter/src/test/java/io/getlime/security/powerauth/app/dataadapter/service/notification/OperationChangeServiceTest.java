@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuditConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.DeadlineConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.NotificationConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.OperationContextCacheConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.service.audit.AuditService;
+import io.getlime.security.powerauth.app.dataadapter.service.context.CachedOperationContext;
+import io.getlime.security.powerauth.app.dataadapter.service.context.OperationContextCache;
+import io.getlime.security.powerauth.app.dataadapter.service.deadline.DeadlineService;
+import io.getlime.security.powerauth.app.dataadapter.service.threads.PinningDiagnostics;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationChange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static io.getlime.security.powerauth.app.dataadapter.service.notification.NotificationPipelineServiceTest.formDataChange;
+import static io.getlime.security.powerauth.app.dataadapter.service.notification.NotificationPipelineServiceTest.operationChange;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of handling of operation change notifications.
+ */
+class OperationChangeServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final RecordingDataAdapter dataAdapter = new RecordingDataAdapter();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationPipelineService pipelineService;
+    private FormDataChangeCoalescer coalescer;
+    private OperationContextCache operationContextCache;
+    private OperationChangeService operationChangeService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        final NotificationConfiguration configuration = new NotificationConfiguration();
+        ReflectionTestUtils.setField(configuration, "asyncEnabled", true);
+        ReflectionTestUtils.setField(configuration, "journalDirectory", directory.toString());
+        ReflectionTestUtils.setField(configuration, "segmentSizeInMegabytes", 1);
+        ReflectionTestUtils.setField(configuration, "commitWindowInMicroseconds", 0L);
+        ReflectionTestUtils.setField(configuration, "laneCount", 2);
+        ReflectionTestUtils.setField(configuration, "batchSize", 10);
+        ReflectionTestUtils.setField(configuration, "maxDeliveryAttempts", 2);
+        ReflectionTestUtils.setField(configuration, "retryBackoffInMilliseconds", 10L);
+        ReflectionTestUtils.setField(configuration, "checkpointIntervalInMilliseconds", 50L);
+        ReflectionTestUtils.setField(configuration, "coalescingQuietPeriodInMilliseconds", 10_000L);
+        ReflectionTestUtils.setField(configuration, "coalescingMaxDelayInMilliseconds", 10_000L);
+        final ObjectMapper objectMapper = new ObjectMapper();
+        pipelineService = new NotificationPipelineService(dataAdapter.create(), configuration, objectMapper, meterRegistry,
+                new PinningDiagnostics(new VirtualThreadConfiguration(), meterRegistry), new AuditService(new AuditConfiguration(), objectMapper),
+                new DeadlineService(new DeadlineConfiguration(), meterRegistry));
+        pipelineService.start();
+        coalescer = new FormDataChangeCoalescer(pipelineService, configuration, meterRegistry);
+        final OperationContextCacheConfiguration cacheConfiguration = new OperationContextCacheConfiguration();
+        ReflectionTestUtils.setField(cacheConfiguration, "enabled", true);
+        ReflectionTestUtils.setField(cacheConfiguration, "maxSize", 10L);
+        ReflectionTestUtils.setField(cacheConfiguration, "ttlInSeconds", 60L);
+        operationContextCache = new OperationContextCache(cacheConfiguration, meterRegistry);
+        operationChangeService = new OperationChangeService(pipelineService, coalescer, operationContextCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.shutdown();
+        pipelineService.shutdown();
+    }
+
+    @Test
+    void testHeldFormDataChangesDeliveredBeforeOperationChange() throws Exception {
+        coalescer.submit(formDataChange("op1", "account1"));
+        coalescer.submit(formDataChange("op2", "account2"));
+        operationChangeService.operationChanged(operationChange("op1", OperationChange.DONE));
+        assertEquals("op1:account1", dataAdapter.nextDelivery());
+        assertEquals("op1:DONE", dataAdapter.nextDelivery());
+        assertNull(dataAdapter.pollDelivery());
+    }
+
+    @Test
+    void testOperationContextEvicted() throws Exception {
+        final TokenBuffer fields = new TokenBuffer(new ObjectMapper(), false);
+        fields.writeStartObject();
+        fields.writeStringField("id", "op1");
+        fields.writeEndObject();
+        final CachedOperationContext cachedContext = operationContextCache.put("op1", fields, null);
+        assertNotNull(operationContextCache.get("op1", cachedContext.getHash()));
+        operationChangeService.operationChanged(operationChange("op1", OperationChange.CANCELED));
+        assertNull(operationContextCache.get("op1", cachedContext.getHash()));
+        assertEquals("op1:CANCELED", dataAdapter.nextDelivery());
+    }
+
+}
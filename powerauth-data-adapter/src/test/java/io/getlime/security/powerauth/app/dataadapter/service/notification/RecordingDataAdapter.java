@@ -0,0 +1,131 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.notification;
+
+import io.getlime.security.powerauth.app.dataadapter.api.DataAdapter;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.BankAccountChoice;
+import io.getlime.security.powerauth.lib.dataadapter.model.entity.OperationContext;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data adapter which records delivered notifications, deliveries can be switched to fail or to block.
+ */
+class RecordingDataAdapter {
+
+    /**
+     * Behavior of notification delivery.
+     */
+    enum Mode {
+        DELIVER,
+        FAIL,
+        BLOCK
+    }
+
+    private final LinkedBlockingQueue<String> deliveries = new LinkedBlockingQueue<>();
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private volatile Mode mode = Mode.DELIVER;
+
+    /**
+     * Set behavior of notification delivery.
+     * @param mode Delivery mode.
+     */
+    void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Create the data adapter. Operation changes are recorded as {@code <operation ID>:<change>}, form data changes
+     * as {@code <operation ID>:<bank account ID>}.
+     * @return Data adapter.
+     */
+    DataAdapter create() {
+        return (DataAdapter) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataAdapter.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "operationChangedNotification":
+                    deliver(((OperationContext) args[3]).getId() + ":" + args[2]);
+                    return null;
+                case "formDataChangedNotification":
+                    deliver(((OperationContext) args[3]).getId() + ":" + ((BankAccountChoice) args[2]).getBankAccountId());
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Wait for a delivered notification.
+     * @return Delivered notification, null in case no notification was delivered within the timeout.
+     * @throws InterruptedException Thrown when the thread is interrupted.
+     */
+    String nextDelivery() throws InterruptedException {
+        return deliveries.poll(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Wait for a delivered notification for a short time, used to check that no notification is delivered.
+     * @return Delivered notification, null in case no notification was delivered.
+     * @throws InterruptedException Thrown when the thread is interrupted.
+     */
+    String pollDelivery() throws InterruptedException {
+        return deliveries.poll(300, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wait until a delivery is blocked.
+     * @return Whether a delivery is blocked.
+     * @throws InterruptedException Thrown when the thread is interrupted.
+     */
+    boolean awaitBlocked() throws InterruptedException {
+        return blocked.await(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get all notifications delivered so far.
+     * @return Delivered notifications.
+     */
+    List<String> drainDeliveries() {
+        final List<String> result = new ArrayList<>();
+        deliveries.drainTo(result);
+        return result;
+    }
+
+    private void deliver(String notification) throws DataAdapterRemoteException {
+        switch (mode) {
+            case FAIL:
+                throw new DataAdapterRemoteException("Delivery failed");
+            case BLOCK:
+                blocked.countDown();
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new DataAdapterRemoteException("Delivery interrupted", ex);
+                }
+                break;
+            default:
+                deliveries.add(notification);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the count-based circuit breaker.
+ */
+class CircuitBreakerTest {
+
+    @Test
+    void testStaysClosedBelowMinimumNumberOfCalls() {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(50, 10, 5, 60000, 1);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(100.0, circuitBreaker.getFailureRate(), 0.001);
+    }
+
+    @Test
+    void testOpensAtFailureRateThreshold() {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(50, 4, 4, 60000, 1);
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testOldOutcomesLeaveSlidingWindow() {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(50, 4, 4, 60000, 1);
+        circuitBreaker.onFailure();
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onSuccess();
+        }
+        assertEquals(0.0, circuitBreaker.getFailureRate(), 0.001);
+        circuitBreaker.onFailure();
+        assertEquals(25.0, circuitBreaker.getFailureRate(), 0.001);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testClosesAfterSuccessfulTrialCalls() throws InterruptedException {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker(2);
+        Thread.sleep(60);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission(), "Only the permitted number of trial calls is allowed");
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0.0, circuitBreaker.getFailureRate(), 0.001);
+    }
+
+    @Test
+    void testReopensOnFailedTrialCall() throws InterruptedException {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker(2);
+        Thread.sleep(60);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testReleasedPermissionAllowsAnotherTrialCall() throws InterruptedException {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker(1);
+        Thread.sleep(60);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.releasePermission();
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    private static CircuitBreaker openCircuitBreaker(int permittedCallsInHalfOpenState) {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(50, 2, 2, 50, permittedCallsInHalfOpenState);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.resilience;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.ResilienceConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.VirtualThreadConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.exception.BulkheadFullException;
+import io.getlime.security.powerauth.app.dataadapter.exception.CircuitBreakerOpenException;
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of circuit breakers, timeouts and hedged requests of backend calls.
+ */
+class ResilienceServiceTest {
+
+    private ResilienceConfiguration configuration;
+    private ResilienceService resilienceService;
+    private StubBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new ResilienceConfiguration(new StandardEnvironment());
+        ReflectionTestUtils.setField(configuration, "enabled", true);
+        ReflectionTestUtils.setField(configuration, "timeoutInMilliseconds", 0L);
+        ReflectionTestUtils.setField(configuration, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(configuration, "slidingWindowSize", 4);
+        ReflectionTestUtils.setField(configuration, "minimumNumberOfCalls", 4);
+        ReflectionTestUtils.setField(configuration, "waitDurationInOpenStateInMilliseconds", 60000L);
+        ReflectionTestUtils.setField(configuration, "permittedCallsInHalfOpenState", 1);
+        ReflectionTestUtils.setField(configuration, "hedgeEnabled", false);
+        ReflectionTestUtils.setField(configuration, "hedgePercentile", 0.95);
+        ReflectionTestUtils.setField(configuration, "hedgeMinDelayInMilliseconds", 20L);
+        ReflectionTestUtils.setField(configuration, "hedgeLatencyWindowSize", 10);
+        ReflectionTestUtils.setField(configuration, "executorThreadCount", 2);
+        ReflectionTestUtils.setField(configuration, "executorQueueCapacity", 0);
+        resilienceService = new ResilienceService(configuration, new VirtualThreadConfiguration(), new SimpleMeterRegistry());
+        backend = new StubBackend();
+    }
+
+    @AfterEach
+    void tearDown() {
+        resilienceService.shutdown();
+    }
+
+    @Test
+    void testCircuitBreakerOpensAfterFailures() {
+        backend.setFailing(true);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(DataAdapterRemoteException.class, () -> resilienceService.execute("lookupUser", true, () -> backend.call("user")));
+        }
+        assertThrows(CircuitBreakerOpenException.class, () -> resilienceService.execute("lookupUser", true, () -> backend.call("user")));
+        assertEquals(4, backend.getCalls());
+    }
+
+    @Test
+    void testBackendResponseIsNotFailure() {
+        // Checked exceptions other than remote exceptions are valid responses of the backend, e.g. user not found
+        for (int i = 0; i < 4; i++) {
+            final Exception ex = assertThrows(Exception.class, () -> resilienceService.execute("lookupUser", true, () -> {
+                throw new Exception("User not found");
+            }));
+            assertEquals("User not found", ex.getMessage());
+        }
+        assertEquals("user", execute(true));
+    }
+
+    @Test
+    void testIdempotentCallIsInterruptedOnTimeout() throws Exception {
+        ReflectionTestUtils.setField(configuration, "timeoutInMilliseconds", 50L);
+        backend.setDefaultLatency(5000);
+        assertThrows(DataAdapterRemoteException.class, () -> resilienceService.execute("lookupUser", true, () -> backend.call("user")));
+        assertTrue(backend.awaitFinishedCalls(1, 1000));
+        assertEquals(1, backend.getInterruptedCalls());
+    }
+
+    @Test
+    void testNonIdempotentCallIsNotInterruptedOnTimeout() throws Exception {
+        ReflectionTestUtils.setField(configuration, "timeoutInMilliseconds", 50L);
+        backend.setDefaultLatency(300);
+        assertThrows(DataAdapterRemoteException.class, () -> resilienceService.execute("authenticateUser", false, () -> backend.call("user")));
+        assertTrue(backend.awaitFinishedCalls(1, 5000));
+        assertEquals(0, backend.getInterruptedCalls());
+    }
+
+    @Test
+    void testHedgedRequestWins() throws Exception {
+        ReflectionTestUtils.setField(configuration, "hedgeEnabled", true);
+        backend.setNextLatencies(5000, 0);
+        final long startNanos = System.nanoTime();
+        assertEquals("user", execute(true));
+        assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(2, backend.getCalls());
+        assertTrue(backend.awaitFinishedCalls(2, 1000));
+        assertEquals(1, backend.getInterruptedCalls());
+    }
+
+    @Test
+    void testNonIdempotentCallIsNotHedged() throws Exception {
+        ReflectionTestUtils.setField(configuration, "hedgeEnabled", true);
+        backend.setNextLatencies(200, 0);
+        assertEquals("user", execute(false));
+        assertEquals(1, backend.getCalls());
+    }
+
+    @Test
+    void testCallIsRejectedWhenExecutorIsFull() throws Exception {
+        useSingleExecutorThread();
+        ReflectionTestUtils.setField(configuration, "timeoutInMilliseconds", 50L);
+        backend.setNextLatencies(300, 0);
+        // The timed out call which changes state keeps the only executor thread busy
+        assertThrows(DataAdapterRemoteException.class, () -> resilienceService.execute("authenticateUser", false, () -> backend.call("user")));
+        assertThrows(BulkheadFullException.class, () -> resilienceService.execute("lookupUser", true, () -> backend.call("user")));
+        assertEquals(1, backend.getCalls());
+        assertTrue(backend.awaitFinishedCalls(1, 5000));
+    }
+
+    @Test
+    void testRejectedHedgedRequestIsNotSent() throws Exception {
+        useSingleExecutorThread();
+        ReflectionTestUtils.setField(configuration, "hedgeEnabled", true);
+        backend.setNextLatencies(200, 0);
+        assertEquals("user", execute(true));
+        assertEquals(1, backend.getCalls());
+        assertEquals(0, backend.getInterruptedCalls());
+    }
+
+    private void useSingleExecutorThread() {
+        resilienceService.shutdown();
+        ReflectionTestUtils.setField(configuration, "executorThreadCount", 1);
+        resilienceService = new ResilienceService(configuration, new VirtualThreadConfiguration(), new SimpleMeterRegistry());
+    }
+
+    private String execute(boolean idempotent) {
+        try {
+            return resilienceService.execute("lookupUser", idempotent, () -> backend.call("user"));
+        } catch (DataAdapterRemoteException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
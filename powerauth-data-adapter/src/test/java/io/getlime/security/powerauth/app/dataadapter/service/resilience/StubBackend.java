@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.resilience;
+
+import io.getlime.security.powerauth.app.dataadapter.exception.DataAdapterRemoteException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stub of a backend system with injected latency and failures, used to test protection of backend calls.
+ */
+public class StubBackend {
+
+    private final Deque<Long> latencies = new ArrayDeque<>();
+    private volatile long defaultLatencyInMilliseconds;
+    private volatile boolean failing;
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger interruptedCalls = new AtomicInteger();
+    private int finishedCalls;
+
+    /**
+     * Set latency of calls without an explicit latency.
+     * @param latencyInMilliseconds Latency in milliseconds.
+     */
+    public void setDefaultLatency(long latencyInMilliseconds) {
+        this.defaultLatencyInMilliseconds = latencyInMilliseconds;
+    }
+
+    /**
+     * Set latencies of the next calls, in the order of calls.
+     * @param latenciesInMilliseconds Latencies in milliseconds.
+     */
+    public synchronized void setNextLatencies(long... latenciesInMilliseconds) {
+        latencies.clear();
+        for (long latency : latenciesInMilliseconds) {
+            latencies.add(latency);
+        }
+    }
+
+    /**
+     * Set whether calls fail with a remote exception.
+     * @param failing Whether calls fail.
+     */
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    /**
+     * Simulate a backend call.
+     * @param value Value returned by the call.
+     * @return Value passed to the call.
+     * @throws DataAdapterRemoteException Thrown when the call fails or it is interrupted.
+     */
+    public String call(String value) throws DataAdapterRemoteException {
+        calls.incrementAndGet();
+        try {
+            Thread.sleep(nextLatency());
+        } catch (InterruptedException ex) {
+            interruptedCalls.incrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new DataAdapterRemoteException("Backend call was interrupted", ex);
+        } finally {
+            onCallFinished();
+        }
+        if (failing) {
+            throw new DataAdapterRemoteException("Backend call failed");
+        }
+        return value;
+    }
+
+    /**
+     * Get number of calls.
+     * @return Number of calls.
+     */
+    public int getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Get number of interrupted calls.
+     * @return Number of interrupted calls.
+     */
+    public int getInterruptedCalls() {
+        return interruptedCalls.get();
+    }
+
+    /**
+     * Wait until the given number of calls finishes, either normally or by an interruption.
+     * @param count Number of finished calls.
+     * @param timeoutInMilliseconds Maximum time to wait.
+     * @return Whether the calls finished in time.
+     * @throws InterruptedException Thrown when waiting is interrupted.
+     */
+    public synchronized boolean awaitFinishedCalls(int count, long timeoutInMilliseconds) throws InterruptedException {
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMilliseconds);
+        while (finishedCalls < count) {
+            final long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return true;
+    }
+
+    private synchronized void onCallFinished() {
+        finishedCalls++;
+        notifyAll();
+    }
+
+    private synchronized long nextLatency() {
+        final Long latency = latencies.poll();
+        return latency != null ? latency : defaultLatencyInMilliseconds;
+    }
+}
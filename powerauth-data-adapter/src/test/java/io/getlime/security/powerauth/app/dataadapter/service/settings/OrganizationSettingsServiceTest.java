@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.settings;
+
+import io.getlime.security.powerauth.app.dataadapter.configuration.AfsConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.AuthenticationAttemptConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.DataAdapterConfiguration;
+import io.getlime.security.powerauth.app.dataadapter.configuration.OrganizationSettingsConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of loading and reloading of per-organization settings.
+ */
+class OrganizationSettingsServiceTest {
+
+    private static final String GLOBAL_AFS_RULES = "user.velocity>=10:2FA";
+
+    @TempDir
+    Path tempDir;
+
+    private Path settingsFile;
+    private OrganizationSettingsConfiguration configuration;
+    private MeterRegistry meterRegistry;
+    private AtomicInteger publishedEvents;
+    private OrganizationSettingsService settingsService;
+
+    @BeforeEach
+    void setUp() {
+        settingsFile = tempDir.resolve("organizations.properties");
+        configuration = new OrganizationSettingsConfiguration();
+        ReflectionTestUtils.setField(configuration, "location", settingsFile.toString());
+        ReflectionTestUtils.setField(configuration, "reloadIntervalInMilliseconds", 3600000L);
+        final DataAdapterConfiguration dataAdapterConfiguration = new DataAdapterConfiguration();
+        ReflectionTestUtils.setField(dataAdapterConfiguration, "smsOtpExpirationTime", 300);
+        ReflectionTestUtils.setField(dataAdapterConfiguration, "smsOtpMaxVerifyTriesPerMessage", 5);
+        final AuthenticationAttemptConfiguration authenticationAttemptConfiguration = new AuthenticationAttemptConfiguration();
+        ReflectionTestUtils.setField(authenticationAttemptConfiguration, "maxFailedAttempts", 5);
+        final AfsConfiguration afsConfiguration = new AfsConfiguration();
+        ReflectionTestUtils.setField(afsConfiguration, "localRules", GLOBAL_AFS_RULES);
+        meterRegistry = new SimpleMeterRegistry();
+        publishedEvents = new AtomicInteger();
+        settingsService = new OrganizationSettingsService(configuration, dataAdapterConfiguration, authenticationAttemptConfiguration,
+                afsConfiguration, event -> publishedEvents.incrementAndGet(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        settingsService.shutdown();
+    }
+
+    @Test
+    void testGlobalSettingsWithoutSettingsFile() {
+        ReflectionTestUtils.setField(configuration, "location", "");
+        settingsService.initialize();
+        final OrganizationSettings settings = settingsService.getSettings("RETAIL");
+        assertEquals(300, settings.getSmsOtpExpirationTimeInSeconds());
+        assertEquals(5, settings.getSmsOtpMaxVerifyTriesPerMessage());
+        assertEquals(5, settings.getMaxFailedAttempts());
+        assertEquals(GLOBAL_AFS_RULES, settings.getAfsRules());
+        assertEquals(0L, settingsService.getSnapshot().getVersion());
+        assertEquals(0, publishedEvents.get());
+    }
+
+    @Test
+    void testOrganizationSettingsFallBackToGlobalSettings() throws IOException {
+        writeSettings("RETAIL.smsOtpExpirationTimeInSeconds=60\nRETAIL.maxFailedAttempts=3\n");
+        settingsService.initialize();
+        final OrganizationSettings retail = settingsService.getSettings("RETAIL");
+        assertEquals(60, retail.getSmsOtpExpirationTimeInSeconds());
+        assertEquals(3, retail.getMaxFailedAttempts());
+        assertEquals(5, retail.getSmsOtpMaxVerifyTriesPerMessage());
+        assertEquals(GLOBAL_AFS_RULES, retail.getAfsRules());
+        // Unknown organizations and requests without an organization use global settings
+        assertSame(settingsService.getSnapshot().getDefaultSettings(), settingsService.getSettings("SME"));
+        assertSame(settingsService.getSnapshot().getDefaultSettings(), settingsService.getSettings(null));
+        assertEquals(1, settingsService.getSnapshot().getOrganizationCount());
+        assertEquals(1L, settingsService.getSnapshot().getVersion());
+        assertEquals(1, publishedEvents.get());
+    }
+
+    @Test
+    void testInvalidSettingsFileFailsStartup() throws IOException {
+        writeSettings("RETAIL.maxFailedAttempts=0\n");
+        assertThrows(IllegalStateException.class, () -> settingsService.initialize());
+    }
+
+    @Test
+    void testChangedFileIsReloaded() throws IOException {
+        writeSettings("RETAIL.maxFailedAttempts=3\n");
+        settingsService.initialize();
+        final OrganizationSettingsSnapshot previous = settingsService.getSnapshot();
+        writeSettings("RETAIL.maxFailedAttempts=4\nSME.afsRules=user.velocity>=5:BLOCK\n");
+        reload();
+        final OrganizationSettingsSnapshot current = settingsService.getSnapshot();
+        assertNotSame(previous, current);
+        assertEquals(2L, current.getVersion());
+        assertEquals(4, settingsService.getSettings("RETAIL").getMaxFailedAttempts());
+        assertEquals("user.velocity>=5:BLOCK", settingsService.getSettings("SME").getAfsRules());
+        // The previous snapshot is immutable, readers holding it see consistent values
+        assertEquals(3, previous.getSettings("RETAIL").getMaxFailedAttempts());
+        assertEquals(2, publishedEvents.get());
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.organization.settings.reload").tag("result", "succeeded").counter().count());
+    }
+
+    @Test
+    void testUnchangedFileIsNotReloaded() throws IOException {
+        writeSettings("RETAIL.maxFailedAttempts=3\n");
+        settingsService.initialize();
+        final OrganizationSettingsSnapshot previous = settingsService.getSnapshot();
+        reload();
+        assertSame(previous, settingsService.getSnapshot());
+        assertEquals(1, publishedEvents.get());
+    }
+
+    @Test
+    void testInvalidFileKeepsPreviousSnapshot() throws IOException {
+        writeSettings("RETAIL.maxFailedAttempts=3\n");
+        settingsService.initialize();
+        final OrganizationSettingsSnapshot previous = settingsService.getSnapshot();
+        writeSettings("RETAIL.maxFailedAttempts=3\nRETAIL.unknownSetting=1\n");
+        reload();
+        assertSame(previous, settingsService.getSnapshot());
+        assertEquals(1, publishedEvents.get());
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.organization.settings.reload").tag("result", "failed").counter().count());
+        // The invalid file is reported only once
+        reload();
+        assertEquals(1.0, meterRegistry.get("powerauth.dataadapter.organization.settings.reload").tag("result", "failed").counter().count());
+    }
+
+    private void writeSettings(String content) throws IOException {
+        final FileTime previousModifiedTime = Files.exists(settingsFile) ? Files.getLastModifiedTime(settingsFile) : null;
+        Files.write(settingsFile, content.getBytes(StandardCharsets.UTF_8));
+        if (previousModifiedTime != null) {
+            // Make the change visible also on file systems with a coarse modification time
+            Files.setLastModifiedTime(settingsFile, FileTime.fromMillis(previousModifiedTime.toMillis() + 2000));
+        }
+    }
+
+    private void reload() {
+        ReflectionTestUtils.invokeMethod(settingsService, "reloadIfChanged", settingsFile);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Wultra s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.getlime.security.powerauth.app.dataadapter.service.threads;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests of reflective access to virtual threads.
+ */
+class VirtualThreadsTest {
+
+    @Test
+    void testPlatformThreadIsNotVirtual() {
+        assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+    }
+
+    @Test
+    void testThreadPerTaskExecutor() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            final Future<Thread> first = executor.submit(Thread::currentThread);
+            final Future<Thread> second = executor.submit(Thread::currentThread);
+            assertTrue(VirtualThreads.isVirtual(first.get(5, TimeUnit.SECONDS)));
+            assertTrue(first.get().getName().startsWith("test-"));
+            assertNotSame(first.get(), second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testUnsupportedRuntime() {
+        assumeFalse(VirtualThreads.isSupported());
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.newThreadFactory("test-"));
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+    }
+}